@@ -3,6 +3,7 @@ package org.maltparser;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
+import org.maltparser.core.config.InstanceCache;
 import org.maltparser.core.exception.MaltChainedException;
 import org.maltparser.core.flow.FlowChartInstance;
 import org.maltparser.core.flow.FlowChartManager;
@@ -42,6 +43,10 @@ public class Engine  {
 				flowChartName = OptionManager.instance().getOptionValue(optionContainerIndex, "config", "flowchart").toString();
 			}
 		}
+		if (flowChartName.equals("learn") && InstanceCache.isEnabled(optionContainerIndex) && new InstanceCache(optionContainerIndex).exists()) {
+			// The models are trained from the cached instances, the option --config-flowchart is still learn
+			flowChartName = "learncached";
+		}
 		FlowChartInstance flowChartInstance = flowChartManager.initialize(optionContainerIndex, flowChartName);
 		flowChartInstances.put(optionContainerIndex, flowChartInstance);
 		return flowChartInstance;
@@ -102,10 +102,14 @@ public class MaltConsoleEngine {
 //			concurrentEngine.parse();
 //			concurrentEngine.terminate();
 //		} else {
+		if (ParameterSweep.isSweep(OPTION_CONTAINER)) {
+			new ParameterSweep(OPTION_CONTAINER).run();
+		} else {
 			Engine engine = new Engine();
 			engine.initialize(OPTION_CONTAINER);
 			engine.process(OPTION_CONTAINER);
 			engine.terminate(OPTION_CONTAINER);
+		}
 //		}
 		if (SystemLogger.logger().isInfoEnabled()) {
 			SystemLogger.logger().info("Finished: " + new Date(System.currentTimeMillis())+"\n");
@@ -0,0 +1,293 @@
+package org.maltparser;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Formatter;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.maltparser.core.config.InstanceCache;
+import org.maltparser.core.exception.MaltChainedException;
+import org.maltparser.core.helper.SystemLogger;
+import org.maltparser.core.helper.URLFinder;
+import org.maltparser.core.io.dataformat.DataFormatEntry;
+import org.maltparser.core.io.dataformat.DataFormatSpecification;
+import org.maltparser.core.options.OptionManager;
+
+/**
+ * A sweep trains one configuration for each learner option string of the option <b>--lib-sweep</b>, in addition to the
+ * configuration of the option container. The configuration of the option container is trained first, which saves the
+ * training instances in the instance cache (<b>--guide-instance_cache</b>), and then the configurations of the option
+ * strings are trained concurrently from the cached instances. If the option <b>--lib-sweep_devfile</b> is given, every
+ * configuration parses the development data and the attachment scores of the configurations are logged.
+ * <p>
+ * Every configuration gets an option container of its own, where the options of the sweep configuration are copied
+ * before it is trained.
+ */
+public class ParameterSweep {
+	private final int optionContainer;
+	private final String configName;
+	private final ArrayList<String> settings;
+	private final String devFile;
+	private final String inputFormat;
+	private final String inputCharSet;
+	private final String outputCharSet;
+
+	/**
+	 * Creates a sweep of the configuration of an option container
+	 *
+	 * @param optionContainer the index of the option container
+	 * @throws MaltChainedException
+	 */
+	public ParameterSweep(int optionContainer) throws MaltChainedException {
+		final OptionManager om = OptionManager.instance();
+		this.optionContainer = optionContainer;
+		this.configName = om.getOptionValue(optionContainer, "config", "name").toString();
+		this.settings = new ArrayList<String>();
+		for (String setting : om.getOptionValue(optionContainer, "lib", "sweep").toString().split(";")) {
+			if (setting.trim().length() > 0) {
+				settings.add(setting.trim());
+			}
+		}
+		this.devFile = om.getOptionValue(optionContainer, "lib", "sweep_devfile").toString().trim();
+		// The data format and the char sets are read before the configurations change the options
+		this.inputFormat = om.getOptionValue(optionContainer, "input", "format").toString().trim();
+		this.inputCharSet = om.getOptionValue(optionContainer, "input", "charset").toString();
+		this.outputCharSet = om.getOptionValue(optionContainer, "output", "charset").toString();
+	}
+
+	/**
+	 * Returns <i>true</i> if the option container specifies a sweep, that is the flowchart is <b>learn</b> and the option
+	 * <b>--lib-sweep</b> is given.
+	 *
+	 * @param optionContainer the index of the option container
+	 * @return <i>true</i> if the option container specifies a sweep
+	 * @throws MaltChainedException
+	 */
+	public static boolean isSweep(int optionContainer) throws MaltChainedException {
+		final OptionManager om = OptionManager.instance();
+		if (om.getOptionValue(optionContainer, "lib", "sweep").toString().trim().length() == 0) {
+			return false;
+		}
+		String flowChartName = null;
+		if (om.getOptionValueNoDefault(optionContainer, "config", "flowchart") != null) {
+			flowChartName = om.getOptionValue(optionContainer, "config", "flowchart").toString();
+		} else if (om.getOptionValueNoDefault(optionContainer, "singlemalt", "mode") != null) {
+			flowChartName = om.getOptionValue(optionContainer, "singlemalt", "mode").toString();
+		} else {
+			flowChartName = om.getOptionValue(optionContainer, "config", "flowchart").toString();
+		}
+		return flowChartName.equals("learn");
+	}
+
+	/**
+	 * Trains the configurations of the sweep and, if development data is given, logs the scores of the configurations
+	 *
+	 * @throws MaltChainedException
+	 */
+	public void run() throws MaltChainedException {
+		if (!InstanceCache.isEnabled(optionContainer)) {
+			throw new MaltChainedException("A sweep (--lib-sweep) requires an instance cache (--guide-instance_cache) and a learner of the lib package. ");
+		}
+		final OptionManager om = OptionManager.instance();
+		// The options are copied before the configuration of the option container changes them
+		final Set<Integer> containerIndices = om.getOptionContainerIndices();
+		int nextContainer = containerIndices.isEmpty()?optionContainer + 1:Math.max(optionContainer, Collections.max(containerIndices).intValue()) + 1;
+		final String[] names = new String[settings.size() + 1];
+		final int[] learnContainers = new int[settings.size() + 1];
+		final int[] parseContainers = new int[settings.size() + 1];
+		names[0] = configName;
+		learnContainers[0] = optionContainer;
+		for (int i = 1; i < names.length; i++) {
+			names[i] = configName+"-"+i;
+			learnContainers[i] = nextContainer++;
+			om.copyOptions(optionContainer, learnContainers[i]);
+			om.overloadOptionValue(learnContainers[i], "config", "name", names[i]);
+			om.overloadOptionValue(learnContainers[i], "config", "flowchart", "learn");
+			om.overloadOptionValue(learnContainers[i], "lib", "options", settings.get(i - 1));
+		}
+		if (devFile.length() > 0) {
+			for (int i = 0; i < names.length; i++) {
+				parseContainers[i] = nextContainer++;
+				om.copyOptions(optionContainer, parseContainers[i]);
+				om.overloadOptionValue(parseContainers[i], "config", "name", names[i]);
+				om.overloadOptionValue(parseContainers[i], "config", "flowchart", "parse");
+				om.overloadOptionValue(parseContainers[i], "input", "infile", devFile);
+				om.overloadOptionValue(parseContainers[i], "output", "outfile", names[i]+".dev");
+			}
+		}
+
+		runFlowChart(learnContainers[0]);
+		if (SystemLogger.logger().isInfoEnabled()) {
+			SystemLogger.logger().info("Sweep of "+settings.size()+" learner option string(s) from the instance cache\n");
+		}
+		final int numberOfThreads = Math.min(names.length, Runtime.getRuntime().availableProcessors());
+		final ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+		final ArrayList<Future<Object>> futures = new ArrayList<Future<Object>>(names.length);
+		try {
+			for (int i = 0; i < names.length; i++) {
+				final int index = i;
+				futures.add(executor.submit(new Callable<Object>() {
+					public Object call() throws MaltChainedException {
+						if (index > 0) {
+							runFlowChart(learnContainers[index]);
+						}
+						if (devFile.length() > 0) {
+							runFlowChart(parseContainers[index]);
+						}
+						return null;
+					}
+				}));
+			}
+			executor.shutdown();
+			for (int i = 0; i < names.length; i++) {
+				try {
+					futures.get(i).get();
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof OutOfMemoryError) {
+						throw new MaltChainedException("Out of memory. Please increase the Java heap size (-Xmx<size>). ", e.getCause());
+					}
+					throw new MaltChainedException("The configuration '"+names[i]+"' of the sweep could not be trained. ", e.getCause());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new MaltChainedException("The sweep was interrupted. ", e);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		if (devFile.length() > 0) {
+			logScores(names);
+		}
+	}
+
+	/**
+	 * Runs the flowchart of an option container
+	 *
+	 * @param containerIndex the index of the option container
+	 * @throws MaltChainedException
+	 */
+	private static void runFlowChart(int containerIndex) throws MaltChainedException {
+		final Engine engine = new Engine();
+		engine.initialize(containerIndex);
+		engine.process(containerIndex);
+		engine.terminate(containerIndex);
+	}
+
+	private void logScores(String[] names) throws MaltChainedException {
+		final OptionManager om = OptionManager.instance();
+		final DataFormatSpecification dataFormat = new DataFormatSpecification();
+		dataFormat.parseDataFormatXMLfile(new URLFinder().findURL(inputFormat));
+		int headColumn = -1;
+		int labelColumn = -1;
+		int column = 0;
+		for (DataFormatEntry entry : dataFormat.getEntries()) {
+			if (headColumn == -1 && entry.getCategory().equals("HEAD")) {
+				headColumn = column;
+			} else if (labelColumn == -1 && entry.getCategory().equals("DEPENDENCY_EDGE_LABEL")) {
+				labelColumn = column;
+			}
+			column++;
+		}
+		if (headColumn == -1) {
+			throw new MaltChainedException("The development data of the sweep cannot be scored, because the data format has no head column. ");
+		}
+		final StringBuilder sb = new StringBuilder();
+		final Formatter formatter = new Formatter(sb);
+		sb.append("\nSWEEP SCORES (development data "+devFile+")\n");
+		formatter.format("%-30s %7s %7s %7s  %s\n", "Configuration", "LAS", "UAS", "LA", "Learner options");
+		for (int i = 0; i < names.length; i++) {
+			final double[] scores = score(devFile, inputCharSet, names[i]+".dev", outputCharSet, headColumn, labelColumn);
+			String options = (i == 0)?om.getOptionValue(optionContainer, "lib", "options").toString():settings.get(i - 1);
+			if (options.length() == 0) {
+				options = "(default)";
+			}
+			formatter.format("%-30s %7.2f %7.2f %7.2f  %s\n", names[i], scores[0], scores[1], scores[2], options);
+		}
+		formatter.close();
+		if (SystemLogger.logger().isInfoEnabled()) {
+			SystemLogger.logger().info(sb.toString());
+		}
+	}
+
+	/**
+	 * Returns the labeled attachment score, the unlabeled attachment score and the label accuracy of all tokens of the
+	 * parsed development data, in percent
+	 */
+	private static double[] score(String goldFile, String goldCharSet, String systemFile, String systemCharSet, int headColumn, int labelColumn) throws MaltChainedException {
+		int tokens = 0;
+		int las = 0;
+		int uas = 0;
+		int la = 0;
+		try {
+			final BufferedReader gold = new BufferedReader(new InputStreamReader(new FileInputStream(goldFile), goldCharSet));
+			try {
+				final BufferedReader system = new BufferedReader(new InputStreamReader(new FileInputStream(systemFile), systemCharSet));
+				try {
+					while (true) {
+						final String[] goldToken = nextToken(gold);
+						final String[] systemToken = nextToken(system);
+						if (goldToken == null || systemToken == null) {
+							if (goldToken != systemToken) {
+								throw new MaltChainedException("The parsed development data '"+systemFile+"' doesn't have the same tokens as '"+goldFile+"'. ");
+							}
+							break;
+						}
+						final boolean head = column(goldToken, headColumn).equals(column(systemToken, headColumn));
+						final boolean label = labelColumn == -1 || column(goldToken, labelColumn).equals(column(systemToken, labelColumn));
+						tokens++;
+						if (head) {
+							uas++;
+						}
+						if (label) {
+							la++;
+						}
+						if (head && label) {
+							las++;
+						}
+					}
+				} finally {
+					system.close();
+				}
+			} finally {
+				gold.close();
+			}
+		} catch (IOException e) {
+			throw new MaltChainedException("The parsed development data '"+systemFile+"' cannot be scored. ", e);
+		}
+		if (tokens == 0) {
+			return new double[] { 0.0, 0.0, 0.0 };
+		}
+		return new double[] { 100.0 * las / tokens, 100.0 * uas / tokens, 100.0 * la / tokens };
+	}
+
+	/**
+	 * Returns the columns of the next token line, skipping empty lines, comment lines and the multiword token lines of CoNLL-U
+	 */
+	private static String[] nextToken(BufferedReader reader) throws IOException {
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if (line.trim().length() == 0 || line.startsWith("#")) {
+				continue;
+			}
+			final String[] columns = line.split("\t");
+			if (columns[0].indexOf('-') != -1 || columns[0].indexOf('.') != -1) {
+				continue;
+			}
+			return columns;
+		}
+		return null;
+	}
+
+	private static String column(String[] columns, int index) {
+		return (index < columns.length)?columns[index]:"";
+	}
+}
@@ -1,10 +1,13 @@
 package org.maltparser.concurrent;
 
 import java.io.IOException;
+import java.lang.ref.WeakReference;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import org.maltparser.concurrent.graph.ConcurrentDependencyGraph;
 import org.maltparser.concurrent.graph.dataformat.DataFormat;
@@ -14,12 +17,12 @@ import org.maltparser.core.feature.system.FeatureEngine;
 import org.maltparser.core.io.dataformat.DataFormatInstance;
 import org.maltparser.core.io.dataformat.DataFormatManager;
 import org.maltparser.core.lw.graph.LWDeprojectivizer;
-import org.maltparser.core.lw.graph.LWDependencyGraph;
+import org.maltparser.core.lw.graph.LWCompactDependencyGraph;
 import org.maltparser.core.lw.parser.LWSingleMalt;
+import org.maltparser.core.lw.parser.LWClassifierCache;
 import org.maltparser.core.lw.parser.McoModel;
 import org.maltparser.core.options.OptionManager;
 import org.maltparser.core.plugin.PluginLoader;
-import org.maltparser.core.symbol.SymbolTableHandler;
 import org.maltparser.core.symbol.hash.HashSymbolTableHandler;
 import org.maltparser.core.symbol.parse.ParseSymbolTableHandler;
 
@@ -33,13 +36,17 @@ import org.maltparser.core.symbol.parse.ParseSymbolTableHandler;
 public final class ConcurrentMaltParserModel {
     private final DataFormatInstance dataFormatInstance;
     private final DataFormat concurrentDataFormat;
-    private final SymbolTableHandler parentSymbolTableHandler;
+    private final HashSymbolTableHandler parentSymbolTableHandler;
     private final LWSingleMalt singleMalt;
     private final int optionContainer;
     private final McoModel mcoModel;    
     private final int markingStrategy; 
     private final boolean coveredRoot;
     private final String defaultRootLabel; 
+    /** Each parsing thread reuses its own graph, with its own overlay of the symbol tables, for all sentences it parses. The graphs 
+     * are owned by the model and the thread locals only refer to them weakly, so an unloaded model isn't kept alive by the parsing threads. */
+    private final ThreadLocal<WeakReference<LWCompactDependencyGraph>> parseGraphs;
+    private final Map<Thread, LWCompactDependencyGraph> threadParseGraphs;
     
     /**
      * This constructor can only be used by ConcurrentMaltParserService
@@ -49,8 +56,22 @@ public final class ConcurrentMaltParserModel {
      * @throws MaltChainedException
      */
     protected ConcurrentMaltParserModel(int _optionContainer, URL _mcoURL) throws MaltChainedException {
+    	this(_optionContainer, _mcoURL, null);
+    }
+    
+    /**
+     * This constructor can only be used by ConcurrentMaltParserService and ConcurrentMaltParserRegistry
+     * 
+     * @param _optionContainer a option container index
+     * @param _mcoURL a URL to a valid MaltParser model file. 
+     * @param registry the registry that shares the feature system and the data formats with its other models, or <i>null</i>
+     * @throws MaltChainedException
+     */
+    ConcurrentMaltParserModel(int _optionContainer, URL _mcoURL, ConcurrentMaltParserRegistry registry) throws MaltChainedException {
 		this.optionContainer = _optionContainer;
-		this.mcoModel = new McoModel(_mcoURL);
+		// The divide models are loaded on request if they are kept in a memory-capped cache (--guide-divide_model_cache)
+		final boolean lazyDivideModels = ((Integer)OptionManager.instance().getOptionValue(optionContainer, "guide", "divide_model_cache")).intValue() > 0;
+		this.mcoModel = new McoModel(_mcoURL, McoModel.DEFAULT_LOADER_THREADS, lazyDivideModels);
 		String inputFormatName = OptionManager.instance().getOptionValue(optionContainer, "input", "format").toString().trim();	
 		URL inputFormatURL = null;
 		try {
@@ -59,20 +80,39 @@ public final class ConcurrentMaltParserModel {
 			throw new MaltChainedException("Couldn't read file "+inputFormatName+" from mco-file ", e);
 		}
 		DataFormatManager dataFormatManager = new DataFormatManager(inputFormatURL, inputFormatURL);
-		this.parentSymbolTableHandler = new HashSymbolTableHandler();
+		final HashSymbolTableHandler hashSymbolTableHandler = new HashSymbolTableHandler();
+		this.parentSymbolTableHandler = hashSymbolTableHandler;
 		this.dataFormatInstance = dataFormatManager.getInputDataFormatSpec().createDataFormatInstance(this.parentSymbolTableHandler, OptionManager.instance().getOptionValueString(optionContainer, "singlemalt", "null_value"));
-		try {
-			this.parentSymbolTableHandler.load(mcoModel.getInputStreamReader("symboltables.sym", "UTF-8"));
-		} catch(IOException e) {
-			throw new MaltChainedException("Couldn't read file symboltables.sym from mco-file ", e);
+		// The loaded symbol tables are only read during parsing, new symbols are added to the ParseSymbolTableHandler of each sentence
+		final boolean symbolTableTrie = ((Boolean)OptionManager.instance().getOptionValue(optionContainer, "singlemalt", "symbol_table_trie")).booleanValue();
+		if (mcoModel.hasMcoEntry("symboltables.bsym")) {
+			// The binary symbol tables are loaded as frozen symbol tables 
+			try {
+				hashSymbolTableHandler.loadBinary(mcoModel.getInputStream("symboltables.bsym"));
+			} catch(IOException e) {
+				throw new MaltChainedException("Couldn't read file symboltables.bsym from mco-file ", e);
+			}
+			if (symbolTableTrie) {
+				hashSymbolTableHandler.freeze(true);
+			}
+		} else {
+			try {
+				this.parentSymbolTableHandler.load(mcoModel.getInputStreamReader("symboltables.sym", "UTF-8"));
+			} catch(IOException e) {
+				throw new MaltChainedException("Couldn't read file symboltables.sym from mco-file ", e);
+			}
+			hashSymbolTableHandler.freeze(symbolTableTrie);
 		}
 		this.defaultRootLabel = OptionManager.instance().getOptionValue(optionContainer, "graph", "root_label").toString().trim();	
 		this.markingStrategy = LWDeprojectivizer.getMarkingStrategyInt(OptionManager.instance().getOptionValue(optionContainer, "pproj", "marking_strategy").toString().trim());
 		this.coveredRoot = !OptionManager.instance().getOptionValue(optionContainer, "pproj", "covered_root").toString().trim().equalsIgnoreCase("none");
 //		final PropagationManager propagationManager = loadPropagationManager(this.optionContainer, mcoModel);
-		final FeatureModelManager featureModelManager = loadFeatureModelManager(this.optionContainer, mcoModel);
+		final FeatureEngine system = (registry != null)?registry.getFeatureEngine():loadFeatureEngine();
+		final FeatureModelManager featureModelManager = loadFeatureModelManager(this.optionContainer, mcoModel, system);
 		this.singleMalt = new LWSingleMalt(this.optionContainer, this.dataFormatInstance, mcoModel, null, featureModelManager);
-		this.concurrentDataFormat = DataFormat.parseDataFormatXMLfile(inputFormatURL);
+		this.concurrentDataFormat = (registry != null)?registry.getDataFormat(inputFormatURL):DataFormat.parseDataFormatXMLfile(inputFormatURL);
+		this.parseGraphs = new ThreadLocal<WeakReference<LWCompactDependencyGraph>>();
+		this.threadParseGraphs = Collections.synchronizedMap(new WeakHashMap<Thread, LWCompactDependencyGraph>());
     }
     
     /**
@@ -94,7 +134,7 @@ public final class ConcurrentMaltParserModel {
 	 * @throws MaltChainedException
 	 */
 	public String[] parseTokens(String[] tokens) throws MaltChainedException {
-		LWDependencyGraph outputGraph = internalParse(tokens);
+		LWCompactDependencyGraph outputGraph = internalParse(tokens);
 		String[] outputTokens = new String[tokens.length];
 		for (int i = 0; i < outputTokens.length; i++) {
 			outputTokens[i] = outputGraph.getDependencyNode(i+1).toString();
@@ -102,12 +142,20 @@ public final class ConcurrentMaltParserModel {
 		return outputTokens;
 	}
 
-    private LWDependencyGraph internalParse(String[] tokens) throws MaltChainedException {
+    private LWCompactDependencyGraph internalParse(String[] tokens) throws MaltChainedException {
 		if (tokens == null || tokens.length == 0) {
 		    throw new MaltChainedException("Nothing to parse. ");
 		}
 
-		LWDependencyGraph parseGraph = new LWDependencyGraph(concurrentDataFormat, new ParseSymbolTableHandler(parentSymbolTableHandler), tokens, defaultRootLabel, false);
+		final WeakReference<LWCompactDependencyGraph> parseGraphRef = parseGraphs.get();
+		LWCompactDependencyGraph parseGraph = (parseGraphRef != null)?parseGraphRef.get():null;
+		if (parseGraph == null) {
+			parseGraph = new LWCompactDependencyGraph(concurrentDataFormat, new ParseSymbolTableHandler(parentSymbolTableHandler));
+			threadParseGraphs.put(Thread.currentThread(), parseGraph);
+			parseGraphs.set(new WeakReference<LWCompactDependencyGraph>(parseGraph));
+		}
+		// The graph of the previous sentence of the thread has already been converted by parse() or parseTokens()
+		parseGraph.resetTokens(tokens, defaultRootLabel, false);
 		
 		singleMalt.parse(parseGraph);
 		if (markingStrategy != 0 || coveredRoot) { 
@@ -117,6 +165,33 @@ public final class ConcurrentMaltParserModel {
 		return parseGraph;
     }
 	
+    /**
+     * Returns the cache of the divide models, which can be used to monitor the residency and the load misses of the divide 
+     * models, or <i>null</i> if all models are loaded when the parser model is initialized.
+     * 
+     * @return the cache of the divide models, or <i>null</i> if all models are loaded when the parser model is initialized
+     */
+    public LWClassifierCache getDivideModelCache() {
+    	return singleMalt.getDecisionModel().getDivideModelCache();
+    }
+    
+    /**
+     * Returns a rough estimate of the number of bytes used by the symbol tables and the classifiers of the parser model.
+     * 
+     * @return a rough estimate of the number of bytes used by the parser model
+     */
+    public long getMemoryUsage() {
+    	return parentSymbolTableHandler.getMemoryUsage() + singleMalt.getDecisionModel().getMemoryUsage();
+    }
+    
+    int getOptionContainer() {
+    	return optionContainer;
+    }
+    
+    DataFormat getConcurrentDataFormat() {
+    	return concurrentDataFormat;
+    }
+    
     public List<String[]> parseSentences(List<String[]> inputSentences) throws MaltChainedException {
     	return singleMalt.parseSentences(inputSentences, defaultRootLabel, markingStrategy, coveredRoot, parentSymbolTableHandler, concurrentDataFormat);
 //    	List<String[]> outputSentences = Collections.synchronizedList(new ArrayList<String[]>());;
@@ -152,10 +227,14 @@ public final class ConcurrentMaltParserModel {
 //		return propagationManager;
 //	}
 	
-	private FeatureModelManager loadFeatureModelManager(int optionContainer, McoModel mcoModel) throws MaltChainedException {
+	static FeatureEngine loadFeatureEngine() throws MaltChainedException {
 		final FeatureEngine system = new FeatureEngine();
 		system.load("/appdata/features/ParserFeatureSystem.xml");
 		system.load(PluginLoader.instance());
+		return system;
+	}
+	
+	private FeatureModelManager loadFeatureModelManager(int optionContainer, McoModel mcoModel, FeatureEngine system) throws MaltChainedException {
 		FeatureModelManager featureModelManager = new FeatureModelManager(system);
 		String featureModelFileName = OptionManager.instance().getOptionValue(optionContainer, "guide", "features").toString().trim();
 		try {
@@ -0,0 +1,398 @@
+package org.maltparser.concurrent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.maltparser.concurrent.graph.ConcurrentDependencyGraph;
+import org.maltparser.concurrent.graph.dataformat.DataFormat;
+import org.maltparser.core.exception.MaltChainedException;
+import org.maltparser.core.feature.system.FeatureEngine;
+import org.maltparser.core.options.OptionManager;
+
+/**
+* A registry of concurrent MaltParser models that are identified by a name, for example a language code. The models of a
+* registry share the feature system and the data formats, which are only read during parsing, instead of loading their own
+* copies of them.
+*
+* A model can be reloaded while other threads parse with it. The new model replaces the old model atomically, the parses
+* that already have started with the old model finish with it and the old model is released when its last parse is done.
+* When a model is released its option container is removed, so that all memory of the model can be garbage collected. This
+* only holds for parses made by the parse methods of the registry, a model returned by getModel() must not be used after it
+* has been reloaded or unloaded.
+*/
+public final class ConcurrentMaltParserRegistry {
+	private final ConcurrentHashMap<String, RegisteredModel> models;
+	private final HashMap<String, DataFormat> dataFormats;
+	private FeatureEngine featureEngine;
+
+	public ConcurrentMaltParserRegistry() {
+		this.models = new ConcurrentHashMap<String, RegisteredModel>();
+		this.dataFormats = new HashMap<String, DataFormat>();
+	}
+
+	/**
+	 * Loads a MaltParser model file (.mco) and registers it with a name. If the name already is registered the old
+	 * model is replaced, see reload().
+	 *
+	 * @param name the name of the model
+	 * @param mcoURL URL to a valid MaltParser model file
+	 * @return the loaded model
+	 * @throws MaltChainedException
+	 */
+	public ConcurrentMaltParserModel load(String name, URL mcoURL) throws MaltChainedException {
+		return load(name, mcoURL, "");
+	}
+
+	/**
+	 * Loads a MaltParser model file (.mco) with additional parsing options and registers it with a name. If the name
+	 * already is registered the old model is replaced, see reload().
+	 *
+	 * @param name the name of the model
+	 * @param mcoURL URL to a valid MaltParser model file
+	 * @param commandLine additional parsing options, for example <code>-gdc 256</code>
+	 * @return the loaded model
+	 * @throws MaltChainedException
+	 */
+	public ConcurrentMaltParserModel load(String name, URL mcoURL, String commandLine) throws MaltChainedException {
+		final RegisteredModel registeredModel = loadModel(mcoURL, commandLine);
+		final RegisteredModel previous = models.put(name, registeredModel);
+		if (previous != null) {
+			previous.retire();
+			releaseDataFormats();
+		}
+		return registeredModel.getModel();
+	}
+
+	/**
+	 * Loads the model file of a registered model again and replaces the registered model with the new model. Parses
+	 * that are started after the replacement use the new model, while parses that already have started finish with
+	 * the old model.
+	 *
+	 * @param name the name of the model
+	 * @return the reloaded model
+	 * @throws MaltChainedException
+	 */
+	public ConcurrentMaltParserModel reload(String name) throws MaltChainedException {
+		final RegisteredModel current = getRegisteredModel(name);
+		final RegisteredModel reloaded = loadModel(current.getMcoURL(), current.getCommandLine());
+		if (!models.replace(name, current, reloaded)) {
+			reloaded.retire();
+			releaseDataFormats();
+			throw new MaltChainedException("The parser model '"+name+"' was replaced or unloaded during the reload. ");
+		}
+		current.retire();
+		releaseDataFormats();
+		return reloaded.getModel();
+	}
+
+	/**
+	 * Unregisters a model. The model is released when the parses that already have started with it are done.
+	 *
+	 * @param name the name of the model
+	 * @return true if the model is unloaded, false if no model is registered with the name
+	 */
+	public boolean unload(String name) {
+		final RegisteredModel registeredModel = models.remove(name);
+		if (registeredModel == null) {
+			return false;
+		}
+		registeredModel.retire();
+		releaseDataFormats();
+		return true;
+	}
+
+	/**
+	 * Unregisters all models
+	 */
+	public void unloadAll() {
+		for (String name : new ArrayList<String>(models.keySet())) {
+			unload(name);
+		}
+	}
+
+	/**
+	 * Parses an array of tokens with a registered model and returns a dependency graph.
+	 *
+	 * @param name the name of the model
+	 * @param tokens an array of tokens
+	 * @return a dependency graph
+	 * @throws MaltChainedException
+	 */
+	public ConcurrentDependencyGraph parse(String name, String[] tokens) throws MaltChainedException {
+		final RegisteredModel registeredModel = acquire(name);
+		try {
+			return registeredModel.getModel().parse(tokens);
+		} finally {
+			registeredModel.release();
+		}
+	}
+
+	/**
+	 * Same as parse(String name, String[] tokens), but instead it returns an array of tokens with a head index and a
+	 * dependency type at the end of string
+	 *
+	 * @param name the name of the model
+	 * @param tokens an array of tokens to parse
+	 * @return an array of tokens with a head index and a dependency type at the end of string
+	 * @throws MaltChainedException
+	 */
+	public String[] parseTokens(String name, String[] tokens) throws MaltChainedException {
+		final RegisteredModel registeredModel = acquire(name);
+		try {
+			return registeredModel.getModel().parseTokens(tokens);
+		} finally {
+			registeredModel.release();
+		}
+	}
+
+	public List<String[]> parseSentences(String name, List<String[]> inputSentences) throws MaltChainedException {
+		final RegisteredModel registeredModel = acquire(name);
+		try {
+			return registeredModel.getModel().parseSentences(inputSentences);
+		} finally {
+			registeredModel.release();
+		}
+	}
+
+	/**
+	 * Returns the registered model, or <i>null</i> if no model is registered with the name. The returned model must not be
+	 * used after it has been reloaded or unloaded.
+	 *
+	 * @param name the name of the model
+	 * @return the registered model, or <i>null</i> if no model is registered with the name
+	 */
+	public ConcurrentMaltParserModel getModel(String name) {
+		final RegisteredModel registeredModel = models.get(name);
+		return (registeredModel != null)?registeredModel.getModel():null;
+	}
+
+	public boolean hasModel(String name) {
+		return models.containsKey(name);
+	}
+
+	public Set<String> getModelNames() {
+		return Collections.unmodifiableSet(new TreeSet<String>(models.keySet()));
+	}
+
+	/**
+	 * Returns the time in nanoseconds it took to load the registered model
+	 *
+	 * @param name the name of the model
+	 * @return the time in nanoseconds it took to load the registered model
+	 * @throws MaltChainedException
+	 */
+	public long getLoadTime(String name) throws MaltChainedException {
+		return getRegisteredModel(name).getLoadTime();
+	}
+
+	/**
+	 * Returns a rough estimate of the number of bytes used by the registered model, see ConcurrentMaltParserModel.getMemoryUsage()
+	 *
+	 * @param name the name of the model
+	 * @return a rough estimate of the number of bytes used by the registered model
+	 * @throws MaltChainedException
+	 */
+	public long getMemoryUsage(String name) throws MaltChainedException {
+		return getRegisteredModel(name).getModel().getMemoryUsage();
+	}
+
+	/**
+	 * Returns the number of parses that currently use the registered model
+	 *
+	 * @param name the name of the model
+	 * @return the number of parses that currently use the registered model
+	 * @throws MaltChainedException
+	 */
+	public int getNumberOfActiveParses(String name) throws MaltChainedException {
+		return getRegisteredModel(name).getNumberOfActiveParses();
+	}
+
+	synchronized FeatureEngine getFeatureEngine() throws MaltChainedException {
+		if (featureEngine == null) {
+			featureEngine = ConcurrentMaltParserModel.loadFeatureEngine();
+		}
+		return featureEngine;
+	}
+
+	/**
+	 * Returns the data format of a data format specification file, which is shared by all models that use a data format
+	 * specification file with the same content.
+	 *
+	 * @param url URL to a data format specification file
+	 * @return the data format
+	 * @throws MaltChainedException
+	 */
+	DataFormat getDataFormat(URL url) throws MaltChainedException {
+		final String content = readContent(url);
+		synchronized (dataFormats) {
+			DataFormat dataFormat = dataFormats.get(content);
+			if (dataFormat == null) {
+				dataFormat = DataFormat.parseDataFormatXMLfile(url);
+				dataFormats.put(content, dataFormat);
+			}
+			return dataFormat;
+		}
+	}
+
+	private void releaseDataFormats() {
+		final Map<DataFormat, Boolean> used = new IdentityHashMap<DataFormat, Boolean>();
+		for (RegisteredModel registeredModel : models.values()) {
+			used.put(registeredModel.getModel().getConcurrentDataFormat(), Boolean.TRUE);
+		}
+		synchronized (dataFormats) {
+			final Iterator<DataFormat> it = dataFormats.values().iterator();
+			while (it.hasNext()) {
+				if (!used.containsKey(it.next())) {
+					it.remove();
+				}
+			}
+		}
+	}
+
+	private RegisteredModel loadModel(URL mcoURL, String commandLine) throws MaltChainedException {
+		final long startTime = System.nanoTime();
+		final int optionContainer = ConcurrentMaltParserService.initializeOptions(mcoURL, commandLine);
+		final ConcurrentMaltParserModel model;
+		try {
+			model = new ConcurrentMaltParserModel(optionContainer, mcoURL, this);
+		} catch (MaltChainedException e) {
+			OptionManager.instance().removeOptions(optionContainer);
+			throw e;
+		} catch (RuntimeException e) {
+			OptionManager.instance().removeOptions(optionContainer);
+			throw e;
+		}
+		return new RegisteredModel(model, mcoURL, commandLine, System.nanoTime() - startTime);
+	}
+
+	private RegisteredModel getRegisteredModel(String name) throws MaltChainedException {
+		final RegisteredModel registeredModel = models.get(name);
+		if (registeredModel == null) {
+			throw new MaltChainedException("The parser model '"+name+"' is not loaded. ");
+		}
+		return registeredModel;
+	}
+
+	private RegisteredModel acquire(String name) throws MaltChainedException {
+		while (true) {
+			final RegisteredModel registeredModel = getRegisteredModel(name);
+			// A retired model has already been replaced in the map, so the next lookup finds the new model
+			if (registeredModel.acquire()) {
+				return registeredModel;
+			}
+		}
+	}
+
+	private static String readContent(URL url) throws MaltChainedException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			final InputStream is = url.openStream();
+			try {
+				final byte[] buffer = new byte[4096];
+				int n;
+				while ((n = is.read(buffer)) != -1) {
+					bytes.write(buffer, 0, n);
+				}
+			} finally {
+				is.close();
+			}
+			return bytes.toString("UTF-8");
+		} catch (IOException e) {
+			throw new MaltChainedException("Couldn't read the data format file '"+url+"'. ", e);
+		}
+	}
+
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		for (String name : getModelNames()) {
+			final RegisteredModel registeredModel = models.get(name);
+			if (registeredModel == null) {
+				continue;
+			}
+			sb.append(name).append(": ");
+			sb.append(registeredModel.getMcoURL()).append(", ");
+			sb.append(registeredModel.getModel().getMemoryUsage() / 1024).append(" KB, ");
+			sb.append(String.format("%.2f", registeredModel.getLoadTime() / 1e6)).append(" ms loading, ");
+			sb.append(registeredModel.getNumberOfActiveParses()).append(" active parses\n");
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * A registered model keeps track of the parses that use it, so that its option container is removed first when it is
+	 * retired and no parse uses it anymore.
+	 */
+	private static final class RegisteredModel {
+		private final ConcurrentMaltParserModel model;
+		private final URL mcoURL;
+		private final String commandLine;
+		private final long loadTime;
+		private int activeParses;
+		private boolean retired;
+
+		public RegisteredModel(ConcurrentMaltParserModel model, URL mcoURL, String commandLine, long loadTime) {
+			this.model = model;
+			this.mcoURL = mcoURL;
+			this.commandLine = commandLine;
+			this.loadTime = loadTime;
+		}
+
+		public synchronized boolean acquire() {
+			if (retired) {
+				return false;
+			}
+			activeParses++;
+			return true;
+		}
+
+		public synchronized void release() {
+			activeParses--;
+			if (retired && activeParses == 0) {
+				dispose();
+			}
+		}
+
+		public synchronized void retire() {
+			retired = true;
+			if (activeParses == 0) {
+				dispose();
+			}
+		}
+
+		private void dispose() {
+			OptionManager.instance().removeOptions(model.getOptionContainer());
+		}
+
+		public synchronized int getNumberOfActiveParses() {
+			return activeParses;
+		}
+
+		public ConcurrentMaltParserModel getModel() {
+			return model;
+		}
+
+		public URL getMcoURL() {
+			return mcoURL;
+		}
+
+		public String getCommandLine() {
+			return commandLine;
+		}
+
+		public long getLoadTime() {
+			return loadTime;
+		}
+	}
+}
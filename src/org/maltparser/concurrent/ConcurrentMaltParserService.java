@@ -53,11 +53,36 @@ public final class ConcurrentMaltParserService {
      * @throws MaltChainedException
      */
     public static ConcurrentMaltParserModel initializeParserModel(URL mcoURL) throws MaltChainedException {
+    	return initializeParserModel(mcoURL, "");
+    }
+    
+    /**
+     * Initialize a MaltParser model from a MaltParser model file (.mco) with additional parsing options, for example 
+     * <code>-gdc 256</code> to load the divide models on request and keep them in a cache of at most 256 megabytes.
+     * 
+     * @param mcoURL URL to a valid MaltParser model file. Usually the file extension is ".mco"  
+     * @param commandLine additional parsing options
+     * @return a concurrent MaltParser model
+     * @throws MaltChainedException
+     */
+    public static ConcurrentMaltParserModel initializeParserModel(URL mcoURL, String commandLine) throws MaltChainedException {
+        return new ConcurrentMaltParserModel(initializeOptions(mcoURL, commandLine), mcoURL);
+    }
+    
+    /**
+     * Creates a new option container with the parsing options and the saved options of a MaltParser model file (.mco)
+     * 
+     * @param mcoURL URL to a valid MaltParser model file
+     * @param commandLine additional parsing options
+     * @return the index of the option container
+     * @throws MaltChainedException
+     */
+    static int initializeOptions(URL mcoURL, String commandLine) throws MaltChainedException {
     	loadOptions();
     	int optionContainer = getNextOptionContainerCounter();
     	String parserModelName = Utils.getInternalParserModelName(mcoURL);
-		OptionManager.instance().parseCommandLine("-m parse", optionContainer);
+		OptionManager.instance().parseCommandLine("-m parse "+commandLine, optionContainer);
         OptionManager.instance().loadOptions(optionContainer, Utils.getInputStreamReaderFromConfigFileEntry(mcoURL, parserModelName, "savedoptions.sop", "UTF-8"));
-        return new ConcurrentMaltParserModel(optionContainer, mcoURL);
+        return optionContainer;
     }
 }
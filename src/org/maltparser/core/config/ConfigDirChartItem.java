@@ -1,6 +1,7 @@
 package org.maltparser.core.config;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 
@@ -10,7 +11,9 @@ import org.maltparser.core.flow.item.ChartItem;
 import org.maltparser.core.flow.spec.ChartItemSpecification;
 import org.maltparser.core.helper.SystemInfo;
 import org.maltparser.core.helper.SystemLogger;
+import org.maltparser.core.io.dataformat.DataFormatSpecification;
 import org.maltparser.core.options.OptionManager;
+import org.maltparser.core.symbol.concurrent.ConcurrentSymbolTableHandler;
 /**
 *
 *
@@ -107,6 +110,11 @@ public class ConfigDirChartItem extends ChartItem {
 			OptionManager.instance().loadOptions(getOptionContainerIndex(), configDir.getInputStreamReaderFromConfigFile("savedoptions.sop"));
 			configDir.initDataFormat();
 		} else if (taskName.equals("createdir")) {
+			if (InstanceCache.isEnabled(getOptionContainerIndex()) 
+					&& OptionManager.instance().getOptionValue(getOptionContainerIndex(), "config", "flowchart").toString().equals("learn")) {
+				// The key is derived from the options before they are changed by the initialization of the configuration
+				configDir.setInstanceCache(new InstanceCache(getOptionContainerIndex()));
+			}
 			configDir.setCreatedByMaltParserVersion(SystemInfo.getVersion());
 			configDir.createConfigDirectory();
 			if (optionFileName != null && optionFileName.length() > 0) {
@@ -120,10 +128,31 @@ public class ConfigDirChartItem extends ChartItem {
 		if (taskName.equals("unpack")) {
 			SystemLogger.logger().info("Unpacking the parser model '"+ configDirName+ ".mco' ...\n");
 			configDir.unpackConfigFile();
+		} else if (taskName.equals("unpackrelearn")) {
+			SystemLogger.logger().info("Unpacking the parser model '"+ configDirName+ ".mco' for continued training ...\n");
+			configDir.unpackConfigFileForRelearning();
 		} else if (taskName.equals("info")) {
 			configDir.echoInfoFile();
 		} else if (taskName.equals("loadsymboltables")) {
 			configDir.getSymbolTables().load(configDir.getInputStreamReaderFromConfigFileEntry("symboltables.sym",inCharSet));
+		} else if (taskName.equals("loadcache")) {
+			final InstanceCache instanceCache = configDir.getInstanceCache();
+			if (instanceCache == null || !instanceCache.isCached()) {
+				throw new ConfigurationException("The training instances cannot be found in the instance cache. ");
+			}
+			SystemLogger.logger().info("Reading the training instances from the instance cache '"+instanceCache.getEntry().getPath()+"' ...\n");
+			instanceCache.load(configDir.getConfigDirectory());
+			// The input data format instance is otherwise created by the reader, which isn't used when the instances are cached
+			final DataFormatSpecification inputSpec = configDir.getDataFormatManager().getInputDataFormatSpec();
+			configDir.addDataFormatInstance(inputSpec.getDataFormatName(), inputSpec.createDataFormatInstance(configDir.getSymbolTables(), 
+					OptionManager.instance().getOptionValue(getOptionContainerIndex(), "singlemalt", "null_value").toString()));
+			configDir.getSymbolTables().load(configDir.getInputStreamReader("symboltables.sym", inCharSet));
+			try {
+				configDir.getInfoFileWriter().write("\nINSTANCE CACHE\nThe training instances are read from the instance cache entry "+instanceCache.getKey()+"\n");
+				configDir.getInfoFileWriter().flush();
+			} catch (IOException e) {
+				throw new ConfigurationException("Could not write to the maltparser info file. ", e);
+			}
 		}
 		return signal;
 	}
@@ -140,8 +169,16 @@ public class ConfigDirChartItem extends ChartItem {
 		} else if (taskName.equals("deletedir")) {
 			configDir.terminate();
 			configDir.deleteConfigDirectory();
+		} else if (taskName.equals("savecache")) {
+			final InstanceCache instanceCache = configDir.getInstanceCache();
+			if (instanceCache != null && instanceCache.save(configDir.getConfigDirectory())) {
+				SystemLogger.logger().info("The training instances are saved in the instance cache '"+instanceCache.getEntry().getPath()+"'\n");
+			}
 		} else if (taskName.equals("savesymboltables")) {
 			configDir.getSymbolTables().save(configDir.getOutputStreamWriter("symboltables.sym", outCharSet));
+			if (configDir.getSymbolTables() instanceof ConcurrentSymbolTableHandler) {
+				((ConcurrentSymbolTableHandler)configDir.getSymbolTables()).saveBinary(configDir.getFile("symboltables.bsym").getPath());
+			}
 		}
 		return signal;
 	}
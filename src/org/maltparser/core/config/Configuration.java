@@ -35,6 +35,8 @@ public interface Configuration {
 	public File getFile(String fileName) throws MaltChainedException;
 	public Object getConfigFileEntryObject(String fileName) throws MaltChainedException;
 	public String getConfigFileEntryString(String fileName) throws MaltChainedException;
+	public boolean hasConfigFileEntry(String fileName) throws MaltChainedException;
+	public File getInstanceCacheDirectory() throws MaltChainedException;
 	public SymbolTableHandler getSymbolTables();
 //	public ConfigurationRegistry getRegistry();
 //	public void addRegistry(Class<?> clazz, Object o);
@@ -21,8 +21,11 @@ import java.net.URL;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
@@ -41,6 +44,7 @@ import org.maltparser.core.io.dataformat.DataFormatSpecification.DataStructure;
 import org.maltparser.core.io.dataformat.DataFormatSpecification.Dependency;
 import org.maltparser.core.options.OptionManager;
 import org.maltparser.core.symbol.SymbolTableHandler;
+import org.maltparser.core.symbol.concurrent.ConcurrentSymbolTableHandler;
 import org.maltparser.core.symbol.hash.HashSymbolTableHandler;
 import org.maltparser.core.symbol.parse.ParseSymbolTableHandler;
 
@@ -65,6 +69,9 @@ public class ConfigurationDir  {
 	private HashMap<String,DataFormatInstance> dataFormatInstances;
 	private URL inputFormatURL; 
 	private URL outputFormatURL; 
+	private McoContainer mcoContainer;
+	private boolean mcoContainerLoaded;
+	private InstanceCache instanceCache;
 	
 	/**
 	 * Creates a configuration directory from a mco-file specified by an URL.
@@ -138,7 +145,8 @@ public class ConfigurationDir  {
 		String outputFormatName = OptionManager.instance().getOptionValue(containerIndex, "output", "format").toString().trim();
 		final URLFinder f = new URLFinder();
 
-		if (configDirectory != null && configDirectory.exists()) {
+		// The data format files are already in the configuration directory when the training of a configuration is continued
+		if (configDirectory != null && configDirectory.exists() && !getFile(inputFormatName).exists()) {
 			if (outputFormatName.length() == 0 || inputFormatName.equals(outputFormatName)) {
 				URL inputFormatURL = f.findURLinJars(inputFormatName);
 				if (inputFormatURL != null) {
@@ -187,7 +195,7 @@ public class ConfigurationDir  {
 			symbolTables = new ParseSymbolTableHandler(new HashSymbolTableHandler());
 //			symbolTables = new TrieSymbolTableHandler(TrieSymbolTableHandler.ADD_NEW_TO_TRIE);
 		} else {
-			symbolTables = new HashSymbolTableHandler();
+			symbolTables = new ConcurrentSymbolTableHandler();
 		}
 		if (dataFormatManager.getInputDataFormatSpec().getDataStructure() == DataStructure.PHRASE) {
 			if (mode.equals("learn")) {
@@ -354,6 +362,10 @@ public class ConfigurationDir  {
 		
 		try {
           if (entry == null) {
+        	  final McoContainer container = getMcoContainer();
+        	  if (container != null && container.hasSection(fileName)) {
+        		  return container.getInputStream(fileName);
+        	  }
         	  throw new FileNotFoundException();
 		  }
 		  return mcoFile.getInputStream(entry);
@@ -364,6 +376,33 @@ public class ConfigurationDir  {
 	    }
 	}
 	
+	/**
+	 * Returns the binary container of a mco-file in the mco format v2, or <i>null</i> if the mco-file
+	 * doesn't contain a binary container. The container is read the first time the method is called.
+	 * 
+	 * @return the binary container of the mco-file, or <i>null</i> if the mco-file doesn't contain a binary container
+	 * @throws MaltChainedException
+	 */
+	public synchronized McoContainer getMcoContainer() throws MaltChainedException {
+		if (!mcoContainerLoaded) {
+			final JarEntry entry = getConfigFileEntry(getName()+McoContainer.SUFFIX);
+			if (entry != null) {
+				try {
+					final InputStream is = getConfigJarfile().getInputStream(entry);
+					try {
+						mcoContainer = McoContainer.read(is);
+					} finally {
+						is.close();
+					}
+				} catch (IOException e) {
+					throw new ConfigurationException("The file entry '"+getName()+McoContainer.SUFFIX+"' in the mco file cannot be loaded. ", e);
+				}
+			}
+			mcoContainerLoaded = true;
+		}
+		return mcoContainer;
+	}
+	
 	public InputStreamReader getInputStreamReaderFromConfigFileEntry(String fileName, String charSet) throws MaltChainedException {
 		try {
 			return new InputStreamReader(getInputStreamFromConfigFileEntry(fileName),  charSet);
@@ -610,7 +649,13 @@ public class ConfigurationDir  {
 		try {
 			JarOutputStream jos = new JarOutputStream(new FileOutputStream(workingDirectory.getPath()+File.separator+getName()+".mco"));
 //			configLogger.info("Creates configuration file '"+workingDirectory.getPath()+File.separator+getName()+".mco' ...\n");
-			createConfigFile(configDirectory.getPath(), jos);
+			if (OptionManager.instance().getOptionValue(containerIndex, "config", "mco_format").toString().equals("v2")) {
+				final SortedMap<String, File> containerFiles = new TreeMap<String, File>();
+				createConfigFile(configDirectory.getPath(), jos, containerFiles);
+				createContainerEntry(containerFiles, jos);
+			} else {
+				createConfigFile(configDirectory.getPath(), jos, null);
+			}
 			jos.close();
 		} catch (FileNotFoundException e) {
 			throw new ConfigurationException("The maltparser configurtation file '"+workingDirectory.getPath()+File.separator+getName()+".mco"+"' cannot be found. ", e);
@@ -619,7 +664,7 @@ public class ConfigurationDir  {
 		} 
 	}
 
-	private void createConfigFile(String directory, JarOutputStream jos) throws MaltChainedException {
+	private void createConfigFile(String directory, JarOutputStream jos, SortedMap<String, File> containerFiles) throws MaltChainedException {
     	byte[] readBuffer = new byte[BUFFER];
 		try {
 			File zipDir = new File(directory);
@@ -631,7 +676,11 @@ public class ConfigurationDir  {
 				File f = new File(zipDir, dirList[i]);
 				if (f.isDirectory()) {
 					String filePath = f.getPath();
-					createConfigFile(filePath, jos);
+					createConfigFile(filePath, jos, containerFiles);
+					continue;
+				}
+				if (containerFiles != null && getContainerSectionKind(f.getName()) != -1) {
+					containerFiles.put(f.getName(), f);
 					continue;
 				}
 	
@@ -656,6 +705,47 @@ public class ConfigurationDir  {
 	}
 	
 
+	/**
+	 * Writes the models, feature maps, feature divide models and binary symbol tables of the configuration to the binary 
+	 * container entry of the mco format v2. The sections are named after the files they replace in the mco format v1.
+	 * 
+	 * @param containerFiles the files that are stored in the container sorted by the file name
+	 * @param jos the output stream of the mco-file
+	 * @throws MaltChainedException
+	 * @throws IOException
+	 */
+	private void createContainerEntry(SortedMap<String, File> containerFiles, JarOutputStream jos) throws MaltChainedException, IOException {
+		jos.putNextEntry(new JarEntry(getName()+'/'+getName()+McoContainer.SUFFIX));
+		final McoContainerWriter writer = new McoContainerWriter(jos);
+		for (Map.Entry<String, File> containerFile : containerFiles.entrySet()) {
+			final String fileName = containerFile.getKey();
+			final byte kind = getContainerSectionKind(fileName);
+			String sectionName = fileName;
+			if (fileName.endsWith(".bmo")) {
+				sectionName = fileName.substring(0, fileName.length()-4)+".moo";
+			} else if (fileName.endsWith(".bmap")) {
+				sectionName = fileName.substring(0, fileName.length()-5)+".map";
+			}
+			writer.addSection(sectionName, kind, new BufferedInputStream(new FileInputStream(containerFile.getValue())));
+		}
+		writer.finish();
+	}
+	
+	private static byte getContainerSectionKind(String fileName) {
+		if (fileName.endsWith(".bmo")) {
+			return McoContainer.LIBLINEAR_MODEL;
+		} else if (fileName.endsWith(".bmap")) {
+			return McoContainer.FEATURE_MAP;
+		} else if (fileName.endsWith(".moo") || fileName.endsWith(".map")) {
+			return McoContainer.SERIALIZED;
+		} else if (fileName.endsWith(".dsm")) {
+			return McoContainer.TEXT;
+		} else if (fileName.endsWith(".bsym")) {
+			return McoContainer.RAW;
+		}
+		return -1;
+	}
+
 	public void copyConfigFile(File in, File out, Versioning versioning) throws MaltChainedException {
 		try {
 			JarFile jar = new JarFile(in);
@@ -813,6 +903,42 @@ public class ConfigurationDir  {
     	initCreatedByMaltParserVersionFromInfoFile();
     }
 
+    /**
+     * Unpacks the configuration file (.mco) before the training of the configuration is continued with new data. The models, 
+     * feature maps, divide model settings and binary symbol tables are removed from the configuration directory, because they 
+     * are created again by the training. The learners read the previous models and feature maps from the configuration file, 
+     * which is replaced when the new configuration file is created. Unless the mco format (--config-mco_format) is given, the 
+     * new configuration file gets the mco format of the configuration file.
+     * 
+     * @throws MaltChainedException
+     */
+    public void unpackConfigFileForRelearning() throws MaltChainedException {
+    	unpackConfigFile();
+    	if (OptionManager.instance().getOptionValueNoDefault(containerIndex, "config", "mco_format") == null) {
+    		OptionManager.instance().overloadOptionValue(containerIndex, "config", "mco_format", (getMcoContainer() != null)?"v2":"v1");
+    	}
+    	final File[] files = configDirectory.listFiles();
+    	if (files == null) {
+    		return;
+    	}
+    	for (File file : files) {
+    		if (file.isFile() && (getContainerSectionKind(file.getName()) != -1 || file.getName().endsWith(McoContainer.SUFFIX))) {
+    			if (!file.delete()) {
+    				throw new ConfigurationException("The file '"+file.getPath()+"' cannot be removed from the configuration directory. ");
+    			}
+    		}
+    	}
+    	infoFile = new BufferedWriter(getAppendOutputStreamWriter(getName()+"_"+getType()+".info"));
+    	try {
+    		infoFile.write("\nCONTINUED TRAINING\n");
+    		infoFile.write("Continued:            "+new Date(System.currentTimeMillis())+"\n");
+    		infoFile.write("Version:              "+SystemInfo.getVersion()+"\n");
+    		infoFile.flush();
+    	} catch (IOException e) {
+    		throw new ConfigurationException("Could not write to the maltparser info file. ", e);
+    	}
+    }
+    
     protected void unpackConfigFile(JarInputStream jis) throws MaltChainedException {
 		try {
 			JarEntry je;
@@ -1193,6 +1319,19 @@ public class ConfigurationDir  {
 		this.symbolTables = symbolTables;
 	}
 
+	/**
+	 * Returns the instance cache of the configuration, or <i>null</i> if the training instances are not cached
+	 * 
+	 * @return the instance cache of the configuration, or <i>null</i>
+	 */
+	public InstanceCache getInstanceCache() {
+		return instanceCache;
+	}
+
+	public void setInstanceCache(InstanceCache instanceCache) {
+		this.instanceCache = instanceCache;
+	}
+
 	public DataFormatManager getDataFormatManager() {
 		return dataFormatManager;
 	}
@@ -0,0 +1,277 @@
+package org.maltparser.core.config;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.maltparser.core.exception.MaltChainedException;
+import org.maltparser.core.helper.SystemInfo;
+import org.maltparser.core.options.OptionManager;
+import org.maltparser.ml.lib.Lib;
+
+/**
+ * A cache of the training instances of a configuration, which lets a later <b>learn</b> run train the models without
+ * parsing the training data again. The instances are kept in the directory given by the option <b>--guide-instance_cache</b>,
+ * in an entry named after a key that is derived from the training data, the feature model, the data format and all options
+ * that affect the instances. The options of the learners (the option group <b>lib</b>), the learner, the configuration
+ * name and the number of threads don't change the key.
+ * <p>
+ * An entry contains one instance file for every model that is trained (<i>model name</i>instances), which is written by
+ * the learner before it trains the model, the feature divide model settings (.dsm) and the symbol tables. The feature maps
+ * are not cached, since the learners build them from the instances when they train the models. An entry is first written
+ * to a temporary directory, which is renamed when the entry is complete.
+ */
+public class InstanceCache {
+	public static final String INSTANCES_SUFFIX = "instances";
+	private static final int BUFFER = 4096;
+	/** The options that don't change the training instances */
+	private static final String[] EXCLUDED_OPTIONS = { "input-infile", "singlemalt-mode", "singlemalt-diagnostics", "singlemalt-diafile",
+		"singlemalt-oracle_threads", "guide-learner", "guide-train_threads", "guide-train_memory", "guide-divide_model_cache",
+		"guide-kbest", "guide-kbest_type", "guide-instance_cache" };
+	private final File directory;
+	private final String key;
+	private final File entry;
+	/** <i>true</i> if the entry of the key existed when the cache was created */
+	private final boolean cached;
+	private File workDirectory;
+
+	/**
+	 * Creates the instance cache of an option container and derives the key from the options
+	 *
+	 * @param containerIndex the index of the option container
+	 * @throws MaltChainedException
+	 */
+	public InstanceCache(int containerIndex) throws MaltChainedException {
+		this.directory = new File(OptionManager.instance().getOptionValue(containerIndex, "guide", "instance_cache").toString());
+		this.key = createKey(containerIndex);
+		this.entry = new File(directory, key);
+		this.cached = entry.isDirectory();
+	}
+
+	/**
+	 * Returns <i>true</i> if the instances of the option container should be cached, which requires an instance cache
+	 * directory, a training file and a learner of the lib package.
+	 *
+	 * @param containerIndex the index of the option container
+	 * @return <i>true</i> if the instances of the option container should be cached
+	 * @throws MaltChainedException
+	 */
+	public static boolean isEnabled(int containerIndex) throws MaltChainedException {
+		final OptionManager om = OptionManager.instance();
+		return om.getOptionValue(containerIndex, "guide", "instance_cache").toString().length() > 0
+			&& om.getOptionValue(containerIndex, "input", "infile").toString().length() > 0
+			&& Lib.class.isAssignableFrom((Class<?>)om.getOptionValue(containerIndex, "guide", "learner"));
+	}
+
+	private static String createKey(int containerIndex) throws MaltChainedException {
+		final MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new ConfigurationException("The key of the instance cache cannot be created. ", e);
+		}
+		final Set<String> excludeGroups = new HashSet<String>();
+		excludeGroups.add("system");
+		excludeGroups.add("config");
+		excludeGroups.add("output");
+		excludeGroups.add("lib");
+		final Map<String,String> values = OptionManager.instance().getOptionValueStrings(containerIndex, excludeGroups);
+		for (int i = 0; i < EXCLUDED_OPTIONS.length; i++) {
+			values.remove(EXCLUDED_OPTIONS[i]);
+		}
+		update(digest, SystemInfo.getVersion());
+		for (Map.Entry<String,String> value : values.entrySet()) {
+			update(digest, value.getKey()+" "+value.getValue());
+			// The content of a file is part of the key, for example of the feature model or of the data format
+			if (value.getValue().length() > 0 && new File(value.getValue()).isFile()) {
+				update(digest, new File(value.getValue()));
+			}
+		}
+		update(digest, new File(OptionManager.instance().getOptionValue(containerIndex, "input", "infile").toString()));
+		final byte[] hash = digest.digest();
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < hash.length; i++) {
+			sb.append(Character.forDigit((hash[i] >> 4) & 0xF, 16));
+			sb.append(Character.forDigit(hash[i] & 0xF, 16));
+		}
+		return sb.toString();
+	}
+
+	private static void update(MessageDigest digest, String value) throws MaltChainedException {
+		try {
+			digest.update(value.getBytes("UTF-8"));
+			digest.update((byte)0);
+		} catch (UnsupportedEncodingException e) {
+			throw new ConfigurationException("The char set 'UTF-8' is not supported. ", e);
+		}
+	}
+
+	private static void update(MessageDigest digest, File file) throws MaltChainedException {
+		final byte[] buffer = new byte[BUFFER];
+		try {
+			final InputStream is = new BufferedInputStream(new FileInputStream(file));
+			try {
+				int n;
+				while ((n = is.read(buffer)) != -1) {
+					digest.update(buffer, 0, n);
+				}
+			} finally {
+				is.close();
+			}
+		} catch (IOException e) {
+			throw new ConfigurationException("The file '"+file.getPath()+"' cannot be read when the key of the instance cache is created. ", e);
+		}
+		digest.update((byte)0);
+	}
+
+	/**
+	 * Returns the key of the instance cache
+	 *
+	 * @return the key of the instance cache
+	 */
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * Returns the directory of the cache entry of the key
+	 *
+	 * @return the directory of the cache entry of the key
+	 */
+	public File getEntry() {
+		return entry;
+	}
+
+	/**
+	 * Returns <i>true</i> if the cache entry of the key existed when the instance cache was created, so the instances are
+	 * read from the cache.
+	 *
+	 * @return <i>true</i> if the instances are read from the cache
+	 */
+	public boolean isCached() {
+		return cached;
+	}
+
+	/**
+	 * Returns <i>true</i> if the cache entry of the key exists
+	 *
+	 * @return <i>true</i> if the cache entry of the key exists
+	 */
+	public boolean exists() {
+		return entry.isDirectory();
+	}
+
+	/**
+	 * Returns the temporary directory that the cache entry is written to, or <i>null</i> if the instances are read from the cache.
+	 * The directory is created the first time the method is called.
+	 *
+	 * @return the temporary directory of the cache entry, or <i>null</i>
+	 * @throws MaltChainedException
+	 */
+	public synchronized File getWorkDirectory() throws MaltChainedException {
+		if (cached) {
+			return null;
+		}
+		if (workDirectory == null) {
+			final File dir = new File(directory, key+"."+System.currentTimeMillis()+"."+System.nanoTime()+".tmp");
+			if (!dir.mkdirs()) {
+				throw new ConfigurationException("The instance cache directory '"+dir.getPath()+"' cannot be created. ");
+			}
+			workDirectory = dir;
+		}
+		return workDirectory;
+	}
+
+	/**
+	 * Saves the feature divide model settings and the symbol tables of the configuration directory together with the instance
+	 * files in the cache entry of the key. If another run has saved the entry in the meantime, the written files are removed.
+	 *
+	 * @param configDirectory the configuration directory
+	 * @return <i>true</i> if the cache entry was saved
+	 * @throws MaltChainedException
+	 */
+	public boolean save(File configDirectory) throws MaltChainedException {
+		final File dir = getWorkDirectory();
+		if (dir == null) {
+			return false;
+		}
+		final File[] files = configDirectory.listFiles();
+		for (int i = 0; i < files.length; i++) {
+			if (isCachedFile(files[i].getName())) {
+				copy(files[i], new File(dir, files[i].getName()));
+			}
+		}
+		final boolean saved = !entry.exists() && dir.renameTo(entry);
+		if (!saved) {
+			delete(dir);
+		}
+		workDirectory = null;
+		return saved;
+	}
+
+	/**
+	 * Copies the feature divide model settings and the symbol tables of the cache entry to the configuration directory. The
+	 * instance files are read from the cache entry when the models are trained.
+	 *
+	 * @param configDirectory the configuration directory
+	 * @throws MaltChainedException
+	 */
+	public void load(File configDirectory) throws MaltChainedException {
+		final File[] files = entry.listFiles();
+		if (files == null) {
+			throw new ConfigurationException("The instance cache entry '"+entry.getPath()+"' cannot be found. ");
+		}
+		for (int i = 0; i < files.length; i++) {
+			if (isCachedFile(files[i].getName())) {
+				copy(files[i], new File(configDirectory, files[i].getName()));
+			}
+		}
+	}
+
+	private static boolean isCachedFile(String fileName) {
+		return fileName.endsWith(".dsm") || fileName.equals("symboltables.sym");
+	}
+
+	private static void copy(File source, File destination) throws MaltChainedException {
+		final byte[] buffer = new byte[BUFFER];
+		try {
+			final InputStream is = new BufferedInputStream(new FileInputStream(source));
+			try {
+				final OutputStream os = new BufferedOutputStream(new FileOutputStream(destination));
+				try {
+					int n;
+					while ((n = is.read(buffer)) != -1) {
+						os.write(buffer, 0, n);
+					}
+				} finally {
+					os.close();
+				}
+			} finally {
+				is.close();
+			}
+		} catch (IOException e) {
+			throw new ConfigurationException("The file '"+source.getPath()+"' cannot be copied to '"+destination.getPath()+"'. ", e);
+		}
+	}
+
+	private static void delete(File dir) {
+		final File[] files = dir.listFiles();
+		if (files != null) {
+			for (int i = 0; i < files.length; i++) {
+				files[i].delete();
+			}
+		}
+		dir.delete();
+	}
+}
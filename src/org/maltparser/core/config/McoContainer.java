@@ -0,0 +1,212 @@
+package org.maltparser.core.config;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.maltparser.core.exception.MaltChainedException;
+import org.maltparser.ml.lib.FeatureMap;
+import org.maltparser.ml.lib.MaltLiblinearModel;
+
+/**
+ * Reads the binary container of a MaltParser configuration file in the mco format v2. The container is stored in the
+ * jar entry <i>name</i>/<i>name</i>.mc2 of the mco-file and contains the learned models, the feature maps, the feature
+ * divide models and the binary symbol tables of the configuration. All numbers are big-endian:
+ *
+ * <pre>
+ * int    magic number (MCO2)
+ * int    format version
+ * ...    the sections, each section starts at an offset that is a multiple of 8 bytes
+ * ...    the section table, for each section: the kind (byte), the name (length-prefixed UTF-8), the offset (long) and the length (long)
+ * long   the offset of the section table
+ * int    the number of sections
+ * int    magic number (MCO2)
+ * </pre>
+ *
+ * The section table is written after the sections so that the container can be written in one pass. The sections are named
+ * after the configuration files they replace, for example <i>odm0.liblinear.moo</i>, and the kind of a section tells how the
+ * content should be decoded.
+ */
+public final class McoContainer {
+	public static final int MAGIC = 0x4D434F32; // MCO2
+	public static final int VERSION = 1;
+	public static final String SUFFIX = ".mc2";
+	/** The bytes of a file, for example the binary symbol tables */
+	public static final byte RAW = 0;
+	/** UTF-8 encoded text, for example a feature divide model */
+	public static final byte TEXT = 1;
+	/** A serialized Java object, used for the objects that don't have a binary format (for example LIBSVM models) */
+	public static final byte SERIALIZED = 2;
+	/** A liblinear model written by MaltLiblinearModel.write() */
+	public static final byte LIBLINEAR_MODEL = 3;
+	/** A feature map written by FeatureMap.write() */
+	public static final byte FEATURE_MAP = 4;
+	static final Charset UTF8 = Charset.forName("UTF-8");
+	private final byte[] data;
+	private final Map<String, Section> sections;
+
+	private McoContainer(byte[] data) throws MaltChainedException {
+		this.data = data;
+		this.sections = new LinkedHashMap<String, Section>();
+		final ByteBuffer in = ByteBuffer.wrap(data);
+		if (data.length < 24 || in.getInt(0) != MAGIC || in.getInt(data.length - 4) != MAGIC) {
+			throw new ConfigurationException("The mco container is not in the mco format v2. ");
+		}
+		if (in.getInt(4) != VERSION) {
+			throw new ConfigurationException("The mco container has the unsupported version "+in.getInt(4)+". ");
+		}
+		final long tableOffset = in.getLong(data.length - 16);
+		final int nSections = in.getInt(data.length - 8);
+		if (tableOffset < 8 || tableOffset > data.length - 16) {
+			throw new ConfigurationException("The section table of the mco container is corrupt. ");
+		}
+		in.position((int)tableOffset);
+		for (int i = 0; i < nSections; i++) {
+			final byte kind = in.get();
+			final byte[] name = new byte[in.getInt()];
+			in.get(name);
+			final long offset = in.getLong();
+			final long length = in.getLong();
+			if (offset < 8 || offset + length > tableOffset) {
+				throw new ConfigurationException("The section table of the mco container is corrupt. ");
+			}
+			sections.put(new String(name, UTF8), new Section(kind, (int)offset, (int)length));
+		}
+	}
+
+	/**
+	 * Reads a container from an input stream. The input stream is read to the end, but it is not closed.
+	 *
+	 * @param is the input stream
+	 * @return the container
+	 * @throws MaltChainedException
+	 */
+	public static McoContainer read(InputStream is) throws MaltChainedException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 16);
+		final byte[] buffer = new byte[1 << 16];
+		try {
+			int n;
+			while ((n = is.read(buffer)) != -1) {
+				bytes.write(buffer, 0, n);
+			}
+		} catch (IOException e) {
+			throw new ConfigurationException("Could not read the mco container. ", e);
+		}
+		return new McoContainer(bytes.toByteArray());
+	}
+
+	public boolean hasSection(String name) {
+		return sections.containsKey(name);
+	}
+
+	public Set<String> getSectionNames() {
+		return Collections.unmodifiableSet(sections.keySet());
+	}
+
+	public byte getSectionKind(String name) throws MaltChainedException {
+		return getSectionInfo(name).kind;
+	}
+
+	/**
+	 * Returns a read-only buffer that contains the content of the section
+	 *
+	 * @param name the name of the section
+	 * @return a read-only buffer that contains the content of the section
+	 * @throws MaltChainedException
+	 */
+	public ByteBuffer getSection(String name) throws MaltChainedException {
+		final Section section = getSectionInfo(name);
+		return ByteBuffer.wrap(data, section.offset, section.length).slice().asReadOnlyBuffer();
+	}
+
+	public InputStream getInputStream(String name) throws MaltChainedException {
+		final Section section = getSectionInfo(name);
+		return new ByteArrayInputStream(data, section.offset, section.length);
+	}
+
+	/**
+	 * Returns the content of a text section. As when a text file is read from a jar entry, each line ends
+	 * with a newline character.
+	 *
+	 * @param name the name of the section
+	 * @return the content of the text section
+	 * @throws MaltChainedException
+	 */
+	public String getString(String name) throws MaltChainedException {
+		final StringBuilder sb = new StringBuilder();
+		try {
+			final BufferedReader in = new BufferedReader(new InputStreamReader(getInputStream(name), UTF8));
+			String line;
+			while((line = in.readLine()) != null) {
+				 sb.append(line);
+				 sb.append('\n');
+			}
+		} catch (IOException e) {
+			throw new ConfigurationException("Could not load string from '"+name+"' in the mco container", e);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Decodes the object of a section according to the kind of the section.
+	 *
+	 * @param name the name of the section
+	 * @return the decoded object
+	 * @throws MaltChainedException
+	 */
+	public Object getObject(String name) throws MaltChainedException {
+		switch (getSectionKind(name)) {
+		case LIBLINEAR_MODEL:
+			return MaltLiblinearModel.read(getSection(name));
+		case FEATURE_MAP:
+			return FeatureMap.read(getSection(name));
+		case TEXT:
+			return getString(name);
+		case SERIALIZED:
+			try {
+				final ObjectInputStream input = new ObjectInputStream(getInputStream(name));
+				try {
+					return input.readObject();
+				} finally {
+					input.close();
+				}
+			} catch (ClassNotFoundException e) {
+				throw new ConfigurationException("Could not load object '"+name+"' from the mco container", e);
+			} catch (IOException e) {
+				throw new ConfigurationException("Could not load object '"+name+"' from the mco container", e);
+			}
+		default:
+			throw new ConfigurationException("The section '"+name+"' in the mco container doesn't contain an object. ");
+		}
+	}
+
+	private Section getSectionInfo(String name) throws MaltChainedException {
+		final Section section = sections.get(name);
+		if (section == null) {
+			throw new ConfigurationException("The section '"+name+"' cannot be found in the mco container. ");
+		}
+		return section;
+	}
+
+	private static final class Section {
+		private final byte kind;
+		private final int offset;
+		private final int length;
+
+		public Section(byte kind, int offset, int length) {
+			this.kind = kind;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+}
@@ -0,0 +1,152 @@
+package org.maltparser.core.config;
+
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.maltparser.core.exception.MaltChainedException;
+
+/**
+ * Writes the binary container of a MaltParser configuration file in the mco format v2 (see McoContainer). The sections are
+ * streamed to the output stream in the order they are added and the section table is written by finish().
+ */
+public final class McoContainerWriter {
+	private final CountingOutputStream counter;
+	private final DataOutputStream out;
+	private final List<String> names;
+	private final List<Byte> kinds;
+	private final List<long[]> extents;
+	private final byte[] buffer;
+
+	/**
+	 * Creates a container writer and writes the header of the container
+	 *
+	 * @param os the output stream, which is not closed by the writer
+	 * @throws MaltChainedException
+	 */
+	public McoContainerWriter(OutputStream os) throws MaltChainedException {
+		this.counter = new CountingOutputStream(os);
+		this.out = new DataOutputStream(counter);
+		this.names = new ArrayList<String>();
+		this.kinds = new ArrayList<Byte>();
+		this.extents = new ArrayList<long[]>();
+		this.buffer = new byte[8192];
+		try {
+			out.writeInt(McoContainer.MAGIC);
+			out.writeInt(McoContainer.VERSION);
+		} catch (IOException e) {
+			throw new ConfigurationException("Could not write the mco container. ", e);
+		}
+	}
+
+	/**
+	 * Adds a section that contains the bytes of an input stream. The input stream is read to the end and closed.
+	 *
+	 * @param name the name of the section
+	 * @param kind the kind of the section
+	 * @param is the content of the section
+	 * @throws MaltChainedException
+	 */
+	public void addSection(String name, byte kind, InputStream is) throws MaltChainedException {
+		try {
+			final long offset = beginSection(name, kind);
+			try {
+				int n;
+				while ((n = is.read(buffer)) != -1) {
+					out.write(buffer, 0, n);
+				}
+			} finally {
+				is.close();
+			}
+			extents.add(new long[] {offset, counter.getCount() - offset});
+		} catch (IOException e) {
+			throw new ConfigurationException("Could not write the section '"+name+"' to the mco container. ", e);
+		}
+	}
+
+	/**
+	 * Adds a section
+	 *
+	 * @param name the name of the section
+	 * @param kind the kind of the section
+	 * @param content the content of the section
+	 * @throws MaltChainedException
+	 */
+	public void addSection(String name, byte kind, byte[] content) throws MaltChainedException {
+		try {
+			final long offset = beginSection(name, kind);
+			out.write(content);
+			extents.add(new long[] {offset, counter.getCount() - offset});
+		} catch (IOException e) {
+			throw new ConfigurationException("Could not write the section '"+name+"' to the mco container. ", e);
+		}
+	}
+
+	/**
+	 * Writes the section table and flushes the output stream without closing it.
+	 *
+	 * @throws MaltChainedException
+	 */
+	public void finish() throws MaltChainedException {
+		try {
+			align();
+			final long tableOffset = counter.getCount();
+			for (int i = 0; i < names.size(); i++) {
+				final byte[] name = names.get(i).getBytes(McoContainer.UTF8);
+				out.writeByte(kinds.get(i));
+				out.writeInt(name.length);
+				out.write(name);
+				out.writeLong(extents.get(i)[0]);
+				out.writeLong(extents.get(i)[1]);
+			}
+			out.writeLong(tableOffset);
+			out.writeInt(names.size());
+			out.writeInt(McoContainer.MAGIC);
+			out.flush();
+		} catch (IOException e) {
+			throw new ConfigurationException("Could not write the mco container. ", e);
+		}
+	}
+
+	private long beginSection(String name, byte kind) throws IOException, MaltChainedException {
+		if (names.contains(name)) {
+			throw new ConfigurationException("The mco container already contains the section '"+name+"'. ");
+		}
+		align();
+		names.add(name);
+		kinds.add(kind);
+		return counter.getCount();
+	}
+
+	private void align() throws IOException {
+		while ((counter.getCount() & 7) != 0) {
+			out.writeByte(0);
+		}
+	}
+
+	private static final class CountingOutputStream extends FilterOutputStream {
+		private long count;
+
+		public CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+
+		public long getCount() {
+			return count;
+		}
+	}
+}
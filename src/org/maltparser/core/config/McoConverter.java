@@ -0,0 +1,164 @@
+package org.maltparser.core.config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.ObjectInputStream;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+
+import org.maltparser.core.exception.MaltChainedException;
+import org.maltparser.core.symbol.hash.HashSymbolTableHandler;
+import org.maltparser.ml.lib.FeatureMap;
+import org.maltparser.ml.lib.MaltLiblinearModel;
+
+/**
+* Converts a MaltParser configuration file in the mco format v1 to the mco format v2 (see McoContainer). The serialized
+* liblinear models and feature maps are converted to their binary formats, other serialized objects and the feature divide
+* models are moved unchanged into the container and the binary symbol tables are created from symboltables.sym if the
+* configuration file doesn't contain them. All other entries are copied unchanged.
+*
+* Usage: McoConverter &lt;v1 mco-file&gt; &lt;v2 mco-file&gt;
+*/
+public final class McoConverter {
+	private static final int BUFFER = 4096;
+
+	public static void main(String[] args) {
+		if (args.length != 2) {
+			System.err.println("Usage: McoConverter <v1 mco-file> <v2 mco-file>");
+			return;
+		}
+		try {
+			convert(new File(args[0]), new File(args[1]));
+		} catch (MaltChainedException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Converts a configuration file in the mco format v1 to the mco format v2
+	 *
+	 * @param in the configuration file in the mco format v1
+	 * @param out the configuration file in the mco format v2
+	 * @throws MaltChainedException
+	 */
+	public static void convert(File in, File out) throws MaltChainedException {
+		final SortedMap<String, byte[]> sections = new TreeMap<String, byte[]>();
+		final SortedMap<String, Byte> kinds = new TreeMap<String, Byte>();
+		String internalName = null;
+		byte[] symbolTables = null;
+		try {
+			final JarFile jar = new JarFile(in);
+			final JarOutputStream jos = new JarOutputStream(new FileOutputStream(out));
+			try {
+				for (Enumeration<JarEntry> entries = jar.entries(); entries.hasMoreElements(); ) {
+					final JarEntry entry = entries.nextElement();
+					final String entryName = entry.getName().replace('\\', '/');
+					final int index = entryName.indexOf('/');
+					final String fileName = entryName.substring(index+1);
+					if (internalName == null && index != -1) {
+						internalName = entryName.substring(0, index);
+					}
+					if (fileName.endsWith(McoContainer.SUFFIX)) {
+						throw new ConfigurationException("The configuration file '"+in+"' is already in the mco format v2. ");
+					}
+					final byte[] content = readEntry(jar, entry);
+					if (fileName.endsWith(".moo") || fileName.endsWith(".map")) {
+						final Object object = readObject(content, fileName);
+						if (object instanceof MaltLiblinearModel) {
+							final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+							final DataOutputStream output = new DataOutputStream(bytes);
+							((MaltLiblinearModel)object).write(output);
+							output.close();
+							addSection(sections, kinds, fileName, McoContainer.LIBLINEAR_MODEL, bytes.toByteArray());
+						} else if (object instanceof FeatureMap) {
+							final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+							final DataOutputStream output = new DataOutputStream(bytes);
+							((FeatureMap)object).write(output);
+							output.close();
+							addSection(sections, kinds, fileName, McoContainer.FEATURE_MAP, bytes.toByteArray());
+						} else {
+							addSection(sections, kinds, fileName, McoContainer.SERIALIZED, content);
+						}
+					} else if (fileName.endsWith(".dsm")) {
+						addSection(sections, kinds, fileName, McoContainer.TEXT, content);
+					} else if (fileName.endsWith(".bsym")) {
+						addSection(sections, kinds, fileName, McoContainer.RAW, content);
+					} else {
+						if (fileName.equals("symboltables.sym")) {
+							symbolTables = content;
+						}
+						jos.putNextEntry(new JarEntry(entry.getName()));
+						jos.write(content);
+					}
+				}
+				if (internalName == null) {
+					throw new ConfigurationException("The configuration file '"+in+"' doesn't contain a configuration. ");
+				}
+				if (!sections.containsKey("symboltables.bsym") && symbolTables != null) {
+					addSection(sections, kinds, "symboltables.bsym", McoContainer.RAW, createBinarySymbolTables(symbolTables));
+				}
+				jos.putNextEntry(new JarEntry(internalName+'/'+internalName+McoContainer.SUFFIX));
+				final McoContainerWriter writer = new McoContainerWriter(jos);
+				for (Map.Entry<String, byte[]> section : sections.entrySet()) {
+					writer.addSection(section.getKey(), kinds.get(section.getKey()), section.getValue());
+				}
+				writer.finish();
+			} finally {
+				jos.close();
+				jar.close();
+			}
+		} catch (IOException e) {
+			throw new ConfigurationException("The configuration file '"+in+"' cannot be converted to the mco format v2. ", e);
+		}
+	}
+
+	private static void addSection(SortedMap<String, byte[]> sections, SortedMap<String, Byte> kinds, String name, byte kind, byte[] content) {
+		sections.put(name, content);
+		kinds.put(name, kind);
+	}
+
+	private static byte[] readEntry(JarFile jar, JarEntry entry) throws IOException {
+		final InputStream is = jar.getInputStream(entry);
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[BUFFER];
+		try {
+			int n;
+			while ((n = is.read(buffer)) != -1) {
+				bytes.write(buffer, 0, n);
+			}
+		} finally {
+			is.close();
+		}
+		return bytes.toByteArray();
+	}
+
+	private static Object readObject(byte[] content, String fileName) throws IOException, MaltChainedException {
+		final ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(content));
+		try {
+			return input.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new ConfigurationException("Could not load object '"+fileName+"' from mco-file", e);
+		} finally {
+			input.close();
+		}
+	}
+
+	private static byte[] createBinarySymbolTables(byte[] symbolTables) throws IOException, MaltChainedException {
+		final HashSymbolTableHandler symbolTableHandler = new HashSymbolTableHandler();
+		symbolTableHandler.load(new InputStreamReader(new ByteArrayInputStream(symbolTables), "UTF-8"));
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		symbolTableHandler.saveBinary(bytes);
+		return bytes.toByteArray();
+	}
+}
@@ -31,6 +31,7 @@ public class FeatureModel extends HashMap<String, FeatureVector> {
 	private final FeatureEngine featureEngine;
 	private final FeatureVector mainFeatureVector; 
 	private final ArrayList<Integer> divideFeatureIndexVector;
+	private boolean frozen;
 	
 	public FeatureModel(SpecificationModel _specModel, FeatureRegistry _registry, FeatureEngine _engine, String dataSplitColumn, String dataSplitStructure) throws MaltChainedException {
 		this.specModel = _specModel;
@@ -149,7 +150,34 @@ public class FeatureModel extends HashMap<String, FeatureVector> {
 		return divideFeatureIndexVector != null;
 	}
 	
+	/**
+	 * Returns the feature functions of the feature model in the order they are updated. Two feature models that are created from 
+	 * the same specification model have their feature functions in the same order.
+	 * 
+	 * @return the feature functions of the feature model
+	 */
+	public ArrayList<FeatureFunction> getFeatureFunctions() {
+		return featureFunctionCache;
+	}
+	
+	public boolean isFrozen() {
+		return frozen;
+	}
+	
+	/**
+	 * Freezes the feature values of the feature model. When the feature model is frozen, update() keeps the current feature values,
+	 * which makes it possible to add an instance with feature values that have been extracted by another feature model.
+	 * 
+	 * @param frozen <i>true</i> if the feature model should be frozen, otherwise <i>false</i>
+	 */
+	public void setFrozen(boolean frozen) {
+		this.frozen = frozen;
+	}
+	
 	public void update() throws MaltChainedException {
+		if (frozen) {
+			return;
+		}
 		for (int i = 0, n = addressFunctionCache.size(); i < n; i++) {
 			addressFunctionCache.get(i).update();
 		}
@@ -160,6 +188,9 @@ public class FeatureModel extends HashMap<String, FeatureVector> {
 	}
 	
 	public void update(Object[] arguments) throws MaltChainedException {
+		if (frozen) {
+			return;
+		}
 		for (int i = 0, n = addressFunctionCache.size(); i < n; i++) {
 			addressFunctionCache.get(i).update(arguments);
 		}
@@ -78,14 +78,7 @@ public final class PrefixFeature implements FeatureMapFunction {
 				multipleFeatureValue.addFeatureValue(parentFeature.getSymbolTable().getSymbolStringToCode(symbol), symbol);
 				multipleFeatureValue.setNullValue(true);
 			} else {
-				String prefixStr;
-				if (symbol.length()-prefixLength > 0) {
-					prefixStr = symbol.substring(0, prefixLength);
-				} else {
-					prefixStr = symbol;
-				}
-				int code = table.addSymbol(prefixStr);
-				multipleFeatureValue.addFeatureValue(code, prefixStr);
+				addPrefix(symbol);
 				multipleFeatureValue.setNullValue(false);
 			}
 		} else if (value instanceof MultipleFeatureValue) {
@@ -95,20 +88,33 @@ public final class PrefixFeature implements FeatureMapFunction {
 				multipleFeatureValue.setNullValue(true);
 			} else {
 				for (String symbol : ((MultipleFeatureValue)value).getSymbols()) {
-					String prefixStr;
-					if (symbol.length()-prefixLength > 0) {
-						prefixStr = symbol.substring(0, prefixLength);
-					} else {
-						prefixStr = symbol;
-					}
-					int code = table.addSymbol(prefixStr);
-					multipleFeatureValue.addFeatureValue(code, prefixStr);
+					addPrefix(symbol);
 					multipleFeatureValue.setNullValue(true);
 				}
 			}
 		}
 	}
 	
+	/**
+	 * Adds the prefix of a symbol to the feature value. The prefix is looked up in the symbol table without creating a substring
+	 * where the table supports it, and the substring is only created when the prefix is added to the symbol table.
+	 * 
+	 * @param symbol the symbol of the parent feature
+	 * @throws MaltChainedException
+	 */
+	private void addPrefix(String symbol) throws MaltChainedException {
+		final int end = (symbol.length()-prefixLength > 0)?prefixLength:symbol.length();
+		int code = table.getSymbolStringToCode(symbol, 0, end);
+		final String prefixStr;
+		if (code == -1) {
+			prefixStr = symbol.substring(0, end);
+			code = table.addSymbol(prefixStr);
+		} else {
+			prefixStr = table.getSymbolCodeToString(code);
+		}
+		multipleFeatureValue.addFeatureValue(code, prefixStr);
+	}
+	
 	public FeatureFunction getParentFeature() {
 		return parentFeature;
 	} 
@@ -79,14 +79,7 @@ public final class SuffixFeature implements FeatureMapFunction {
 				multipleFeatureValue.addFeatureValue(parentFeature.getSymbolTable().getSymbolStringToCode(symbol), symbol);
 				multipleFeatureValue.setNullValue(true);
 			} else {
-				String suffixStr;
-				if (symbol.length()-suffixLength > 0) {
-					suffixStr = symbol.substring(symbol.length()-suffixLength);
-				} else {
-					suffixStr = symbol;
-				}
-				int code = table.addSymbol(suffixStr);
-				multipleFeatureValue.addFeatureValue(code, suffixStr);
+				addSuffix(symbol);
 				multipleFeatureValue.setNullValue(false);
 			}
 		} else if (value instanceof MultipleFeatureValue) {
@@ -96,20 +89,33 @@ public final class SuffixFeature implements FeatureMapFunction {
 				multipleFeatureValue.setNullValue(true);
 			} else {
 				for (String symbol : ((MultipleFeatureValue)value).getSymbols()) {
-					String suffixStr;
-					if (symbol.length()-suffixLength > 0) {
-						suffixStr = symbol.substring(symbol.length()-suffixLength);
-					} else {
-						suffixStr = symbol;
-					}
-					int code = table.addSymbol(suffixStr);
-					multipleFeatureValue.addFeatureValue(code, suffixStr);
+					addSuffix(symbol);
 					multipleFeatureValue.setNullValue(true);
 				}
 			}
 		}
 	}
 
+	/**
+	 * Adds the suffix of a symbol to the feature value. The suffix is looked up in the symbol table without creating a substring
+	 * where the table supports it, and the substring is only created when the suffix is added to the symbol table.
+	 * 
+	 * @param symbol the symbol of the parent feature
+	 * @throws MaltChainedException
+	 */
+	private void addSuffix(String symbol) throws MaltChainedException {
+		final int start = (symbol.length()-suffixLength > 0)?symbol.length()-suffixLength:0;
+		int code = table.getSymbolStringToCode(symbol, start, symbol.length());
+		final String suffixStr;
+		if (code == -1) {
+			suffixStr = symbol.substring(start);
+			code = table.addSymbol(suffixStr);
+		} else {
+			suffixStr = table.getSymbolCodeToString(code);
+		}
+		multipleFeatureValue.addFeatureValue(code, suffixStr);
+	}
+
 	public FeatureFunction getParentFeature() {
 		return parentFeature;
 	} 
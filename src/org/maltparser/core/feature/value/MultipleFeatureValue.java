@@ -48,6 +48,10 @@ public class MultipleFeatureValue extends FeatureValue {
 		return featureValues.get(featureValues.firstKey());
 	}	
 	
+	public String getSymbol(int code) {
+		return featureValues.get(code);
+	}
+	
 	public boolean isMultiple() {
 		return true;
 	}
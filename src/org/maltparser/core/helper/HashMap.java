@@ -439,6 +439,14 @@ public class HashMap<K, V> implements Map<K, V>, Serializable {
     initTable(INITIAL_TABLE_SIZE);
   }
 
+  public HashMap(int expectedSize) {
+    int newCapacity = INITIAL_TABLE_SIZE;
+    while (newCapacity * 3 < expectedSize * 4) {
+      newCapacity <<= 1;
+    }
+    initTable(newCapacity);
+  }
+
   public HashMap(Map<? extends K, ? extends V> m) {
     int newCapacity = INITIAL_TABLE_SIZE;
     int expectedSize = m.size();
@@ -1,6 +1,8 @@
 package org.maltparser.core.io.dataformat;
 
 import java.net.URL;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -113,6 +115,15 @@ public class DataFormatSpecification {
 	public DataFormatEntry getEntry(String dataFormatEntryName) {
 		return entries.get(dataFormatEntryName);
 	}
+	
+	/**
+	 * Returns the entries (columns) of the data format in the order of the columns
+	 * 
+	 * @return the entries of the data format
+	 */
+	public Collection<DataFormatEntry> getEntries() {
+		return Collections.unmodifiableCollection(entries.values());
+	}
 
 	public String getDataFormatName() {
 		return dataFormatName;
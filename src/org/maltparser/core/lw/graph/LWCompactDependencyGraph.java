@@ -0,0 +1,785 @@
+package org.maltparser.core.lw.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.maltparser.concurrent.graph.ConcurrentDependencyGraph;
+import org.maltparser.concurrent.graph.dataformat.ColumnDescription;
+import org.maltparser.concurrent.graph.dataformat.DataFormat;
+import org.maltparser.core.exception.MaltChainedException;
+import org.maltparser.core.helper.HashMap;
+import org.maltparser.core.symbol.SymbolTable;
+import org.maltparser.core.symbol.SymbolTableHandler;
+import org.maltparser.core.syntaxgraph.DependencyStructure;
+import org.maltparser.core.syntaxgraph.Element;
+import org.maltparser.core.syntaxgraph.LabelSet;
+import org.maltparser.core.syntaxgraph.RootLabels;
+import org.maltparser.core.syntaxgraph.edge.Edge;
+import org.maltparser.core.syntaxgraph.node.ComparableNode;
+import org.maltparser.core.syntaxgraph.node.DependencyNode;
+import org.maltparser.core.syntaxgraph.node.TokenNode;
+
+/**
+* A lightweight dependency graph that stores the sentence in parallel primitive arrays instead of node and edge objects.
+* The head index, the label codes of every column and the ordered dependents of a node are kept in arrays indexed
+* by the node index. The nodes (LWCompactNode) and the head edges (LWCompactEdge) are flyweight views of these arrays,
+* which are created once per node index.
+*
+* The arrays grow when a longer sentence is seen and are reused by resetTokens(), which means that a parser worker that
+* reuses the same graph for all its sentences allocates almost nothing per sentence.
+*
+* As LWDependencyGraph, the graph is not thread-safe and is confined to the parser worker that owns it. The nodes and the
+* edges are views of the arrays and change when the graph is reset, so a graph that should be handed to other threads
+* or kept after the next sentence must first be turned into an immutable snapshot with toConcurrentDependencyGraph().
+*/
+public final class LWCompactDependencyGraph implements DependencyStructure {
+	private static final int INITIAL_CAPACITY = 64;
+	private static final int NO_VALUE = -1;
+	private static final int[] NO_DEPENDENTS = new int[0];
+
+	private final DataFormat dataFormat;
+	private final SymbolTableHandler symbolTables;
+	private final RootLabels rootLabels;
+	private final HashMap<Integer, ArrayList<String>> comments;
+	private final int nColumns;
+	private final int[] columnCategories;
+	private final SymbolTable[] columnTables;
+
+	private int nNodes;
+	private int capacity;
+	/** The head index of each node, or -1 if the node has no head */
+	private int[] heads;
+	/** The node label codes [column][node], -1 if the node has no label for the column */
+	private int[][] nodeLabels;
+	/** The head edge label codes [column][node], -1 if the head edge has no label for the column */
+	private int[][] edgeLabels;
+	/** The dependents of each node in ascending order. The first nLeftDependents are the left dependents */
+	private int[][] dependents;
+	private int[] nDependents;
+	private int[] nLeftDependents;
+	private LWCompactNode[] nodes;
+	private LWCompactEdge[] edges;
+
+	public LWCompactDependencyGraph(DataFormat _dataFormat, SymbolTableHandler _symbolTables) throws MaltChainedException {
+		this.dataFormat = _dataFormat;
+		this.symbolTables = _symbolTables;
+		this.rootLabels = new RootLabels();
+		this.comments = new HashMap<Integer, ArrayList<String>>();
+		this.nColumns = dataFormat.numberOfColumns();
+		this.columnCategories = new int[nColumns];
+		for (int i = 0; i < nColumns; i++) {
+			columnCategories[i] = dataFormat.getColumnDescription(i).getCategory();
+		}
+		this.columnTables = new SymbolTable[nColumns];
+		this.capacity = 0;
+		this.heads = NO_DEPENDENTS;
+		this.nodeLabels = new int[nColumns][];
+		this.edgeLabels = new int[nColumns][];
+		for (int i = 0; i < nColumns; i++) {
+			nodeLabels[i] = NO_DEPENDENTS;
+			edgeLabels[i] = NO_DEPENDENTS;
+		}
+		this.dependents = new int[0][];
+		this.nDependents = NO_DEPENDENTS;
+		this.nLeftDependents = NO_DEPENDENTS;
+		this.nodes = new LWCompactNode[0];
+		this.edges = new LWCompactEdge[0];
+		ensureCapacity(INITIAL_CAPACITY);
+		this.nNodes = 0;
+		addNode(); // ROOT
+	}
+
+	public LWCompactDependencyGraph(DataFormat _dataFormat, SymbolTableHandler _symbolTables, String[] inputTokens, String defaultRootLabel, boolean addEdges) throws MaltChainedException {
+		this(_dataFormat, _symbolTables);
+		resetTokens(inputTokens, defaultRootLabel, addEdges);
+	}
+
+	/**
+	 * Replaces the current sentence with a new sentence. The arrays of the graph are reused and only grown if the new
+	 * sentence is longer than all previous sentences.
+	 *
+	 * @param inputTokens an array of tokens, where the columns of a token are separated by a tab
+	 * @param defaultRootLabel the default root label
+	 * @param addEdges <i>true</i> if the head and dependency label columns of the tokens should be added as edges
+	 * @throws MaltChainedException
+	 */
+	public void resetTokens(String[] inputTokens, String defaultRootLabel, boolean addEdges) throws MaltChainedException {
+		comments.clear();
+		symbolTables.cleanUp();
+		ensureCapacity(inputTokens.length + 1);
+		nNodes = 0;
+		for (int i = 0; i <= inputTokens.length; i++) {
+			addNode();
+		}
+		for (int i = 0; i < inputTokens.length; i++) {
+			addColumnLabels(i + 1, inputTokens[i], addEdges);
+		}
+		// Check graph
+		for (int i = 0; i < nNodes; i++) {
+			if (heads[i] >= nNodes) {
+				throw new LWGraphException("Not allowed to add a head node that doesn't exists");
+			}
+		}
+		for (int i = 0; i < nColumns; i++) {
+			ColumnDescription column = dataFormat.getColumnDescription(i);
+			if (!column.isInternal() && column.getCategory() == ColumnDescription.DEPENDENCY_EDGE_LABEL) {
+				rootLabels.setDefaultRootLabel(symbolTables.getSymbolTable(column.getName()), defaultRootLabel);
+			}
+		}
+	}
+
+	private void addColumnLabels(int nodeIndex, String token, boolean addEdges) throws MaltChainedException {
+		int headIndex = NO_VALUE;
+		// Trailing empty columns are ignored in the same way as String.split() does it
+		int length = token.length();
+		while (length > 0 && token.charAt(length - 1) == '\t') {
+			length--;
+		}
+		int start = 0;
+		for (int i = 0; i < nColumns && start <= length; i++) {
+			int end = token.indexOf('\t', start);
+			if (end == -1 || end > length) {
+				end = length;
+			}
+			if (columnCategories[i] == ColumnDescription.INPUT) {
+				nodeLabels[i][nodeIndex] = getColumnTable(i).addSymbol(token.substring(start, end));
+			} else if (addEdges) {
+				if (columnCategories[i] == ColumnDescription.HEAD) {
+					headIndex = Integer.parseInt(token.substring(start, end));
+				} else if (columnCategories[i] == ColumnDescription.DEPENDENCY_EDGE_LABEL) {
+					edgeLabels[i][nodeIndex] = getColumnTable(i).addSymbol(token.substring(start, end));
+				}
+			}
+			start = end + 1;
+		}
+		if (headIndex == NO_VALUE) {
+			clearEdgeLabels(nodeIndex);
+		} else {
+			if (headIndex < -1) {
+				throw new LWGraphException("Not allowed to have head index less than -1.");
+			}
+			if (nodeIndex == headIndex) {
+				throw new LWGraphException("Not allowed to add head to itself");
+			}
+			if (headIndex >= nNodes) {
+				throw new LWGraphException("Not allowed to add a head node that doesn't exists");
+			}
+			setHead(nodeIndex, headIndex);
+		}
+	}
+
+	private void ensureCapacity(int minCapacity) {
+		if (minCapacity <= capacity) {
+			return;
+		}
+		final int newCapacity = Math.max(minCapacity, capacity << 1);
+		heads = Arrays.copyOf(heads, newCapacity);
+		for (int i = 0; i < nColumns; i++) {
+			nodeLabels[i] = Arrays.copyOf(nodeLabels[i], newCapacity);
+			edgeLabels[i] = Arrays.copyOf(edgeLabels[i], newCapacity);
+		}
+		dependents = Arrays.copyOf(dependents, newCapacity);
+		for (int i = capacity; i < newCapacity; i++) {
+			dependents[i] = NO_DEPENDENTS;
+		}
+		nDependents = Arrays.copyOf(nDependents, newCapacity);
+		nLeftDependents = Arrays.copyOf(nLeftDependents, newCapacity);
+		nodes = Arrays.copyOf(nodes, newCapacity);
+		edges = Arrays.copyOf(edges, newCapacity);
+		capacity = newCapacity;
+	}
+
+	private int addNode() {
+		ensureCapacity(nNodes + 1);
+		final int index = nNodes++;
+		heads[index] = NO_VALUE;
+		for (int i = 0; i < nColumns; i++) {
+			nodeLabels[i][index] = NO_VALUE;
+			edgeLabels[i][index] = NO_VALUE;
+		}
+		nDependents[index] = 0;
+		nLeftDependents[index] = 0;
+		if (nodes[index] == null) {
+			nodes[index] = new LWCompactNode(this, index);
+			edges[index] = new LWCompactEdge(this, index);
+		}
+		return index;
+	}
+
+	public DataFormat getDataFormat() {
+		return dataFormat;
+	}
+
+	/**
+	 * Returns an immutable and thread-safe snapshot of the graph, which can be handed to other threads.
+	 *
+	 * @param defaultRootLabel the label of head edges without a label
+	 * @return an immutable snapshot of the graph
+	 * @throws MaltChainedException
+	 */
+	public ConcurrentDependencyGraph toConcurrentDependencyGraph(String defaultRootLabel) throws MaltChainedException {
+		return new ConcurrentDependencyGraph(dataFormat, this, defaultRootLabel);
+	}
+
+	public LWCompactNode getNode(int nodeIndex) {
+		if (nodeIndex < 0 || nodeIndex >= nNodes) {
+			return null;
+		}
+		return nodes[nodeIndex];
+	}
+
+	public int nNodes() {
+		return nNodes;
+	}
+
+	protected LWCompactEdge getHeadEdge(int nodeIndex) {
+		if (heads[nodeIndex] == NO_VALUE) {
+			return null;
+		}
+		return edges[nodeIndex];
+	}
+
+	protected int getHeadIndex(int nodeIndex) {
+		return heads[nodeIndex];
+	}
+
+	/**
+	 * Sets the head of a node and keeps the ordered dependent arrays of the old and the new head up to date. The root node
+	 * is never registered as a dependent, even if linkAllTreesToRoot() gives it a head.
+	 *
+	 * @param nodeIndex the index of the dependent
+	 * @param headIndex the index of the head or -1
+	 */
+	protected void setHead(int nodeIndex, int headIndex) {
+		if (heads[nodeIndex] != NO_VALUE && nodeIndex != 0) {
+			removeDependentIndex(heads[nodeIndex], nodeIndex);
+		}
+		heads[nodeIndex] = headIndex;
+		if (headIndex != NO_VALUE && nodeIndex != 0) {
+			addDependentIndex(headIndex, nodeIndex);
+		}
+	}
+
+	protected void removeHead(int nodeIndex) {
+		setHead(nodeIndex, NO_VALUE);
+		clearEdgeLabels(nodeIndex);
+	}
+
+	private void addDependentIndex(int headIndex, int dependentIndex) {
+		int[] deps = dependents[headIndex];
+		final int n = nDependents[headIndex];
+		int pos = Arrays.binarySearch(deps, 0, n, dependentIndex);
+		if (pos >= 0) {
+			return;
+		}
+		pos = -(pos + 1);
+		if (n == deps.length) {
+			deps = dependents[headIndex] = Arrays.copyOf(deps, (n == 0)?4:n << 1);
+		}
+		System.arraycopy(deps, pos, deps, pos + 1, n - pos);
+		deps[pos] = dependentIndex;
+		nDependents[headIndex]++;
+		if (dependentIndex < headIndex) {
+			nLeftDependents[headIndex]++;
+		}
+	}
+
+	private void removeDependentIndex(int headIndex, int dependentIndex) {
+		final int[] deps = dependents[headIndex];
+		final int n = nDependents[headIndex];
+		final int pos = Arrays.binarySearch(deps, 0, n, dependentIndex);
+		if (pos < 0) {
+			return;
+		}
+		System.arraycopy(deps, pos + 1, deps, pos, n - pos - 1);
+		nDependents[headIndex]--;
+		if (dependentIndex < headIndex) {
+			nLeftDependents[headIndex]--;
+		}
+	}
+
+	protected int nDependents(int nodeIndex) {
+		return nDependents[nodeIndex];
+	}
+
+	protected int nLeftDependents(int nodeIndex) {
+		return nLeftDependents[nodeIndex];
+	}
+
+	protected int getDependentIndex(int nodeIndex, int position) {
+		return dependents[nodeIndex][position];
+	}
+
+	/**
+	 * Returns the position of a dependent in the ordered dependent array of a head, or -1 if it isn't a dependent of the head.
+	 *
+	 * @param headIndex the index of the head
+	 * @param dependentIndex the index of the dependent
+	 * @return the position of the dependent or -1
+	 */
+	protected int getDependentPosition(int headIndex, int dependentIndex) {
+		final int pos = Arrays.binarySearch(dependents[headIndex], 0, nDependents[headIndex], dependentIndex);
+		return (pos < 0)?-1:pos;
+	}
+
+	protected int nColumns() {
+		return nColumns;
+	}
+
+	protected int getColumnCategory(int columnPosition) {
+		return columnCategories[columnPosition];
+	}
+
+	protected int getColumnPosition(SymbolTable table) {
+		return dataFormat.getColumnDescription(table.getName()).getPosition();
+	}
+
+	protected SymbolTable getColumnTable(int columnPosition) throws MaltChainedException {
+		if (columnTables[columnPosition] == null) {
+			columnTables[columnPosition] = symbolTables.addSymbolTable(dataFormat.getColumnDescription(columnPosition).getName());
+		}
+		return columnTables[columnPosition];
+	}
+
+	protected int getNodeLabelCode(int columnPosition, int nodeIndex) {
+		return nodeLabels[columnPosition][nodeIndex];
+	}
+
+	protected void setNodeLabelCode(int columnPosition, int nodeIndex, int code) {
+		nodeLabels[columnPosition][nodeIndex] = code;
+	}
+
+	protected void clearNodeLabels(int nodeIndex) {
+		for (int i = 0; i < nColumns; i++) {
+			nodeLabels[i][nodeIndex] = NO_VALUE;
+		}
+	}
+
+	protected int getEdgeLabelCode(int columnPosition, int nodeIndex) {
+		return edgeLabels[columnPosition][nodeIndex];
+	}
+
+	protected void setEdgeLabelCode(int columnPosition, int nodeIndex, int code) {
+		edgeLabels[columnPosition][nodeIndex] = code;
+	}
+
+	protected void clearEdgeLabels(int nodeIndex) {
+		for (int i = 0; i < nColumns; i++) {
+			edgeLabels[i][nodeIndex] = NO_VALUE;
+		}
+	}
+
+	protected List<DependencyNode> getListOfLeftDependents(int nodeIndex) {
+		List<DependencyNode> leftDependents = new ArrayList<DependencyNode>(nLeftDependents[nodeIndex]);
+		for (int i = 0; i < nLeftDependents[nodeIndex]; i++) {
+			leftDependents.add(nodes[dependents[nodeIndex][i]]);
+		}
+		return leftDependents;
+	}
+
+	protected SortedSet<DependencyNode> getSortedSetOfLeftDependents(int nodeIndex) {
+		SortedSet<DependencyNode> leftDependents = new TreeSet<DependencyNode>();
+		for (int i = 0; i < nLeftDependents[nodeIndex]; i++) {
+			leftDependents.add(nodes[dependents[nodeIndex][i]]);
+		}
+		return leftDependents;
+	}
+
+	protected List<DependencyNode> getListOfRightDependents(int nodeIndex) {
+		List<DependencyNode> rightDependents = new ArrayList<DependencyNode>(nDependents[nodeIndex] - nLeftDependents[nodeIndex]);
+		for (int i = nLeftDependents[nodeIndex]; i < nDependents[nodeIndex]; i++) {
+			rightDependents.add(nodes[dependents[nodeIndex][i]]);
+		}
+		return rightDependents;
+	}
+
+	protected SortedSet<DependencyNode> getSortedSetOfRightDependents(int nodeIndex) {
+		SortedSet<DependencyNode> rightDependents = new TreeSet<DependencyNode>();
+		for (int i = nLeftDependents[nodeIndex]; i < nDependents[nodeIndex]; i++) {
+			rightDependents.add(nodes[dependents[nodeIndex][i]]);
+		}
+		return rightDependents;
+	}
+
+	protected List<DependencyNode> getListOfDependents(int nodeIndex) {
+		List<DependencyNode> deps = new ArrayList<DependencyNode>(nDependents[nodeIndex]);
+		for (int i = 0; i < nDependents[nodeIndex]; i++) {
+			deps.add(nodes[dependents[nodeIndex][i]]);
+		}
+		return deps;
+	}
+
+	protected SortedSet<DependencyNode> getSortedSetOfDependents(int nodeIndex) {
+		SortedSet<DependencyNode> deps = new TreeSet<DependencyNode>();
+		for (int i = 0; i < nDependents[nodeIndex]; i++) {
+			deps.add(nodes[dependents[nodeIndex][i]]);
+		}
+		return deps;
+	}
+
+	protected int getRank(int nodeIndex) {
+		int[] components = new int[nNodes];
+		int[] ranks = new int[nNodes];
+		findComponents(components, ranks);
+		return ranks[nodeIndex];
+	}
+
+	protected DependencyNode findComponent(int nodeIndex) {
+		int[] components = new int[nNodes];
+		int[] ranks = new int[nNodes];
+		findComponents(components, ranks);
+		return nodes[findComponent(nodeIndex, components)];
+	}
+
+	private void findComponents(int[] components, int[] ranks) {
+		for (int i = 0; i < components.length; i++) {
+			components[i] = i;
+			ranks[i] = 0;
+		}
+		for (int i = 1; i < nNodes; i++) {
+			if (heads[i] != NO_VALUE) {
+				int hcIndex = findComponent(heads[i], components);
+				int dcIndex = findComponent(i, components);
+				if (hcIndex != dcIndex) {
+					link(hcIndex, dcIndex, components, ranks);
+				}
+			}
+		}
+	}
+
+	private int findComponent(int xIndex, int[] components) {
+		if (xIndex != components[xIndex]) {
+			components[xIndex] = findComponent(components[xIndex], components);
+		}
+		return components[xIndex];
+	}
+
+	private int link(int xIndex, int yIndex, int[] components, int[] ranks) {
+		if (ranks[xIndex] > ranks[yIndex]) {
+			components[yIndex] = xIndex;
+		} else {
+			components[xIndex] = yIndex;
+
+			if (ranks[xIndex] == ranks[yIndex]) {
+				ranks[yIndex]++;
+			}
+			return yIndex;
+		}
+		return xIndex;
+	}
+
+	private void checkNodeIndex(int nodeIndex, String message) throws LWGraphException {
+		if (nodeIndex < 0 || nodeIndex >= nNodes) {
+			throw new LWGraphException(message);
+		}
+	}
+
+	@Override
+	public TokenNode addTokenNode() throws MaltChainedException {
+		throw new LWGraphException("Not implemented in the light-weight dependency graph package");
+	}
+
+	@Override
+	public TokenNode addTokenNode(int index) throws MaltChainedException {
+		throw new LWGraphException("Not implemented in the light-weight dependency graph package");
+	}
+
+	@Override
+	public TokenNode getTokenNode(int index) {
+		return null;
+	}
+
+	@Override
+	public void addComment(String comment, int at_index) {
+		ArrayList<String> commentList = comments.get(at_index);
+		if (commentList == null) {
+			commentList = new ArrayList<String>();
+			comments.put(at_index, commentList);
+		}
+		commentList.add(comment);
+	}
+
+	@Override
+	public ArrayList<String> getComment(int at_index) {
+		return comments.get(at_index);
+	}
+
+	@Override
+	public boolean hasComments() {
+		return comments.size() > 0;
+	}
+
+	@Override
+	public int nTokenNode() {
+		return nNodes-1;
+	}
+
+	@Override
+	public SortedSet<Integer> getTokenIndices() {
+		SortedSet<Integer> indices = new TreeSet<Integer>();
+		for (int i = 1; i < nNodes; i++) {
+			indices.add(i);
+		}
+		return indices;
+	}
+
+	@Override
+	public int getHighestTokenIndex() {
+		return nNodes-1;
+	}
+
+	@Override
+	public boolean hasTokens() {
+		return nNodes > 1;
+	}
+
+	@Override
+	public int getSentenceID() {
+		return 0;
+	}
+
+	@Override
+	public void setSentenceID(int sentenceID) {	}
+
+	@Override
+	public void clear() throws MaltChainedException {
+		comments.clear();
+		nNodes = 0;
+		addNode(); // ROOT
+	}
+
+	@Override
+	public SymbolTableHandler getSymbolTables() {
+		return symbolTables;
+	}
+
+	@Override
+	public void setSymbolTables(SymbolTableHandler symbolTables) { }
+
+	@Override
+	public void addLabel(Element element, String labelFunction, String label) throws MaltChainedException {
+		element.addLabel(symbolTables.addSymbolTable(labelFunction), label);
+	}
+
+	@Override
+	public LabelSet checkOutNewLabelSet() throws MaltChainedException {
+		throw new LWGraphException("Not implemented in light-weight dependency graph");
+	}
+
+	@Override
+	public void checkInLabelSet(LabelSet labelSet) throws MaltChainedException {
+		throw new LWGraphException("Not implemented in light-weight dependency graph");
+	}
+
+	@Override
+	public Edge addSecondaryEdge(ComparableNode source, ComparableNode target) throws MaltChainedException {
+		throw new LWGraphException("Not implemented in light-weight dependency graph");
+	}
+
+	@Override
+	public void removeSecondaryEdge(ComparableNode source, ComparableNode target) throws MaltChainedException {
+		throw new LWGraphException("Not implemented in light-weight dependency graph");
+	}
+
+	@Override
+	public DependencyNode addDependencyNode() throws MaltChainedException {
+		return nodes[addNode()];
+	}
+
+	@Override
+	public DependencyNode addDependencyNode(int index) throws MaltChainedException {
+		if (index == 0) {
+			return nodes[0];
+		} else if (index == nNodes) {
+			return addDependencyNode();
+		}
+		throw new LWGraphException("Not implemented in light-weight dependency graph");
+	}
+
+	@Override
+	public DependencyNode getDependencyNode(int index) throws MaltChainedException {
+		if (index < 0 || index >= nNodes) {
+			return null;
+		}
+		return nodes[index];
+	}
+
+	@Override
+	public int nDependencyNode() {
+		return nNodes;
+	}
+
+	@Override
+	public int getHighestDependencyNodeIndex() {
+		return nNodes-1;
+	}
+
+	@Override
+	public Edge addDependencyEdge(int headIndex, int dependentIndex) throws MaltChainedException {
+		checkNodeIndex(headIndex, "The head doesn't exists");
+		checkNodeIndex(dependentIndex, "The dependent doesn't exists");
+		setHead(dependentIndex, headIndex);
+		clearEdgeLabels(dependentIndex);
+		return edges[dependentIndex];
+	}
+
+	@Override
+	public Edge moveDependencyEdge(int newHeadIndex, int dependentIndex) throws MaltChainedException {
+		checkNodeIndex(newHeadIndex, "The head doesn't exists");
+		checkNodeIndex(dependentIndex, "The dependent doesn't exists");
+		setHead(dependentIndex, newHeadIndex);
+		return edges[dependentIndex];
+	}
+
+	@Override
+	public void removeDependencyEdge(int headIndex, int dependentIndex) throws MaltChainedException {
+		checkNodeIndex(headIndex, "The head doesn't exists");
+		checkNodeIndex(dependentIndex, "The dependent doesn't exists");
+		if (heads[dependentIndex] == headIndex) {
+			removeHead(dependentIndex);
+		}
+	}
+
+	@Override
+	public void linkAllTreesToRoot() throws MaltChainedException {
+		final LabelSet defaultRootLabels = getDefaultRootEdgeLabels();
+		for (int i = 0; i < nNodes; i++) {
+			if (heads[i] == NO_VALUE) {
+				setHead(i, 0);
+				clearEdgeLabels(i);
+				edges[i].addLabel(defaultRootLabels);
+			}
+		}
+	}
+
+	@Override
+	public int nEdges() {
+		int n = 0;
+		for (int i = 1; i < nNodes; i++) {
+			if (heads[i] != NO_VALUE) {
+				n++;
+			}
+		}
+		return n;
+	}
+
+	@Override
+	public SortedSet<Edge> getEdges() {
+		SortedSet<Edge> edgeSet = new TreeSet<Edge>();
+		for (int i = 1; i < nNodes; i++) {
+			if (heads[i] != NO_VALUE) {
+				edgeSet.add(edges[i]);
+			}
+		}
+		return edgeSet;
+	}
+
+	@Override
+	public SortedSet<Integer> getDependencyIndices() {
+		SortedSet<Integer> indices = new TreeSet<Integer>();
+		for (int i = 0; i < nNodes; i++) {
+			indices.add(i);
+		}
+		return indices;
+	}
+
+	@Override
+	public DependencyNode getDependencyRoot() {
+		return nodes[0];
+	}
+
+	@Override
+	public boolean hasLabeledDependency(int index) {
+		if (index < 0 || index >= nNodes) {
+			return false;
+		}
+		if (heads[index] == NO_VALUE) {
+			return false;
+		}
+		return edges[index].isLabeled();
+	}
+
+	@Override
+	public boolean isConnected() {
+		int[] components = new int[nNodes];
+		int[] ranks = new int[nNodes];
+		findComponents(components, ranks);
+		int tmp = components[0];
+		for (int i = 1; i < components.length; i++) {
+			if (tmp != components[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean isProjective() throws MaltChainedException {
+		for (int i = 1; i < nNodes; i++) {
+			if (!nodes[i].isProjective()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean isSingleHeaded() {
+		return true;
+	}
+
+	@Override
+	public boolean isTree() {
+		return isConnected() && isSingleHeaded();
+	}
+
+	@Override
+	public int nNonProjectiveEdges() throws MaltChainedException {
+		int c = 0;
+		for (int i = 1; i < nNodes; i++) {
+			if (!nodes[i].isProjective()) {
+				c++;
+			}
+		}
+		return c;
+	}
+
+	@Override
+	public LabelSet getDefaultRootEdgeLabels() throws MaltChainedException {
+		return rootLabels.getDefaultRootLabels();
+	}
+
+	@Override
+	public String getDefaultRootEdgeLabelSymbol(SymbolTable table) throws MaltChainedException {
+		return rootLabels.getDefaultRootLabelSymbol(table);
+	}
+
+	@Override
+	public int getDefaultRootEdgeLabelCode(SymbolTable table) throws MaltChainedException {
+		return rootLabels.getDefaultRootLabelCode(table);
+	}
+
+	@Override
+	public void setDefaultRootEdgeLabel(SymbolTable table, String defaultRootSymbol) throws MaltChainedException {
+		rootLabels.setDefaultRootLabel(table, defaultRootSymbol);
+	}
+
+	@Override
+	public void setDefaultRootEdgeLabels(String rootLabelOption, SortedMap<String, SymbolTable> edgeSymbolTables) throws MaltChainedException {
+		rootLabels.setRootLabels(rootLabelOption, edgeSymbolTables);
+	}
+
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < nNodes; i++) {
+			sb.append(nodes[i].toString().trim());
+			sb.append('\n');
+		}
+		sb.append('\n');
+		return sb.toString();
+	}
+}
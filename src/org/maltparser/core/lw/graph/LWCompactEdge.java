@@ -0,0 +1,284 @@
+package org.maltparser.core.lw.graph;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.maltparser.concurrent.graph.dataformat.ColumnDescription;
+import org.maltparser.core.exception.MaltChainedException;
+import org.maltparser.core.symbol.SymbolTable;
+import org.maltparser.core.syntaxgraph.LabelSet;
+import org.maltparser.core.syntaxgraph.LabeledStructure;
+import org.maltparser.core.syntaxgraph.edge.Edge;
+import org.maltparser.core.syntaxgraph.node.Node;
+
+/**
+* A flyweight head edge of the LWCompactDependencyGraph. There is one edge view per dependent, which always reflects the
+* current head and the current edge labels of the dependent in the arrays of the graph.
+*/
+public final class LWCompactEdge implements Edge, Comparable<LWCompactEdge> {
+	private final LWCompactDependencyGraph graph;
+	private final int target;
+
+	protected LWCompactEdge(LWCompactDependencyGraph _graph, int _target) {
+		this.graph = _graph;
+		this.target = _target;
+	}
+
+	public Node getSource() {
+		return graph.getNode(graph.getHeadIndex(target));
+	}
+
+	public Node getTarget() {
+		return graph.getNode(target);
+	}
+
+	public String getLabel(ColumnDescription column) throws MaltChainedException {
+		final int code = graph.getEdgeLabelCode(column.getPosition(), target);
+		if (code != -1) {
+			return graph.getColumnTable(column.getPosition()).getSymbolCodeToString(code);
+		} else if (column.getCategory() == ColumnDescription.IGNORE) {
+			return column.getDefaultOutput();
+		}
+		return "";
+	}
+
+	public int nLabels() {
+		int n = 0;
+		for (int i = 0; i < graph.nColumns(); i++) {
+			if (graph.getEdgeLabelCode(i, target) != -1) {
+				n++;
+			}
+		}
+		return n;
+	}
+
+	public boolean isLabeled() {
+		for (int i = 0; i < graph.nColumns(); i++) {
+			if (graph.getEdgeLabelCode(i, target) != -1) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void setEdge(Node source, Node target, int type) throws MaltChainedException {
+		throw new LWGraphException("Not implemented in light-weight dependency graph");
+	}
+
+	@Override
+	public int getType() {
+		return DEPENDENCY_EDGE;
+	}
+
+	/**
+	 * Adds a label (a string value) to the symbol table and to the graph element.
+	 *
+	 * @param table the symbol table
+	 * @param symbol a label symbol
+	 * @throws MaltChainedException
+	 */
+	public void addLabel(SymbolTable table, String symbol) throws MaltChainedException {
+		graph.setEdgeLabelCode(graph.getColumnPosition(table), target, table.addSymbol(symbol));
+	}
+
+	/**
+	 * Adds a label (an integer value) to the symbol table and to the graph element.
+	 *
+	 * @param table the symbol table
+	 * @param code a label code
+	 * @throws MaltChainedException
+	 */
+	public void addLabel(SymbolTable table, int code) throws MaltChainedException {
+		addLabel(table, table.getSymbolCodeToString(code));
+	}
+
+	/**
+	 * Adds the labels of the label set to the label set of the graph element.
+	 *
+	 * @param labelSet a label set.
+	 * @throws MaltChainedException
+	 */
+	public void addLabel(LabelSet labelSet) throws MaltChainedException {
+		for (SymbolTable table : labelSet.keySet()) {
+			addLabel(table, labelSet.get(table));
+		}
+	}
+
+	/**
+	 * Returns <i>true</i> if the graph element has a label for the symbol table, otherwise <i>false</i>.
+	 *
+	 * @param table the symbol table
+	 * @return <i>true</i> if the graph element has a label for the symbol table, otherwise <i>false</i>.
+	 * @throws MaltChainedException
+	 */
+	public boolean hasLabel(SymbolTable table) throws MaltChainedException {
+		if (table == null) {
+			return false;
+		}
+		return graph.getEdgeLabelCode(graph.getColumnPosition(table), target) != -1;
+	}
+
+	/**
+	 * Returns the label symbol(a string representation) of the symbol table if it exists, otherwise
+	 * <i>null</i>.
+	 *
+	 * @param table the symbol table
+	 * @return the label (a string representation) of the symbol table if it exists.
+	 * @throws MaltChainedException
+	 */
+	public String getLabelSymbol(SymbolTable table) throws MaltChainedException {
+		final int code = graph.getEdgeLabelCode(graph.getColumnPosition(table), target);
+		return (code != -1)?table.getSymbolCodeToString(code):null;
+	}
+
+	/**
+	 * Returns the label code (an integer representation) of the symbol table if it exists, otherwise
+	 * an exception is thrown.
+	 *
+	 * @param table the symbol table
+	 * @return the label code (an integer representation) of the symbol table if it exists
+	 * @throws MaltChainedException
+	 */
+	public int getLabelCode(SymbolTable table) throws MaltChainedException {
+		final int code = graph.getEdgeLabelCode(graph.getColumnPosition(table), target);
+		if (code == -1) {
+			throw new LWGraphException("The head edge of node "+target+" has no label for the symbol table '"+table.getName()+"'. ");
+		}
+		return code;
+	}
+
+	/**
+	 * Returns a set of symbol tables (labeling functions or label types) that labels the graph element.
+	 *
+	 * @return a set of symbol tables (labeling functions or label types)
+	 */
+	public Set<SymbolTable> getLabelTypes() {
+		Set<SymbolTable> labelTypes = new HashSet<SymbolTable>();
+		for (int i = 0; i < graph.nColumns(); i++) {
+			if (graph.getEdgeLabelCode(i, target) != -1) {
+				try {
+					labelTypes.add(graph.getColumnTable(i));
+				} catch (MaltChainedException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+		return labelTypes;
+	}
+
+	/**
+	 * Returns the label set.
+	 *
+	 * @return the label set.
+	 */
+	public LabelSet getLabelSet() {
+		LabelSet labelSet = new LabelSet();
+		for (int i = 0; i < graph.nColumns(); i++) {
+			final int code = graph.getEdgeLabelCode(i, target);
+			if (code != -1) {
+				try {
+					labelSet.put(graph.getColumnTable(i), code);
+				} catch (MaltChainedException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+		return labelSet;
+	}
+
+	public void removeLabel(SymbolTable table) throws MaltChainedException {
+		graph.setEdgeLabelCode(graph.getColumnPosition(table), target, -1);
+	}
+
+	public void removeLabels() throws MaltChainedException {
+		graph.clearEdgeLabels(target);
+	}
+
+	/**
+	 * Returns the graph (structure) in which the graph element belongs to.
+	 *
+	 * @return the graph (structure) in which the graph element belongs to.
+	 */
+	public LabeledStructure getBelongsToGraph() {
+		return graph;
+	}
+
+	public void setBelongsToGraph(LabeledStructure belongsToGraph) { }
+
+	/**
+	 * Resets the graph element.
+	 *
+	 * @throws MaltChainedException
+	 */
+	public void clear() throws MaltChainedException {
+		graph.clearEdgeLabels(target);
+	}
+
+	public int compareTo(LWCompactEdge that) {
+		final int BEFORE = -1;
+	    final int EQUAL = 0;
+	    final int AFTER = 1;
+
+	    if (this == that) return EQUAL;
+
+	    if (this.target < that.target) return BEFORE;
+	    if (this.target > that.target) return AFTER;
+
+	    final int thisSource = this.graph.getHeadIndex(this.target);
+	    final int thatSource = that.graph.getHeadIndex(that.target);
+	    if (thisSource < thatSource) return BEFORE;
+	    if (thisSource > thatSource) return AFTER;
+
+	    for (int i = 0; i < graph.nColumns(); i++) {
+	    	final int thisCode = this.graph.getEdgeLabelCode(i, this.target);
+	    	final int thatCode = that.graph.getEdgeLabelCode(i, that.target);
+	    	if (thisCode < thatCode) return BEFORE;
+	    	if (thisCode > thatCode) return AFTER;
+	    }
+		return EQUAL;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * graph.hashCode() + target;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		LWCompactEdge other = (LWCompactEdge) obj;
+		return graph == other.graph && target == other.target;
+	}
+
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append(getSource());
+		sb.append(" -> ");
+		sb.append(getTarget());
+		if (isLabeled()) {
+			sb.append(" {");
+			for (int i = 0; i < graph.nColumns(); i++) {
+				if (graph.getEdgeLabelCode(i, target) != -1) {
+					final ColumnDescription column = graph.getDataFormat().getColumnDescription(i);
+					sb.append(column.getName());
+					sb.append('=');
+					try {
+						sb.append(getLabel(column));
+					} catch (MaltChainedException e) {
+						e.printStackTrace();
+					}
+					sb.append(',');
+				}
+			}
+			sb.setCharAt(sb.length() - 1, ' ');
+			sb.append('}');
+		}
+		return sb.toString();
+	}
+}
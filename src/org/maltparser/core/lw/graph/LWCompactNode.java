@@ -0,0 +1,811 @@
+package org.maltparser.core.lw.graph;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.maltparser.concurrent.graph.dataformat.ColumnDescription;
+import org.maltparser.core.exception.MaltChainedException;
+import org.maltparser.core.symbol.SymbolTable;
+import org.maltparser.core.syntaxgraph.LabelSet;
+import org.maltparser.core.syntaxgraph.LabeledStructure;
+import org.maltparser.core.syntaxgraph.edge.Edge;
+import org.maltparser.core.syntaxgraph.node.ComparableNode;
+import org.maltparser.core.syntaxgraph.node.DependencyNode;
+import org.maltparser.core.syntaxgraph.node.Node;
+
+/**
+* A flyweight node of the LWCompactDependencyGraph. The node doesn't hold any state except the node index, all
+* labels, the head and the dependents are read from and written to the arrays of the graph.
+*/
+public final class LWCompactNode implements DependencyNode, Node {
+	private final LWCompactDependencyGraph graph;
+	private final int index;
+
+	protected LWCompactNode(LWCompactDependencyGraph _graph, int _index) {
+		this.graph = _graph;
+		this.index = _index;
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	@Override
+	public void setIndex(int index) throws MaltChainedException {
+		throw new LWGraphException("Not allowed to change the index of a node in the compact light-weight dependency graph");
+	}
+
+	public String getLabel(int columnPosition) throws MaltChainedException {
+		final int code = graph.getNodeLabelCode(columnPosition, index);
+		if (code != -1) {
+			return graph.getColumnTable(columnPosition).getSymbolCodeToString(code);
+		} else if (graph.getColumnCategory(columnPosition) == ColumnDescription.IGNORE) {
+			return graph.getDataFormat().getColumnDescription(columnPosition).getDefaultOutput();
+		}
+		return "";
+	}
+
+	public boolean hasLabel(int columnPosition) {
+		return graph.getNodeLabelCode(columnPosition, index) != -1;
+	}
+
+	public boolean isLabeled() {
+		for (int i = 0; i < graph.nColumns(); i++) {
+			if (graph.getNodeLabelCode(i, index) != -1 && graph.getColumnCategory(i) == ColumnDescription.INPUT) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public boolean isHeadLabeled() {
+		return isHeadEdgeLabeled();
+	}
+
+	public int getHeadIndex() {
+		return graph.getHeadIndex(index);
+	}
+
+	public DependencyNode getPredecessor() {
+		return index > 1 ? graph.getNode(index - 1) : null;
+	}
+
+	public DependencyNode getSuccessor() {
+		return graph.getNode(index + 1);
+	}
+
+	public boolean isRoot() {
+		return index == 0;
+	}
+
+	public boolean hasAtMostOneHead() {
+		return true;
+	}
+
+	public boolean hasHead() {
+		return graph.getHeadIndex(index) != -1;
+	}
+
+	public boolean hasDependent() {
+		return graph.nDependents(index) > 0;
+	}
+
+	public boolean hasLeftDependent() {
+		return graph.nLeftDependents(index) > 0;
+	}
+
+	public boolean hasRightDependent() {
+		return graph.nDependents(index) > graph.nLeftDependents(index);
+	}
+
+	public SortedSet<DependencyNode> getHeads() {
+		SortedSet<DependencyNode> heads = new TreeSet<DependencyNode>();
+		DependencyNode head = getHead();
+		if (head != null) {
+			heads.add(head);
+		}
+		return heads;
+	}
+
+	public DependencyNode getHead() {
+		return graph.getNode(graph.getHeadIndex(index));
+	}
+
+	public DependencyNode getLeftDependent(int leftDependentIndex) {
+		if (leftDependentIndex >= 0 && leftDependentIndex < graph.nLeftDependents(index)) {
+			return graph.getNode(graph.getDependentIndex(index, leftDependentIndex));
+		}
+		return null;
+	}
+
+	public int getLeftDependentCount() {
+		return graph.nLeftDependents(index);
+	}
+
+	public SortedSet<DependencyNode> getLeftDependents() {
+		return graph.getSortedSetOfLeftDependents(index);
+	}
+
+	public List<DependencyNode> getListOfLeftDependents() {
+		return graph.getListOfLeftDependents(index);
+	}
+
+	public DependencyNode getLeftSibling() {
+		final int headIndex = graph.getHeadIndex(index);
+		if (headIndex == -1) {
+			return null;
+		}
+		final int position = graph.getDependentPosition(headIndex, index);
+		return (position > 0) ? graph.getNode(graph.getDependentIndex(headIndex, position - 1)) : null;
+	}
+
+	public DependencyNode getSameSideLeftSibling() {
+		final int headIndex = graph.getHeadIndex(index);
+		if (headIndex == -1) {
+			return null;
+		}
+		final int position = graph.getDependentPosition(headIndex, index);
+		// The first position on the same side is 0 for left dependents and nLeftDependents for right dependents
+		final int firstPosition = (index < headIndex) ? 0 : graph.nLeftDependents(headIndex);
+		return (position > firstPosition) ? graph.getNode(graph.getDependentIndex(headIndex, position - 1)) : null;
+	}
+
+	public DependencyNode getClosestLeftDependent() {
+		final int n = graph.nLeftDependents(index);
+		return (n > 0) ? graph.getNode(graph.getDependentIndex(index, n - 1)) : null;
+	}
+
+	public DependencyNode getLeftmostDependent() {
+		return (graph.nLeftDependents(index) > 0) ? graph.getNode(graph.getDependentIndex(index, 0)) : null;
+	}
+
+	public DependencyNode getRightDependent(int rightDependentIndex) {
+		final int n = graph.nDependents(index);
+		if (rightDependentIndex >= 0 && rightDependentIndex < n - graph.nLeftDependents(index)) {
+			return graph.getNode(graph.getDependentIndex(index, n - 1 - rightDependentIndex));
+		}
+		return null;
+	}
+
+	public int getRightDependentCount() {
+		return graph.nDependents(index) - graph.nLeftDependents(index);
+	}
+
+	public SortedSet<DependencyNode> getRightDependents() {
+		return graph.getSortedSetOfRightDependents(index);
+	}
+
+	public List<DependencyNode> getListOfRightDependents() {
+		return graph.getListOfRightDependents(index);
+	}
+
+	public DependencyNode getRightSibling() {
+		final int headIndex = graph.getHeadIndex(index);
+		if (headIndex == -1) {
+			return null;
+		}
+		final int position = graph.getDependentPosition(headIndex, index);
+		if (position == -1) {
+			return null;
+		}
+		return (position < graph.nDependents(headIndex) - 1) ? graph.getNode(graph.getDependentIndex(headIndex, position + 1)) : null;
+	}
+
+	public DependencyNode getSameSideRightSibling() {
+		final int headIndex = graph.getHeadIndex(index);
+		if (headIndex == -1) {
+			return null;
+		}
+		final int position = graph.getDependentPosition(headIndex, index);
+		if (position == -1) {
+			return null;
+		}
+		// The last position on the same side is nLeftDependents-1 for left dependents and nDependents-1 for right dependents
+		final int lastPosition = (index < headIndex) ? graph.nLeftDependents(headIndex) - 1 : graph.nDependents(headIndex) - 1;
+		return (position < lastPosition) ? graph.getNode(graph.getDependentIndex(headIndex, position + 1)) : null;
+	}
+
+	public DependencyNode getClosestRightDependent() {
+		final int nLeft = graph.nLeftDependents(index);
+		return (graph.nDependents(index) > nLeft) ? graph.getNode(graph.getDependentIndex(index, nLeft)) : null;
+	}
+
+	public DependencyNode getRightmostDependent(){
+		final int n = graph.nDependents(index);
+		return (n > graph.nLeftDependents(index)) ? graph.getNode(graph.getDependentIndex(index, n - 1)) : null;
+	}
+
+	public SortedSet<DependencyNode> getDependents() {
+		return graph.getSortedSetOfDependents(index);
+	}
+
+	public List<DependencyNode> getListOfDependents() {
+		return graph.getListOfDependents(index);
+	}
+
+	public int getInDegree() {
+		if (hasHead()) {
+			return 1;
+		}
+		return 0;
+	}
+
+	public int getOutDegree() {
+		return graph.nDependents(index);
+	}
+
+	public DependencyNode getAncestor() throws MaltChainedException {
+		if (!this.hasHead()) {
+			return this;
+		}
+
+		DependencyNode tmp = this;
+		while (tmp.hasHead()) {
+			tmp = tmp.getHead();
+		}
+		return tmp;
+	}
+
+	public DependencyNode getProperAncestor() throws MaltChainedException {
+		if (!this.hasHead()) {
+			return null;
+		}
+
+		DependencyNode tmp = this;
+		while (tmp.hasHead() && !tmp.isRoot()) {
+			tmp = tmp.getHead();
+		}
+		return tmp;
+	}
+
+	public boolean hasAncestorInside(int left, int right) throws MaltChainedException {
+		if (index == 0) {
+			return false;
+		}
+		final int headIndex = graph.getHeadIndex(index);
+		return headIndex != -1 && headIndex >= left && headIndex <= right;
+	}
+
+	public boolean isProjective() throws MaltChainedException {
+		int headIndex = getHeadIndex();
+		if (headIndex > 0) {
+			final DependencyNode head = getHead();
+			if (headIndex < index) {
+				DependencyNode terminals = head;
+				DependencyNode tmp = null;
+				while (true) {
+					if (terminals == null || terminals.getSuccessor() == null) {
+						return false;
+					}
+					if (terminals.getSuccessor() == this) {
+						break;
+					}
+					tmp = terminals = terminals.getSuccessor();
+					while (tmp != this && tmp != head) {
+						if (!tmp.hasHead()) {
+							return false;
+						}
+						tmp = tmp.getHead();
+					}
+				}
+			} else {
+				DependencyNode terminals = this;
+				DependencyNode tmp = null;
+				while (true) {
+					if (terminals == null || terminals.getSuccessor() == null) {
+						return false;
+					}
+					if (terminals.getSuccessor() == head) {
+						break;
+					}
+					tmp = terminals = terminals.getSuccessor();
+					while (tmp != this && tmp != head) {
+						if (!tmp.hasHead()) {
+							return false;
+						}
+						tmp = tmp.getHead();
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	public int getDependencyNodeDepth() throws MaltChainedException {
+		DependencyNode tmp = this;
+		int depth = 0;
+		while (tmp.hasHead()) {
+			depth++;
+			tmp = tmp.getHead();
+		}
+		return depth;
+	}
+
+	@Override
+	public int getCompareToIndex() {
+		return index;
+	}
+
+	@Override
+	public ComparableNode getLeftmostProperDescendant() throws MaltChainedException {
+		ComparableNode candidate = null;
+		for (int i = 0; i < graph.nDependents(index); i++) {
+			final DependencyNode dep = graph.getNode(graph.getDependentIndex(index, i));
+			if (candidate == null || dep.getIndex() < candidate.getIndex()) {
+				candidate = dep;
+			}
+			final ComparableNode tmp = dep.getLeftmostProperDescendant();
+			if (tmp == null) {
+				continue;
+			}
+			if (candidate == null || tmp.getIndex() < candidate.getIndex()) {
+				candidate = tmp;
+			}
+			if (candidate.getIndex() == 1) {
+				return candidate;
+			}
+		}
+		return candidate;
+	}
+
+	@Override
+	public ComparableNode getRightmostProperDescendant() throws MaltChainedException {
+		ComparableNode candidate = null;
+		for (int i = 0; i < graph.nDependents(index); i++) {
+			final DependencyNode dep = graph.getNode(graph.getDependentIndex(index, i));
+			if (candidate == null || dep.getIndex() > candidate.getIndex()) {
+				candidate = dep;
+			}
+			final ComparableNode tmp = dep.getRightmostProperDescendant();
+			if (tmp == null) {
+				continue;
+			}
+			if (candidate == null || tmp.getIndex() > candidate.getIndex()) {
+				candidate = tmp;
+			}
+		}
+		return candidate;
+	}
+
+	@Override
+	public int getLeftmostProperDescendantIndex() throws MaltChainedException {
+		ComparableNode node = getLeftmostProperDescendant();
+		return (node != null)?node.getIndex():-1;
+	}
+
+	@Override
+	public int getRightmostProperDescendantIndex() throws MaltChainedException {
+		ComparableNode node = getRightmostProperDescendant();
+		return (node != null)?node.getIndex():-1;
+	}
+
+	@Override
+	public ComparableNode getLeftmostDescendant() throws MaltChainedException {
+		ComparableNode candidate = this;
+		for (int i = 0; i < graph.nDependents(index); i++) {
+			final DependencyNode dep = graph.getNode(graph.getDependentIndex(index, i));
+			if (dep.getIndex() < candidate.getIndex()) {
+				candidate = dep;
+			}
+			final ComparableNode tmp = dep.getLeftmostDescendant();
+			if (tmp == null) {
+				continue;
+			}
+			if (tmp.getIndex() < candidate.getIndex()) {
+				candidate = tmp;
+			}
+			if (candidate.getIndex() == 1) {
+				return candidate;
+			}
+		}
+		return candidate;
+	}
+
+	@Override
+	public ComparableNode getRightmostDescendant() throws MaltChainedException {
+		ComparableNode candidate = this;
+		for (int i = 0; i < graph.nDependents(index); i++) {
+			final DependencyNode dep = graph.getNode(graph.getDependentIndex(index, i));
+			if (dep.getIndex() > candidate.getIndex() ) {
+				candidate = dep;
+			}
+			final ComparableNode tmp = dep.getRightmostDescendant();
+			if (tmp == null) {
+				continue;
+			}
+			if (tmp.getIndex() > candidate.getIndex() ) {
+				candidate = tmp;
+			}
+		}
+		return candidate;
+	}
+
+	@Override
+	public int getLeftmostDescendantIndex() throws MaltChainedException {
+		ComparableNode node = getLeftmostDescendant();
+		return (node != null)?node.getIndex():this.getIndex();
+	}
+
+	@Override
+	public int getRightmostDescendantIndex() throws MaltChainedException {
+		ComparableNode node = getRightmostDescendant();
+		return (node != null)?node.getIndex():this.getIndex();
+	}
+
+	@Override
+	public SortedSet<Edge> getIncomingSecondaryEdges() throws MaltChainedException {
+		throw new LWGraphException("Not implemented in the light-weight dependency graph package");
+	}
+
+	@Override
+	public SortedSet<Edge> getOutgoingSecondaryEdges() throws MaltChainedException {
+		throw new LWGraphException("Not implemented in the light-weight dependency graph package");
+	}
+
+	@Override
+	public Set<Edge> getHeadEdges()  {
+		SortedSet<Edge> edges = new TreeSet<Edge>();
+		if (hasHead()) {
+			edges.add(graph.getHeadEdge(index));
+		}
+		return edges;
+	}
+
+	@Override
+	public Edge getHeadEdge() {
+		return graph.getHeadEdge(index);
+	}
+
+	@Override
+	public void addHeadEdgeLabel(SymbolTable table, String symbol) throws MaltChainedException {
+		if (hasHead()) {
+			graph.getHeadEdge(index).addLabel(table, symbol);
+		}
+	}
+
+	@Override
+	public void addHeadEdgeLabel(SymbolTable table, int code) throws MaltChainedException {
+		if (hasHead()) {
+			graph.getHeadEdge(index).addLabel(table, code);
+		}
+	}
+
+	@Override
+	public void addHeadEdgeLabel(LabelSet labelSet) throws MaltChainedException {
+		if (hasHead()) {
+			graph.getHeadEdge(index).addLabel(labelSet);
+		}
+	}
+
+	@Override
+	public boolean hasHeadEdgeLabel(SymbolTable table) throws MaltChainedException {
+		if (hasHead()) {
+			return graph.getHeadEdge(index).hasLabel(table);
+		}
+		return false;
+	}
+
+	@Override
+	public String getHeadEdgeLabelSymbol(SymbolTable table) throws MaltChainedException {
+		if (hasHead()) {
+			return graph.getHeadEdge(index).getLabelSymbol(table);
+		}
+		return null;
+	}
+
+	@Override
+	public int getHeadEdgeLabelCode(SymbolTable table) throws MaltChainedException {
+		if (hasHead()) {
+			return graph.getHeadEdge(index).getLabelCode(table);
+		}
+		return 0;
+	}
+
+	@Override
+	public Set<SymbolTable> getHeadEdgeLabelTypes() throws MaltChainedException {
+		if (hasHead()) {
+			return graph.getHeadEdge(index).getLabelTypes();
+		}
+		return new HashSet<SymbolTable>();
+	}
+
+	@Override
+	public LabelSet getHeadEdgeLabelSet() throws MaltChainedException {
+		if (hasHead()) {
+			return graph.getHeadEdge(index).getLabelSet();
+		}
+		return new LabelSet();
+	}
+
+	public boolean isHeadEdgeLabeled() {
+		if (hasHead()) {
+			return graph.getHeadEdge(index).isLabeled();
+		}
+		return false;
+	}
+
+	public int nHeadEdgeLabels() {
+		if (hasHead()) {
+			return graph.getHeadEdge(index).nLabels();
+		}
+		return 0;
+	}
+
+	@Override
+	public void addIncomingEdge(Edge in) throws MaltChainedException {
+		if (in.getBelongsToGraph() != graph || in.getTarget().getIndex() != index) {
+			throw new LWGraphException("The incoming edge must belong to the same compact dependency graph and target the node.");
+		}
+		graph.setHead(index, in.getSource().getIndex());
+	}
+
+	@Override
+	public void addOutgoingEdge(Edge out) throws MaltChainedException {
+		throw new LWGraphException("Not implemented in the light-weight dependency graph package");
+	}
+
+	@Override
+	public void removeIncomingEdge(Edge in) throws MaltChainedException {
+		if (hasHead() && in.getSource().getIndex() == graph.getHeadIndex(index) && in.getTarget().getIndex() == index) {
+			graph.removeHead(index);
+		}
+	}
+
+	@Override
+	public void removeOutgoingEdge(Edge out) throws MaltChainedException {
+		throw new LWGraphException("Not implemented in the light-weight dependency graph package");
+	}
+
+	@Override
+	public Iterator<Edge> getIncomingEdgeIterator() {
+		return getHeadEdges().iterator();
+	}
+
+	@Override
+	public Iterator<Edge> getOutgoingEdgeIterator() {
+		final int n = graph.nDependents(index);
+		List<Edge> outEdges = new ArrayList<Edge>(n);
+		for (int i = 0; i < n; i++) {
+			outEdges.add(graph.getHeadEdge(graph.getDependentIndex(index, i)));
+		}
+		return outEdges.iterator();
+	}
+
+	@Override
+	public void setRank(int r) {}
+
+	@Override
+	public DependencyNode getComponent() {
+		return null;
+	}
+
+	@Override
+	public void setComponent(DependencyNode x) {}
+
+	public DependencyNode findComponent() {
+		return graph.findComponent(index);
+	}
+
+	public int getRank() {
+		return graph.getRank(index);
+	}
+
+	/**
+	 * Adds a label (a string value) to the symbol table and to the graph element.
+	 *
+	 * @param table the symbol table
+	 * @param symbol a label symbol
+	 * @throws MaltChainedException
+	 */
+	public void addLabel(SymbolTable table, String symbol) throws MaltChainedException {
+		graph.setNodeLabelCode(graph.getColumnPosition(table), index, table.addSymbol(symbol));
+	}
+
+	/**
+	 * Adds a label (an integer value) to the symbol table and to the graph element.
+	 *
+	 * @param table the symbol table
+	 * @param code a label code
+	 * @throws MaltChainedException
+	 */
+	public void addLabel(SymbolTable table, int code) throws MaltChainedException {
+		addLabel(table, table.getSymbolCodeToString(code));
+	}
+
+	/**
+	 * Adds the labels of the label set to the label set of the graph element.
+	 *
+	 * @param labels a label set.
+	 * @throws MaltChainedException
+	 */
+	public void addLabel(LabelSet labels) throws MaltChainedException {
+		for (SymbolTable table : labels.keySet()) {
+			addLabel(table, labels.get(table));
+		}
+	}
+
+	/**
+	 * Returns <i>true</i> if the graph element has a label for the symbol table, otherwise <i>false</i>.
+	 *
+	 * @param table the symbol table
+	 * @return <i>true</i> if the graph element has a label for the symbol table, otherwise <i>false</i>.
+	 * @throws MaltChainedException
+	 */
+	public boolean hasLabel(SymbolTable table) throws MaltChainedException {
+		return graph.getNodeLabelCode(graph.getColumnPosition(table), index) != -1;
+	}
+
+	/**
+	 * Returns the label symbol(a string representation) of the symbol table if it exists, otherwise
+	 * <i>null</i>.
+	 *
+	 * @param table the symbol table
+	 * @return the label (a string representation) of the symbol table if it exists.
+	 * @throws MaltChainedException
+	 */
+	public String getLabelSymbol(SymbolTable table) throws MaltChainedException {
+		final int code = graph.getNodeLabelCode(graph.getColumnPosition(table), index);
+		return (code != -1)?table.getSymbolCodeToString(code):null;
+	}
+
+	/**
+	 * Returns the label code (an integer representation) of the symbol table if it exists, otherwise
+	 * an exception is thrown.
+	 *
+	 * @param table the symbol table
+	 * @return the label code (an integer representation) of the symbol table if it exists
+	 * @throws MaltChainedException
+	 */
+	public int getLabelCode(SymbolTable table) throws MaltChainedException {
+		final int code = graph.getNodeLabelCode(graph.getColumnPosition(table), index);
+		if (code == -1) {
+			throw new LWGraphException("The node "+index+" has no label for the symbol table '"+table.getName()+"'. ");
+		}
+		return code;
+	}
+
+	/**
+	 * Returns the number of labels of the graph element.
+	 *
+	 * @return the number of labels of the graph element.
+	 */
+	public int nLabels() {
+		int n = 0;
+		for (int i = 0; i < graph.nColumns(); i++) {
+			if (graph.getNodeLabelCode(i, index) != -1) {
+				n++;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Returns a set of symbol tables (labeling functions or label types) that labels the graph element.
+	 *
+	 * @return a set of symbol tables (labeling functions or label types)
+	 */
+	public Set<SymbolTable> getLabelTypes() {
+		Set<SymbolTable> labelTypes = new HashSet<SymbolTable>();
+		for (int i = 0; i < graph.nColumns(); i++) {
+			if (graph.getNodeLabelCode(i, index) != -1) {
+				try {
+					labelTypes.add(graph.getColumnTable(i));
+				} catch (MaltChainedException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+		return labelTypes;
+	}
+
+	/**
+	 * Returns the label set.
+	 *
+	 * @return the label set.
+	 */
+	public LabelSet getLabelSet() {
+		LabelSet labelSet = new LabelSet();
+		for (int i = 0; i < graph.nColumns(); i++) {
+			final int code = graph.getNodeLabelCode(i, index);
+			if (code != -1) {
+				try {
+					labelSet.put(graph.getColumnTable(i), code);
+				} catch (MaltChainedException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+		return labelSet;
+	}
+
+	public void removeLabel(SymbolTable table) throws MaltChainedException {
+		graph.setNodeLabelCode(graph.getColumnPosition(table), index, -1);
+	}
+
+	public void removeLabels() throws MaltChainedException {
+		graph.clearNodeLabels(index);
+	}
+
+	/**
+	 * Returns the graph (structure) in which the graph element belongs to.
+	 *
+	 * @return the graph (structure) in which the graph element belongs to.
+	 */
+	public LabeledStructure getBelongsToGraph()  {
+		return graph;
+	}
+
+	public void setBelongsToGraph(LabeledStructure belongsToGraph)  {}
+
+	/**
+	 * Resets the graph element.
+	 *
+	 * @throws MaltChainedException
+	 */
+	public void clear() throws MaltChainedException {
+		graph.clearNodeLabels(index);
+	}
+
+	@Override
+	public int compareTo(ComparableNode that) {
+		final int BEFORE = -1;
+	    final int EQUAL = 0;
+	    final int AFTER = 1;
+	    if (this == that) return EQUAL;
+	    if (this.index < that.getIndex()) return BEFORE;
+	    if (this.index > that.getIndex()) return AFTER;
+	    return EQUAL;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * graph.hashCode() + index;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		LWCompactNode other = (LWCompactNode) obj;
+		return graph == other.graph && index == other.index;
+	}
+
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		try {
+			for (int i = 0; i < graph.nColumns(); i++) {
+				ColumnDescription column = graph.getDataFormat().getColumnDescription(i);
+				if (!column.isInternal()) {
+					if (column.getCategory() == ColumnDescription.HEAD) {
+						sb.append(getHeadIndex());
+					} else if (column.getCategory() == ColumnDescription.INPUT) {
+						final int code = graph.getNodeLabelCode(i, index);
+						sb.append((code != -1)?graph.getColumnTable(i).getSymbolCodeToString(code):null);
+					} else if (column.getCategory() == ColumnDescription.DEPENDENCY_EDGE_LABEL) {
+						if (hasHead()) {
+							sb.append(graph.getHeadEdge(index).getLabel(column));
+						} else {
+							sb.append(column.getDefaultOutput());
+						}
+					} else if (column.getCategory() == ColumnDescription.IGNORE) {
+						sb.append(column.getDefaultOutput());
+					}
+					sb.append('\t');
+				}
+			}
+		} catch (MaltChainedException e) {
+			e.printStackTrace();
+		}
+		sb.setLength((sb.length() > 0)?sb.length()-1:0);
+		return sb.toString();
+	}
+}
@@ -1,12 +1,12 @@
 package org.maltparser.core.lw.graph;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
+import org.maltparser.concurrent.graph.ConcurrentDependencyGraph;
 import org.maltparser.concurrent.graph.dataformat.ColumnDescription;
 import org.maltparser.concurrent.graph.dataformat.DataFormat;
 import org.maltparser.core.exception.MaltChainedException;
@@ -25,6 +25,11 @@ import org.maltparser.core.syntaxgraph.node.TokenNode;
 /**
 * A lightweight version of org.maltparser.core.syntaxgraph.DependencyGraph.
 *
+* The graph is not thread-safe and is confined to the thread that parses the sentence: it must not be read or modified 
+* by any other thread while it is parsed. Therefore, none of the graph, its nodes or its edges are synchronized, and the 
+* collections they return are new, unsynchronized collections that belong to the caller. A graph that should be handed 
+* to other threads must first be turned into an immutable snapshot with toConcurrentDependencyGraph().
+*
 * @author Johan Hall
 */
 public final class LWDependencyGraph implements DependencyStructure {
@@ -90,6 +95,17 @@ public final class LWDependencyGraph implements DependencyStructure {
 		return dataFormat;
 	}
 
+	/**
+	 * Returns an immutable and thread-safe snapshot of the graph, which can be handed to other threads.
+	 * 
+	 * @param defaultRootLabel the label of head edges without a label
+	 * @return an immutable snapshot of the graph
+	 * @throws MaltChainedException
+	 */
+	public ConcurrentDependencyGraph toConcurrentDependencyGraph(String defaultRootLabel) throws MaltChainedException {
+		return new ConcurrentDependencyGraph(dataFormat, this, defaultRootLabel);
+	}
+
 	public LWNode getNode(int nodeIndex) {
 		if (nodeIndex < 0 || nodeIndex >= nodes.size()) {
 			return null;
@@ -102,88 +118,67 @@ public final class LWDependencyGraph implements DependencyStructure {
 	}
 
 	protected boolean hasDependent(int nodeIndex) {
-		for (int i = 1; i < nodes.size(); i++) {
-			if (nodeIndex == nodes.get(i).getHeadIndex()) {
-				return true;
-			}
-		}
-		return false;
+		return nodes.get(nodeIndex).hasDependent();
 	}
 
 	protected boolean hasLeftDependent(int nodeIndex) {
-		for (int i = 1; i < nodeIndex; i++) {
-			if (nodeIndex == nodes.get(i).getHeadIndex()) {
-				return true;
-			}
-		}
-		return false;
+		return nodes.get(nodeIndex).hasLeftDependent();
 	}
 
 	protected boolean hasRightDependent(int nodeIndex) {
-		for (int i = nodeIndex + 1; i < nodes.size(); i++) {
-			if (nodeIndex == nodes.get(i).getHeadIndex()) {
-				return true;
-			}
-		}
-		return false;
+		return nodes.get(nodeIndex).hasRightDependent();
 	}
 
 	protected List<DependencyNode> getListOfLeftDependents(int nodeIndex) {
-		List<DependencyNode> leftDependents = Collections.synchronizedList(new ArrayList<DependencyNode>());
-		for (int i = 1; i < nodeIndex; i++) {
-			if (nodeIndex == nodes.get(i).getHeadIndex()) {
-				leftDependents.add(nodes.get(i));
-			}
+		final LWNode node = nodes.get(nodeIndex);
+		List<DependencyNode> leftDependents = new ArrayList<DependencyNode>(node.nLeftDependents());
+		for (int i = 0; i < node.nLeftDependents(); i++) {
+			leftDependents.add(nodes.get(node.getDependentIndex(i)));
 		}
 		return leftDependents;
 	}
 
 	protected SortedSet<DependencyNode> getSortedSetOfLeftDependents(int nodeIndex) {
-		SortedSet<DependencyNode> leftDependents = Collections.synchronizedSortedSet(new TreeSet<DependencyNode>());
-		for (int i = 1; i < nodeIndex; i++) {
-			if (nodeIndex == nodes.get(i).getHeadIndex()) {
-				leftDependents.add(nodes.get(i));
-			}
+		final LWNode node = nodes.get(nodeIndex);
+		SortedSet<DependencyNode> leftDependents = new TreeSet<DependencyNode>();
+		for (int i = 0; i < node.nLeftDependents(); i++) {
+			leftDependents.add(nodes.get(node.getDependentIndex(i)));
 		}
 		return leftDependents;
 	}
 
 	protected List<DependencyNode> getListOfRightDependents(int nodeIndex) {
-		List<DependencyNode> rightDependents = Collections.synchronizedList(new ArrayList<DependencyNode>());
-		for (int i = nodeIndex + 1; i < nodes.size(); i++) {
-			if (nodeIndex == nodes.get(i).getHeadIndex()) {
-				rightDependents.add(nodes.get(i));
-			}
+		final LWNode node = nodes.get(nodeIndex);
+		List<DependencyNode> rightDependents = new ArrayList<DependencyNode>(node.nDependents() - node.nLeftDependents());
+		for (int i = node.nLeftDependents(); i < node.nDependents(); i++) {
+			rightDependents.add(nodes.get(node.getDependentIndex(i)));
 		}
 		return rightDependents;
 	}
 
 	protected SortedSet<DependencyNode> getSortedSetOfRightDependents(int nodeIndex) {
-		SortedSet<DependencyNode> rightDependents = Collections.synchronizedSortedSet(new TreeSet<DependencyNode>());
-		for (int i = nodeIndex + 1; i < nodes.size(); i++) {
-			if (nodeIndex == nodes.get(i).getHeadIndex()) {
-				rightDependents.add(nodes.get(i));
-			}
+		final LWNode node = nodes.get(nodeIndex);
+		SortedSet<DependencyNode> rightDependents = new TreeSet<DependencyNode>();
+		for (int i = node.nLeftDependents(); i < node.nDependents(); i++) {
+			rightDependents.add(nodes.get(node.getDependentIndex(i)));
 		}
 		return rightDependents;
 	}
 
 	protected List<DependencyNode> getListOfDependents(int nodeIndex) {
-		List<DependencyNode> dependents = Collections.synchronizedList(new ArrayList<DependencyNode>());
-		for (int i = 1; i < nodes.size(); i++) {
-			if (nodeIndex == nodes.get(i).getHeadIndex()) {
-				dependents.add(nodes.get(i));
-			}
+		final LWNode node = nodes.get(nodeIndex);
+		List<DependencyNode> dependents = new ArrayList<DependencyNode>(node.nDependents());
+		for (int i = 0; i < node.nDependents(); i++) {
+			dependents.add(nodes.get(node.getDependentIndex(i)));
 		}
 		return dependents;
 	}
 
 	protected SortedSet<DependencyNode> getSortedSetOfDependents(int nodeIndex) {
-		SortedSet<DependencyNode> dependents = Collections.synchronizedSortedSet(new TreeSet<DependencyNode>());
-		for (int i = 1; i < nodes.size(); i++) {
-			if (nodeIndex == nodes.get(i).getHeadIndex()) {
-				dependents.add(nodes.get(i));
-			}
+		final LWNode node = nodes.get(nodeIndex);
+		SortedSet<DependencyNode> dependents = new TreeSet<DependencyNode>();
+		for (int i = 0; i < node.nDependents(); i++) {
+			dependents.add(nodes.get(node.getDependentIndex(i)));
 		}
 		return dependents;
 	}
@@ -309,7 +304,7 @@ public final class LWDependencyGraph implements DependencyStructure {
 
 	@Override
 	public SortedSet<Integer> getTokenIndices() {
-		SortedSet<Integer> indices = Collections.synchronizedSortedSet(new TreeSet<Integer>());
+		SortedSet<Integer> indices = new TreeSet<Integer>();
 		for (int i = 1; i < nodes.size(); i++) {
 			indices.add(i);
 		}
@@ -481,7 +476,7 @@ public final class LWDependencyGraph implements DependencyStructure {
 
 	@Override
 	public SortedSet<Edge> getEdges() {
-		SortedSet<Edge> edges = Collections.synchronizedSortedSet(new TreeSet<Edge>());
+		SortedSet<Edge> edges = new TreeSet<Edge>();
 		for (int i = 1; i < nodes.size(); i++) {
 			if (nodes.get(i).hasHead()) {
 				edges.add(nodes.get(i).getHeadEdge());
@@ -492,7 +487,7 @@ public final class LWDependencyGraph implements DependencyStructure {
 
 	@Override
 	public SortedSet<Integer> getDependencyIndices() {
-		SortedSet<Integer> indices = Collections.synchronizedSortedSet(new TreeSet<Integer>());
+		SortedSet<Integer> indices = new TreeSet<Integer>();
 		for (int i = 0; i < nodes.size(); i++) {
 			indices.add(i);
 		}
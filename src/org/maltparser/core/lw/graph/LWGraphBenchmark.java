@@ -0,0 +1,113 @@
+package org.maltparser.core.lw.graph;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.maltparser.concurrent.graph.dataformat.DataFormat;
+import org.maltparser.core.exception.MaltChainedException;
+import org.maltparser.core.symbol.hash.HashSymbolTableHandler;
+import org.maltparser.core.syntaxgraph.DependencyStructure;
+import org.maltparser.core.syntaxgraph.node.DependencyNode;
+
+/**
+* A simple micro benchmark of the dependent queries of the light-weight dependency graphs. It measures the time of walking
+* the dependents of every node in a treebank, both with the unsynchronized collections returned by the graphs and with the
+* same collections wrapped in synchronized wrappers, which is how the graphs returned them before.
+*
+* Usage: LWGraphBenchmark &lt;CoNLL-X file&gt; [iterations]
+*/
+public class LWGraphBenchmark {
+	private static final int WARMUP_ITERATIONS = 5;
+
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.err.println("Usage: LWGraphBenchmark <CoNLL-X file> [iterations]");
+			return;
+		}
+		final int iterations = (args.length > 1)?Integer.parseInt(args[1]):20;
+		try {
+			DataFormat dataFormat = DataFormat.parseDataFormatXMLfile("/appdata/dataformat/conllx.xml");
+			List<String[]> sentences = readSentences(args[0]);
+			List<DependencyStructure> lwGraphs = new ArrayList<DependencyStructure>(sentences.size());
+			List<DependencyStructure> compactGraphs = new ArrayList<DependencyStructure>(sentences.size());
+			for (String[] tokens : sentences) {
+				lwGraphs.add(new LWDependencyGraph(dataFormat, new HashSymbolTableHandler(), tokens, "ROOT"));
+				compactGraphs.add(new LWCompactDependencyGraph(dataFormat, new HashSymbolTableHandler(), tokens, "ROOT", true));
+			}
+			System.out.println("Sentences: " + sentences.size() + ", iterations: " + iterations);
+			run("LWDependencyGraph", lwGraphs, iterations);
+			run("LWCompactDependencyGraph", compactGraphs, iterations);
+		} catch (IOException e) {
+			e.printStackTrace();
+		} catch (MaltChainedException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private static void run(String name, List<DependencyStructure> graphs, int iterations) throws MaltChainedException {
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			walk(graphs, false);
+			walk(graphs, true);
+		}
+		long plain = 0;
+		long synchronizedWrappers = 0;
+		long checksum = 0;
+		for (int i = 0; i < iterations; i++) {
+			long start = System.nanoTime();
+			checksum += walk(graphs, false);
+			plain += System.nanoTime() - start;
+			start = System.nanoTime();
+			checksum -= walk(graphs, true);
+			synchronizedWrappers += System.nanoTime() - start;
+		}
+		if (checksum != 0) {
+			throw new LWGraphException("The two walks of the " + name + " visited different nodes");
+		}
+		System.out.println(String.format("%-26s unsynchronized: %8.2f ms/iteration, synchronized wrappers: %8.2f ms/iteration",
+				name, plain / 1e6 / iterations, synchronizedWrappers / 1e6 / iterations));
+	}
+
+	private static long walk(List<DependencyStructure> graphs, boolean synchronizedWrappers) throws MaltChainedException {
+		long sum = 0;
+		for (DependencyStructure graph : graphs) {
+			for (int i = 0; i < graph.nDependencyNode(); i++) {
+				final DependencyNode node = graph.getDependencyNode(i);
+				List<DependencyNode> left = node.getListOfLeftDependents();
+				List<DependencyNode> right = node.getListOfRightDependents();
+				if (synchronizedWrappers) {
+					left = Collections.synchronizedList(left);
+					right = Collections.synchronizedList(right);
+				}
+				for (int j = 0; j < left.size(); j++) {
+					sum += left.get(j).getIndex();
+				}
+				for (int j = 0; j < right.size(); j++) {
+					sum += right.get(j).getIndex();
+				}
+			}
+		}
+		return sum;
+	}
+
+	private static List<String[]> readSentences(String fileName) throws IOException {
+		List<String[]> sentences = new ArrayList<String[]>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(fileName), "UTF-8"));
+		try {
+			while (true) {
+				String[] tokens = LWTest.readSentences(reader);
+				if (tokens.length == 0) {
+					break;
+				}
+				sentences.add(tokens);
+			}
+		} finally {
+			reader.close();
+		}
+		return sentences;
+	}
+}
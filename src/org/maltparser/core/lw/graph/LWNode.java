@@ -1,7 +1,7 @@
 package org.maltparser.core.lw.graph;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -28,14 +28,22 @@ import org.maltparser.core.syntaxgraph.node.Node;
 /**
 * A lightweight version of org.maltparser.core.syntaxgraph.node.{Token,Root}
 * 
+* A node is confined to the thread that owns its graph, see LWDependencyGraph. The collections returned by the node are 
+* new, unsynchronized collections that belong to the caller.
+* 
 * @author Johan Hall
 */
 public final class LWNode implements DependencyNode, Node {
+	private static final int[] NO_DEPENDENTS = new int[0];
 	private final LWDependencyGraph graph;
 	private int index;
 //	private final SortedMap<Integer, String> labels;
 	private final Map<Integer, String> labels;
 	private Edge headEdge;
+	/** Indices of the dependents in ascending order. The first nLeftDependents are the left dependents. */
+	private int[] dependents;
+	private int nDependents;
+	private int nLeftDependents;
 	
 	protected LWNode(LWNode node) throws LWGraphException {
 		this(node.graph, node);
@@ -50,6 +58,9 @@ public final class LWNode implements DependencyNode, Node {
 //		this.labels = new TreeMap<Integer, String>(node.labels);
 		this.labels = new HashMap<Integer, String>(node.labels);
 		this.headEdge = node.headEdge;
+		this.dependents = (node.nDependents == 0)?NO_DEPENDENTS:node.dependents.clone();
+		this.nDependents = node.nDependents;
+		this.nLeftDependents = node.nLeftDependents;
 	}
 	
 	protected LWNode(LWDependencyGraph _graph, int _index) throws LWGraphException {
@@ -64,6 +75,9 @@ public final class LWNode implements DependencyNode, Node {
 //		this.labels = new TreeMap<Integer, String>();
 		this.labels = new HashMap<Integer, String>();
 		this.headEdge = null;
+		this.dependents = NO_DEPENDENTS;
+		this.nDependents = 0;
+		this.nLeftDependents = 0;
 	}
 	
 //	public void setHeadIndex(int _headIndex) throws LWGraphException {
@@ -89,6 +103,86 @@ public final class LWNode implements DependencyNode, Node {
 		return graph;
 	}
 	
+	/**
+	 * Sets the head edge and keeps the ordered dependent arrays of the old and the new head up to date. The root node 
+	 * is never registered as a dependent, even if linkAllTreesToRoot() gives it a head edge.
+	 * 
+	 * @param edge the new head edge or <i>null</i> 
+	 */
+	private void setHeadEdge(Edge edge) {
+		if (headEdge != null && index != 0) {
+			((LWNode)headEdge.getSource()).removeDependentIndex(index);
+		}
+		headEdge = edge;
+		if (headEdge != null && index != 0) {
+			((LWNode)headEdge.getSource()).addDependentIndex(index);
+		}
+	}
+	
+	private void addDependentIndex(int dependentIndex) {
+		int pos = Arrays.binarySearch(dependents, 0, nDependents, dependentIndex);
+		if (pos >= 0) {
+			return;
+		}
+		pos = -(pos + 1);
+		if (nDependents == dependents.length) {
+			dependents = Arrays.copyOf(dependents, (nDependents == 0)?4:nDependents << 1);
+		}
+		System.arraycopy(dependents, pos, dependents, pos + 1, nDependents - pos);
+		dependents[pos] = dependentIndex;
+		nDependents++;
+		if (dependentIndex < index) {
+			nLeftDependents++;
+		}
+	}
+	
+	private void removeDependentIndex(int dependentIndex) {
+		final int pos = Arrays.binarySearch(dependents, 0, nDependents, dependentIndex);
+		if (pos < 0) {
+			return;
+		}
+		System.arraycopy(dependents, pos + 1, dependents, pos, nDependents - pos - 1);
+		nDependents--;
+		if (dependentIndex < index) {
+			nLeftDependents--;
+		}
+	}
+	
+	/**
+	 * Returns the position of a dependent in the ordered dependent array, or -1 if it isn't a dependent of this node.
+	 * 
+	 * @param dependentIndex the index of the dependent
+	 * @return the position of the dependent or -1
+	 */
+	private int getDependentPosition(int dependentIndex) {
+		final int pos = Arrays.binarySearch(dependents, 0, nDependents, dependentIndex);
+		return (pos < 0)?-1:pos;
+	}
+	
+	/**
+	 * @return the number of dependents
+	 */
+	protected int nDependents() {
+		return nDependents;
+	}
+	
+	/**
+	 * @return the number of left dependents
+	 */
+	protected int nLeftDependents() {
+		return nLeftDependents;
+	}
+	
+	/**
+	 * Returns the node index of the dependent at a position in the ordered dependent array
+	 * 
+	 * @param position a position between 0 and nDependents()-1 
+	 * @return the node index of the dependent
+	 */
+	protected int getDependentIndex(int position) {
+		return dependents[position];
+	}
+	
 	public int getIndex() {
 		return this.index;
 	}
@@ -159,7 +253,7 @@ public final class LWNode implements DependencyNode, Node {
 	}
 	
 	public SortedMap<ColumnDescription, String> getLabels() {
-		SortedMap<ColumnDescription, String> nodeLabels = Collections.synchronizedSortedMap(new TreeMap<ColumnDescription, String>());
+		SortedMap<ColumnDescription, String> nodeLabels = new TreeMap<ColumnDescription, String>();
 		for (Integer key : labels.keySet()) {
 			nodeLabels.put(graph.getDataFormat().getColumnDescription(key), labels.get(key));
 		}
@@ -197,19 +291,19 @@ public final class LWNode implements DependencyNode, Node {
 	}
 	
 	public boolean hasDependent() {
-		return graph.hasDependent(index);
+		return nDependents > 0;
 	}
 	
 	public boolean hasLeftDependent() {
-		return graph.hasLeftDependent(index);
+		return nLeftDependents > 0;
 	}
 	
 	public boolean hasRightDependent() {
-		return graph.hasRightDependent(index);
+		return nDependents > nLeftDependents;
 	}
 	
 	public SortedSet<DependencyNode> getHeads() {
-		SortedSet<DependencyNode> heads = Collections.synchronizedSortedSet(new TreeSet<DependencyNode>());
+		SortedSet<DependencyNode> heads = new TreeSet<DependencyNode>();
 		DependencyNode head = getHead();
 		if (head != null) {
 			heads.add(head);
@@ -225,15 +319,14 @@ public final class LWNode implements DependencyNode, Node {
 	}
 
 	public DependencyNode getLeftDependent(int leftDependentIndex) {	
-		List<DependencyNode> leftDependents = graph.getListOfLeftDependents(index);
-		if (leftDependentIndex >= 0 && leftDependentIndex < leftDependents.size()) {
-			return leftDependents.get(leftDependentIndex);
+		if (leftDependentIndex >= 0 && leftDependentIndex < nLeftDependents) {
+			return graph.getNode(dependents[leftDependentIndex]);
 		}
 		return null;
 	}
 
 	public int getLeftDependentCount() {
-		return graph.getListOfLeftDependents(index).size();
+		return nLeftDependents;
 	}
 
 	public SortedSet<DependencyNode> getLeftDependents() {
@@ -248,60 +341,39 @@ public final class LWNode implements DependencyNode, Node {
 		if (headEdge == null) {
 			return null;
 		}
-		
-		int nodeDepedentPosition = 0;
-		List<DependencyNode> headDependents = getHead().getListOfDependents();
-		for (int i = 0; i < headDependents.size(); i++) {
-			if (headDependents.get(i).getIndex() == index) {
-				nodeDepedentPosition = i;
-				break;
-			}
-		}
-		
-		return (nodeDepedentPosition > 0) ? headDependents.get(nodeDepedentPosition - 1) : null;
+		final LWNode head = (LWNode)headEdge.getSource();
+		final int nodeDepedentPosition = head.getDependentPosition(index);
+		return (nodeDepedentPosition > 0) ? graph.getNode(head.dependents[nodeDepedentPosition - 1]) : null;
 	}
 
 	public DependencyNode getSameSideLeftSibling() {
 		if (headEdge == null) {
 			return null;
 		}
-		
-		List<DependencyNode> headDependents;
-		if (index < getHeadIndex()) {
-			headDependents = getHead().getListOfLeftDependents();
-		} else { //(index > headIndex)
-			headDependents = getHead().getListOfRightDependents();
-		}
-		int nodeDepedentPosition = 0;
-		for (int i = 0; i < headDependents.size(); i++) {
-			if (headDependents.get(i).getIndex() == index) {
-				nodeDepedentPosition = i;
-				break;
-			}
-		}
-		return (nodeDepedentPosition > 0) ? headDependents.get(nodeDepedentPosition - 1) : null;
+		final LWNode head = (LWNode)headEdge.getSource();
+		final int nodeDepedentPosition = head.getDependentPosition(index);
+		// The first position on the same side is 0 for left dependents and nLeftDependents for right dependents
+		final int firstPosition = (index < head.index) ? 0 : head.nLeftDependents;
+		return (nodeDepedentPosition > firstPosition) ? graph.getNode(head.dependents[nodeDepedentPosition - 1]) : null;
 	}
 
 	public DependencyNode getClosestLeftDependent() {
-		List<DependencyNode> leftDependents = graph.getListOfLeftDependents(index);
-		return (leftDependents.size() > 0) ? leftDependents.get(leftDependents.size() - 1) : null;
+		return (nLeftDependents > 0) ? graph.getNode(dependents[nLeftDependents - 1]) : null;
 	}
 	
 	public DependencyNode getLeftmostDependent() {
-		List<DependencyNode> leftDependents = graph.getListOfLeftDependents(index);
-		return (leftDependents.size() > 0) ? leftDependents.get(0) : null;
+		return (nLeftDependents > 0) ? graph.getNode(dependents[0]) : null;
 	}
 	
 	public DependencyNode getRightDependent(int rightDependentIndex) {	
-		List<DependencyNode> rightDependents = graph.getListOfRightDependents(index);
-		if (rightDependentIndex >= 0 && rightDependentIndex < rightDependents.size()) {
-			return rightDependents.get(rightDependents.size() - 1 - rightDependentIndex);
+		if (rightDependentIndex >= 0 && rightDependentIndex < nDependents - nLeftDependents) {
+			return graph.getNode(dependents[nDependents - 1 - rightDependentIndex]);
 		}
 		return null;
 	}
 	
 	public int getRightDependentCount() {
-		return graph.getListOfRightDependents(index).size();
+		return nDependents - nLeftDependents;
 	}
 
 	public SortedSet<DependencyNode> getRightDependents() {
@@ -316,49 +388,34 @@ public final class LWNode implements DependencyNode, Node {
 		if (headEdge == null) {
 			return null;
 		}
-		
-		List<DependencyNode> headDependents = getHead().getListOfDependents();
-		int nodeDepedentPosition = headDependents.size() - 1;
-		for (int i = headDependents.size() - 1; i >= 0 ; i--) {
-			if (headDependents.get(i).getIndex() == index) {
-				nodeDepedentPosition = i;
-				break;
-			}
+		final LWNode head = (LWNode)headEdge.getSource();
+		int nodeDepedentPosition = head.getDependentPosition(index);
+		if (nodeDepedentPosition == -1) {
+			return null;
 		}
-		
-		return (nodeDepedentPosition < headDependents.size() - 1) ? headDependents.get(nodeDepedentPosition + 1) : null;
+		return (nodeDepedentPosition < head.nDependents - 1) ? graph.getNode(head.dependents[nodeDepedentPosition + 1]) : null;
 	}
 
 	public DependencyNode getSameSideRightSibling() {
 		if (headEdge == null) {
 			return null;
 		}
-		
-		List<DependencyNode> headDependents;
-		if (index < getHeadIndex()) {
-			headDependents = getHead().getListOfLeftDependents();
-		} else {
-			headDependents = getHead().getListOfRightDependents();
-		}
-		int nodeDepedentPosition = headDependents.size() - 1;
-		for (int i = headDependents.size() - 1; i >= 0 ; i--) {
-			if (headDependents.get(i).getIndex() == index) {
-				nodeDepedentPosition = i;
-				break;
-			}
+		final LWNode head = (LWNode)headEdge.getSource();
+		int nodeDepedentPosition = head.getDependentPosition(index);
+		if (nodeDepedentPosition == -1) {
+			return null;
 		}
-		
-		return (nodeDepedentPosition < headDependents.size() - 1) ? headDependents.get(nodeDepedentPosition + 1) : null;	
+		// The last position on the same side is nLeftDependents-1 for left dependents and nDependents-1 for right dependents
+		final int lastPosition = (index < head.index) ? head.nLeftDependents - 1 : head.nDependents - 1;
+		return (nodeDepedentPosition < lastPosition) ? graph.getNode(head.dependents[nodeDepedentPosition + 1]) : null;	
 	}
 
 	public DependencyNode getClosestRightDependent() {
-		List<DependencyNode> rightDependents = graph.getListOfRightDependents(index);
-		return (rightDependents.size() > 0) ? rightDependents.get(0) : null;
+		return (nDependents > nLeftDependents) ? graph.getNode(dependents[nLeftDependents]) : null;
 	}
 	
 	public DependencyNode getRightmostDependent(){
-		List<DependencyNode> rightDependents = graph.getListOfRightDependents(index);
-		return (rightDependents.size() > 0) ? rightDependents.get(rightDependents.size() - 1) : null;
+		return (nDependents > nLeftDependents) ? graph.getNode(dependents[nDependents - 1]) : null;
 	}
 	
 	public SortedSet<DependencyNode> getDependents() {
@@ -377,7 +434,7 @@ public final class LWNode implements DependencyNode, Node {
 	}
 	
 	public int getOutDegree() {
-		return graph.getListOfDependents(index).size();
+		return nDependents;
 	}
 	
 	public DependencyNode getAncestor() throws MaltChainedException {
@@ -481,9 +538,8 @@ public final class LWNode implements DependencyNode, Node {
 	@Override
 	public ComparableNode getLeftmostProperDescendant() throws MaltChainedException {
 		ComparableNode candidate = null;
-		List<DependencyNode> dependents = graph.getListOfDependents(index);
-		for (int i = 0; i < dependents.size(); i++) {
-			final DependencyNode dep = dependents.get(i);
+		for (int i = 0; i < nDependents; i++) {
+			final DependencyNode dep = graph.getNode(dependents[i]);
 			if (candidate == null || dep.getIndex() < candidate.getIndex()) {
 				candidate = dep;
 			}
@@ -504,9 +560,8 @@ public final class LWNode implements DependencyNode, Node {
 	@Override
 	public ComparableNode getRightmostProperDescendant() throws MaltChainedException {
 		ComparableNode candidate = null;
-		List<DependencyNode> dependents = graph.getListOfDependents(index);
-		for (int i = 0; i < dependents.size(); i++) {
-			final DependencyNode dep = dependents.get(i);
+		for (int i = 0; i < nDependents; i++) {
+			final DependencyNode dep = graph.getNode(dependents[i]);
 			if (candidate == null || dep.getIndex() > candidate.getIndex()) {
 				candidate = dep;
 			}
@@ -534,9 +589,8 @@ public final class LWNode implements DependencyNode, Node {
 	@Override
 	public ComparableNode getLeftmostDescendant() throws MaltChainedException {
 		ComparableNode candidate = this;
-		List<DependencyNode> dependents = graph.getListOfDependents(index);
-		for (int i = 0; i < dependents.size(); i++) {
-			final DependencyNode dep = dependents.get(i);
+		for (int i = 0; i < nDependents; i++) {
+			final DependencyNode dep = graph.getNode(dependents[i]);
 			if (dep.getIndex() < candidate.getIndex()) {
 				candidate = dep;
 			}
@@ -557,9 +611,8 @@ public final class LWNode implements DependencyNode, Node {
 	@Override
 	public ComparableNode getRightmostDescendant() throws MaltChainedException {
 		ComparableNode candidate = this;
-		List<DependencyNode> dependents = graph.getListOfDependents(index);
-		for (int i = 0; i < dependents.size(); i++) {
-			final DependencyNode dep = dependents.get(i);
+		for (int i = 0; i < nDependents; i++) {
+			final DependencyNode dep = graph.getNode(dependents[i]);
 			if (dep.getIndex() > candidate.getIndex() ) {
 				candidate = dep;
 			}
@@ -597,7 +650,7 @@ public final class LWNode implements DependencyNode, Node {
 	
 	@Override
 	public Set<Edge> getHeadEdges()  {
-		SortedSet<Edge> edges = Collections.synchronizedSortedSet(new TreeSet<Edge>());
+		SortedSet<Edge> edges = new TreeSet<Edge>();
 		if (hasHead()) {
 			edges.add(headEdge);
 		}
@@ -679,7 +732,7 @@ public final class LWNode implements DependencyNode, Node {
 	
 	@Override
 	public void addIncomingEdge(Edge in) throws MaltChainedException {
-		headEdge = in;
+		setHeadEdge(in);
 	}
 
 	@Override
@@ -691,7 +744,7 @@ public final class LWNode implements DependencyNode, Node {
 	@Override
 	public void removeIncomingEdge(Edge in) throws MaltChainedException {
 		if (headEdge.equals(in)) {
-			headEdge = null;
+			setHeadEdge(null);
 		}
 	}
 
@@ -773,7 +826,7 @@ public final class LWNode implements DependencyNode, Node {
 				}
 			}
 			if (tmpHeadIndex == -1) {
-				this.headEdge = null;
+				setHeadEdge(null);
 			} else {
 				if (tmpHeadIndex < -1) {
 					throw new LWGraphException("Not allowed to have head index less than -1.");
@@ -784,7 +837,7 @@ public final class LWNode implements DependencyNode, Node {
 				if (this.index == tmpHeadIndex) {
 					throw new LWGraphException("Not allowed to add head to itself");
 				}
-				this.headEdge = new LWEdge(this.graph.getNode(tmpHeadIndex), this, edgeLabels);
+				setHeadEdge(new LWEdge(this.graph.getNode(tmpHeadIndex), this, edgeLabels));
 			}
 		} else {
 			if (columnLabels != null) {
@@ -795,7 +848,7 @@ public final class LWNode implements DependencyNode, Node {
 					} 
 				}
 			}
-			this.headEdge = null;
+			setHeadEdge(null);
 		}
 	}
 	
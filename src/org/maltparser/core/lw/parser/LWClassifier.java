@@ -8,6 +8,7 @@ import org.maltparser.core.feature.FeatureVector;
 import org.maltparser.core.feature.value.FeatureValue;
 import org.maltparser.core.feature.value.MultipleFeatureValue;
 import org.maltparser.core.feature.value.SingleFeatureValue;
+import org.maltparser.ml.lib.FeatureHasher;
 import org.maltparser.ml.lib.FeatureList;
 import org.maltparser.ml.lib.FeatureMap;
 import org.maltparser.ml.lib.MaltFeatureNode;
@@ -22,15 +23,31 @@ import org.maltparser.parser.history.action.SingleDecision;
 */
 public class LWClassifier {
 	private final FeatureMap featureMap;
+	private final FeatureHasher featureHasher;
 	private final boolean excludeNullValues;
 	private final MaltLibModel model;
 
-	public LWClassifier(McoModel mcoModel, String prefixFileName, boolean _excludeNullValues)  {
-		this.model = (MaltLibModel)mcoModel.getMcoEntryObject(prefixFileName+".moo");
-		this.featureMap = (FeatureMap)mcoModel.getMcoEntryObject(prefixFileName+".map");
+	public LWClassifier(McoModel mcoModel, String prefixFileName, boolean _excludeNullValues, FeatureHasher _featureHasher)  {
+		this((MaltLibModel)mcoModel.getMcoEntryObject(prefixFileName+".moo"), 
+				(_featureHasher == null)?(FeatureMap)mcoModel.getMcoEntryObject(prefixFileName+".map"):null, _excludeNullValues, _featureHasher);
+	}
+	
+	public LWClassifier(MaltLibModel _model, FeatureMap _featureMap, boolean _excludeNullValues, FeatureHasher _featureHasher)  {
+		this.model = _model;
+		this.featureHasher = _featureHasher;
+		this.featureMap = _featureMap;
 		this.excludeNullValues = _excludeNullValues;
 	}
 	
+	/**
+	 * Returns a rough estimate of the number of bytes used by the model and the feature map of the classifier
+	 * 
+	 * @return a rough estimate of the number of bytes used by the classifier
+	 */
+	public long getMemoryUsage() {
+		return model.getMemoryUsage() + ((featureMap != null)?featureMap.getMemoryUsage():0);
+	}
+	
 	public boolean predict(FeatureVector featureVector, SingleDecision decision, boolean one_prediction) throws MaltChainedException {
 		final ArrayList<MaltFeatureNode> featureList = new ArrayList<MaltFeatureNode>();
 		final int size = featureVector.size();
@@ -39,6 +56,13 @@ public class LWClassifier {
 			if (featureValue != null && !(excludeNullValues == true && featureValue.isNullValue())) {
 				if (!featureValue.isMultiple()) {
 					SingleFeatureValue singleFeatureValue = (SingleFeatureValue)featureValue;
+					if (featureHasher != null) {
+						if (singleFeatureValue.getValue() != 0) {
+							featureList.add(new MaltFeatureNode(featureHasher.getIndex(i, singleFeatureValue.getIndexCode()),
+									featureHasher.getSign(i, singleFeatureValue.getIndexCode())*singleFeatureValue.getValue()));
+						}
+						continue;
+					}
 					final int index = featureMap.getIndex(i, singleFeatureValue.getIndexCode());
 					if (index != -1 && singleFeatureValue.getValue() != 0) {
 						featureList.add(new MaltFeatureNode(index,singleFeatureValue.getValue()));					
@@ -46,6 +70,10 @@ public class LWClassifier {
 				} 
 				else { 
 					for (Integer value : ((MultipleFeatureValue)featureValue).getCodes()) {
+						if (featureHasher != null) {
+							featureList.add(new MaltFeatureNode(featureHasher.getIndex(i, value), featureHasher.getSign(i, value)));
+							continue;
+						}
 						final int v = featureMap.getIndex(i, value);
 						if (v != -1) {
 							featureList.add(new MaltFeatureNode(v,1));	
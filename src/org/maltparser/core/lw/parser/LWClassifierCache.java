@@ -0,0 +1,168 @@
+package org.maltparser.core.lw.parser;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.maltparser.core.exception.MaltChainedException;
+import org.maltparser.core.helper.HashSet;
+import org.maltparser.ml.lib.FeatureHasher;
+import org.maltparser.ml.lib.FeatureMap;
+import org.maltparser.ml.lib.LibException;
+import org.maltparser.ml.lib.MaltLibModel;
+
+/**
+* A memory-capped cache of the classifiers of the divide models, which are loaded from the mco model the first time they
+* are used. When the estimated memory usage of the cached classifiers exceeds the cap, the least recently used classifiers
+* are evicted, but the most recently loaded classifier is always kept. The cache can be shared by several parser threads.
+*/
+public final class LWClassifierCache {
+	private final McoModel mcoModel;
+	private final boolean excludeNullValues;
+	private final FeatureHasher featureHasher;
+	private final long maxMemoryUsage;
+	private final Set<String> prefixFileNames;
+	private final LinkedHashMap<String, LWClassifier> classifiers;
+	private final LinkedHashMap<String, Long> memoryUsages;
+	private long memoryUsage;
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long loadTime;
+
+	/**
+	 * Creates a classifier cache
+	 *
+	 * @param _mcoModel the mco model that loads the models and the feature maps
+	 * @param _prefixFileNames the prefix file names of the classifiers that can be loaded, for example <i>odm0.012.liblinear</i>
+	 * @param _excludeNullValues <i>true</i> if null values are excluded from the feature vectors
+	 * @param _featureHasher the feature hasher, or <i>null</i> if the classifiers use feature maps
+	 * @param _maxMemoryUsage the maximum estimated memory usage in bytes of the cached classifiers
+	 */
+	public LWClassifierCache(McoModel _mcoModel, Set<String> _prefixFileNames, boolean _excludeNullValues, FeatureHasher _featureHasher, long _maxMemoryUsage) {
+		this.mcoModel = _mcoModel;
+		this.prefixFileNames = new HashSet<String>(_prefixFileNames);
+		this.excludeNullValues = _excludeNullValues;
+		this.featureHasher = _featureHasher;
+		this.maxMemoryUsage = _maxMemoryUsage;
+		this.classifiers = new LinkedHashMap<String, LWClassifier>(16, 0.75f, true);
+		this.memoryUsages = new LinkedHashMap<String, Long>();
+	}
+
+	/**
+	 * Returns the classifier, which is loaded if it isn't in the cache.
+	 *
+	 * @param prefixFileName the prefix file name of the classifier
+	 * @return the classifier, or <i>null</i> if the cache can't load a classifier with the prefix file name
+	 * @throws MaltChainedException
+	 */
+	public LWClassifier get(String prefixFileName) throws MaltChainedException {
+		if (!prefixFileNames.contains(prefixFileName)) {
+			return null;
+		}
+		synchronized (this) {
+			final LWClassifier classifier = classifiers.get(prefixFileName);
+			if (classifier != null) {
+				hits++;
+				return classifier;
+			}
+			misses++;
+		}
+		// The classifier is loaded without holding the lock, so the other parser threads can continue with the cached classifiers
+		final long startTime = System.nanoTime();
+		final LWClassifier classifier = load(prefixFileName);
+		final long classifierMemoryUsage = classifier.getMemoryUsage();
+		synchronized (this) {
+			loadTime += System.nanoTime() - startTime;
+			final LWClassifier loadedClassifier = classifiers.get(prefixFileName);
+			if (loadedClassifier != null) {
+				return loadedClassifier;
+			}
+			classifiers.put(prefixFileName, classifier);
+			memoryUsages.put(prefixFileName, classifierMemoryUsage);
+			memoryUsage += classifierMemoryUsage;
+			final Iterator<Map.Entry<String, LWClassifier>> it = classifiers.entrySet().iterator();
+			while (memoryUsage > maxMemoryUsage && classifiers.size() > 1) {
+				final String evicted = it.next().getKey();
+				it.remove();
+				memoryUsage -= memoryUsages.remove(evicted);
+				evictions++;
+			}
+		}
+		return classifier;
+	}
+
+	private LWClassifier load(String prefixFileName) throws MaltChainedException {
+		final MaltLibModel model = (MaltLibModel)mcoModel.loadMcoEntryObject(prefixFileName+".moo");
+		final FeatureMap featureMap = (featureHasher == null)?(FeatureMap)mcoModel.loadMcoEntryObject(prefixFileName+".map"):null;
+		if (model == null || (featureHasher == null && featureMap == null)) {
+			throw new LibException("The divide model '"+prefixFileName+"' cannot be loaded. ");
+		}
+		return new LWClassifier(model, featureMap, excludeNullValues, featureHasher);
+	}
+
+	/**
+	 * Returns the number of classifiers that the cache can load
+	 *
+	 * @return the number of classifiers that the cache can load
+	 */
+	public int getNumberOfClassifiers() {
+		return prefixFileNames.size();
+	}
+
+	/**
+	 * Returns the number of classifiers in the cache
+	 *
+	 * @return the number of classifiers in the cache
+	 */
+	public synchronized int getNumberOfResidentClassifiers() {
+		return classifiers.size();
+	}
+
+	/**
+	 * Returns the estimated memory usage in bytes of the classifiers in the cache
+	 *
+	 * @return the estimated memory usage in bytes of the classifiers in the cache
+	 */
+	public synchronized long getMemoryUsage() {
+		return memoryUsage;
+	}
+
+	public long getMaxMemoryUsage() {
+		return maxMemoryUsage;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Returns the total time in nanoseconds spent on loading classifiers
+	 *
+	 * @return the total time in nanoseconds spent on loading classifiers
+	 */
+	public synchronized long getLoadTime() {
+		return loadTime;
+	}
+
+	public synchronized String toString() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("Divide model cache: ");
+		sb.append(classifiers.size()).append('/').append(prefixFileNames.size()).append(" resident, ");
+		sb.append(memoryUsage / 1024).append('/').append(maxMemoryUsage / 1024).append(" KB, ");
+		sb.append(hits).append(" hits, ");
+		sb.append(misses).append(" misses, ");
+		sb.append(evictions).append(" evictions, ");
+		sb.append(String.format("%.2f", loadTime / 1e6)).append(" ms loading");
+		return sb.toString();
+	}
+}
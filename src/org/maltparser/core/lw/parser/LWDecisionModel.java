@@ -7,6 +7,8 @@ import org.maltparser.core.feature.FeatureModel;
 import org.maltparser.core.feature.FeatureVector;
 import org.maltparser.core.feature.value.SingleFeatureValue;
 import org.maltparser.core.helper.HashMap;
+import org.maltparser.core.helper.HashSet;
+import org.maltparser.ml.lib.FeatureHasher;
 import org.maltparser.parser.history.action.ComplexDecisionAction;
 import org.maltparser.parser.history.action.SingleDecision;
 import org.maltparser.parser.history.container.TableContainer.RelationToNextDecision;
@@ -20,17 +22,74 @@ import org.maltparser.parser.history.container.TableContainer.RelationToNextDeci
 public final class LWDecisionModel {
 	private final String classifierName;
 	private final HashMap<String, LWClassifier> classifiers;
+	private final LWClassifierCache divideModelCache;
 	
-	public LWDecisionModel(McoModel mcoModel, boolean _excludeNullValues, String _classifierName) {
+	public LWDecisionModel(McoModel mcoModel, boolean _excludeNullValues, String _classifierName, FeatureHasher featureHasher) {
+		this(mcoModel, _excludeNullValues, _classifierName, featureHasher, 0);
+	}
+	
+	/**
+	 * Creates a decision model. The classifiers of the preloaded models of the mco model are created at once, while the 
+	 * classifiers of the divide models that the mco model loads on request are created the first time they are used and are 
+	 * kept in a cache with a memory cap.
+	 * 
+	 * @param mcoModel the mco model
+	 * @param _excludeNullValues <i>true</i> if null values are excluded from the feature vectors
+	 * @param _classifierName the name of the learner, for example <i>liblinear</i>
+	 * @param featureHasher the feature hasher, or <i>null</i> if the classifiers use feature maps
+	 * @param divideModelCacheSize the memory cap in bytes of the divide model cache
+	 */
+	public LWDecisionModel(McoModel mcoModel, boolean _excludeNullValues, String _classifierName, FeatureHasher featureHasher, long divideModelCacheSize) {
 		this.classifierName = _classifierName;
 		this.classifiers = new HashMap<String, LWClassifier>();
 		Set<String> mcoEntryObjectKeys = mcoModel.getMcoEntryObjectKeys();
 		for (String key : mcoEntryObjectKeys) {
 			if (key.endsWith(".moo")) {
 				String prefixFileName = key.substring(0,key.length()-4);
-				classifiers.put(prefixFileName, new LWClassifier(mcoModel, prefixFileName, _excludeNullValues));
+				classifiers.put(prefixFileName, new LWClassifier(mcoModel, prefixFileName, _excludeNullValues, featureHasher));
 			}
 		}
+		final Set<String> lazyPrefixFileNames = new HashSet<String>();
+		for (String key : mcoModel.getLazyMcoEntryObjectKeys()) {
+			if (key.endsWith(".moo")) {
+				lazyPrefixFileNames.add(key.substring(0,key.length()-4));
+			}
+		}
+		this.divideModelCache = (lazyPrefixFileNames.size() > 0)?new LWClassifierCache(mcoModel, lazyPrefixFileNames, _excludeNullValues, featureHasher, divideModelCacheSize):null;
+	}
+	
+	/**
+	 * Returns the cache of the divide models, or <i>null</i> if all classifiers are created when the decision model is created.
+	 * 
+	 * @return the cache of the divide models, or <i>null</i> if all classifiers are created when the decision model is created
+	 */
+	public LWClassifierCache getDivideModelCache() {
+		return divideModelCache;
+	}
+	
+	/**
+	 * Returns a rough estimate of the number of bytes used by the classifiers of the decision model, including the 
+	 * classifiers that currently are in the divide model cache.
+	 * 
+	 * @return a rough estimate of the number of bytes used by the classifiers
+	 */
+	public long getMemoryUsage() {
+		long bytes = 0;
+		for (LWClassifier classifier : classifiers.values()) {
+			bytes += classifier.getMemoryUsage();
+		}
+		if (divideModelCache != null) {
+			bytes += divideModelCache.getMemoryUsage();
+		}
+		return bytes;
+	}
+	
+	private LWClassifier getClassifier(String prefixFileName) throws MaltChainedException {
+		final LWClassifier classifier = classifiers.get(prefixFileName);
+		if (classifier == null && divideModelCache != null) {
+			return divideModelCache.get(prefixFileName);
+		}
+		return classifier;
 	}
 	
 	public boolean predict(FeatureModel featureModel, ComplexDecisionAction decision, boolean one_prediction) throws MaltChainedException {
@@ -67,7 +126,7 @@ public final class LWDecisionModel {
 				classifierString.append(String.format("%03d", featureValue.getIndexCode()));
 				classifierString.append('.');
 				classifierString.append(classifierName);
-				classifier = classifiers.get(classifierString.toString());
+				classifier = getClassifier(classifierString.toString());
 				if (classifier != null) {
 					FeatureVector dividefeatureVector = featureModel.getFeatureVector("/" + featureVector.getSpecSubModel().getSubModelName());
 					success = classifier.predict(dividefeatureVector, singleDecision, one_prediction) && success;
@@ -78,7 +137,7 @@ public final class LWDecisionModel {
 
 			classifierString.append(decisionModelString);
 			classifierString.append(classifierName);
-			classifier = classifiers.get(classifierString.toString());
+			classifier = getClassifier(classifierString.toString());
 			if (classifier != null) {
 				success = classifier.predict(featureVector, singleDecision, one_prediction) && success;
 			} else {
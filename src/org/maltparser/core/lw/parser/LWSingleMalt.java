@@ -16,13 +16,14 @@ import org.maltparser.core.config.ConfigurationException;
 import org.maltparser.core.exception.MaltChainedException;
 import org.maltparser.core.feature.FeatureModelManager;
 import org.maltparser.core.io.dataformat.DataFormatInstance;
-import org.maltparser.core.lw.graph.LWDependencyGraph;
+import org.maltparser.core.lw.graph.LWCompactDependencyGraph;
 import org.maltparser.core.lw.graph.LWDeprojectivizer;
 import org.maltparser.core.options.OptionManager;
 import org.maltparser.core.propagation.PropagationManager;
 import org.maltparser.core.symbol.SymbolTableHandler;
 import org.maltparser.core.symbol.parse.ParseSymbolTableHandler;
 import org.maltparser.core.syntaxgraph.DependencyStructure;
+import org.maltparser.ml.lib.FeatureHasher;
 import org.maltparser.parser.AbstractParserFactory;
 import org.maltparser.parser.DependencyParserConfig;
 
@@ -64,7 +65,8 @@ public final class LWSingleMalt implements DependencyParserConfig {
 		this.dataSplitColumn = getOptionValue("guide", "data_split_column").toString().trim();
 		this.dataSplitStructure = getOptionValue("guide", "data_split_structure").toString().trim();
 		this.excludeNullValues = getOptionValue("singlemalt", "null_value").toString().equalsIgnoreCase("none");
-		this.decisionModel = new LWDecisionModel(mcoModel, excludeNullValues, getOptionValueString("guide","learner"));
+		final long divideModelCacheSize = 1024L * 1024L * ((Integer)getOptionValue("guide", "divide_model_cache")).intValue();
+		this.decisionModel = new LWDecisionModel(mcoModel, excludeNullValues, getOptionValueString("guide","learner"), FeatureHasher.getFeatureHasher(this), divideModelCacheSize);
 	}
 	
 	private AbstractParserFactory makeParserFactory() throws MaltChainedException {
@@ -100,7 +102,7 @@ public final class LWSingleMalt implements DependencyParserConfig {
     public List<String[]> parseSentences(List<String[]> inputSentences, String defaultRootLabel, int markingStrategy, boolean coveredRoot, SymbolTableHandler parentSymbolTableHandler, DataFormat concurrentDataFormat) throws MaltChainedException {
     	List<String[]> outputSentences = Collections.synchronizedList(new ArrayList<String[]>());
     	SymbolTableHandler parseSymbolTableHandler = new ParseSymbolTableHandler(parentSymbolTableHandler);
-    	LWDependencyGraph parseGraph = new LWDependencyGraph(concurrentDataFormat, parseSymbolTableHandler);
+    	LWCompactDependencyGraph parseGraph = new LWCompactDependencyGraph(concurrentDataFormat, parseSymbolTableHandler);
     	LWDeterministicParser parser = new LWDeterministicParser(this, parseSymbolTableHandler);
     	
 		for (int i = 0; i < inputSentences.size(); i++) {
@@ -176,6 +178,14 @@ public final class LWSingleMalt implements DependencyParserConfig {
 		return mcoModel.getMcoEntryString(fileName);
 	}
 	
+	public boolean hasConfigFileEntry(String fileName) throws MaltChainedException {
+		return mcoModel.hasMcoEntry(fileName);
+	}
+	
+	public File getInstanceCacheDirectory() throws MaltChainedException {
+		return null;
+	}
+	
 	public File getFile(String fileName) throws MaltChainedException {
 		return new File(System.getProperty("user.dir")+File.separator+fileName);
 	}
@@ -0,0 +1,80 @@
+package org.maltparser.core.lw.parser;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+* A simple benchmark of the time it takes to load a MaltParser configuration file with McoModel. It compares a configuration
+* file in the mco format v1 with the same configuration in the mco format v2, for example created by McoConverter, both when
+* the entries are loaded by one thread and by McoModel.DEFAULT_LOADER_THREADS (at least two) threads. Finally, it lists the
+* entries of each file that take the longest time to load.
+*
+* Usage: McoLoadBenchmark &lt;v1 mco-file&gt; &lt;v2 mco-file&gt; [iterations]
+*/
+public class McoLoadBenchmark {
+	private static final int WARMUP_ITERATIONS = 3;
+	private static final int SLOWEST_ENTRIES = 5;
+
+	public static void main(String[] args) {
+		if (args.length < 2) {
+			System.err.println("Usage: McoLoadBenchmark <v1 mco-file> <v2 mco-file> [iterations]");
+			return;
+		}
+		final int iterations = (args.length > 2)?Integer.parseInt(args[2]):10;
+		try {
+			final URL[] urls = new URL[] {new File(args[0]).toURI().toURL(), new File(args[1]).toURI().toURL()};
+			final int[] threads = new int[] {1, Math.max(2, McoModel.DEFAULT_LOADER_THREADS)};
+			for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+				for (int u = 0; u < urls.length; u++) {
+					for (int t = 0; t < threads.length; t++) {
+						load(urls[u], threads[t]);
+					}
+				}
+			}
+			final long[][] times = new long[urls.length][threads.length];
+			for (int i = 0; i < iterations; i++) {
+				for (int u = 0; u < urls.length; u++) {
+					for (int t = 0; t < threads.length; t++) {
+						times[u][t] += load(urls[u], threads[t]);
+					}
+				}
+			}
+			System.out.println("Iterations: " + iterations);
+			for (int u = 0; u < urls.length; u++) {
+				for (int t = 0; t < threads.length; t++) {
+					System.out.println(String.format("mco format v%d, %2d loader threads: %8.2f ms/load", u + 1, threads[t], times[u][t] / 1e6 / iterations));
+				}
+			}
+			for (int u = 0; u < urls.length; u++) {
+				final List<Map.Entry<String, Long>> entries = new ArrayList<Map.Entry<String, Long>>(new McoModel(urls[u], 1).getEntryLoadTimes().entrySet());
+				Collections.sort(entries, new Comparator<Map.Entry<String, Long>>() {
+					public int compare(Map.Entry<String, Long> e1, Map.Entry<String, Long> e2) {
+						return e2.getValue().compareTo(e1.getValue());
+					}
+				});
+				System.out.println("Slowest entries of mco format v" + (u + 1) + " (" + entries.size() + " entries):");
+				for (int i = 0; i < entries.size() && i < SLOWEST_ENTRIES; i++) {
+					System.out.println(String.format("  %-40s %8.2f ms", entries.get(i).getKey(), entries.get(i).getValue() / 1e6));
+				}
+			}
+		} catch (MalformedURLException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private static long load(URL mcoUrl, int nLoaderThreads) {
+		final long start = System.nanoTime();
+		final McoModel mcoModel = new McoModel(mcoUrl, nLoaderThreads);
+		final long elapsed = System.nanoTime() - start;
+		if (mcoModel.getInternalName() == null) {
+			throw new IllegalStateException("The mco-file '" + mcoUrl + "' couldn't be loaded");
+		}
+		return elapsed;
+	}
+}
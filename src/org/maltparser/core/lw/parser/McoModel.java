@@ -1,19 +1,40 @@
 package org.maltparser.core.lw.parser;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.ObjectInputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 import java.util.jar.JarInputStream;
+import java.util.regex.Pattern;
 
+import org.maltparser.core.config.ConfigurationException;
+import org.maltparser.core.config.McoContainer;
+import org.maltparser.core.exception.MaltChainedException;
 import org.maltparser.core.helper.HashMap;
 import org.maltparser.core.helper.HashSet;
 
@@ -28,21 +49,93 @@ public final class McoModel {
 	private final Map<String, String> preLoadedStrings;
 	private final URL infoURL;
 	private final String internalMcoName;
-
+	private final McoContainer container;
+	private final Map<String, Long> entryLoadTimes;
+	private final boolean lazyDivideModels;
+	private final Set<String> lazyEntryNames;
+	private final Map<String, byte[]> lazyEntryContents;
+	private static final Pattern DIVIDE_MODEL_ENTRY = Pattern.compile(".*\\.\\d{3}\\.[^.]+\\.(moo|map)");
+	/** The default maximum number of threads that load the entries of a mco-file */
+	public static final int DEFAULT_LOADER_THREADS = Math.min(8, Runtime.getRuntime().availableProcessors());
 	
+	/**
+	 * Loads a mco-file with at most DEFAULT_LOADER_THREADS loader threads.
+	 * 
+	 * @param _mcoUrl the URL of the mco-file
+	 */
 	public McoModel(URL _mcoUrl) { 
+		this(_mcoUrl, DEFAULT_LOADER_THREADS);
+	}
+	
+	/**
+	 * Loads a mco-file. The models, feature maps and feature divide models of a mco-file are independent of each other and are 
+	 * loaded concurrently by a bounded pool of loader threads. A mco-file on the local file system is read with random access, so 
+	 * the entries are both read and decoded in parallel. Other mco-files are streamed once and the entries are decoded while the 
+	 * stream is read. The loaded entries are always added in the order of the mco-file, so the result is the same for any number 
+	 * of loader threads.
+	 * 
+	 * @param _mcoUrl the URL of the mco-file
+	 * @param nLoaderThreads the maximum number of loader threads, if it is less than 2 all entries are loaded by the calling thread
+	 */
+	public McoModel(URL _mcoUrl, int nLoaderThreads) { 
+		this(_mcoUrl, nLoaderThreads, false);
+	}
+	
+	/**
+	 * Loads a mco-file, see McoModel(URL, int). If <i>lazyDivideModels</i> is <i>true</i> the models and feature maps of the 
+	 * divide models are not preloaded, instead they are loaded by loadMcoEntryObject() every time they are requested.
+	 * 
+	 * @param _mcoUrl the URL of the mco-file
+	 * @param nLoaderThreads the maximum number of loader threads, if it is less than 2 all entries are loaded by the calling thread
+	 * @param _lazyDivideModels <i>true</i> if the divide models should be loaded on request, otherwise <i>false</i>
+	 */
+	public McoModel(URL _mcoUrl, int nLoaderThreads, boolean _lazyDivideModels) { 
 		this.mcoUrl = _mcoUrl;
+		this.lazyDivideModels = _lazyDivideModels;
+		this.lazyEntryNames = Collections.synchronizedSet(new HashSet<String>());
+		this.lazyEntryContents = Collections.synchronizedMap(new HashMap<String, byte[]>());
 		this.nameUrlMap = Collections.synchronizedMap(new HashMap<String, URL>());
 		this.preLoadedObjects = Collections.synchronizedMap(new HashMap<String, Object>());
 		this.preLoadedStrings = Collections.synchronizedMap(new HashMap<String, String>());
+		this.entryLoadTimes = Collections.synchronizedMap(new LinkedHashMap<String, Long>());
 		URL tmpInfoURL = null;
 		String tmpInternalMcoName = null;
+		McoContainer tmpContainer = null;
+		final List<String> fileNames = new ArrayList<String>();
+		final List<EntryLoader> loaders = new ArrayList<EntryLoader>();
+		final ExecutorService executor = (nLoaderThreads > 1)?Executors.newFixedThreadPool(nLoaderThreads, new LoaderThreadFactory()):null;
+		JarFile jarFile = null;
 		try {
-			JarEntry je;
-			JarInputStream jis = new JarInputStream(mcoUrl.openConnection().getInputStream());
-
-			while ((je = jis.getNextJarEntry()) != null) {
-				String fileName = je.getName();
+			jarFile = openJarFile(mcoUrl);
+			if (jarFile != null) {
+				for (Enumeration<JarEntry> entries = jarFile.entries(); entries.hasMoreElements(); ) {
+					final JarEntry je = entries.nextElement();
+					fileNames.add(je.getName());
+					final int kind = getEntryKind(je.getName());
+					if (isLazyEntry(getEntryName(je.getName()))) {
+						lazyEntryNames.add(getEntryName(je.getName()));
+					} else if (kind != EntryLoader.NONE) {
+						loaders.add(new EntryLoader(getEntryName(je.getName()), kind, jarFile, je, null, null).start(executor));
+					}
+				}
+			} else {
+				JarEntry je;
+				JarInputStream jis = new JarInputStream(mcoUrl.openConnection().getInputStream());
+				while ((je = jis.getNextJarEntry()) != null) {
+					fileNames.add(je.getName());
+					final int kind = getEntryKind(je.getName());
+					if (isLazyEntry(getEntryName(je.getName()))) {
+						// A streamed mco-file can't be read with random access, so the lazy entries are kept undecoded
+						lazyEntryNames.add(getEntryName(je.getName()));
+						lazyEntryContents.put(getEntryName(je.getName()), readEntry(jis));
+					} else if (kind != EntryLoader.NONE) {
+						loaders.add(new EntryLoader(getEntryName(je.getName()), kind, null, null, readEntry(jis), null).start(executor));
+					}
+					jis.closeEntry();
+				}
+				jis.close();
+			}
+			for (String fileName : fileNames) {
 				URL entryURL = new URL("jar:"+mcoUrl+"!/"+fileName + "\n");
 				int index = fileName.indexOf('/');
 				if (index == -1) {
@@ -51,27 +144,119 @@ public final class McoModel {
 				nameUrlMap.put(fileName.substring(index+1), entryURL);
 				if (fileName.endsWith(".info") && tmpInfoURL == null) {
 					tmpInfoURL = entryURL;
-				} else if (fileName.endsWith(".moo") || fileName.endsWith(".map")) {
-					preLoadedObjects.put(fileName.substring(index+1), preLoadObject(entryURL.openStream()));
-				} else if (fileName.endsWith(".dsm")) {
-					preLoadedStrings.put(fileName.substring(index+1), preLoadString(entryURL.openStream()));
 				}
 				if (tmpInternalMcoName == null) {
 					tmpInternalMcoName = fileName.substring(0, index);
 				}
-				jis.closeEntry();
 			}
-			jis.close();
+			for (EntryLoader loader : loaders) {
+				final Object result = loader.getResult();
+				entryLoadTimes.put(loader.getName(), loader.getLoadTime());
+				if (loader.getKind() == EntryLoader.CONTAINER) {
+					if (tmpContainer == null) {
+						tmpContainer = (McoContainer)result;
+						preLoadContainer(tmpContainer, executor);
+					}
+				} else {
+					preLoad(loader.getName(), result);
+				}
+			}
 		} catch (IOException e) {
 			e.printStackTrace();
-		} catch (ClassNotFoundException e) {
+		} catch (MaltChainedException e) {
+			e.printStackTrace();
+		} catch (ExecutionException e) {
+			e.getCause().printStackTrace();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 			e.printStackTrace();
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+			if (jarFile != null) {
+				try {
+					jarFile.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
 		}
 		this.internalMcoName = tmpInternalMcoName;
+		this.container = tmpContainer;
 		this.infoURL = tmpInfoURL;
 	}
 	
-	private Object preLoadObject(InputStream is) throws IOException, ClassNotFoundException {
+	/**
+	 * Returns a jar file for random access to a mco-file on the local file system, or <i>null</i> if the mco-file 
+	 * must be streamed.
+	 */
+	private static JarFile openJarFile(URL url) throws IOException {
+		if (!"file".equals(url.getProtocol())) {
+			return null;
+		}
+		try {
+			return new JarFile(new File(url.toURI()));
+		} catch (URISyntaxException e) {
+			return null;
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+	
+	private static int getEntryKind(String fileName) {
+		if (fileName.endsWith(".moo") || fileName.endsWith(".map")) {
+			return EntryLoader.OBJECT;
+		} else if (fileName.endsWith(".dsm")) {
+			return EntryLoader.STRING;
+		} else if (fileName.endsWith(McoContainer.SUFFIX)) {
+			return EntryLoader.CONTAINER;
+		}
+		return EntryLoader.NONE;
+	}
+	
+	/**
+	 * Returns <i>true</i> if the entry is the model or the feature map of a divide model, for example <i>odm0.012.liblinear.moo</i>, 
+	 * otherwise <i>false</i>. 
+	 * 
+	 * @param fileName the name of an entry in the mco-file
+	 * @return <i>true</i> if the entry is the model or the feature map of a divide model, otherwise <i>false</i>. 
+	 */
+	public static boolean isDivideModelEntry(String fileName) {
+		return DIVIDE_MODEL_ENTRY.matcher(fileName).matches();
+	}
+	
+	private boolean isLazyEntry(String fileName) {
+		return lazyDivideModels && isDivideModelEntry(fileName);
+	}
+	
+	private static String getEntryName(String fileName) {
+		int index = fileName.indexOf('/');
+		if (index == -1) {
+			index = fileName.indexOf('\\');
+		}
+		return fileName.substring(index+1);
+	}
+	
+	private static byte[] readEntry(InputStream is) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[8192];
+		int n;
+		while ((n = is.read(buffer)) != -1) {
+			bytes.write(buffer, 0, n);
+		}
+		return bytes.toByteArray();
+	}
+	
+	private void preLoad(String name, Object result) {
+		if (result instanceof String) {
+			preLoadedStrings.put(name, (String)result);
+		} else {
+			preLoadedObjects.put(name, result);
+		}
+	}
+	
+	private static Object preLoadObject(InputStream is) throws IOException, ClassNotFoundException {
 		Object object = null;
 		
 	    ObjectInputStream input = new ObjectInputStream(is);
@@ -83,7 +268,27 @@ public final class McoModel {
 	    return object;
 	}
 	
-	private String preLoadString(InputStream is) throws IOException, ClassNotFoundException {
+	/**
+	 * Decodes the sections of the binary container of the mco format v2 on the loader threads and preloads the objects and 
+	 * strings of the sections. The sections are preloaded under the names of the files they replace, so the rest of the parser 
+	 * can't tell the formats apart.
+	 */
+	private void preLoadContainer(McoContainer mcoContainer, ExecutorService executor) throws MaltChainedException, ExecutionException, InterruptedException {
+		final List<EntryLoader> sectionLoaders = new ArrayList<EntryLoader>();
+		for (String sectionName : mcoContainer.getSectionNames()) {
+			if (isLazyEntry(sectionName)) {
+				lazyEntryNames.add(sectionName);
+			} else if (mcoContainer.getSectionKind(sectionName) != McoContainer.RAW) {
+				sectionLoaders.add(new EntryLoader(sectionName, EntryLoader.SECTION, null, null, null, mcoContainer).start(executor));
+			}
+		}
+		for (EntryLoader loader : sectionLoaders) {
+			preLoad(loader.getName(), loader.getResult());
+			entryLoadTimes.put(loader.getName(), loader.getLoadTime());
+		}
+	}
+	
+	private static String preLoadString(InputStream is) throws IOException {
 		final BufferedReader in = new BufferedReader(new InputStreamReader(is, "UTF-8"));
 		String line;
 		StringBuilder sb = new StringBuilder();
@@ -95,7 +300,24 @@ public final class McoModel {
 	    return sb.toString();
 	}
 	
+	/**
+	 * Returns <i>true</i> if the mco-file contains the file, otherwise <i>false</i>.
+	 * 
+	 * @param fileName a file name
+	 * @return <i>true</i> if the mco-file contains the file, otherwise <i>false</i>.
+	 */
+	public boolean hasMcoEntry(String fileName) {
+		return nameUrlMap.containsKey(fileName) || (container != null && container.hasSection(fileName));
+	}
+	
 	public InputStream getInputStream(String fileName) throws IOException {
+		if (!nameUrlMap.containsKey(fileName) && container != null && container.hasSection(fileName)) {
+			try {
+				return container.getInputStream(fileName);
+			} catch (MaltChainedException e) {
+				throw new IOException("Couldn't read the section "+fileName+" of the mco container", e);
+			}
+		}
 		return nameUrlMap.get(fileName).openStream();
 	}
 	
@@ -112,17 +334,73 @@ public final class McoModel {
 	}
 	
 	public Object getMcoEntryObject(String fileName) {
+		if (lazyEntryNames.contains(fileName)) {
+			try {
+				return loadMcoEntryObject(fileName);
+			} catch (MaltChainedException e) {
+				e.printStackTrace();
+				return null;
+			}
+		}
 		return preLoadedObjects.get(fileName);
 	}
 	
+	/**
+	 * Returns a preloaded object, or loads and decodes the object of an entry that isn't preloaded. The loaded object isn't
+	 * kept by the mco model, so each call of a lazy entry returns a new object.
+	 * 
+	 * @param fileName the name of the entry
+	 * @return the object of the entry, or <i>null</i> if the mco-file doesn't contain the object
+	 * @throws MaltChainedException
+	 */
+	public Object loadMcoEntryObject(String fileName) throws MaltChainedException {
+		if (!lazyEntryNames.contains(fileName)) {
+			return preLoadedObjects.get(fileName);
+		}
+		if (container != null && container.hasSection(fileName)) {
+			return container.getObject(fileName);
+		}
+		try {
+			final byte[] content = lazyEntryContents.get(fileName);
+			return preLoadObject((content != null)?new ByteArrayInputStream(content):nameUrlMap.get(fileName).openStream());
+		} catch (IOException e) {
+			throw new ConfigurationException("Couldn't load the object "+fileName+" from mco-file ", e);
+		} catch (ClassNotFoundException e) {
+			throw new ConfigurationException("Couldn't load the object "+fileName+" from mco-file ", e);
+		}
+	}
+	
 	public Set<String> getMcoEntryObjectKeys() {
 		return Collections.synchronizedSet(new HashSet<String>(preLoadedObjects.keySet()));
 	}
 	
+	/**
+	 * Returns the names of the entries that are loaded on request by loadMcoEntryObject()
+	 * 
+	 * @return the names of the entries that are loaded on request
+	 */
+	public Set<String> getLazyMcoEntryObjectKeys() {
+		synchronized (lazyEntryNames) {
+			return Collections.synchronizedSet(new HashSet<String>(lazyEntryNames));
+		}
+	}
+	
 	public String getMcoEntryString(String fileName) {
 		return preLoadedStrings.get(fileName);
 	}
 	
+	/**
+	 * Returns the time it took to load each preloaded entry of the mco-file in the order of the mco-file. The entries of a 
+	 * binary container are listed after the container.
+	 * 
+	 * @return the load time in nanoseconds of each preloaded entry
+	 */
+	public Map<String, Long> getEntryLoadTimes() {
+		synchronized (entryLoadTimes) {
+			return Collections.unmodifiableMap(new LinkedHashMap<String, Long>(entryLoadTimes));
+		}
+	}
+	
 	public String getInternalName() {
 		return internalMcoName;
 	}
@@ -143,4 +421,95 @@ public final class McoModel {
 
 		return sb.toString();
 	}
+	
+	/**
+	 * Loads and decodes one entry of a mco-file, or one section of a binary container, and measures the load time.
+	 */
+	private static final class EntryLoader implements Callable<Object> {
+		static final int NONE = 0;
+		static final int OBJECT = 1;
+		static final int STRING = 2;
+		static final int CONTAINER = 3;
+		static final int SECTION = 4;
+		private final String name;
+		private final int kind;
+		private final JarFile jarFile;
+		private final JarEntry jarEntry;
+		private final byte[] content;
+		private final McoContainer container;
+		private Future<Object> future;
+		private volatile long loadTime;
+		
+		public EntryLoader(String name, int kind, JarFile jarFile, JarEntry jarEntry, byte[] content, McoContainer container) {
+			this.name = name;
+			this.kind = kind;
+			this.jarFile = jarFile;
+			this.jarEntry = jarEntry;
+			this.content = content;
+			this.container = container;
+		}
+		
+		/**
+		 * Submits the loader to the executor, or runs the loader in the calling thread if there is no executor
+		 */
+		public EntryLoader start(ExecutorService executor) {
+			if (executor == null) {
+				final FutureTask<Object> task = new FutureTask<Object>(this);
+				task.run();
+				future = task;
+			} else {
+				future = executor.submit(this);
+			}
+			return this;
+		}
+		
+		public Object call() throws Exception {
+			final long start = System.nanoTime();
+			Object result = null;
+			if (kind == SECTION) {
+				result = (container.getSectionKind(name) == McoContainer.TEXT)?container.getString(name):container.getObject(name);
+			} else {
+				final InputStream is = (jarFile != null)?jarFile.getInputStream(jarEntry):new ByteArrayInputStream(content);
+				try {
+					if (kind == OBJECT) {
+						result = preLoadObject(is);
+					} else if (kind == STRING) {
+						result = preLoadString(is);
+					} else if (kind == CONTAINER) {
+						result = McoContainer.read(is);
+					}
+				} finally {
+					is.close();
+				}
+			}
+			loadTime = System.nanoTime() - start;
+			return result;
+		}
+		
+		public Object getResult() throws ExecutionException, InterruptedException {
+			return future.get();
+		}
+		
+		public String getName() {
+			return name;
+		}
+		
+		public int getKind() {
+			return kind;
+		}
+		
+		public long getLoadTime() {
+			return loadTime;
+		}
+	}
+	
+	private static final class LoaderThreadFactory implements ThreadFactory {
+		private final AtomicInteger threadNumber = new AtomicInteger(1);
+		
+		public Thread newThread(Runnable r) {
+			final Thread thread = new Thread(r, "mco-loader-"+threadNumber.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
 }
@@ -15,6 +15,8 @@ import java.net.URL;
 import java.util.Formatter;
 import java.util.HashMap;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.regex.Pattern;
 
 import javax.xml.parsers.DocumentBuilder;
@@ -215,6 +217,16 @@ public class OptionManager {
 	public Set<Integer> getOptionContainerIndices() {
 		return optionValues.getOptionContainerIndices();
 	}
+	
+	/**
+	 * Removes the option values of an option container, for example when a parser model is unloaded.
+	 * 
+	 * @param containerIndex	The index of the option container (0..n). 
+	 * @return true if the option container is removed, false if the option container could not be found.
+	 */
+	public boolean removeOptions(int containerIndex) {
+		return optionValues.removeOptionContainer(containerIndex);
+	}
 	/**
 	 * Loads the saved options (options that are marked with <code>usage=save</code>). 
 	 * 
@@ -556,6 +568,50 @@ public class OptionManager {
         }
 	}
 	
+	/**
+	 * Returns the option values of an option container, except the options in the option groups specified by the 
+	 * excludeGroups argument. The values are mapped by <i>optiongroup-optionname</i> and an option without a value gets 
+	 * its default value.
+	 * 
+	 * @param containerIndex The index of the option container (0..n). 
+	 * @param excludeGroups a set of option group names that should by excluded
+	 * @return a sorted map of the string representations of the option values
+	 * @throws MaltChainedException
+	 */
+	public SortedMap<String,String> getOptionValueStrings(int containerIndex, Set<String> excludeGroups) throws MaltChainedException {
+		final SortedMap<String,String> values = new TreeMap<String,String>();
+		for (String groupname : optionDescriptions.getOptionGroupNameSet()) {
+			if (excludeGroups.contains(groupname)) continue;
+			for (Option option : optionDescriptions.getOptionGroupList(groupname)) {
+				String value = optionValues.getOptionValueString(containerIndex, option);
+				if (value == null) {
+					value = option.getDefaultValueString();
+				}
+				values.put(groupname+"-"+option.getName(), value);
+			}
+		}
+		return values;
+	}
+	
+	/**
+	 * Copies the option values of an option container to another option container, for example when several configurations 
+	 * are created from the same options. The copied values have the priority of command-line values in the target container.
+	 * 
+	 * @param fromContainerIndex the index of the option container that the values are copied from (0..n)
+	 * @param toContainerIndex the index of the option container that the values are copied to (0..n)
+	 * @throws MaltChainedException
+	 */
+	public void copyOptions(int fromContainerIndex, int toContainerIndex) throws MaltChainedException {
+		for (String groupname : optionDescriptions.getOptionGroupNameSet()) {
+			for (Option option : optionDescriptions.getOptionGroupList(groupname)) {
+				final String value = optionValues.getOptionValueString(fromContainerIndex, option);
+				if (value != null) {
+					optionValues.addOptionValue(OptionContainer.COMMANDLINE, toContainerIndex, option, option.getValueObject(value));
+				}
+			}
+		}
+	}
+	
 	/**
 	 * Returns a string representation of all option value, except the options in a option group specified
 	 * by the excludeGroup argument.
@@ -94,6 +94,16 @@ public class OptionValues {
 		return optionContainers.keySet();
 	}
 	
+	/**
+	 * Removes an option container and all its option values.
+	 * 
+	 * @param containerIndex	the index of the option container.
+	 * @return	true if the option container is removed, false if the option container could not be found.
+	 */
+	public boolean removeOptionContainer(int containerIndex) {
+		return optionContainers.remove(containerIndex) != null;
+	}
+	
 	
 	/**
 	 * Adds an option value to an option to one of the internal option container specified by the type.
@@ -23,6 +23,12 @@ public interface SymbolTable extends Table {
 	
 	public void save(BufferedWriter out) throws MaltChainedException;
 	public void load(BufferedReader in) throws MaltChainedException;
+	public void saveHeader(BufferedWriter out) throws MaltChainedException;
+	public int getCategory();
+	public int getType();
+	public String getNullValueStrategy();
+	public int getSymbolStringToCode(CharSequence symbol, int start, int end) throws MaltChainedException;
+	public double getSymbolCodeToValue(int code) throws MaltChainedException;
 	public int getValueCounter();
 	public int getNullValueCode(NullValueId nullValueIdentifier) throws MaltChainedException;
 	public String getNullValueSymbol(NullValueId nullValueIdentifier) throws MaltChainedException;
@@ -0,0 +1,330 @@
+package org.maltparser.core.symbol.concurrent;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.maltparser.core.exception.MaltChainedException;
+import org.maltparser.core.symbol.SymbolException;
+import org.maltparser.core.symbol.SymbolTable;
+import org.maltparser.core.symbol.nullvalue.InputNullValues;
+import org.maltparser.core.symbol.nullvalue.NullValues;
+import org.maltparser.core.symbol.nullvalue.OutputNullValues;
+import org.maltparser.core.symbol.nullvalue.NullValues.NullValueId;
+
+/**
+* A thread-safe symbol table. Symbols and codes are looked up without locking and new symbols are inserted while holding
+* the lock of the table. If the inserting thread has started a sentence with ConcurrentSymbolTableHandler.beginSentence(),
+* the insertion waits until all earlier sentences are finished, which means that the codes are the same as if the
+* sentences were processed one by one in order.
+*/
+public final class ConcurrentSymbolTable implements SymbolTable {
+	private final String name;
+	private final ConcurrentSymbolTableHandler handler;
+	private final ConcurrentHashMap<String, Integer> symbolCodeMap;
+	private final NullValues nullValues;
+	private final int category;
+	private final int type;
+	/** The symbol of each code, the array is replaced when it grows and the elements are written before the code is published */
+	private volatile String[] codeSymbols;
+	/** The value of each code of a table of real values (NaN if the symbol isn't a number), null for other tables */
+	private volatile double[] codeValues;
+	private volatile int valueCounter;
+
+	public ConcurrentSymbolTable(String _name, int _category, int _type, String nullValueStrategy, ConcurrentSymbolTableHandler _handler) throws MaltChainedException {
+		this.name = _name;
+		this.category = _category;
+		this.type = _type;
+		this.handler = _handler;
+		this.symbolCodeMap = new ConcurrentHashMap<String, Integer>();
+		this.codeSymbols = new String[16];
+		if (this.type == SymbolTable.REAL) {
+			this.codeValues = new double[16];
+		}
+		if (this.category == SymbolTable.OUTPUT) {
+			this.nullValues = new OutputNullValues(nullValueStrategy, this);
+		} else {
+			this.nullValues = new InputNullValues(nullValueStrategy, this);
+		}
+		this.valueCounter = nullValues.getNextCode();
+	}
+
+	public ConcurrentSymbolTable(String _name, ConcurrentSymbolTableHandler _handler) {
+		this.name = _name;
+		this.category = SymbolTable.NA;
+		this.type = SymbolTable.STRING;
+		this.handler = _handler;
+		this.symbolCodeMap = new ConcurrentHashMap<String, Integer>();
+		this.codeSymbols = new String[16];
+		this.nullValues = new InputNullValues("one", this);
+		this.valueCounter = 1;
+	}
+
+	public int addSymbol(String symbol) throws MaltChainedException {
+		if (!nullValues.isNullValue(symbol)) {
+			if (symbol == null || symbol.length() == 0) {
+				throw new SymbolException("Symbol table error: empty string cannot be added to the symbol table");
+			}
+
+			Integer code = symbolCodeMap.get(symbol);
+			if (code != null) {
+				return code.intValue();
+			}
+			handler.awaitTurn();
+			synchronized (this) {
+				code = symbolCodeMap.get(symbol);
+				if (code != null) {
+					return code.intValue();
+				}
+				final int newCode = valueCounter;
+				put(symbol, newCode);
+				return newCode;
+			}
+		} else {
+			return nullValues.symbolToCode(symbol);
+		}
+	}
+
+	/**
+	 * Inserts a symbol with a code, the caller must hold the lock of the table. The symbol and the value of the code are
+	 * written before the symbol is published in the symbol to code map.
+	 */
+	private void put(String symbol, int code) {
+		String[] symbols = codeSymbols;
+		if (code >= symbols.length) {
+			symbols = Arrays.copyOf(symbols, Math.max(code + 1, symbols.length << 1));
+			codeSymbols = symbols;
+		}
+		symbols[code] = symbol;
+		if (codeValues != null) {
+			double[] values = codeValues;
+			if (code >= values.length) {
+				values = Arrays.copyOf(values, Math.max(code + 1, values.length << 1));
+				codeValues = values;
+			}
+			values[code] = parseValue(symbol);
+		}
+		symbolCodeMap.put(symbol, code);
+		if (code >= valueCounter) {
+			valueCounter = code + 1;
+		}
+	}
+
+	/**
+	 * Parses the value of a symbol of a table of real values. Symbols that aren't numbers get the value NaN, so that 
+	 * the error is reported by the feature that uses the value and not when the symbol is read.
+	 */
+	private static double parseValue(String symbol) {
+		try {
+			return Double.parseDouble(symbol);
+		} catch (NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+
+	public double addSymbolValue(String symbol) throws MaltChainedException {
+		final double[] values = codeValues;
+		if (values != null) {
+			final Integer code = symbolCodeMap.get(symbol);
+			if (code != null && code < values.length && !Double.isNaN(values[code])) {
+				return values[code];
+			}
+		}
+		return Double.parseDouble(symbol);
+	}
+
+	public String getSymbolCodeToString(int code) throws MaltChainedException {
+		if (code >= 0) {
+			if (!nullValues.isNullValue(code)) {
+				final String[] symbols = codeSymbols;
+				return (code < symbols.length) ? symbols[code] : null;
+			} else {
+				return nullValues.codeToSymbol(code);
+			}
+		} else {
+			throw new SymbolException("The symbol code '"+code+"' cannot be found in the symbol table. ");
+		}
+	}
+
+	public int getSymbolStringToCode(String symbol) throws MaltChainedException {
+		if (symbol != null) {
+			if (!nullValues.isNullValue(symbol)) {
+				final Integer value = symbolCodeMap.get(symbol);
+				return (value != null) ? value.intValue() : -1;
+			} else {
+				return nullValues.symbolToCode(symbol);
+			}
+		} else {
+			throw new SymbolException("The symbol code '"+symbol+"' cannot be found in the symbol table. ");
+		}
+	}
+
+	public int getSymbolStringToCode(CharSequence symbol, int start, int end) throws MaltChainedException {
+		if (symbol == null || start < 0 || end > symbol.length() || start > end) {
+			throw new SymbolException("The symbol between "+start+" and "+end+" cannot be found in the symbol table. ");
+		}
+		return getSymbolStringToCode(symbol.subSequence(start, end).toString());
+	}
+	
+	public double getSymbolStringToValue(String symbol) throws MaltChainedException {
+		if (symbol != null) {
+			if (!nullValues.isNullValue(symbol)) {
+				return addSymbolValue(symbol);
+			} else {
+				return 1.0;
+			}
+		} else {
+			throw new SymbolException("The symbol code '"+symbol+"' cannot be found in the symbol table. ");
+		}
+	}
+
+	public double getSymbolCodeToValue(int code) throws MaltChainedException {
+		if (nullValues.isNullValue(code)) {
+			return 1.0;
+		}
+		final double[] values = codeValues;
+		final String[] symbols = codeSymbols;
+		return (values != null && code >= 0 && code < values.length && code < symbols.length && symbols[code] != null) ? values[code] : Double.NaN;
+	}
+
+	public void saveHeader(BufferedWriter out) throws MaltChainedException  {
+		try {
+			out.append('\t');
+			out.append(getName());
+			out.append('\t');
+			out.append(Integer.toString(getCategory()));
+			out.append('\t');
+			out.append(Integer.toString(getType()));
+			out.append('\t');
+			out.append(getNullValueStrategy());
+			out.append('\n');
+		} catch (IOException e) {
+			throw new SymbolException("Could not save the symbol table. ", e);
+		}
+	}
+
+	public int getCategory() {
+		return category;
+	}
+
+	public int getType() {
+		return type;
+	}
+
+	public String getNullValueStrategy() {
+		return nullValues.getNullValueStrategy();
+	}
+
+	public int size() {
+		return symbolCodeMap.size();
+	}
+
+	public synchronized void save(BufferedWriter out) throws MaltChainedException  {
+		try {
+			out.write(name);
+			out.write('\n');
+			final String[] symbols = codeSymbols;
+			for (int code = 0; code < symbols.length; code++) {
+				if (symbols[code] != null) {
+					if (this.type != SymbolTable.REAL) {
+						out.write(Integer.toString(code));
+					} else {
+						out.write(1);
+					}
+					out.write('\t');
+					out.write(symbols[code]);
+					out.write('\n');
+				}
+			}
+			out.write('\n');
+		} catch (IOException e) {
+			throw new SymbolException("Could not save the symbol table. ", e);
+		}
+	}
+
+	public synchronized void load(BufferedReader in) throws MaltChainedException {
+		int max = 0;
+		String fileLine;
+		try {
+			while ((fileLine = in.readLine()) != null) {
+				int index;
+				if (fileLine.length() == 0 || (index = fileLine.indexOf('\t')) == -1) {
+					if (this.type != SymbolTable.REAL) {
+						valueCounter = max+1;
+					}
+					break;
+				}
+
+				if (this.type != SymbolTable.REAL) {
+					int code;
+				    try {
+				    	code = Integer.parseInt(fileLine.substring(0,index));
+					} catch (NumberFormatException e) {
+						throw new SymbolException("The symbol table file (.sym) contains a non-integer value in the first column. ", e);
+					}
+					put(fileLine.substring(index+1), code);
+					if (max < code) {
+						max = code;
+					}
+				} else {
+					// The codes of real values aren't saved, the values get new codes in the order they are loaded
+				    final String symbol = fileLine.substring(index+1);
+				    if (!symbolCodeMap.containsKey(symbol)) {
+				    	put(symbol, valueCounter);
+				    }
+				}
+			}
+		} catch (IOException e) {
+			throw new SymbolException("Could not load the symbol table. ", e);
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getValueCounter() {
+		return valueCounter;
+	}
+
+	public int getNullValueCode(NullValueId nullValueIdentifier) throws MaltChainedException {
+		return nullValues.nullvalueToCode(nullValueIdentifier);
+	}
+
+	public String getNullValueSymbol(NullValueId nullValueIdentifier) throws MaltChainedException {
+		return nullValues.nullvalueToSymbol(nullValueIdentifier);
+	}
+
+	public boolean isNullValue(String symbol) throws MaltChainedException {
+		return nullValues.isNullValue(symbol);
+	}
+
+	public boolean isNullValue(int code) throws MaltChainedException {
+		return nullValues.isNullValue(code);
+	}
+
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		final ConcurrentSymbolTable other = (ConcurrentSymbolTable)obj;
+		return ((name == null) ? other.name == null : name.equals(other.name));
+	}
+
+	public int hashCode() {
+		return 217 + (null == name ? 0 : name.hashCode());
+	}
+
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append(name);
+		sb.append(' ');
+		sb.append(valueCounter);
+		return sb.toString();
+	}
+}
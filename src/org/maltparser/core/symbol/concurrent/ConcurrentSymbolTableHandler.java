@@ -0,0 +1,284 @@
+package org.maltparser.core.symbol.concurrent;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.util.BitSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.maltparser.core.exception.MaltChainedException;
+import org.maltparser.core.symbol.SymbolException;
+import org.maltparser.core.symbol.SymbolTable;
+import org.maltparser.core.symbol.SymbolTableHandler;
+import org.maltparser.core.symbol.hash.BinarySymbolTableWriter;
+
+/**
+* A thread-safe symbol table handler, which can be shared by several threads that read sentences and extract features
+* during training.
+*
+* The codes of the symbols are deterministic if each thread surrounds the processing of a sentence with beginSentence()
+* and endSentence(), where the sentences are numbered 0, 1, 2, ... in the order of the input. A thread can look up known
+* symbols at any time, but the first time it needs to insert a new symbol in a sentence it waits until all earlier sentences
+* are finished. From then on the thread owns the insertions until it finishes the sentence, so the symbols are inserted in
+* the same order as when the sentences are processed by one thread. Threads that don't begin a sentence insert new symbols
+* immediately, in which case the codes depend on the order of the insertions.
+*
+* endSentence() must be called for every sentence that is begun (also when the processing fails), otherwise the threads
+* that process later sentences wait forever.
+*/
+public class ConcurrentSymbolTableHandler implements SymbolTableHandler {
+	private final ConcurrentHashMap<String, ConcurrentSymbolTable> symbolTables;
+	private final ThreadLocal<SentenceTurn> currentSentence;
+	private final Object turnLock;
+	/** The sentences that are finished, all sentences before finishedPrefix are finished */
+	private final BitSet finished;
+	private int finishedPrefix;
+
+	public ConcurrentSymbolTableHandler() {
+		this.symbolTables = new ConcurrentHashMap<String, ConcurrentSymbolTable>();
+		this.currentSentence = new ThreadLocal<SentenceTurn>();
+		this.turnLock = new Object();
+		this.finished = new BitSet();
+		this.finishedPrefix = 0;
+	}
+
+	public SymbolTable addSymbolTable(String tableName) throws MaltChainedException {
+		ConcurrentSymbolTable symbolTable = symbolTables.get(tableName);
+		if (symbolTable == null) {
+			symbolTable = putIfAbsent(tableName, new ConcurrentSymbolTable(tableName, this));
+		}
+		return symbolTable;
+	}
+
+	public SymbolTable addSymbolTable(String tableName, int columnCategory, int columnType, String nullValueStrategy) throws MaltChainedException {
+		ConcurrentSymbolTable symbolTable = symbolTables.get(tableName);
+		if (symbolTable == null) {
+			symbolTable = putIfAbsent(tableName, new ConcurrentSymbolTable(tableName, columnCategory, columnType, nullValueStrategy, this));
+		}
+		return symbolTable;
+	}
+
+	public SymbolTable addSymbolTable(String tableName, SymbolTable parentTable) throws MaltChainedException {
+		ConcurrentSymbolTable symbolTable = symbolTables.get(tableName);
+		if (symbolTable == null) {
+			symbolTable = putIfAbsent(tableName, new ConcurrentSymbolTable(tableName, parentTable.getCategory(), parentTable.getType(), parentTable.getNullValueStrategy(), this));
+		}
+		return symbolTable;
+	}
+
+	private ConcurrentSymbolTable putIfAbsent(String tableName, ConcurrentSymbolTable symbolTable) {
+		final ConcurrentSymbolTable previous = symbolTables.putIfAbsent(tableName, symbolTable);
+		return (previous != null) ? previous : symbolTable;
+	}
+
+	public SymbolTable getSymbolTable(String tableName) {
+		return symbolTables.get(tableName);
+	}
+
+	public Set<String> getSymbolTableNames() {
+		return symbolTables.keySet();
+	}
+
+	public void cleanUp() {}
+
+	/**
+	 * Starts the processing of a sentence in the current thread.
+	 *
+	 * @param sentenceIndex the index of the sentence in the input, starting with 0
+	 */
+	public void beginSentence(int sentenceIndex) {
+		currentSentence.set(new SentenceTurn(sentenceIndex));
+	}
+
+	/**
+	 * Finishes the processing of the current sentence of the current thread and lets the next sentence insert new symbols.
+	 */
+	public void endSentence() {
+		final SentenceTurn turn = currentSentence.get();
+		if (turn == null) {
+			return;
+		}
+		currentSentence.remove();
+		synchronized (turnLock) {
+			finished.set(turn.sentenceIndex);
+			while (finished.get(finishedPrefix)) {
+				finishedPrefix++;
+			}
+			turnLock.notifyAll();
+		}
+	}
+
+	/**
+	 * Waits until all sentences before the current sentence of the current thread are finished. Returns immediately if the
+	 * thread hasn't begun a sentence or if it already has the turn.
+	 *
+	 * @throws MaltChainedException
+	 */
+	protected void awaitTurn() throws MaltChainedException {
+		final SentenceTurn turn = currentSentence.get();
+		if (turn == null || turn.hasTurn) {
+			return;
+		}
+		synchronized (turnLock) {
+			while (finishedPrefix < turn.sentenceIndex) {
+				try {
+					turnLock.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new SymbolException("Interrupted while waiting to insert symbols for sentence "+turn.sentenceIndex+". ", e);
+				}
+			}
+		}
+		turn.hasTurn = true;
+	}
+
+	public void save(OutputStreamWriter osw) throws MaltChainedException  {
+		try {
+			BufferedWriter bout = new BufferedWriter(osw);
+			for (ConcurrentSymbolTable table : symbolTables.values()) {
+				table.saveHeader(bout);
+			}
+			bout.write('\n');
+			for (ConcurrentSymbolTable table : symbolTables.values()) {
+				table.save(bout);
+			}
+			bout.close();
+		} catch (IOException e) {
+			throw new SymbolException("Could not save the symbol tables. ", e);
+		}
+	}
+
+	public void save(String fileName, String charSet) throws MaltChainedException  {
+		try {
+			save(new OutputStreamWriter(new FileOutputStream(fileName), charSet));
+		} catch (FileNotFoundException e) {
+			throw new SymbolException("The symbol table file '"+fileName+"' cannot be created. ", e);
+		} catch (UnsupportedEncodingException e) {
+			throw new SymbolException("The char set '"+charSet+"' is not supported. ", e);
+		}
+	}
+
+	/**
+	 * Saves the symbol tables in the binary symbol table format, see BinarySymbolTableWriter.
+	 *
+	 * @param os the output stream
+	 * @throws MaltChainedException
+	 */
+	public void saveBinary(OutputStream os) throws MaltChainedException {
+		final BinarySymbolTableWriter writer = new BinarySymbolTableWriter(os, symbolTables.size());
+		for (ConcurrentSymbolTable table : symbolTables.values()) {
+			writer.write(table);
+		}
+		writer.close();
+	}
+
+	public void saveBinary(String fileName) throws MaltChainedException  {
+		try {
+			saveBinary(new FileOutputStream(fileName));
+		} catch (FileNotFoundException e) {
+			throw new SymbolException("The binary symbol table file '"+fileName+"' cannot be created. ", e);
+		}
+	}
+
+	public void loadHeader(BufferedReader bin) throws MaltChainedException {
+		String fileLine = "";
+		Pattern tabPattern = Pattern.compile("\t");
+		try {
+			while ((fileLine = bin.readLine()) != null) {
+				if (fileLine.length() == 0 || fileLine.charAt(0) != '\t') {
+					break;
+				}
+				String items[];
+				try {
+					items = tabPattern.split(fileLine.substring(1));
+				} catch (PatternSyntaxException e) {
+					throw new SymbolException("The header line of the symbol table  '"+fileLine.substring(1)+"' could not split into atomic parts. ", e);
+				}
+				if (items.length == 4)
+					addSymbolTable(items[0], Integer.parseInt(items[1]), Integer.parseInt(items[2]), items[3]);
+				else if (items.length == 3)
+					addSymbolTable(items[0], Integer.parseInt(items[1]), SymbolTable.STRING, items[2]);
+				else
+					throw new SymbolException("The header line of the symbol table  '"+fileLine.substring(1)+"' must contain three or four columns. ");
+			}
+		} catch (NumberFormatException e) {
+			throw new SymbolException("The symbol table file (.sym) contains a non-integer value in the header. ", e);
+		} catch (IOException e) {
+			throw new SymbolException("Could not load the symbol table. ", e);
+		}
+	}
+
+	public void load(InputStreamReader isr) throws MaltChainedException  {
+		try {
+			BufferedReader bin = new BufferedReader(isr);
+			String fileLine;
+			SymbolTable table = null;
+			bin.mark(2);
+			if (bin.read() == '\t') {
+				bin.reset();
+				loadHeader(bin);
+			} else {
+				bin.reset();
+			}
+			while ((fileLine = bin.readLine()) != null) {
+				if (fileLine.length() > 0) {
+					table = addSymbolTable(fileLine);
+					table.load(bin);
+				}
+			}
+			bin.close();
+		} catch (IOException e) {
+			throw new SymbolException("Could not load the symbol tables. ", e);
+		}
+	}
+
+	public void load(String fileName, String charSet) throws MaltChainedException  {
+		try {
+			load(new InputStreamReader(new FileInputStream(fileName), charSet));
+		} catch (FileNotFoundException e) {
+			throw new SymbolException("The symbol table file '"+fileName+"' cannot be found. ", e);
+		} catch (UnsupportedEncodingException e) {
+			throw new SymbolException("The char set '"+charSet+"' is not supported. ", e);
+		}
+	}
+
+	public SymbolTable loadTagset(String fileName, String tableName, String charSet, int columnCategory, int columnType, String nullValueStrategy) throws MaltChainedException {
+		try {
+			BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(fileName), charSet));
+			String fileLine;
+			SymbolTable table = addSymbolTable(tableName, columnCategory, columnType, nullValueStrategy);
+
+			while ((fileLine = br.readLine()) != null) {
+				table.addSymbol(fileLine.trim());
+			}
+			br.close();
+			return table;
+		} catch (FileNotFoundException e) {
+			throw new SymbolException("The tagset file '"+fileName+"' cannot be found. ", e);
+		} catch (UnsupportedEncodingException e) {
+			throw new SymbolException("The char set '"+charSet+"' is not supported. ", e);
+		} catch (IOException e) {
+			throw new SymbolException("The tagset file '"+fileName+"' cannot be loaded. ", e);
+		}
+	}
+
+	private static final class SentenceTurn {
+		private final int sentenceIndex;
+		private boolean hasTurn;
+
+		private SentenceTurn(int sentenceIndex) {
+			this.sentenceIndex = sentenceIndex;
+			this.hasTurn = false;
+		}
+	}
+}
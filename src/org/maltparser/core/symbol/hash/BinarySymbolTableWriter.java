@@ -0,0 +1,112 @@
+package org.maltparser.core.symbol.hash;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import org.maltparser.core.exception.MaltChainedException;
+import org.maltparser.core.symbol.SymbolException;
+import org.maltparser.core.symbol.SymbolTable;
+
+/**
+* Writes symbol tables in the binary symbol table format (symboltables.bsym), which is loaded by
+* HashSymbolTableHandler.loadBinary(). The text format (symboltables.sym) is still written for debugging and for the
+* parsers that don't read the binary format.
+*
+* The file starts with the magic number, the format version and the number of tables. Each table starts with its name,
+* category, type and null value strategy followed by the kind of the table. Tables of the kind FROZEN contain the UTF-8
+* arena, the entry offsets, codes and hashes, the open-addressing hash table and the code to entry array of a
+* FrozenSymbolTable. Tables of real values have the kind TEXT and contain the text form of the table. All numbers are
+* big-endian integers and all strings are length-prefixed UTF-8.
+*/
+public final class BinarySymbolTableWriter {
+	public static final int MAGIC = 0x4D53594D; // MSYM
+	public static final int VERSION = 1;
+	public static final byte FROZEN = 0;
+	public static final byte TEXT = 1;
+	static final Charset UTF8 = Charset.forName("UTF-8");
+	private final DataOutputStream out;
+	private final int nTables;
+	private int nWritten;
+
+	/**
+	 * Creates a binary symbol table writer and writes the header of the file
+	 *
+	 * @param os the output stream
+	 * @param _nTables the number of tables that will be written
+	 * @throws MaltChainedException
+	 */
+	public BinarySymbolTableWriter(OutputStream os, int _nTables) throws MaltChainedException {
+		this.out = new DataOutputStream(new BufferedOutputStream(os));
+		this.nTables = _nTables;
+		this.nWritten = 0;
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(nTables);
+		} catch (IOException e) {
+			throw new SymbolException("Could not save the binary symbol tables. ", e);
+		}
+	}
+
+	/**
+	 * Writes a symbol table. Tables that aren't frozen are frozen before they are written, except tables of real values.
+	 *
+	 * @param table the symbol table
+	 * @throws MaltChainedException
+	 */
+	public void write(SymbolTable table) throws MaltChainedException {
+		if (nWritten == nTables) {
+			throw new SymbolException("The binary symbol table file can only contain "+nTables+" tables. ");
+		}
+		try {
+			writeString(out, table.getName());
+			out.writeInt(table.getCategory());
+			out.writeInt(table.getType());
+			writeString(out, table.getNullValueStrategy());
+			if (table.getType() != SymbolTable.REAL) {
+				out.writeByte(FROZEN);
+				final FrozenSymbolTable frozenTable = (table instanceof FrozenSymbolTable)?(FrozenSymbolTable)table:new FrozenSymbolTable(table);
+				frozenTable.write(out);
+			} else {
+				out.writeByte(TEXT);
+				final StringWriter text = new StringWriter();
+				final BufferedWriter bw = new BufferedWriter(text);
+				table.save(bw);
+				bw.flush();
+				writeString(out, text.toString());
+			}
+			nWritten++;
+		} catch (IOException e) {
+			throw new SymbolException("Could not save the binary symbol table '"+table.getName()+"'. ", e);
+		}
+	}
+
+	public void close() throws MaltChainedException {
+		if (nWritten != nTables) {
+			throw new SymbolException("The binary symbol table file should contain "+nTables+" tables, but "+nWritten+" tables are written. ");
+		}
+		try {
+			out.close();
+		} catch (IOException e) {
+			throw new SymbolException("Could not save the binary symbol tables. ", e);
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		final byte[] bytes = s.getBytes(UTF8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	static String readString(ByteBuffer in) {
+		final byte[] bytes = new byte[in.getInt()];
+		in.get(bytes);
+		return new String(bytes, UTF8);
+	}
+}
@@ -0,0 +1,492 @@
+package org.maltparser.core.symbol.hash;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.maltparser.core.exception.MaltChainedException;
+import org.maltparser.core.symbol.SymbolException;
+import org.maltparser.core.symbol.SymbolTable;
+import org.maltparser.core.symbol.nullvalue.InputNullValues;
+import org.maltparser.core.symbol.nullvalue.NullValues;
+import org.maltparser.core.symbol.nullvalue.OutputNullValues;
+import org.maltparser.core.symbol.nullvalue.NullValues.NullValueId;
+
+/**
+* A read-only copy of a loaded symbol table. All symbols are stored as UTF-8 bytes in one byte array (the arena), the
+* symbol to code lookup is an open-addressing hash table over the entries of the arena and the code to symbol lookup is
+* a dense array indexed by the code. Looking up the code of a symbol does not allocate any objects, which makes the table
+* suitable as the parent table of the ParseSymbolTables that are created for every parsed sentence.
+*
+* New symbols cannot be added to the table. Unknown symbols seen during parsing are kept by the ParseSymbolTable.
+*
+* The arena and the arrays, including the hash table, can be written to and read from the binary symbol table file (see
+* BinarySymbolTableWriter), so that a model can be loaded without decoding and rehashing the symbols.
+*/
+public final class FrozenSymbolTable implements SymbolTable {
+	private final String name;
+	private final int category;
+	private final int type;
+	private final NullValues nullValues;
+	private final int valueCounter;
+	/** The UTF-8 bytes of all symbols, ordered by code */
+	private final byte[] arena;
+	/** The start of each entry in the arena, the last element is the length of the arena */
+	private final int[] offsets;
+	private final int[] codes;
+	private final int[] hashes;
+	/** The open-addressing hash table, each slot contains the entry index plus one or zero if the slot is empty */
+	private final int[] slots;
+	/** The entry index of each code or -1 if the code isn't used */
+	private final int[] codeToEntry;
+
+	/**
+	 * Creates a frozen copy of a symbol table, where all codes between zero and the value counter of the table that aren't
+	 * null values are copied.
+	 *
+	 * @param table the symbol table that is copied
+	 * @throws MaltChainedException
+	 */
+	public FrozenSymbolTable(SymbolTable table) throws MaltChainedException {
+		this.name = table.getName();
+		this.category = table.getCategory();
+		this.type = table.getType();
+		this.nullValues = createNullValues(table.getNullValueStrategy());
+		this.valueCounter = table.getValueCounter();
+
+		int n = 0;
+		final String[] symbolOfCode = new String[Math.max(valueCounter, 0)];
+		for (int code = 0; code < symbolOfCode.length; code++) {
+			if (!table.isNullValue(code) && (symbolOfCode[code] = table.getSymbolCodeToString(code)) != null) {
+				n++;
+			}
+		}
+		this.codes = new int[n];
+		final String[] symbols = new String[n];
+		this.offsets = new int[n + 1];
+		int i = 0;
+		for (int code = 0; code < symbolOfCode.length; code++) {
+			if (symbolOfCode[code] != null) {
+				codes[i] = code;
+				symbols[i] = symbolOfCode[code];
+				offsets[i + 1] = offsets[i] + utf8Length(symbols[i]);
+				i++;
+			}
+		}
+		this.arena = new byte[offsets[n]];
+		this.hashes = new int[n];
+		this.codeToEntry = new int[(n > 0) ? codes[n - 1] + 1 : 0];
+		Arrays.fill(codeToEntry, -1);
+		int capacity = 4;
+		while (capacity < n * 2) {
+			capacity <<= 1;
+		}
+		this.slots = new int[capacity];
+		final int mask = capacity - 1;
+		for (i = 0; i < n; i++) {
+			encode(symbols[i], offsets[i]);
+			hashes[i] = hash(symbols[i]);
+			codeToEntry[codes[i]] = i;
+			int slot = hashes[i] & mask;
+			while (slots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = i + 1;
+		}
+	}
+
+	private FrozenSymbolTable(String _name, int _category, int _type, String nullValueStrategy, int _valueCounter, byte[] _arena,
+			int[] _offsets, int[] _codes, int[] _hashes, int[] _slots, int[] _codeToEntry) throws MaltChainedException {
+		this.name = _name;
+		this.category = _category;
+		this.type = _type;
+		this.nullValues = createNullValues(nullValueStrategy);
+		this.valueCounter = _valueCounter;
+		this.arena = _arena;
+		this.offsets = _offsets;
+		this.codes = _codes;
+		this.hashes = _hashes;
+		this.slots = _slots;
+		this.codeToEntry = _codeToEntry;
+	}
+
+	private NullValues createNullValues(String nullValueStrategy) throws MaltChainedException {
+		if (category == SymbolTable.OUTPUT) {
+			return new OutputNullValues(nullValueStrategy, this);
+		}
+		return new InputNullValues(nullValueStrategy, this);
+	}
+
+	/**
+	 * Writes the arena and the arrays of the table. The hash table is written as it is, so that it doesn't need to be 
+	 * rebuilt when the table is read.
+	 * 
+	 * @param out the output stream
+	 * @throws IOException
+	 */
+	void write(DataOutputStream out) throws IOException {
+		out.writeInt(valueCounter);
+		out.writeInt(codes.length);
+		out.writeInt(arena.length);
+		out.write(arena);
+		writeInts(out, offsets);
+		writeInts(out, codes);
+		writeInts(out, hashes);
+		out.writeInt(slots.length);
+		writeInts(out, slots);
+		out.writeInt(codeToEntry.length);
+		writeInts(out, codeToEntry);
+	}
+
+	/**
+	 * Reads a table that is written by write(), the arrays are bulk-read from the buffer.
+	 * 
+	 * @param in the buffer positioned at the start of the table
+	 * @return the frozen symbol table
+	 * @throws MaltChainedException
+	 */
+	static FrozenSymbolTable read(ByteBuffer in, String name, int category, int type, String nullValueStrategy) throws MaltChainedException {
+		final int valueCounter = in.getInt();
+		final int n = in.getInt();
+		final byte[] arena = new byte[in.getInt()];
+		in.get(arena);
+		final int[] offsets = readInts(in, n + 1);
+		final int[] codes = readInts(in, n);
+		final int[] hashes = readInts(in, n);
+		final int[] slots = readInts(in, in.getInt());
+		final int[] codeToEntry = readInts(in, in.getInt());
+		return new FrozenSymbolTable(name, category, type, nullValueStrategy, valueCounter, arena, offsets, codes, hashes, slots, codeToEntry);
+	}
+
+	private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(values.length * 4);
+		buffer.asIntBuffer().put(values);
+		out.write(buffer.array());
+	}
+
+	private static int[] readInts(ByteBuffer in, int length) {
+		final int[] values = new int[length];
+		in.asIntBuffer().get(values);
+		in.position(in.position() + length * 4);
+		return values;
+	}
+
+	public int addSymbol(String symbol) throws MaltChainedException {
+		if (!nullValues.isNullValue(symbol)) {
+			if (symbol == null || symbol.length() == 0) {
+				throw new SymbolException("Symbol table error: empty string cannot be added to the symbol table");
+			}
+			final int code = lookup(symbol);
+			if (code == -1) {
+				throw new SymbolException("The symbol table '"+name+"' is read-only and the symbol '"+symbol+"' cannot be added. ");
+			}
+			return code;
+		} else {
+			return nullValues.symbolToCode(symbol);
+		}
+	}
+
+	public String getSymbolCodeToString(int code) throws MaltChainedException {
+		if (code >= 0) {
+			if (!nullValues.isNullValue(code)) {
+				if (code >= codeToEntry.length || codeToEntry[code] == -1) {
+					return null;
+				}
+				final int entry = codeToEntry[code];
+				return decode(offsets[entry], offsets[entry + 1]);
+			} else {
+				return nullValues.codeToSymbol(code);
+			}
+		} else {
+			throw new SymbolException("The symbol code '"+code+"' cannot be found in the symbol table. ");
+		}
+	}
+
+	public int getSymbolStringToCode(String symbol) throws MaltChainedException {
+		if (symbol != null) {
+			if (!nullValues.isNullValue(symbol)) {
+				return lookup(symbol);
+			} else {
+				return nullValues.symbolToCode(symbol);
+			}
+		} else {
+			throw new SymbolException("The symbol code '"+symbol+"' cannot be found in the symbol table. ");
+		}
+	}
+
+	/**
+	 * Returns the code of the symbol formed by the characters between <i>start</i> and <i>end</i> of a character sequence
+	 * without creating the substring. Null values are not recognized by this method.
+	 *
+	 * @param symbol the character sequence
+	 * @param start the index of the first character of the symbol
+	 * @param end the index after the last character of the symbol
+	 * @return the code of the symbol or -1 if the symbol isn't in the table
+	 * @throws MaltChainedException
+	 */
+	public int getSymbolStringToCode(CharSequence symbol, int start, int end) throws MaltChainedException {
+		if (symbol == null || start < 0 || end > symbol.length() || start > end) {
+			throw new SymbolException("The symbol between "+start+" and "+end+" cannot be found in the symbol table. ");
+		}
+		return lookup(symbol, start, end);
+	}
+
+	public double getSymbolStringToValue(String symbol) throws MaltChainedException {
+		if (symbol != null) {
+			if (!nullValues.isNullValue(symbol)) {
+				return Double.parseDouble(symbol);
+			} else {
+				return 1.0;
+			}
+		} else {
+			throw new SymbolException("The symbol code '"+symbol+"' cannot be found in the symbol table. ");
+		}
+	}
+
+	private int lookup(String symbol) {
+		return lookup(symbol, 0, symbol.length());
+	}
+
+	private int lookup(CharSequence symbol, int start, int end) {
+		final int h = hash(symbol, start, end);
+		final int mask = slots.length - 1;
+		int slot = h & mask;
+		int entry;
+		while ((entry = slots[slot]) != 0) {
+			entry--;
+			if (hashes[entry] == h && equalsUTF8(symbol, start, end, offsets[entry], offsets[entry + 1])) {
+				return codes[entry];
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	private static int hash(String symbol) {
+		final int h = symbol.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * The same hash as hash(String) of the substring between <i>start</i> and <i>end</i>
+	 */
+	private static int hash(CharSequence symbol, int start, int end) {
+		int h = 0;
+		for (int i = start; i < end; i++) {
+			h = 31 * h + symbol.charAt(i);
+		}
+		return h ^ (h >>> 16);
+	}
+
+	private static int utf8Length(String symbol) {
+		int length = 0;
+		for (int i = 0; i < symbol.length(); i++) {
+			final char c = symbol.charAt(i);
+			if (c < 0x80) {
+				length++;
+			} else if (c < 0x800) {
+				length += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < symbol.length() && Character.isLowSurrogate(symbol.charAt(i + 1))) {
+				length += 4;
+				i++;
+			} else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+
+	private void encode(String symbol, int offset) {
+		int p = offset;
+		for (int i = 0; i < symbol.length(); i++) {
+			final char c = symbol.charAt(i);
+			if (c < 0x80) {
+				arena[p++] = (byte)c;
+			} else if (c < 0x800) {
+				arena[p++] = (byte)(0xC0 | (c >> 6));
+				arena[p++] = (byte)(0x80 | (c & 0x3F));
+			} else if (Character.isHighSurrogate(c) && i + 1 < symbol.length() && Character.isLowSurrogate(symbol.charAt(i + 1))) {
+				final int cp = Character.toCodePoint(c, symbol.charAt(++i));
+				arena[p++] = (byte)(0xF0 | (cp >> 18));
+				arena[p++] = (byte)(0x80 | ((cp >> 12) & 0x3F));
+				arena[p++] = (byte)(0x80 | ((cp >> 6) & 0x3F));
+				arena[p++] = (byte)(0x80 | (cp & 0x3F));
+			} else {
+				arena[p++] = (byte)(0xE0 | (c >> 12));
+				arena[p++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+				arena[p++] = (byte)(0x80 | (c & 0x3F));
+			}
+		}
+	}
+
+	/**
+	 * Compares the characters between <i>start</i> and <i>end</i> of a character sequence with the UTF-8 bytes of the arena 
+	 * between <i>from</i> and <i>to</i> without decoding the bytes.
+	 */
+	private boolean equalsUTF8(CharSequence symbol, int start, int end, int from, int to) {
+		int p = from;
+		for (int i = start; i < end; i++) {
+			final char c = symbol.charAt(i);
+			if (c < 0x80) {
+				if (p >= to || arena[p++] != (byte)c) {
+					return false;
+				}
+			} else if (c < 0x800) {
+				if (p + 2 > to || arena[p++] != (byte)(0xC0 | (c >> 6)) || arena[p++] != (byte)(0x80 | (c & 0x3F))) {
+					return false;
+				}
+			} else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(symbol.charAt(i + 1))) {
+				final int cp = Character.toCodePoint(c, symbol.charAt(++i));
+				if (p + 4 > to || arena[p++] != (byte)(0xF0 | (cp >> 18)) || arena[p++] != (byte)(0x80 | ((cp >> 12) & 0x3F))
+						|| arena[p++] != (byte)(0x80 | ((cp >> 6) & 0x3F)) || arena[p++] != (byte)(0x80 | (cp & 0x3F))) {
+					return false;
+				}
+			} else {
+				if (p + 3 > to || arena[p++] != (byte)(0xE0 | (c >> 12)) || arena[p++] != (byte)(0x80 | ((c >> 6) & 0x3F))
+						|| arena[p++] != (byte)(0x80 | (c & 0x3F))) {
+					return false;
+				}
+			}
+		}
+		return p == to;
+	}
+
+	private String decode(int from, int to) {
+		final char[] chars = new char[to - from];
+		int n = 0;
+		int p = from;
+		while (p < to) {
+			final int b = arena[p++] & 0xFF;
+			if (b < 0x80) {
+				chars[n++] = (char)b;
+			} else if (b < 0xE0) {
+				chars[n++] = (char)(((b & 0x1F) << 6) | (arena[p++] & 0x3F));
+			} else if (b < 0xF0) {
+				chars[n++] = (char)(((b & 0x0F) << 12) | ((arena[p++] & 0x3F) << 6) | (arena[p++] & 0x3F));
+			} else {
+				final int cp = ((b & 0x07) << 18) | ((arena[p++] & 0x3F) << 12) | ((arena[p++] & 0x3F) << 6) | (arena[p++] & 0x3F);
+				chars[n++] = Character.highSurrogate(cp);
+				chars[n++] = Character.lowSurrogate(cp);
+			}
+		}
+		return new String(chars, 0, n);
+	}
+
+	/**
+	 * Returns the approximate number of bytes used by the arena and the arrays of the table.
+	 *
+	 * @return the approximate number of bytes used by the table
+	 */
+	public long getMemoryUsage() {
+		return 16L * 6 + arena.length + 4L * (offsets.length + codes.length + hashes.length + slots.length + codeToEntry.length);
+	}
+
+	/**
+	 * Returns 1.0 for null values and NaN for other codes, since tables of real values are not frozen.
+	 */
+	public double getSymbolCodeToValue(int code) throws MaltChainedException {
+		return nullValues.isNullValue(code) ? 1.0 : Double.NaN;
+	}
+
+	public void saveHeader(BufferedWriter out) throws MaltChainedException  {
+		try {
+			out.append('\t');
+			out.append(getName());
+			out.append('\t');
+			out.append(Integer.toString(getCategory()));
+			out.append('\t');
+			out.append(Integer.toString(getType()));
+			out.append('\t');
+			out.append(getNullValueStrategy());
+			out.append('\n');
+		} catch (IOException e) {
+			throw new SymbolException("Could not save the symbol table. ", e);
+		}
+	}
+
+	public int getCategory() {
+		return category;
+	}
+
+	public int getType() {
+		return type;
+	}
+
+	public String getNullValueStrategy() {
+		return nullValues.getNullValueStrategy();
+	}
+
+	public int size() {
+		return codes.length;
+	}
+
+	public void save(BufferedWriter out) throws MaltChainedException  {
+		try {
+			out.write(name);
+			out.write('\n');
+			for (int i = 0; i < codes.length; i++) {
+				out.write(Integer.toString(codes[i]));
+				out.write('\t');
+				out.write(decode(offsets[i], offsets[i + 1]));
+				out.write('\n');
+			}
+			out.write('\n');
+		} catch (IOException e) {
+			throw new SymbolException("Could not save the symbol table. ", e);
+		}
+	}
+
+	public void load(BufferedReader in) throws MaltChainedException {
+		throw new SymbolException("The symbol table '"+name+"' is read-only and cannot be loaded. ");
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getValueCounter() {
+		return valueCounter;
+	}
+
+	public int getNullValueCode(NullValueId nullValueIdentifier) throws MaltChainedException {
+		return nullValues.nullvalueToCode(nullValueIdentifier);
+	}
+
+	public String getNullValueSymbol(NullValueId nullValueIdentifier) throws MaltChainedException {
+		return nullValues.nullvalueToSymbol(nullValueIdentifier);
+	}
+
+	public boolean isNullValue(String symbol) throws MaltChainedException {
+		return nullValues.isNullValue(symbol);
+	}
+
+	public boolean isNullValue(int code) throws MaltChainedException {
+		return nullValues.isNullValue(code);
+	}
+
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		final FrozenSymbolTable other = (FrozenSymbolTable)obj;
+		return ((name == null) ? other.name == null : name.equals(other.name));
+	}
+
+	public int hashCode() {
+		return 217 + (null == name ? 0 : name.hashCode());
+	}
+
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append(name);
+		sb.append(' ');
+		sb.append(valueCounter);
+		return sb.toString();
+	}
+}
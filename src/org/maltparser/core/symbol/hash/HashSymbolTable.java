@@ -3,6 +3,7 @@ package org.maltparser.core.symbol.hash;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Set;
 
@@ -20,7 +21,8 @@ public final class HashSymbolTable implements SymbolTable {
 	private final String name;
 	private final Map<String, Integer> symbolCodeMap;
 	private final Map<Integer, String> codeSymbolMap;
-	private final Map<String, Double> symbolValueMap;
+	/** The value of each code of a table of real values (NaN if the symbol isn't a number), null for other tables */
+	private double[] codeValues;
 	private final NullValues nullValues;
 	private final int category;
 	private final int type;
@@ -32,7 +34,9 @@ public final class HashSymbolTable implements SymbolTable {
 		this.type = _type;
 		this.symbolCodeMap = new HashMap<String, Integer>();
 		this.codeSymbolMap = new HashMap<Integer, String>();
-		this.symbolValueMap = new HashMap<String, Double>();
+		if (this.type == SymbolTable.REAL) {
+			this.codeValues = new double[16];
+		}
 		if (this.category == SymbolTable.OUTPUT) {
 			this.nullValues = new OutputNullValues(nullValueStrategy, this);
 		} else {
@@ -47,7 +51,6 @@ public final class HashSymbolTable implements SymbolTable {
 		this.type = SymbolTable.STRING;
 		this.symbolCodeMap = new HashMap<String, Integer>();
 		this.codeSymbolMap = new HashMap<Integer, String>();
-		this.symbolValueMap = new HashMap<String, Double>();
 		this.nullValues = new InputNullValues("one", this);
 		this.valueCounter = 1;
 	}
@@ -58,13 +61,9 @@ public final class HashSymbolTable implements SymbolTable {
 				throw new SymbolException("Symbol table error: empty string cannot be added to the symbol table");
 			}
 
-			if (this.type == SymbolTable.REAL) {
-				addSymbolValue(symbol);
-			}
 			if (!symbolCodeMap.containsKey(symbol)) {
 				int code = valueCounter;
-				symbolCodeMap.put(symbol, code);
-				codeSymbolMap.put(code, symbol);
+				put(symbol, code);
 				valueCounter++;
 				return code;
 			} else {
@@ -75,14 +74,37 @@ public final class HashSymbolTable implements SymbolTable {
 		}
 	}
 	
+	private void put(String symbol, int code) {
+		symbolCodeMap.put(symbol, code);
+		codeSymbolMap.put(code, symbol);
+		if (codeValues != null) {
+			if (code >= codeValues.length) {
+				codeValues = Arrays.copyOf(codeValues, Math.max(code + 1, codeValues.length << 1));
+			}
+			codeValues[code] = parseValue(symbol);
+		}
+	}
+	
+	/**
+	 * Parses the value of a symbol of a table of real values. Symbols that aren't numbers get the value NaN, so that 
+	 * the error is reported by the feature that uses the value and not when the symbol is read.
+	 */
+	static double parseValue(String symbol) {
+		try {
+			return Double.parseDouble(symbol);
+		} catch (NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+	
 	public double addSymbolValue(String symbol) throws MaltChainedException {
-		if (!symbolValueMap.containsKey(symbol)) {
-			Double value = Double.valueOf(symbol);
-			symbolValueMap.put(symbol, value);
-			return value;
-		} else {
-			return symbolValueMap.get(symbol);
+		if (codeValues != null) {
+			final Integer code = symbolCodeMap.get(symbol);
+			if (code != null && !Double.isNaN(codeValues[code])) {
+				return codeValues[code];
+			}
 		}
+		return Double.parseDouble(symbol);
 	}
 	
 	public String getSymbolCodeToString(int code) throws MaltChainedException {
@@ -110,11 +132,17 @@ public final class HashSymbolTable implements SymbolTable {
 		}
 	}
 	
+	public int getSymbolStringToCode(CharSequence symbol, int start, int end) throws MaltChainedException {
+		if (symbol == null || start < 0 || end > symbol.length() || start > end) {
+			throw new SymbolException("The symbol between "+start+" and "+end+" cannot be found in the symbol table. ");
+		}
+		return getSymbolStringToCode(symbol.subSequence(start, end).toString());
+	}
+	
 	public double getSymbolStringToValue(String symbol) throws MaltChainedException {
 		if (symbol != null) {
 			if (type == SymbolTable.REAL && nullValues == null || !nullValues.isNullValue(symbol)) {
-				Double value = symbolValueMap.get(symbol);
-				return (value != null) ? value.doubleValue() : Double.parseDouble(symbol); 
+				return addSymbolValue(symbol);
 			} else {
 				return 1.0;
 			}
@@ -123,6 +151,13 @@ public final class HashSymbolTable implements SymbolTable {
 		}
 	}
 	
+	public double getSymbolCodeToValue(int code) throws MaltChainedException {
+		if (nullValues != null && nullValues.isNullValue(code)) {
+			return 1.0;
+		}
+		return (codeValues != null && code >= 0 && code < codeValues.length && codeSymbolMap.containsKey(code)) ? codeValues[code] : Double.NaN;
+	}
+	
 	public void saveHeader(BufferedWriter out) throws MaltChainedException  {
 		try {
 			out.append('\t');
@@ -171,11 +206,14 @@ public final class HashSymbolTable implements SymbolTable {
 					out.write('\n');
 				}
 			} else {
-				for (String symbol : symbolValueMap.keySet()) {
-					out.write(1);
-					out.write('\t');
-					out.write(symbol);
-					out.write('\n');
+				for (int code = 0; code < valueCounter; code++) {
+					final String symbol = codeSymbolMap.get(code);
+					if (symbol != null) {
+						out.write(1);
+						out.write('\t');
+						out.write(symbol);
+						out.write('\n');
+					}
 				}
 			}
 			out.write('\n');
@@ -191,7 +229,9 @@ public final class HashSymbolTable implements SymbolTable {
 			while ((fileLine = in.readLine()) != null) {
 				int index;
 				if (fileLine.length() == 0 || (index = fileLine.indexOf('\t')) == -1) {
-					valueCounter = max+1;
+					if (this.type != SymbolTable.REAL) {
+						valueCounter = max+1;
+					}
 					break;
 				}
 				
@@ -210,10 +250,12 @@ public final class HashSymbolTable implements SymbolTable {
 						max = code;
 					}
 				} else {
+					// The codes of real values aren't saved, the values get new codes in the order they are loaded
 				    final String symbol = fileLine.substring(index+1);
-					symbolValueMap.put(symbol, Double.parseDouble(symbol));
-					
-					max = 1;
+				    if (!symbolCodeMap.containsKey(symbol)) {
+				    	put(symbol, valueCounter);
+				    	valueCounter++;
+				    }
 				}
 			}
 		} catch (IOException e) {
@@ -260,6 +302,23 @@ public final class HashSymbolTable implements SymbolTable {
 	public Set<Integer> getCodes() {
 		return codeSymbolMap.keySet();
 	}
+
+	/**
+	 * Returns a rough estimate of the number of bytes used by the maps of the table, assuming compressed references.
+	 * Each entry costs two slots in the key and value arrays of both maps, two boxed codes and a string with a char array.
+	 * 
+	 * @return a rough estimate of the number of bytes used by the table
+	 */
+	public long getMemoryUsage() {
+		long bytes = 0;
+		for (String symbol : codeSymbolMap.values()) {
+			bytes += 32 + 32 + 40 + 2 * symbol.length();
+		}
+		if (codeValues != null) {
+			bytes += 8L * codeValues.length;
+		}
+		return bytes;
+	}
 	
 	public boolean equals(Object obj) {
 		if (this == obj)
@@ -2,13 +2,19 @@ package org.maltparser.core.symbol.hash;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Map;
 import java.util.Set;
 import java.util.regex.Pattern;
@@ -16,20 +22,22 @@ import java.util.regex.PatternSyntaxException;
 
 import org.maltparser.core.exception.MaltChainedException;
 import org.maltparser.core.helper.HashMap;
+import org.maltparser.core.helper.SystemLogger;
 import org.maltparser.core.symbol.SymbolException;
 import org.maltparser.core.symbol.SymbolTable;
 import org.maltparser.core.symbol.SymbolTableHandler;
+import org.maltparser.core.symbol.trie.FrozenTrieSymbolTable;
 
 
 public class HashSymbolTableHandler implements SymbolTableHandler {
-	private final Map<String,  HashSymbolTable> symbolTables;
+	private final Map<String,  SymbolTable> symbolTables;
 	
 	public HashSymbolTableHandler() { 
-		this.symbolTables = new HashMap<String, HashSymbolTable>();
+		this.symbolTables = new HashMap<String, SymbolTable>();
 	}
 	
 	public SymbolTable addSymbolTable(String tableName) throws MaltChainedException {
-		HashSymbolTable symbolTable = symbolTables.get(tableName);
+		SymbolTable symbolTable = symbolTables.get(tableName);
 		if (symbolTable == null) {
 			symbolTable = new HashSymbolTable(tableName);
 			symbolTables.put(tableName, symbolTable);
@@ -38,7 +46,7 @@ public class HashSymbolTableHandler implements SymbolTableHandler {
 	}
 	
 	public SymbolTable addSymbolTable(String tableName, int columnCategory, int columnType, String nullValueStrategy) throws MaltChainedException {
-		HashSymbolTable symbolTable = symbolTables.get(tableName);
+		SymbolTable symbolTable = symbolTables.get(tableName);
 		if (symbolTable == null) {
 			symbolTable = new HashSymbolTable(tableName, columnCategory, columnType, nullValueStrategy);
 			symbolTables.put(tableName, symbolTable);
@@ -47,10 +55,9 @@ public class HashSymbolTableHandler implements SymbolTableHandler {
 	}
 	
 	public SymbolTable addSymbolTable(String tableName, SymbolTable parentTable) throws MaltChainedException {
-		HashSymbolTable symbolTable = symbolTables.get(tableName);
+		SymbolTable symbolTable = symbolTables.get(tableName);
 		if (symbolTable == null) {
-			HashSymbolTable hashParentTable = (HashSymbolTable)parentTable;
-			symbolTable = new HashSymbolTable(tableName, hashParentTable.getCategory(), hashParentTable.getType(), hashParentTable.getNullValueStrategy());
+			symbolTable = new HashSymbolTable(tableName, parentTable.getCategory(), parentTable.getType(), parentTable.getNullValueStrategy());
 			symbolTables.put(tableName, symbolTable);
 		}
 		return symbolTable;
@@ -66,14 +73,78 @@ public class HashSymbolTableHandler implements SymbolTableHandler {
 	
 	public void cleanUp() {}
 	
+	/**
+	 * Returns a rough estimate of the number of bytes used by the symbol tables of the handler.
+	 * 
+	 * @return a rough estimate of the number of bytes used by the symbol tables
+	 */
+	public long getMemoryUsage() {
+		long bytes = 0;
+		for (SymbolTable table : symbolTables.values()) {
+			if (table instanceof HashSymbolTable) {
+				bytes += ((HashSymbolTable)table).getMemoryUsage();
+			} else if (table instanceof FrozenSymbolTable) {
+				bytes += ((FrozenSymbolTable)table).getMemoryUsage();
+			} else if (table instanceof FrozenTrieSymbolTable) {
+				bytes += ((FrozenTrieSymbolTable)table).getMemoryUsage();
+			}
+		}
+		return bytes;
+	}
+	
+	/**
+	 * Replaces the loaded symbol tables with read-only FrozenSymbolTables, which store the symbols more compactly. Tables of 
+	 * real values are not frozen. New symbols cannot be added to a frozen table, which means that the handler should only be 
+	 * frozen when it is used as the parent of ParseSymbolTableHandlers. New symbol tables can still be added to the handler.
+	 * 
+	 * @throws MaltChainedException
+	 */
+	public void freeze() throws MaltChainedException {
+		freeze(false);
+	}
+	
+	/**
+	 * Replaces the loaded symbol tables with read-only tables, see freeze(). If <i>trie</i> is true the tables are replaced 
+	 * with FrozenTrieSymbolTables, which share the common prefixes and suffixes of the symbols and are smaller than 
+	 * FrozenSymbolTables for very large vocabularies, but a lookup walks the symbol one character at a time. Tables that are 
+	 * already FrozenSymbolTables, for example tables loaded by loadBinary(), are then also replaced.
+	 * 
+	 * @param trie true if the tables should be frozen as tries
+	 * @throws MaltChainedException
+	 */
+	public void freeze(boolean trie) throws MaltChainedException {
+		long hashMemory = 0;
+		long frozenMemory = 0;
+		int nFrozen = 0;
+		for (String tableName : new ArrayList<String>(symbolTables.keySet())) {
+			final SymbolTable table = symbolTables.get(tableName);
+			if ((table instanceof HashSymbolTable || (trie && table instanceof FrozenSymbolTable)) && table.getType() != SymbolTable.REAL) {
+				hashMemory += (table instanceof HashSymbolTable)?((HashSymbolTable)table).getMemoryUsage():((FrozenSymbolTable)table).getMemoryUsage();
+				if (trie) {
+					final FrozenTrieSymbolTable frozenTable = new FrozenTrieSymbolTable(table);
+					frozenMemory += frozenTable.getMemoryUsage();
+					symbolTables.put(tableName, frozenTable);
+				} else {
+					final FrozenSymbolTable frozenTable = new FrozenSymbolTable(table);
+					frozenMemory += frozenTable.getMemoryUsage();
+					symbolTables.put(tableName, frozenTable);
+				}
+				nFrozen++;
+			}
+		}
+		if (SystemLogger.logger().isInfoEnabled()) {
+			SystemLogger.logger().info("Froze "+nFrozen+" symbol tables: about "+(hashMemory / 1024)+" kB reduced to "+(frozenMemory / 1024)+" kB\n");
+		}
+	}
+	
 	public void save(OutputStreamWriter osw) throws MaltChainedException  {
 		try {
 			BufferedWriter bout = new BufferedWriter(osw);
-			for (HashSymbolTable table : symbolTables.values()) {
+			for (SymbolTable table : symbolTables.values()) {
 				table.saveHeader(bout);
 			}
 			bout.write('\n');
-			for (HashSymbolTable table : symbolTables.values()) {
+			for (SymbolTable table : symbolTables.values()) {
 				table.save(bout);
 			}
 			bout.close();
@@ -92,6 +163,73 @@ public class HashSymbolTableHandler implements SymbolTableHandler {
 		}
 	}
 	
+	/**
+	 * Saves the symbol tables in the binary symbol table format, see BinarySymbolTableWriter.
+	 * 
+	 * @param os the output stream
+	 * @throws MaltChainedException
+	 */
+	public void saveBinary(OutputStream os) throws MaltChainedException {
+		final BinarySymbolTableWriter writer = new BinarySymbolTableWriter(os, symbolTables.size());
+		for (SymbolTable table : symbolTables.values()) {
+			writer.write(table);
+		}
+		writer.close();
+	}
+	
+	/**
+	 * Loads symbol tables saved in the binary symbol table format. The tables are loaded as FrozenSymbolTables, except 
+	 * tables of real values, and replace any existing tables with the same names.
+	 * 
+	 * @param is the input stream
+	 * @throws MaltChainedException
+	 */
+	public void loadBinary(InputStream is) throws MaltChainedException {
+		final ByteBuffer in;
+		try {
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 16);
+			final byte[] buffer = new byte[1 << 16];
+			int n;
+			while ((n = is.read(buffer)) != -1) {
+				bytes.write(buffer, 0, n);
+			}
+			is.close();
+			in = ByteBuffer.wrap(bytes.toByteArray());
+		} catch (IOException e) {
+			throw new SymbolException("Could not load the binary symbol tables. ", e);
+		}
+		if (in.remaining() < 12 || in.getInt() != BinarySymbolTableWriter.MAGIC) {
+			throw new SymbolException("The binary symbol table file is not valid. ");
+		}
+		final int version = in.getInt();
+		if (version != BinarySymbolTableWriter.VERSION) {
+			throw new SymbolException("The binary symbol table file has version "+version+", but only version "+BinarySymbolTableWriter.VERSION+" is supported. ");
+		}
+		final int nTables = in.getInt();
+		try {
+			for (int i = 0; i < nTables; i++) {
+				final String tableName = BinarySymbolTableWriter.readString(in);
+				final int category = in.getInt();
+				final int type = in.getInt();
+				final String nullValueStrategy = BinarySymbolTableWriter.readString(in);
+				final byte kind = in.get();
+				if (kind == BinarySymbolTableWriter.FROZEN) {
+					symbolTables.put(tableName, FrozenSymbolTable.read(in, tableName, category, type, nullValueStrategy));
+				} else if (kind == BinarySymbolTableWriter.TEXT) {
+					final BufferedReader text = new BufferedReader(new StringReader(BinarySymbolTableWriter.readString(in)));
+					text.readLine();
+					addSymbolTable(tableName, category, type, nullValueStrategy).load(text);
+				} else {
+					throw new SymbolException("The binary symbol table '"+tableName+"' has an unknown kind "+kind+". ");
+				}
+			}
+		} catch (IOException e) {
+			throw new SymbolException("Could not load the binary symbol tables. ", e);
+		} catch (RuntimeException e) {
+			throw new SymbolException("The binary symbol table file is truncated or corrupt. ", e);
+		}
+	}
+	
 	public void loadHeader(BufferedReader bin) throws MaltChainedException {
 		String fileLine = "";
 		Pattern tabPattern = Pattern.compile("\t");
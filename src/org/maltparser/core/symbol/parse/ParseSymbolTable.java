@@ -2,54 +2,58 @@ package org.maltparser.core.symbol.parse;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.util.Map;
+import java.util.Arrays;
 
 import org.maltparser.core.exception.MaltChainedException;
-import org.maltparser.core.helper.HashMap;
 import org.maltparser.core.symbol.SymbolException;
 import org.maltparser.core.symbol.SymbolTable;
 import org.maltparser.core.symbol.SymbolTableHandler;
 import org.maltparser.core.symbol.nullvalue.NullValues.NullValueId;
 
-
+/**
+* A symbol table that is used during parsing. Symbols known by the parent symbol table (the symbol table of the model) are
+* looked up in the parent table and unknown symbols are kept in an overlay, which is cleared when the next sentence is read.
+* The overlay is only allocated when the first unknown symbol is added and the arrays are reused for the following sentences.
+* The overlay can hold at most <i>maxOverlaySize</i> symbols, so that a stream of unknown tokens cannot grow it without limit.
+* When the overlay is full, further unknown symbols of the sentence get the null value code of the parent table (#null#),
+* so the sentence is still parsed, but these symbols are treated as missing values.
+* If the parent table is a table of real values, the value of an unknown symbol is parsed once when it is added.
+*/
 public class ParseSymbolTable implements SymbolTable {
+	public static final int DEFAULT_MAX_OVERLAY_SIZE = 1 << 16;
 	private final String name;
 	private final SymbolTable parentSymbolTable;
-	private final int type;    
-	/** Special treatment during parsing */
-	private final Map<String, Integer> symbolCodeMap;
-	private final Map<Integer, String> codeSymbolMap;
-	private final Map<String, Double> symbolValueMap;
-	private int valueCounter;
+	private final int type;
+	private final int maxOverlaySize;
+	/** Special treatment during parsing, the code of overlaySymbols[i] is overlayBase + i */
+	private String[] overlaySymbols;
+	private int[] overlayHashes;
+	/** The values of the overlay symbols if the table is a table of real values */
+	private double[] overlayValues;
+	/** Open-addressing hash table over the overlay, each slot contains the overlay index plus one or zero if the slot is empty */
+	private int[] overlaySlots;
+	private int overlaySize;
+	private int overlayBase;
     
-	public ParseSymbolTable(String _name, int _category, int _type, String nullValueStrategy, SymbolTableHandler parentSymbolTableHandler) throws MaltChainedException {
+	public ParseSymbolTable(String _name, int _category, int _type, String nullValueStrategy, SymbolTableHandler parentSymbolTableHandler, int _maxOverlaySize) throws MaltChainedException {
 		this.name = _name;
 		this.type = _type;
 		this.parentSymbolTable = parentSymbolTableHandler.addSymbolTable(name, _category, _type, nullValueStrategy);
-		this.symbolCodeMap = new HashMap<String, Integer>();
-		this.codeSymbolMap = new HashMap<Integer, String>();
-		this.symbolValueMap = new HashMap<String, Double>();
-		this.valueCounter = -1;
+		this.maxOverlaySize = _maxOverlaySize;
 	}
 	
-	public ParseSymbolTable(String _name, SymbolTable parentTable, SymbolTableHandler parentSymbolTableHandler) throws MaltChainedException {
+	public ParseSymbolTable(String _name, SymbolTable parentTable, SymbolTableHandler parentSymbolTableHandler, int _maxOverlaySize) throws MaltChainedException {
 		this.name = _name;
-		this.type = SymbolTable.STRING;
 		this.parentSymbolTable = parentSymbolTableHandler.addSymbolTable(name, parentTable);
-		this.symbolCodeMap = new HashMap<String, Integer>();
-		this.codeSymbolMap = new HashMap<Integer, String>();
-		this.symbolValueMap = new HashMap<String, Double>();
-		this.valueCounter = -1;
+		this.type = parentSymbolTable.getType();
+		this.maxOverlaySize = _maxOverlaySize;
 	}
 	
-	public ParseSymbolTable(String name, SymbolTableHandler parentSymbolTableHandler) throws MaltChainedException {
+	public ParseSymbolTable(String name, SymbolTableHandler parentSymbolTableHandler, int _maxOverlaySize) throws MaltChainedException {
 		this.name = name;
-		this.type = SymbolTable.STRING;
 		this.parentSymbolTable = parentSymbolTableHandler.addSymbolTable(name);
-		this.symbolCodeMap = new HashMap<String, Integer>();
-		this.codeSymbolMap = new HashMap<Integer, String>();
-		this.symbolValueMap = new HashMap<String, Double>();
-		this.valueCounter = -1;
+		this.type = parentSymbolTable.getType();
+		this.maxOverlaySize = _maxOverlaySize;
 	}
 	
 	public int addSymbol(String symbol) throws MaltChainedException {
@@ -62,35 +66,22 @@ public class ParseSymbolTable implements SymbolTable {
 			if (code > -1) {
 				return code;
 			}
-			if (this.type == SymbolTable.REAL) {
-				addSymbolValue(symbol);
-			}
-			if (!symbolCodeMap.containsKey(symbol)) {
-//				System.out.println("!symbolCodeMap.containsKey(symbol) : " + this.getName() + ": " + symbol.toString());
-				if (valueCounter == -1) {
-					valueCounter = parentSymbolTable.getValueCounter() + 1;
-				} else {
-					valueCounter++;
+			final int hash = symbol.hashCode();
+			int index = overlayIndexOf(symbol, hash);
+			if (index == -1) {
+				if (overlaySize == maxOverlaySize) {
+					return parentSymbolTable.getNullValueCode(NullValueId.NO_NODE);
 				}
-				symbolCodeMap.put(symbol, valueCounter);
-				codeSymbolMap.put(valueCounter, symbol);
-				return valueCounter;
-			} else {
-				return symbolCodeMap.get(symbol);
+				index = addToOverlay(symbol, hash);
 			}
+			return overlayBase + index;
 		} else {
 			return parentSymbolTable.getSymbolStringToCode(symbol);
 		}
 	}
 	
 	public double addSymbolValue(String symbol) throws MaltChainedException {
-		if (!symbolValueMap.containsKey(symbol)) {
-			Double value = Double.valueOf(symbol);
-			symbolValueMap.put(symbol, value);
-			return value;
-		} else {
-			return symbolValueMap.get(symbol);
-		}
+		return Double.parseDouble(symbol);
 	}
 	
 	public String getSymbolCodeToString(int code) throws MaltChainedException {
@@ -100,9 +91,10 @@ public class ParseSymbolTable implements SymbolTable {
 		String symbol = parentSymbolTable.getSymbolCodeToString(code); 
 		if (symbol != null) {
 			return symbol;
-		} else {
-			return codeSymbolMap.get(code);
+		} else if (code >= overlayBase && code - overlayBase < overlaySize) {
+			return overlaySymbols[code - overlayBase];
 		}
+		return null;
 	}
 	
 	public int getSymbolStringToCode(String symbol) throws MaltChainedException {
@@ -115,34 +107,143 @@ public class ParseSymbolTable implements SymbolTable {
 			return code;
 		}
 
-		Integer item = symbolCodeMap.get(symbol);
-		if (item == null) {
+		final int index = overlayIndexOf(symbol, symbol.hashCode());
+		if (index == -1 && overlaySize == maxOverlaySize) {
+			// the symbol got the null value code when it was added, because the overlay was full
+			return parentSymbolTable.getNullValueCode(NullValueId.NO_NODE);
+		} else if (index == -1) {
 			throw new SymbolException("Could not find the symbol '"+symbol+"' in the symbol table. "); 
 		} 
-		return item.intValue();
+		return overlayBase + index;
+	}
+
+	/**
+	 * Returns the code of the symbol formed by the characters between <i>start</i> and <i>end</i> of a character sequence
+	 * without creating the substring, if the parent table and the overlay support it. Null values are not recognized by this method.
+	 *
+	 * @param symbol the character sequence
+	 * @param start the index of the first character of the symbol
+	 * @param end the index after the last character of the symbol
+	 * @return the code of the symbol or -1 if the symbol is neither in the parent table nor in the overlay
+	 * @throws MaltChainedException
+	 */
+	public int getSymbolStringToCode(CharSequence symbol, int start, int end) throws MaltChainedException {
+		final int code = parentSymbolTable.getSymbolStringToCode(symbol, start, end);
+		if (code > -1 || overlaySize == 0) {
+			return code;
+		}
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + symbol.charAt(i);
+		}
+		final int index = overlayIndexOf(symbol, start, end, hash);
+		return (index == -1)?-1:overlayBase + index;
 	}
 
 	public double getSymbolStringToValue(String symbol) throws MaltChainedException {
 		if (symbol == null) {
 			throw new SymbolException("The symbol code '"+symbol+"' cannot be found in the symbol table. ");
 		}
-		double value = parentSymbolTable.getSymbolStringToValue(symbol); 
-		if (value != Double.NaN) {
-			return value;
+		return parentSymbolTable.getSymbolStringToValue(symbol); 
+	}
+	
+	public double getSymbolCodeToValue(int code) throws MaltChainedException {
+		if (overlayValues != null && code >= overlayBase && code - overlayBase < overlaySize) {
+			return overlayValues[code - overlayBase];
+		}
+		return parentSymbolTable.getSymbolCodeToValue(code);
+	}
+	
+	private int overlayIndexOf(String symbol, int hash) {
+		return overlayIndexOf(symbol, 0, symbol.length(), hash);
+	}
+	
+	/**
+	 * Returns the overlay index of the characters between <i>start</i> and <i>end</i> of a character sequence, where <i>hash</i> 
+	 * is the String.hashCode() of these characters, or -1 if they aren't in the overlay
+	 */
+	private int overlayIndexOf(CharSequence symbol, int start, int end, int hash) {
+		if (overlaySize == 0) {
+			return -1;
 		}
-		
-		Double item = symbolValueMap.get(symbol);
-		if (item == null) {
-			throw new SymbolException("Could not find the symbol '"+symbol+"' in the symbol table. "); 
-		} 
-		return item.doubleValue();	
+		final int mask = overlaySlots.length - 1;
+		int slot = (hash ^ (hash >>> 16)) & mask;
+		int entry;
+		while ((entry = overlaySlots[slot]) != 0) {
+			entry--;
+			if (overlayHashes[entry] == hash && equals(overlaySymbols[entry], symbol, start, end)) {
+				return entry;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+	
+	private static boolean equals(String overlaySymbol, CharSequence symbol, int start, int end) {
+		if (overlaySymbol.length() != end - start) {
+			return false;
+		}
+		for (int i = start; i < end; i++) {
+			if (overlaySymbol.charAt(i - start) != symbol.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private int addToOverlay(String symbol, int hash) {
+		if (overlaySymbols == null) {
+			overlaySymbols = new String[16];
+			overlayHashes = new int[16];
+			overlaySlots = new int[32];
+			if (type == SymbolTable.REAL) {
+				overlayValues = new double[16];
+			}
+		} else if (overlaySize == overlaySymbols.length) {
+			overlaySymbols = Arrays.copyOf(overlaySymbols, overlaySize << 1);
+			overlayHashes = Arrays.copyOf(overlayHashes, overlaySize << 1);
+			if (overlayValues != null) {
+				overlayValues = Arrays.copyOf(overlayValues, overlaySize << 1);
+			}
+			overlaySlots = new int[overlaySize << 2];
+			for (int i = 0; i < overlaySize; i++) {
+				insertSlot(i);
+			}
+		}
+		if (overlaySize == 0) {
+			overlayBase = parentSymbolTable.getValueCounter() + 1;
+		}
+		final int index = overlaySize++;
+		overlaySymbols[index] = symbol;
+		overlayHashes[index] = hash;
+		if (overlayValues != null) {
+			try {
+				overlayValues[index] = Double.parseDouble(symbol);
+			} catch (NumberFormatException e) {
+				// reported by the feature that uses the value
+				overlayValues[index] = Double.NaN;
+			}
+		}
+		insertSlot(index);
+		return index;
+	}
+	
+	private void insertSlot(int index) {
+		final int mask = overlaySlots.length - 1;
+		final int hash = overlayHashes[index];
+		int slot = (hash ^ (hash >>> 16)) & mask;
+		while (overlaySlots[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		overlaySlots[slot] = index + 1;
 	}
 	
 	public void clearTmpStorage() {
-		symbolCodeMap.clear();
-		codeSymbolMap.clear();
-		symbolValueMap.clear();
-		valueCounter = -1;
+		if (overlaySize > 0) {
+			Arrays.fill(overlaySymbols, 0, overlaySize, null);
+			Arrays.fill(overlaySlots, 0);
+			overlaySize = 0;
+		}
 	}
 
 	public int size() {
@@ -158,6 +259,22 @@ public class ParseSymbolTable implements SymbolTable {
 		parentSymbolTable.load(in);
 	}
 	
+	public void saveHeader(BufferedWriter out) throws MaltChainedException {
+		parentSymbolTable.saveHeader(out);
+	}
+	
+	public int getCategory() {
+		return parentSymbolTable.getCategory();
+	}
+	
+	public int getType() {
+		return type;
+	}
+	
+	public String getNullValueStrategy() {
+		return parentSymbolTable.getNullValueStrategy();
+	}
+	
 	public String getName() {
 		return name;
 	}
@@ -20,10 +20,24 @@ import org.maltparser.core.symbol.SymbolTableHandler;
 public class ParseSymbolTableHandler implements SymbolTableHandler {
 	private final SymbolTableHandler parentSymbolTableHandler;
 	private final HashMap<String,  ParseSymbolTable> symbolTables;
+	private final int maxOverlaySize;
 	
 	public ParseSymbolTableHandler(SymbolTableHandler parentSymbolTableHandler) throws MaltChainedException {
+		this(parentSymbolTableHandler, ParseSymbolTable.DEFAULT_MAX_OVERLAY_SIZE);
+	}
+	
+	/**
+	 * Creates a symbol table handler for parsing on top of the symbol tables of a model. The handler can be reused for 
+	 * many sentences by one thread, the unknown symbols of a sentence are forgotten when cleanUp() is called.
+	 * 
+	 * @param parentSymbolTableHandler the symbol table handler of the model
+	 * @param maxOverlaySize the maximum number of unknown symbols that each symbol table can hold between two calls of cleanUp()
+	 * @throws MaltChainedException
+	 */
+	public ParseSymbolTableHandler(SymbolTableHandler parentSymbolTableHandler, int maxOverlaySize) throws MaltChainedException {
 		this.parentSymbolTableHandler = parentSymbolTableHandler;
 		this.symbolTables = new HashMap<String, ParseSymbolTable>();
+		this.maxOverlaySize = maxOverlaySize;
 		for (String tableName : parentSymbolTableHandler.getSymbolTableNames()) {
 			addSymbolTable(tableName);
 		}
@@ -32,7 +46,7 @@ public class ParseSymbolTableHandler implements SymbolTableHandler {
 	public SymbolTable addSymbolTable(String tableName) throws MaltChainedException {
 		ParseSymbolTable symbolTable = symbolTables.get(tableName);
 		if (symbolTable == null) {
-			symbolTable = new ParseSymbolTable(tableName, parentSymbolTableHandler);
+			symbolTable = new ParseSymbolTable(tableName, parentSymbolTableHandler, maxOverlaySize);
 			symbolTables.put(tableName, symbolTable);
 		}
 		return symbolTable;
@@ -41,7 +55,7 @@ public class ParseSymbolTableHandler implements SymbolTableHandler {
 	public SymbolTable addSymbolTable(String tableName, SymbolTable parentTable) throws MaltChainedException {
 		ParseSymbolTable symbolTable = symbolTables.get(tableName);
 		if (symbolTable == null) {
-			symbolTable = new ParseSymbolTable(tableName, parentTable, parentSymbolTableHandler);
+			symbolTable = new ParseSymbolTable(tableName, parentTable, parentSymbolTableHandler, maxOverlaySize);
 			symbolTables.put(tableName, symbolTable);
 		}
 		return symbolTable;
@@ -50,7 +64,7 @@ public class ParseSymbolTableHandler implements SymbolTableHandler {
 	public SymbolTable addSymbolTable(String tableName, int columnCategory, int columnType, String nullValueStrategy) throws MaltChainedException {
 		ParseSymbolTable symbolTable = symbolTables.get(tableName);
 		if (symbolTable == null) {
-			symbolTable = new ParseSymbolTable(tableName, columnCategory, columnType, nullValueStrategy, parentSymbolTableHandler);
+			symbolTable = new ParseSymbolTable(tableName, columnCategory, columnType, nullValueStrategy, parentSymbolTableHandler, maxOverlaySize);
 			symbolTables.put(tableName, symbolTable);
 		}
 		return symbolTable;
@@ -0,0 +1,529 @@
+package org.maltparser.core.symbol.trie;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+
+import org.maltparser.core.exception.MaltChainedException;
+import org.maltparser.core.symbol.SymbolException;
+import org.maltparser.core.symbol.SymbolTable;
+import org.maltparser.core.symbol.nullvalue.InputNullValues;
+import org.maltparser.core.symbol.nullvalue.NullValues;
+import org.maltparser.core.symbol.nullvalue.OutputNullValues;
+import org.maltparser.core.symbol.nullvalue.NullValues.NullValueId;
+
+/**
+* A read-only copy of a loaded symbol table, where the symbols are stored in a minimal acyclic automaton (a trie where all
+* equal subtrees are shared). Large vocabularies share many prefixes and suffixes, so the automaton is often much smaller
+* than a table that stores every symbol.
+*
+* The automaton is encoded in arrays: the arcs of each state are stored consecutively and sorted by label, and each arc
+* knows how many symbols that are lexicographically smaller than the symbols reached through the arc start at its state.
+* Walking a symbol thus gives its rank among all symbols (a minimal perfect hash), which is mapped to the code of the symbol.
+* Walking the automaton by rank gives the symbol of a code.
+*
+* Since a symbol is looked up one character at a time, a part of a string can be looked up without creating a substring,
+* see getSymbolStringToCode(CharSequence, int, int).
+*/
+public final class FrozenTrieSymbolTable implements SymbolTable {
+	private final String name;
+	private final int category;
+	private final int type;
+	private final NullValues nullValues;
+	private final int valueCounter;
+	/** The first arc of each state, the last element is the number of arcs. The state 0 is the start state */
+	private final int[] stateFirstArc;
+	private final BitSet finalStates;
+	private final char[] arcLabels;
+	private final int[] arcTargets;
+	/** The number of symbols that precede the symbols reached through the arc, counted from the state of the arc */
+	private final int[] arcRanks;
+	private final int[] rankToCode;
+	/** The rank of each code or -1 if the code isn't used */
+	private final int[] codeToRank;
+
+	/**
+	 * Creates a frozen copy of a symbol table, where all codes between zero and the value counter of the table that aren't
+	 * null values are copied.
+	 *
+	 * @param table the symbol table that is copied
+	 * @throws MaltChainedException
+	 */
+	public FrozenTrieSymbolTable(SymbolTable table) throws MaltChainedException {
+		this.name = table.getName();
+		this.category = table.getCategory();
+		this.type = table.getType();
+		if (category == SymbolTable.OUTPUT) {
+			this.nullValues = new OutputNullValues(table.getNullValueStrategy(), this);
+		} else {
+			this.nullValues = new InputNullValues(table.getNullValueStrategy(), this);
+		}
+		this.valueCounter = table.getValueCounter();
+
+		final ArrayList<String> symbolList = new ArrayList<String>();
+		for (int code = 0; code < valueCounter; code++) {
+			if (!table.isNullValue(code)) {
+				final String symbol = table.getSymbolCodeToString(code);
+				if (symbol != null && symbol.length() > 0) {
+					symbolList.add(symbol);
+				}
+			}
+		}
+		final String[] symbols = symbolList.toArray(new String[symbolList.size()]);
+		Arrays.sort(symbols);
+
+		final Builder builder = new Builder();
+		int nSymbols = 0;
+		for (int i = 0; i < symbols.length; i++) {
+			if (i == 0 || !symbols[i].equals(symbols[i - 1])) {
+				builder.add(symbols[i]);
+				symbols[nSymbols++] = symbols[i];
+			}
+		}
+		final State start = builder.finish();
+
+		final ArrayList<State> states = new ArrayList<State>();
+		int nArcs = numberStates(start, states);
+		this.stateFirstArc = new int[states.size() + 1];
+		this.finalStates = new BitSet(states.size());
+		this.arcLabels = new char[nArcs];
+		this.arcTargets = new int[nArcs];
+		this.arcRanks = new int[nArcs];
+		int arc = 0;
+		for (int s = 0; s < states.size(); s++) {
+			final State state = states.get(s);
+			stateFirstArc[s] = arc;
+			int rank = 0;
+			if (state.isFinal) {
+				finalStates.set(s);
+				rank = 1;
+			}
+			for (int i = 0; i < state.nArcs; i++) {
+				arcLabels[arc] = state.labels[i];
+				arcTargets[arc] = state.targets[i].id;
+				arcRanks[arc] = rank;
+				rank += state.targets[i].count;
+				arc++;
+			}
+		}
+		stateFirstArc[states.size()] = arc;
+
+		this.rankToCode = new int[nSymbols];
+		this.codeToRank = new int[Math.max(valueCounter, 0)];
+		Arrays.fill(codeToRank, -1);
+		for (int code = 0; code < codeToRank.length; code++) {
+			if (!table.isNullValue(code)) {
+				final String symbol = table.getSymbolCodeToString(code);
+				if (symbol != null && symbol.length() > 0) {
+					codeToRank[code] = Arrays.binarySearch(symbols, 0, nSymbols, symbol);
+				}
+			}
+		}
+		for (int rank = 0; rank < nSymbols; rank++) {
+			rankToCode[rank] = table.getSymbolStringToCode(symbols[rank]);
+		}
+	}
+
+	/**
+	 * Numbers the states in depth-first order starting with the start state and counts the symbols that can be reached
+	 * from each state.
+	 *
+	 * @return the number of arcs of the automaton
+	 */
+	private static int numberStates(State start, ArrayList<State> states) {
+		int nArcs = 0;
+		final ArrayList<State> stack = new ArrayList<State>();
+		stack.add(start);
+		start.id = 0;
+		states.add(start);
+		while (!stack.isEmpty()) {
+			final State state = stack.remove(stack.size() - 1);
+			nArcs += state.nArcs;
+			for (int i = state.nArcs - 1; i >= 0; i--) {
+				final State target = state.targets[i];
+				if (target.id == -1) {
+					target.id = states.size();
+					states.add(target);
+					stack.add(target);
+				}
+			}
+		}
+		count(start);
+		return nArcs;
+	}
+
+	/**
+	 * Counts the symbols that can be reached from a state. The depth of the recursion is at most the length of the longest
+	 * symbol.
+	 */
+	private static int count(State state) {
+		if (state.count == -1) {
+			int count = state.isFinal ? 1 : 0;
+			for (int i = 0; i < state.nArcs; i++) {
+				count += count(state.targets[i]);
+			}
+			state.count = count;
+		}
+		return state.count;
+	}
+
+	public int addSymbol(String symbol) throws MaltChainedException {
+		if (!nullValues.isNullValue(symbol)) {
+			if (symbol == null || symbol.length() == 0) {
+				throw new SymbolException("Symbol table error: empty string cannot be added to the symbol table");
+			}
+			final int code = lookup(symbol, 0, symbol.length());
+			if (code == -1) {
+				throw new SymbolException("The symbol table '"+name+"' is read-only and the symbol '"+symbol+"' cannot be added. ");
+			}
+			return code;
+		} else {
+			return nullValues.symbolToCode(symbol);
+		}
+	}
+
+	public String getSymbolCodeToString(int code) throws MaltChainedException {
+		if (code >= 0) {
+			if (!nullValues.isNullValue(code)) {
+				if (code >= codeToRank.length || codeToRank[code] == -1) {
+					return null;
+				}
+				return symbolOfRank(codeToRank[code]);
+			} else {
+				return nullValues.codeToSymbol(code);
+			}
+		} else {
+			throw new SymbolException("The symbol code '"+code+"' cannot be found in the symbol table. ");
+		}
+	}
+
+	public int getSymbolStringToCode(String symbol) throws MaltChainedException {
+		if (symbol != null) {
+			if (!nullValues.isNullValue(symbol)) {
+				return lookup(symbol, 0, symbol.length());
+			} else {
+				return nullValues.symbolToCode(symbol);
+			}
+		} else {
+			throw new SymbolException("The symbol code '"+symbol+"' cannot be found in the symbol table. ");
+		}
+	}
+
+	/**
+	 * Returns the code of the symbol formed by the characters between <i>start</i> and <i>end</i> of a character sequence
+	 * without creating the substring. This is useful for derived symbols, for example the prefix of a word is looked up
+	 * with start 0 and the suffix with end symbol.length(). Null values are not recognized by this method.
+	 *
+	 * @param symbol the character sequence
+	 * @param start the index of the first character of the symbol
+	 * @param end the index after the last character of the symbol
+	 * @return the code of the symbol or -1 if the symbol isn't in the table
+	 * @throws MaltChainedException
+	 */
+	public int getSymbolStringToCode(CharSequence symbol, int start, int end) throws MaltChainedException {
+		if (symbol == null || start < 0 || end > symbol.length() || start > end) {
+			throw new SymbolException("The symbol between "+start+" and "+end+" cannot be found in the symbol table. ");
+		}
+		return lookup(symbol, start, end);
+	}
+
+	public double getSymbolStringToValue(String symbol) throws MaltChainedException {
+		if (symbol != null) {
+			if (!nullValues.isNullValue(symbol)) {
+				return Double.parseDouble(symbol);
+			} else {
+				return 1.0;
+			}
+		} else {
+			throw new SymbolException("The symbol code '"+symbol+"' cannot be found in the symbol table. ");
+		}
+	}
+
+	private int lookup(CharSequence symbol, int start, int end) {
+		int state = 0;
+		int rank = 0;
+		for (int i = start; i < end; i++) {
+			final int arc = findArc(state, symbol.charAt(i));
+			if (arc == -1) {
+				return -1;
+			}
+			rank += arcRanks[arc];
+			state = arcTargets[arc];
+		}
+		return (start < end && finalStates.get(state)) ? rankToCode[rank] : -1;
+	}
+
+	private int findArc(int state, char label) {
+		int low = stateFirstArc[state];
+		int high = stateFirstArc[state + 1] - 1;
+		while (low <= high) {
+			final int mid = (low + high) >>> 1;
+			final char c = arcLabels[mid];
+			if (c < label) {
+				low = mid + 1;
+			} else if (c > label) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	private String symbolOfRank(int rank) {
+		final StringBuilder sb = new StringBuilder();
+		int state = 0;
+		while (rank > 0 || !finalStates.get(state)) {
+			// the last arc of the state with an arc rank not greater than the remaining rank
+			int low = stateFirstArc[state];
+			int high = stateFirstArc[state + 1] - 1;
+			while (low < high) {
+				final int mid = (low + high + 1) >>> 1;
+				if (arcRanks[mid] <= rank) {
+					low = mid;
+				} else {
+					high = mid - 1;
+				}
+			}
+			rank -= arcRanks[low];
+			sb.append(arcLabels[low]);
+			state = arcTargets[low];
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the number of states of the automaton.
+	 *
+	 * @return the number of states of the automaton
+	 */
+	public int getNumberOfStates() {
+		return stateFirstArc.length - 1;
+	}
+
+	/**
+	 * Returns the approximate number of bytes used by the arrays of the table.
+	 *
+	 * @return the approximate number of bytes used by the table
+	 */
+	public long getMemoryUsage() {
+		return 16L * 7 + 4L * stateFirstArc.length + finalStates.size() / 8 + 10L * arcLabels.length
+			+ 4L * (rankToCode.length + codeToRank.length);
+	}
+
+	/**
+	 * Returns 1.0 for null values and NaN for other codes, since tables of real values are not frozen.
+	 */
+	public double getSymbolCodeToValue(int code) throws MaltChainedException {
+		return nullValues.isNullValue(code) ? 1.0 : Double.NaN;
+	}
+
+	public void saveHeader(BufferedWriter out) throws MaltChainedException  {
+		try {
+			out.append('\t');
+			out.append(getName());
+			out.append('\t');
+			out.append(Integer.toString(getCategory()));
+			out.append('\t');
+			out.append(Integer.toString(getType()));
+			out.append('\t');
+			out.append(getNullValueStrategy());
+			out.append('\n');
+		} catch (IOException e) {
+			throw new SymbolException("Could not save the symbol table. ", e);
+		}
+	}
+
+	public int getCategory() {
+		return category;
+	}
+
+	public int getType() {
+		return type;
+	}
+
+	public String getNullValueStrategy() {
+		return nullValues.getNullValueStrategy();
+	}
+
+	public int size() {
+		return rankToCode.length;
+	}
+
+	public void save(BufferedWriter out) throws MaltChainedException  {
+		try {
+			out.write(name);
+			out.write('\n');
+			for (int code = 0; code < codeToRank.length; code++) {
+				if (codeToRank[code] != -1) {
+					out.write(Integer.toString(code));
+					out.write('\t');
+					out.write(symbolOfRank(codeToRank[code]));
+					out.write('\n');
+				}
+			}
+			out.write('\n');
+		} catch (IOException e) {
+			throw new SymbolException("Could not save the symbol table. ", e);
+		}
+	}
+
+	public void load(BufferedReader in) throws MaltChainedException {
+		throw new SymbolException("The symbol table '"+name+"' is read-only and cannot be loaded. ");
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getValueCounter() {
+		return valueCounter;
+	}
+
+	public int getNullValueCode(NullValueId nullValueIdentifier) throws MaltChainedException {
+		return nullValues.nullvalueToCode(nullValueIdentifier);
+	}
+
+	public String getNullValueSymbol(NullValueId nullValueIdentifier) throws MaltChainedException {
+		return nullValues.nullvalueToSymbol(nullValueIdentifier);
+	}
+
+	public boolean isNullValue(String symbol) throws MaltChainedException {
+		return nullValues.isNullValue(symbol);
+	}
+
+	public boolean isNullValue(int code) throws MaltChainedException {
+		return nullValues.isNullValue(code);
+	}
+
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		final FrozenTrieSymbolTable other = (FrozenTrieSymbolTable)obj;
+		return ((name == null) ? other.name == null : name.equals(other.name));
+	}
+
+	public int hashCode() {
+		return 217 + (null == name ? 0 : name.hashCode());
+	}
+
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append(name);
+		sb.append(' ');
+		sb.append(valueCounter);
+		return sb.toString();
+	}
+
+	/**
+	 * A state of the automaton while it is built. A state is mutable until it is registered, after that equal states are
+	 * replaced by the registered state.
+	 */
+	private static final class State {
+		private static final char[] NO_LABELS = new char[0];
+		private static final State[] NO_TARGETS = new State[0];
+		private char[] labels = NO_LABELS;
+		private State[] targets = NO_TARGETS;
+		private int nArcs;
+		private boolean isFinal;
+		private int id = -1;
+		private int count = -1;
+
+		private void addArc(char label, State target) {
+			if (nArcs == labels.length) {
+				final int capacity = Math.max(2, nArcs << 1);
+				labels = Arrays.copyOf(labels, capacity);
+				targets = Arrays.copyOf(targets, capacity);
+			}
+			labels[nArcs] = label;
+			targets[nArcs] = target;
+			nArcs++;
+		}
+
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof State))
+				return false;
+			final State other = (State)obj;
+			if (isFinal != other.isFinal || nArcs != other.nArcs) {
+				return false;
+			}
+			for (int i = 0; i < nArcs; i++) {
+				if (labels[i] != other.labels[i] || targets[i] != other.targets[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		public int hashCode() {
+			int h = isFinal ? 1 : 0;
+			for (int i = 0; i < nArcs; i++) {
+				h = 31 * h + labels[i];
+				h = 31 * h + System.identityHashCode(targets[i]);
+			}
+			return h;
+		}
+	}
+
+	/**
+	 * Builds a minimal acyclic automaton from symbols added in lexicographic order, by registering the states of the
+	 * previous symbol that are no longer on the path of the next symbol (Daciuk et al., 2000).
+	 */
+	private static final class Builder {
+		private final HashMap<State, State> register = new HashMap<State, State>();
+		private final ArrayList<State> path = new ArrayList<State>();
+		private String previous = "";
+
+		private Builder() {
+			path.add(new State());
+		}
+
+		private void add(String symbol) {
+			int common = 0;
+			final int max = Math.min(symbol.length(), previous.length());
+			while (common < max && symbol.charAt(common) == previous.charAt(common)) {
+				common++;
+			}
+			minimize(common);
+			for (int i = common; i < symbol.length(); i++) {
+				final State state = new State();
+				path.get(i).addArc(symbol.charAt(i), state);
+				if (path.size() > i + 1) {
+					path.set(i + 1, state);
+				} else {
+					path.add(state);
+				}
+			}
+			path.get(symbol.length()).isFinal = true;
+			previous = symbol;
+		}
+
+		private State finish() {
+			minimize(0);
+			return path.get(0);
+		}
+
+		private void minimize(int depth) {
+			for (int i = previous.length(); i > depth; i--) {
+				final State state = path.get(i);
+				final State registered = register.get(state);
+				if (registered != null) {
+					final State parent = path.get(i - 1);
+					parent.targets[parent.nArcs - 1] = registered;
+				} else {
+					register.put(state, state);
+				}
+			}
+		}
+	}
+}
@@ -102,6 +102,13 @@ public class TrieSymbolTable implements SymbolTable {
 		}
 	}
 
+	public int getSymbolStringToCode(CharSequence symbol, int start, int end) throws MaltChainedException {
+		if (symbol == null || start < 0 || end > symbol.length() || start > end) {
+			throw new SymbolException("The symbol between "+start+" and "+end+" cannot be found in the symbol table. ");
+		}
+		return getSymbolStringToCode(symbol.subSequence(start, end).toString());
+	}
+	
 	public double getSymbolStringToValue(String symbol) throws MaltChainedException {
 		if (symbol == null) {
 			throw new SymbolException("The symbol code '"+symbol+"' cannot be found in the symbol table. ");
@@ -109,6 +116,13 @@ public class TrieSymbolTable implements SymbolTable {
 
 		return 1.0; 	
 	}
+	
+	public double getSymbolCodeToValue(int code) throws MaltChainedException {
+		if (nullValues != null && nullValues.isNullValue(code)) {
+			return 1.0;
+		}
+		return Double.NaN;
+	}
 	public void clearTmpStorage() {
 
 	}
@@ -125,6 +139,10 @@ public class TrieSymbolTable implements SymbolTable {
 		return category;
 	}
 	
+	public int getType() {
+		return SymbolTable.STRING;
+	}
+	
 	public void saveHeader(BufferedWriter out) throws MaltChainedException  {
 		try {
 			out.append('\t');
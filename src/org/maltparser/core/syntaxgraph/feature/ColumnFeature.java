@@ -62,7 +62,7 @@ public abstract class ColumnFeature implements FeatureFunction, Modifiable {
 			if (column.getType() == ColumnDescription.STRING || nullValue) {
 				featureValue.update(indexCode, symbol, nullValue, 1);
 			} else {
-				castFeatureValue(symbol);
+				castFeatureValue(indexCode, symbol);
 			}
 		}
 	}
@@ -76,11 +76,33 @@ public abstract class ColumnFeature implements FeatureFunction, Modifiable {
 			if (column.getType() == ColumnDescription.STRING || nullValue) {
 				featureValue.update(indexCode, symbol, nullValue, 1);
 			} else {
-				castFeatureValue(symbol);
+				castFeatureValue(indexCode, symbol);
 			}
 		}
 	}
 	
+	/**
+	 * Casts the feature value of a code. The value of a real valued column is taken from the symbol table, which parses 
+	 * the symbol once when it is added to the table.
+	 * 
+	 * @param indexCode the code of the symbol
+	 * @param symbol the symbol
+	 * @throws MaltChainedException
+	 */
+	protected void castFeatureValue(int indexCode, String symbol) throws MaltChainedException {
+		if (column.getType() == ColumnDescription.REAL) {
+			final double value = symbolTable.getSymbolCodeToValue(indexCode);
+			if (!Double.isNaN(value)) {
+				featureValue.setValue(value);
+				featureValue.setSymbol(symbol);
+				featureValue.setNullValue(false);
+				featureValue.setIndexCode(1);
+				return;
+			}
+		}
+		castFeatureValue(symbol);
+	}
+	
 	protected void castFeatureValue(String symbol) throws MaltChainedException {
 		if (column.getType() == ColumnDescription.INTEGER) {
 			try {
@@ -64,7 +64,7 @@ public final class InputColumnFeature extends ColumnFeature {
 				if (column.getType() == ColumnDescription.STRING) {
 					featureValue.update(indexCode, symbolTable.getSymbolCodeToString(indexCode), false, 1);
 				} else {
-					castFeatureValue(symbolTable.getSymbolCodeToString(indexCode));
+					castFeatureValue(indexCode, symbolTable.getSymbolCodeToString(indexCode));
 				}
 			} else { 
 				featureValue.update(symbolTable.getNullValueCode(NullValueId.ROOT_NODE), 
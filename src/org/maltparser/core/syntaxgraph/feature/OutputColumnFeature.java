@@ -66,7 +66,7 @@ public class OutputColumnFeature extends ColumnFeature {
 					if (column.getType() == ColumnDescription.STRING) {
 						featureValue.update(indexCode, symbol, false, 1);
 					} else {
-						castFeatureValue(symbol);
+						castFeatureValue(indexCode, symbol);
 					}
 				} else {
 					featureValue.update(symbolTable.getNullValueCode(NullValueId.NO_VALUE), 
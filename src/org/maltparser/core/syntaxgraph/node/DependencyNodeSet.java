@@ -0,0 +1,278 @@
+package org.maltparser.core.syntaxgraph.node;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+
+/**
+ * An ordered set of dependency nodes backed by a sorted array. The set replaces the TreeSets that keep the heads and the
+ * dependents of the nodes in a dependency graph. A node seldom has more than a handful of dependents, so a binary search
+ * and an array copy is cheaper than the tree operations, and the nodes can be accessed by their position without
+ * creating an iterator.
+ *
+ * The nodes are ordered by their natural order (compareTo), exactly as in a TreeSet. The subsets returned by headSet(),
+ * tailSet() and subSet() are copies of the range and not views backed by the set.
+ */
+public final class DependencyNodeSet extends AbstractSet<DependencyNode> implements SortedSet<DependencyNode> {
+	private static final DependencyNode[] EMPTY = new DependencyNode[0];
+	private DependencyNode[] nodes;
+	private int size;
+	private int modCount;
+
+	public DependencyNodeSet() {
+		this.nodes = EMPTY;
+		this.size = 0;
+	}
+
+	public DependencyNodeSet(Collection<? extends DependencyNode> c) {
+		this();
+		addAll(c);
+	}
+
+	private DependencyNodeSet(DependencyNode[] nodes, int from, int to) {
+		this.size = to - from;
+		this.nodes = (size == 0)?EMPTY:Arrays.copyOfRange(nodes, from, to);
+	}
+
+	/**
+	 * Returns the position of the node, or (-(insertion point) - 1) if the node isn't in the set.
+	 *
+	 * @param node a dependency node
+	 * @return the position of the node, or (-(insertion point) - 1) if the node isn't in the set.
+	 */
+	private int search(ComparableNode node) {
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			final int mid = (low + high) >>> 1;
+			final int cmp = nodes[mid].compareTo(node);
+			if (cmp < 0) {
+				low = mid + 1;
+			} else if (cmp > 0) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -(low + 1);
+	}
+
+	/**
+	 * Returns the position of the node in the set, or -1 if the node isn't in the set
+	 *
+	 * @param node a dependency node
+	 * @return the position of the node in the set, or -1 if the node isn't in the set
+	 */
+	public int indexOf(DependencyNode node) {
+		final int pos = search(node);
+		return (pos < 0)?-1:pos;
+	}
+
+	/**
+	 * Returns the node at a position in the set, where position 0 is the first node.
+	 *
+	 * @param position a position between 0 and size()-1
+	 * @return the node at the position
+	 */
+	public DependencyNode get(int position) {
+		if (position < 0 || position >= size) {
+			throw new IndexOutOfBoundsException("Position: "+position+", Size: "+size);
+		}
+		return nodes[position];
+	}
+
+	@Override
+	public boolean add(DependencyNode node) {
+		int pos = search(node);
+		if (pos >= 0) {
+			return false;
+		}
+		pos = -(pos + 1);
+		if (size == nodes.length) {
+			nodes = Arrays.copyOf(nodes, (size == 0)?4:size << 1);
+		}
+		System.arraycopy(nodes, pos, nodes, pos + 1, size - pos);
+		nodes[pos] = node;
+		size++;
+		modCount++;
+		return true;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		if (!(o instanceof ComparableNode)) {
+			return false;
+		}
+		final int pos = search((ComparableNode)o);
+		if (pos < 0) {
+			return false;
+		}
+		removeAt(pos);
+		return true;
+	}
+
+	private void removeAt(int pos) {
+		System.arraycopy(nodes, pos + 1, nodes, pos, size - pos - 1);
+		nodes[--size] = null;
+		modCount++;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (!(o instanceof ComparableNode)) {
+			return false;
+		}
+		return search((ComparableNode)o) >= 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(nodes, 0, size, null);
+		size = 0;
+		modCount++;
+	}
+
+	@Override
+	public Iterator<DependencyNode> iterator() {
+		return new Iterator<DependencyNode>() {
+			private int cursor = 0;
+			private int last = -1;
+			private int expectedModCount = modCount;
+
+			public boolean hasNext() {
+				return cursor < size;
+			}
+
+			public DependencyNode next() {
+				if (expectedModCount != modCount) {
+					throw new ConcurrentModificationException();
+				}
+				if (cursor >= size) {
+					throw new NoSuchElementException();
+				}
+				last = cursor++;
+				return nodes[last];
+			}
+
+			public void remove() {
+				if (last < 0) {
+					throw new IllegalStateException();
+				}
+				if (expectedModCount != modCount) {
+					throw new ConcurrentModificationException();
+				}
+				removeAt(last);
+				cursor = last;
+				last = -1;
+				expectedModCount = modCount;
+			}
+		};
+	}
+
+	@Override
+	public Object[] toArray() {
+		return Arrays.copyOf(nodes, size, Object[].class);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T[] toArray(T[] a) {
+		if (a.length < size) {
+			return (T[])Arrays.copyOf(nodes, size, a.getClass());
+		}
+		System.arraycopy(nodes, 0, a, 0, size);
+		if (a.length > size) {
+			a[size] = null;
+		}
+		return a;
+	}
+
+	public Comparator<? super DependencyNode> comparator() {
+		return null;
+	}
+
+	public DependencyNode first() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return nodes[0];
+	}
+
+	public DependencyNode last() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return nodes[size - 1];
+	}
+
+	/**
+	 * Returns the greatest node in the set strictly less than the given node, or <i>null</i> if there is no such node.
+	 *
+	 * @param node a dependency node
+	 * @return the greatest node in the set strictly less than the given node, or <i>null</i>
+	 */
+	public DependencyNode lower(DependencyNode node) {
+		final int pos = lowerBound(node);
+		return (pos > 0)?nodes[pos - 1]:null;
+	}
+
+	/**
+	 * Returns the least node in the set strictly greater than the given node, or <i>null</i> if there is no such node.
+	 *
+	 * @param node a dependency node
+	 * @return the least node in the set strictly greater than the given node, or <i>null</i>
+	 */
+	public DependencyNode higher(DependencyNode node) {
+		int pos = search(node);
+		pos = (pos < 0)?-(pos + 1):pos + 1;
+		return (pos < size)?nodes[pos]:null;
+	}
+
+	/**
+	 * Returns the set as a DependencyNodeSet. If the set isn't a DependencyNodeSet, a copy of the set is returned.
+	 *
+	 * @param set a sorted set of dependency nodes
+	 * @return the set as a DependencyNodeSet
+	 */
+	public static DependencyNodeSet valueOf(SortedSet<DependencyNode> set) {
+		if (set instanceof DependencyNodeSet) {
+			return (DependencyNodeSet)set;
+		}
+		return new DependencyNodeSet(set);
+	}
+
+	private int lowerBound(DependencyNode node) {
+		final int pos = search(node);
+		return (pos < 0)?-(pos + 1):pos;
+	}
+
+	public SortedSet<DependencyNode> headSet(DependencyNode toElement) {
+		return new DependencyNodeSet(nodes, 0, lowerBound(toElement));
+	}
+
+	public SortedSet<DependencyNode> tailSet(DependencyNode fromElement) {
+		return new DependencyNodeSet(nodes, lowerBound(fromElement), size);
+	}
+
+	public SortedSet<DependencyNode> subSet(DependencyNode fromElement, DependencyNode toElement) {
+		if (fromElement.compareTo(toElement) > 0) {
+			throw new IllegalArgumentException("fromElement > toElement");
+		}
+		return new DependencyNodeSet(nodes, lowerBound(fromElement), lowerBound(toElement));
+	}
+}
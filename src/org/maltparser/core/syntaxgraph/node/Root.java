@@ -20,8 +20,8 @@ import org.maltparser.core.syntaxgraph.headrules.HeadRules;
 
 
 public class Root extends GraphNode implements DependencyNode, PhraseStructureNode, NonTerminalNode {
-	protected final SortedSet<DependencyNode> leftDependents;
-	protected final SortedSet<DependencyNode> rightDependents;
+	protected final DependencyNodeSet leftDependents;
+	protected final DependencyNodeSet rightDependents;
 	protected final SortedSet<PhraseStructureNode> children;
 
 	/**
@@ -31,8 +31,8 @@ public class Root extends GraphNode implements DependencyNode, PhraseStructureNo
 	protected int rank;
 	public Root() throws MaltChainedException {
 		super();
-		leftDependents = new TreeSet<DependencyNode>();
-		rightDependents = new TreeSet<DependencyNode>();
+		leftDependents = new DependencyNodeSet();
+		rightDependents = new DependencyNodeSet();
 		children = new TreeSet<PhraseStructureNode>();
 		clear();
 	}
@@ -399,16 +399,7 @@ public class Root extends GraphNode implements DependencyNode, PhraseStructureNo
 	 */
 	public DependencyNode getLeftDependent(int index) {
 		if (0 <= index && index < leftDependents.size()) {
-			int i = 0;
-//			DependencyNode candidate = null;
-			
-			for (DependencyNode node : leftDependents) {
-//				candidate = node;
-				if (i == index) {
-					return node;
-				}
-				i++;
-			}
+			return leftDependents.get(index);
 		}
 		return null;
 	}
@@ -450,44 +441,19 @@ public class Root extends GraphNode implements DependencyNode, PhraseStructureNo
 	 * @return the closest left dependent to the node it self, if not found <code>null</code> is returned.
 	 */
 	public DependencyNode getClosestLeftDependent() {
-		try {
-			return leftDependents.last();
-		} catch (NoSuchElementException e) {
-			return null;
-		}
+		return leftDependents.isEmpty() ? null : leftDependents.last();
 	}
 	
 	public DependencyNode getLeftmostDependent() {
-		for (DependencyNode dep : leftDependents) {
-			return dep;
-		}
-		return null;
-//		try {
-//			return leftDependents.first();
-//		} catch (NoSuchElementException e) {
-//			return null;
-//		}
+		return leftDependents.isEmpty() ? null : leftDependents.first();
 	}
 	
 	public DependencyNode getRightDependent(int index) {
-		int size = rightDependents.size();
-		if (index < size) {
-			return rightDependents.toArray(new DependencyNode[size])[size - 1 - index];
+		final int size = rightDependents.size();
+		if (0 <= index && index < size) {
+			return rightDependents.get(size - 1 - index);
 		}
 		return null;
-//		if (0 <= index && index < rightDependents.size()) {
-//			int i = 0;
-//			DependencyNode candidate = null;
-//			
-//			for (DependencyNode node : rightDependents) {
-//				candidate = node;
-//				if (i == index) {
-//					return candidate;
-//				}
-//				i++;
-//			}
-//		}
-//		return null;
 	}
 	
 	/**
@@ -527,32 +493,11 @@ public class Root extends GraphNode implements DependencyNode, PhraseStructureNo
 	 * @return the closest right dependent to the node it self, if not found <code>null</code> is returned.
 	 */
 	public DependencyNode getClosestRightDependent() {
-		for (DependencyNode dep : rightDependents) {
-			return dep;
-		}
-		return null;
-//		try {
-//			return rightDependents.first();
-//		} catch (NoSuchElementException e) {
-//			return null;
-//		}
+		return rightDependents.isEmpty() ? null : rightDependents.first();
 	}
 	
 	public DependencyNode getRightmostDependent() {
-		int n = rightDependents.size();
-		int i = 1;
-		for (DependencyNode node : rightDependents) {
-			if (i == n) {
-				return node;
-			}
-			i++;
-		}
-		return null;
-//		try {
-//			return rightDependents.last();
-//		} catch (NoSuchElementException e) {
-//			return null;
-//		}
+		return rightDependents.isEmpty() ? null : rightDependents.last();
 	}
 	
 	/**
@@ -569,11 +514,11 @@ public class Root extends GraphNode implements DependencyNode, PhraseStructureNo
 			dominationSet.addAll(leftDependents);
 			dominationSet.addAll(rightDependents);
 			
-			for (DependencyNode node : leftDependents) {
-				((Token)node).getDependencyDominationSet(dominationSet);
+			for (int i = 0; i < leftDependents.size(); i++) {
+				((Token)leftDependents.get(i)).getDependencyDominationSet(dominationSet);
 			}
-			for (DependencyNode node : rightDependents) {
-				((Token)node).getDependencyDominationSet(dominationSet);
+			for (int i = 0; i < rightDependents.size(); i++) {
+				((Token)rightDependents.get(i)).getDependencyDominationSet(dominationSet);
 			}
 		}
 	}
@@ -667,31 +612,18 @@ public class Root extends GraphNode implements DependencyNode, PhraseStructureNo
 	}
 	
 	public List<DependencyNode> getListOfDependents() {
-		List<DependencyNode> dependentList = new ArrayList<DependencyNode>();
-		for (DependencyNode node : leftDependents) {
-			dependentList.add(node);
-		}
-		for (DependencyNode node : rightDependents) {
-			dependentList.add(node);
-		}
+		List<DependencyNode> dependentList = new ArrayList<DependencyNode>(leftDependents.size() + rightDependents.size());
+		dependentList.addAll(leftDependents);
+		dependentList.addAll(rightDependents);
 		return dependentList;		
 	}
 	
 	public List<DependencyNode> getListOfLeftDependents() {
-		List<DependencyNode> leftDependentList = new ArrayList<DependencyNode>();
-		
-		for (DependencyNode node : leftDependents) {
-			leftDependentList.add(node);
-		}
-		return leftDependentList;
+		return new ArrayList<DependencyNode>(leftDependents);
 	}
 	
 	public List<DependencyNode> getListOfRightDependents() {
-		List<DependencyNode> rightDependentList = new ArrayList<DependencyNode>();
-		for (DependencyNode node : rightDependents) {
-			rightDependentList.add(node);
-		}
-		return rightDependentList;
+		return new ArrayList<DependencyNode>(rightDependents);
 	}
 	
 //	public void reArrangeChildrenAccordingToLeftAndRightProperDesendant() throws MaltChainedException {
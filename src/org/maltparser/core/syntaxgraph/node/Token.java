@@ -2,10 +2,8 @@ package org.maltparser.core.syntaxgraph.node;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.SortedSet;
-import java.util.TreeSet;
 
 import org.maltparser.core.exception.MaltChainedException;
 import org.maltparser.core.helper.SystemLogger;
@@ -34,16 +32,16 @@ public class Token extends GraphNode implements TokenNode, DependencyNode, Phras
 	protected int index;
 	
 	protected PhraseStructureNode parent;
-	protected final SortedSet<DependencyNode> heads;
-	protected final SortedSet<DependencyNode> leftDependents;
-	protected final SortedSet<DependencyNode> rightDependents;
+	protected final DependencyNodeSet heads;
+	protected final DependencyNodeSet leftDependents;
+	protected final DependencyNodeSet rightDependents;
 	
 	
 	public Token() throws MaltChainedException { 
 		parent = null;
-		heads = new TreeSet<DependencyNode>();
-		leftDependents = new TreeSet<DependencyNode>();
-		rightDependents = new TreeSet<DependencyNode>();
+		heads = new DependencyNodeSet();
+		leftDependents = new DependencyNodeSet();
+		rightDependents = new DependencyNodeSet();
 		clear();
 	}
 	
@@ -213,7 +211,8 @@ public class Token extends GraphNode implements TokenNode, DependencyNode, Phras
 	public ComparableNode getLeftmostProperDescendant() throws MaltChainedException {
 		ComparableNode candidate = null;
 		ComparableNode tmp = null;
-		for (DependencyNode ldep : leftDependents) {
+		for (int i = 0; i < leftDependents.size(); i++) {
+			final DependencyNode ldep = leftDependents.get(i);
 			if (candidate == null) {
 				candidate = ldep;
 			} else if (ldep.getIndex() < candidate.getIndex() ) {
@@ -232,7 +231,8 @@ public class Token extends GraphNode implements TokenNode, DependencyNode, Phras
 				return candidate;
 			}
 		}
-		for (DependencyNode rdep : rightDependents) {
+		for (int i = 0; i < rightDependents.size(); i++) {
+			final DependencyNode rdep = rightDependents.get(i);
 			if (candidate == null) {
 				candidate = rdep;
 			} else if (rdep.getIndex() < candidate.getIndex() ) {
@@ -257,7 +257,8 @@ public class Token extends GraphNode implements TokenNode, DependencyNode, Phras
 	public ComparableNode getRightmostProperDescendant() throws MaltChainedException {
 		ComparableNode candidate = null;
 		ComparableNode tmp = null;
-		for (DependencyNode ldep : leftDependents) {
+		for (int i = 0; i < leftDependents.size(); i++) {
+			final DependencyNode ldep = leftDependents.get(i);
 			if (candidate == null) {
 				candidate = ldep;
 			} else if (ldep.getIndex() > candidate.getIndex() ) {
@@ -273,7 +274,8 @@ public class Token extends GraphNode implements TokenNode, DependencyNode, Phras
 				candidate = tmp;
 			}
 		}
-		for (DependencyNode rdep : rightDependents) {
+		for (int i = 0; i < rightDependents.size(); i++) {
+			final DependencyNode rdep = rightDependents.get(i);
 			if (candidate == null) {
 				candidate = rdep;
 			} else if (rdep.getIndex() > candidate.getIndex() ) {
@@ -295,7 +297,8 @@ public class Token extends GraphNode implements TokenNode, DependencyNode, Phras
 	public ComparableNode getLeftmostDescendant() throws MaltChainedException {
 		ComparableNode candidate = this;
 		ComparableNode tmp = null;
-		for (DependencyNode ldep : leftDependents) {
+		for (int i = 0; i < leftDependents.size(); i++) {
+			final DependencyNode ldep = leftDependents.get(i);
 			if (candidate == null) {
 				candidate = ldep;
 			} else if (ldep.getIndex() < candidate.getIndex() ) {
@@ -314,7 +317,8 @@ public class Token extends GraphNode implements TokenNode, DependencyNode, Phras
 				return candidate;
 			}
 		}
-		for (DependencyNode rdep : rightDependents) {
+		for (int i = 0; i < rightDependents.size(); i++) {
+			final DependencyNode rdep = rightDependents.get(i);
 			if (candidate == null) {
 				candidate = rdep;
 			} else if (rdep.getIndex() < candidate.getIndex() ) {
@@ -339,7 +343,8 @@ public class Token extends GraphNode implements TokenNode, DependencyNode, Phras
 	public ComparableNode getRightmostDescendant() throws MaltChainedException {
 		ComparableNode candidate = this;
 		ComparableNode tmp = null;
-		for (DependencyNode ldep : leftDependents) {
+		for (int i = 0; i < leftDependents.size(); i++) {
+			final DependencyNode ldep = leftDependents.get(i);
 			if (candidate == null) {
 				candidate = ldep;
 			} else if (ldep.getIndex() > candidate.getIndex() ) {
@@ -355,7 +360,8 @@ public class Token extends GraphNode implements TokenNode, DependencyNode, Phras
 				candidate = tmp;
 			}
 		}
-		for (DependencyNode rdep : rightDependents) {
+		for (int i = 0; i < rightDependents.size(); i++) {
+			final DependencyNode rdep = rightDependents.get(i);
 			if (candidate == null) {
 				candidate = rdep;
 			} else if (rdep.getIndex() > candidate.getIndex() ) {
@@ -446,9 +452,7 @@ public class Token extends GraphNode implements TokenNode, DependencyNode, Phras
 			return null;
 		}
 		if (heads.size() == 1) {
-			for (DependencyNode head : heads) {
-				return head;
-			}
+			return heads.get(0);
 		}
 
 		if (heads.size() > 1) {
@@ -555,16 +559,7 @@ public class Token extends GraphNode implements TokenNode, DependencyNode, Phras
 	 */
 	public DependencyNode getLeftDependent(int index) {
 		if (0 <= index && index < leftDependents.size()) {
-			int i = 0;
-//			DependencyNode candidate = null;
-			
-			for (DependencyNode node : leftDependents) {
-//				candidate = node;
-				if (i == index) {
-					return node;
-				}
-				i++;
-			}
+			return leftDependents.get(index);
 		}
 		return null;
 	}
@@ -592,18 +587,18 @@ public class Token extends GraphNode implements TokenNode, DependencyNode, Phras
 			return null;
 		}
 
-		DependencyNode candidate = null;
-		for (DependencyNode node : getHead().getLeftDependents()) {
-			if (node == this) {
-				return candidate;
-			}
-			candidate = node;
+		final DependencyNodeSet headLeftDependents = DependencyNodeSet.valueOf(getHead().getLeftDependents());
+		int position = headLeftDependents.indexOf(this);
+		if (position != -1) {
+			return (position > 0) ? headLeftDependents.get(position - 1) : null;
 		}
-		for (DependencyNode node : getHead().getRightDependents()) {
-			if (node == this) {
-				return candidate;
+		final DependencyNodeSet headRightDependents = DependencyNodeSet.valueOf(getHead().getRightDependents());
+		position = headRightDependents.indexOf(this);
+		if (position != -1) {
+			if (position > 0) {
+				return headRightDependents.get(position - 1);
 			}
-			candidate = node;
+			return headLeftDependents.isEmpty() ? null : headLeftDependents.last();
 		}
 		return null;
 	}
@@ -617,17 +612,9 @@ public class Token extends GraphNode implements TokenNode, DependencyNode, Phras
 		if (getHead() == null) {
 			return null;
 		} else if (this.getIndex() < getHead().getIndex()) {
-			try {
-				return getHead().getLeftDependents().headSet(this).last();
-			} catch (NoSuchElementException e) {
-				return null;
-			}
+			return DependencyNodeSet.valueOf(getHead().getLeftDependents()).lower(this);
 		} else if (this.getIndex() > getHead().getIndex()) {
-			try {
-				return getHead().getRightDependents().headSet(this).last();
-			} catch (NoSuchElementException e) {
-				return null;
-			}
+			return DependencyNodeSet.valueOf(getHead().getRightDependents()).lower(this);
 		}
 		return null;
 	}
@@ -638,44 +625,19 @@ public class Token extends GraphNode implements TokenNode, DependencyNode, Phras
 	 * @return the closest left dependent to the node it self, if not found <code>null</code> is returned.
 	 */
 	public DependencyNode getClosestLeftDependent() {
-		try {
-			return leftDependents.last();
-		} catch (NoSuchElementException e) {
-			return null;
-		}
+		return leftDependents.isEmpty() ? null : leftDependents.last();
 	}
 	
 	public DependencyNode getLeftmostDependent() {
-		for (DependencyNode dep : leftDependents) {
-			return dep;
-		}
-		return null;
-//		try {
-//			return leftDependents.first();
-//		} catch (NoSuchElementException e) {
-//			return null;
-//		}
+		return leftDependents.isEmpty() ? null : leftDependents.first();
 	}
 	
 	public DependencyNode getRightDependent(int index) {
-		int size = rightDependents.size();
-		if (index < size) {
-			return rightDependents.toArray(new DependencyNode[size])[size - 1 - index];
+		final int size = rightDependents.size();
+		if (0 <= index && index < size) {
+			return rightDependents.get(size - 1 - index);
 		}
 		return null;
-//		if (0 <= index && index < rightDependents.size()) {
-//			int i = 0;
-//			DependencyNode candidate = null;
-//			
-//			for (DependencyNode node : rightDependents) {
-//				candidate = node;
-//				if (i == index) {
-//					return candidate;
-//				}
-//				i++;
-//			}
-//		}
-//		return null;
 	}
 	
 	/**
@@ -706,17 +668,11 @@ public class Token extends GraphNode implements TokenNode, DependencyNode, Phras
 			return null;
 		}
 
-		for (DependencyNode node : getHead().getLeftDependents()) {
-			if (node.getIndex() > this.getIndex()) {
-				return node;
-			}
+		final DependencyNode node = DependencyNodeSet.valueOf(getHead().getLeftDependents()).higher(this);
+		if (node != null) {
+			return node;
 		}
-		for (DependencyNode node : getHead().getRightDependents()) {
-			if (node.getIndex() > this.getIndex()) {
-				return node;
-			}
-		}
-		return null;
+		return DependencyNodeSet.valueOf(getHead().getRightDependents()).higher(this);
 	}
 	
 	/**
@@ -728,17 +684,9 @@ public class Token extends GraphNode implements TokenNode, DependencyNode, Phras
 		if (getHead() == null) {
 			return null;
 		} else if (this.getIndex() < getHead().getIndex()) {
-			final SortedSet<DependencyNode> tailSet = getHead().getLeftDependents().tailSet(this);
-			if (tailSet.size() <= 1)  {
-				return null;
-			}
-			return tailSet.toArray(new DependencyNode[tailSet.size()])[1];
+			return DependencyNodeSet.valueOf(getHead().getLeftDependents()).higher(this);
 		} else if (this.getIndex() > getHead().getIndex()) {
-			final SortedSet<DependencyNode> tailSet = getHead().getRightDependents().tailSet(this);
-			if (tailSet.size() <= 1)  {
-				return null;
-			}
-			return tailSet.toArray(new DependencyNode[tailSet.size()])[1];
+			return DependencyNodeSet.valueOf(getHead().getRightDependents()).higher(this);
 		}
 		return null;
 	}
@@ -749,60 +697,26 @@ public class Token extends GraphNode implements TokenNode, DependencyNode, Phras
 	 * @return the closest right dependent to the node it self, if not found <code>null</code> is returned.
 	 */
 	public DependencyNode getClosestRightDependent() {
-		for (DependencyNode dep : rightDependents) {
-			return dep;
-		}
-		return null;
-//		try {
-//			return rightDependents.first();
-//		} catch (NoSuchElementException e) {
-//			return null;
-//		}
+		return rightDependents.isEmpty() ? null : rightDependents.first();
 	}
 	
 	public DependencyNode getRightmostDependent() {
-		int n = rightDependents.size();
-		int i = 1;
-		for (DependencyNode node : rightDependents) {
-			if (i == n) {
-				return node;
-			}
-			i++;
-		}
-		return null;
-//		try {
-//			return rightDependents.last();
-//		} catch (NoSuchElementException e) {
-//			return null;
-//		}
+		return rightDependents.isEmpty() ? null : rightDependents.last();
 	}
 	
 	public List<DependencyNode> getListOfDependents() {
-		List<DependencyNode> dependentList = new ArrayList<DependencyNode>();
-		for (DependencyNode node : leftDependents) {
-			dependentList.add(node);
-		}
-		for (DependencyNode node : rightDependents) {
-			dependentList.add(node);
-		}
+		List<DependencyNode> dependentList = new ArrayList<DependencyNode>(leftDependents.size() + rightDependents.size());
+		dependentList.addAll(leftDependents);
+		dependentList.addAll(rightDependents);
 		return dependentList;		
 	}
 	
 	public List<DependencyNode> getListOfLeftDependents() {
-		List<DependencyNode> leftDependentList = new ArrayList<DependencyNode>();
-		
-		for (DependencyNode node : leftDependents) {
-			leftDependentList.add(node);
-		}
-		return leftDependentList;
+		return new ArrayList<DependencyNode>(leftDependents);
 	}
 	
 	public List<DependencyNode> getListOfRightDependents() {
-		List<DependencyNode> rightDependentList = new ArrayList<DependencyNode>();
-		for (DependencyNode node : rightDependents) {
-			rightDependentList.add(node);
-		}
-		return rightDependentList;
+		return new ArrayList<DependencyNode>(rightDependents);
 	}
 	
 	protected void getDependencyDominationSet(SortedSet<DependencyNode> dominationSet) {
@@ -810,11 +724,11 @@ public class Token extends GraphNode implements TokenNode, DependencyNode, Phras
 			dominationSet.addAll(leftDependents);
 			dominationSet.addAll(rightDependents);
 			
-			for (DependencyNode node : leftDependents) {
-				((Token)node).getDependencyDominationSet(dominationSet);
+			for (int i = 0; i < leftDependents.size(); i++) {
+				((Token)leftDependents.get(i)).getDependencyDominationSet(dominationSet);
 			}
-			for (DependencyNode node : rightDependents) {
-				((Token)node).getDependencyDominationSet(dominationSet);
+			for (int i = 0; i < rightDependents.size(); i++) {
+				((Token)rightDependents.get(i)).getDependencyDominationSet(dominationSet);
 			}
 		}
 	}
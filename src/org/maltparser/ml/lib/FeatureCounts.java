@@ -0,0 +1,114 @@
+package org.maltparser.ml.lib;
+
+/**
+ * Counts the frequency of the features in the training instances when features are pruned by the option
+ * --lib-feature_cutoff. A feature is the 64-bit key of the feature map, where 16 bits are reserved for the position and
+ * 48 bits for the symbol code. The keys and the counts are kept in two primitive arrays of an open addressing hash table
+ * with linear probing, so that a feature doesn't need any objects.
+ */
+final class FeatureCounts {
+	private long[] keys;
+	/** The count of the key of each slot, where the count zero marks an empty slot */
+	private int[] counts;
+	private int mask;
+	private int size;
+
+	/**
+	 * Creates an empty table of feature counts
+	 */
+	public FeatureCounts() {
+		keys = new long[1024];
+		counts = new int[1024];
+		mask = 1023;
+		size = 0;
+	}
+
+	/**
+	 * Increments the count of a feature
+	 *
+	 * @param key the key of the feature
+	 */
+	public void increment(long key) {
+		int slot = slot(key);
+		while (counts[slot] != 0) {
+			if (keys[slot] == key) {
+				if (counts[slot] != Integer.MAX_VALUE) {
+					counts[slot]++;
+				}
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		counts[slot] = 1;
+		if (++size > (mask >>> 1)) {
+			rehash();
+		}
+	}
+
+	/**
+	 * Returns the count of a feature
+	 *
+	 * @param key the key of the feature
+	 * @return the count of the feature, or zero if the feature doesn't occur
+	 */
+	public int get(long key) {
+		int slot = slot(key);
+		while (counts[slot] != 0) {
+			if (keys[slot] == key) {
+				return counts[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		return 0;
+	}
+
+	/**
+	 * @return the number of distinct features
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of slots, where slot 0 .. capacity() - 1 can be read by getKey() and getCount()
+	 */
+	public int capacity() {
+		return counts.length;
+	}
+
+	public long getKey(int slot) {
+		return keys[slot];
+	}
+
+	/**
+	 * @param slot a slot of the table
+	 * @return the count of the feature of the slot, or zero if the slot is empty
+	 */
+	public int getCount(int slot) {
+		return counts[slot];
+	}
+
+	private int slot(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int)(h ^ (h >>> 32)) & mask;
+	}
+
+	private void rehash() {
+		final long[] oldKeys = keys;
+		final int[] oldCounts = counts;
+		keys = new long[oldKeys.length << 1];
+		counts = new int[oldCounts.length << 1];
+		mask = counts.length - 1;
+		for (int i = 0; i < oldCounts.length; i++) {
+			if (oldCounts[i] != 0) {
+				int slot = slot(oldKeys[i]);
+				while (counts[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i];
+				counts[slot] = oldCounts[i];
+			}
+		}
+	}
+}
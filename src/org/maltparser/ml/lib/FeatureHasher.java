@@ -0,0 +1,118 @@
+package org.maltparser.ml.lib;
+
+import org.maltparser.core.exception.MaltChainedException;
+import org.maltparser.parser.DependencyParserConfig;
+
+/**
+ * The feature hasher is an alternative to the feature map. Instead of storing a mapping from every combination of feature position
+ * and symbol code to an index, the combination is hashed into a fixed space of 2^bits indices. The size of the model is therefore
+ * bounded by the number of bits and no feature map needs to be saved in or loaded from the configuration.
+ *
+ * The position and the symbol code are combined into a 64-bit key in the same way as in the feature map, mixed with the seed and
+ * the finalizer of MurmurHash3. If the hashing is signed, one bit outside the index space decides whether the feature value should
+ * be negated, which makes colliding features cancel out in expectation.
+ */
+public final class FeatureHasher {
+	private final int bits;
+	private final int mask;
+	private final long seed;
+	private final boolean signed;
+
+	/**
+	 * Creates a feature hasher
+	 *
+	 * @param bits the number of bits of the index space (1..30)
+	 * @param seed the seed of the hash function
+	 * @param signed <i>true</i> if the feature values should be signed by the hash function
+	 * @throws MaltChainedException
+	 */
+	public FeatureHasher(int bits, int seed, boolean signed) throws MaltChainedException {
+		if (bits < 1 || bits > 30) {
+			throw new LibException("The number of feature hashing bits must be between 1 and 30, not "+bits+". ");
+		}
+		this.bits = bits;
+		this.mask = (1 << bits) - 1;
+		this.seed = seed * 0x9E3779B97F4A7C15L;
+		this.signed = signed;
+	}
+
+	/**
+	 * Returns a feature hasher according to the options of the configuration, or <i>null</i> if feature hashing is
+	 * not used (--lib-hash_bits 0).
+	 *
+	 * @param config the configuration
+	 * @return a feature hasher or <i>null</i>
+	 * @throws MaltChainedException
+	 */
+	public static FeatureHasher getFeatureHasher(DependencyParserConfig config) throws MaltChainedException {
+		final Object bitsValue = config.getOptionValue("lib", "hash_bits");
+		if (bitsValue == null || ((Integer)bitsValue).intValue() == 0) {
+			return null;
+		}
+		final Object seedValue = config.getOptionValue("lib", "hash_seed");
+		final Object signedValue = config.getOptionValue("lib", "hash_signed");
+		return new FeatureHasher(((Integer)bitsValue).intValue(),
+				(seedValue == null)?0:((Integer)seedValue).intValue(),
+				(signedValue == null)?false:((Boolean)signedValue).booleanValue());
+	}
+
+	private long hash(int featurePosition, int code) {
+		long h = ((((long)featurePosition) << 48) | (long)code) ^ seed;
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	/**
+	 * Returns the hashed index of a combination of the position in the column-based feature vector and the symbol code.
+	 *
+	 * @param featurePosition a position in the column-based feature vector
+	 * @param code a symbol code
+	 * @return the index value (1..2^bits)
+	 */
+	public int getIndex(int featurePosition, int code) {
+		return ((int)hash(featurePosition, code) & mask) + 1;
+	}
+
+	/**
+	 * Returns the sign that should be multiplied with the feature value.
+	 *
+	 * @param featurePosition a position in the column-based feature vector
+	 * @param code a symbol code
+	 * @return -1 or 1 if the hashing is signed, otherwise always 1
+	 */
+	public int getSign(int featurePosition, int code) {
+		if (!signed) {
+			return 1;
+		}
+		return (hash(featurePosition, code) < 0)?-1:1;
+	}
+
+	/**
+	 * @return the size of the index space (2^bits)
+	 */
+	public int size() {
+		return mask + 1;
+	}
+
+	public int getBits() {
+		return bits;
+	}
+
+	public boolean isSigned() {
+		return signed;
+	}
+
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("FeatureHasher [bits=");
+		sb.append(bits);
+		sb.append(", signed=");
+		sb.append(signed);
+		sb.append("]");
+		return sb.toString();
+	}
+}
@@ -49,6 +49,7 @@ public class FeatureList  {
 	            } else if (y.compareTo(x) > 0 ) {
 	                high = mid - 1;
 	            } else {
+	                low = mid;
 	                break;
 	            }
 	        }
@@ -77,6 +78,31 @@ public class FeatureList  {
 		return list.get(i);
 	}
 	
+	/**
+	 * Merges adjacent nodes with the same index by summing their values and removes nodes whose value becomes zero. This
+	 * is only needed when several features can share the same index, for example when feature hashing is used.
+	 */
+	public void merge() {
+		int j = -1;
+		for (int i = 0; i < list.size(); i++) {
+			final MaltFeatureNode x = list.get(i);
+			if (j >= 0 && list.get(j).getIndex() == x.getIndex()) {
+				list.get(j).setValue(list.get(j).getValue() + x.getValue());
+			} else {
+				if (j >= 0 && list.get(j).getValue() == 0) {
+					j--;
+				}
+				list.set(++j, x);
+			}
+		}
+		if (j >= 0 && list.get(j).getValue() == 0) {
+			j--;
+		}
+		for (int i = list.size() - 1; i > j; i--) {
+			list.remove(i);
+		}
+	}
+	
 	/**
 	 * Clears the feature list
 	 */
@@ -1,6 +1,10 @@
 package org.maltparser.ml.lib;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Map;
 
 
 import org.maltparser.core.helper.HashMap;
@@ -26,6 +30,60 @@ public class FeatureMap  implements Serializable {
 		this.featureCounter = 1;
 	}
 	
+	private FeatureMap(HashMap<Long,Integer> map, int featureCounter) {
+		this.map = map;
+		this.featureCounter = featureCounter;
+	}
+	
+	/**
+	 * Writes the feature map in the binary format of the feature map sections of the MCO container (see 
+	 * org.maltparser.core.config.McoContainer). The section contains the feature counter and the number of 
+	 * entries, followed by the keys as an array of longs and the indices as an array of ints.
+	 * 
+	 * @param out the output stream
+	 * @throws IOException
+	 */
+	public void write(DataOutputStream out) throws IOException {
+		final int n = map.size();
+		out.writeInt(featureCounter);
+		out.writeInt(n);
+		final long[] keys = new long[n];
+		final int[] indices = new int[n];
+		int i = 0;
+		for (Map.Entry<Long,Integer> entry : map.entrySet()) {
+			keys[i] = entry.getKey().longValue();
+			indices[i] = entry.getValue().intValue();
+			i++;
+		}
+		final ByteBuffer buffer = ByteBuffer.allocate(n * 12);
+		buffer.asLongBuffer().put(keys);
+		buffer.position(n * 8);
+		buffer.asIntBuffer().put(indices);
+		out.write(buffer.array());
+	}
+	
+	/**
+	 * Reads a feature map written by write(DataOutputStream)
+	 * 
+	 * @param in a buffer positioned at the start of the feature map
+	 * @return the feature map
+	 */
+	public static FeatureMap read(ByteBuffer in) {
+		final int featureCounter = in.getInt();
+		final int n = in.getInt();
+		final long[] keys = new long[n];
+		final int[] indices = new int[n];
+		in.asLongBuffer().get(keys);
+		in.position(in.position() + n * 8);
+		in.asIntBuffer().get(indices);
+		in.position(in.position() + n * 4);
+		final HashMap<Long,Integer> map = new HashMap<Long,Integer>(n);
+		for (int i = 0; i < n; i++) {
+			map.put(keys[i], indices[i]);
+		}
+		return new FeatureMap(map, featureCounter);
+	}
+	
 	/**
 	 * Adds a mapping from a combination of the position in the column-based feature vector and the symbol code to 
 	 * an index value suitable for liblinear and libsvm.
@@ -99,6 +157,16 @@ public class FeatureMap  implements Serializable {
 		return map.size();
 	}
 	
+	/**
+	 * Returns a rough estimate of the number of bytes used by the feature map, assuming compressed references. Each entry costs 
+	 * a boxed key, a boxed index and about two slots in both the key and the value array of the map.
+	 * 
+	 * @return a rough estimate of the number of bytes used by the feature map
+	 */
+	public long getMemoryUsage() {
+		return 16 + 72L * map.size();
+	}
+	
 	
 	public Long[] reverseMap() {
 		Long[] reverseMap = new Long[map.size() +1];
@@ -0,0 +1,690 @@
+package org.maltparser.ml.lib;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.maltparser.core.exception.MaltChainedException;
+
+/**
+ * A compact binary store of the training instances of a learner. Each instance is stored as its decision code, the number
+ * of columns of the feature vector and a run of (position, code[, value]) features, all variable-length encoded. The positions
+ * are delta encoded within the instance and features with the code -1 and without a value are not stored, since the learner
+ * ignores them.
+ *
+ * The instances are kept in memory as long as the memory of all instance buffers is within the memory budget, after that
+ * the instances of the buffer are spilled to a binary file.
+ *
+ * The instances of other buffers can be linked to a buffer, for example when the instances of a small divide model are
+ * merged into the master model. The linked instances are not copied, they are read after the instances of the buffer
+ * and the features of the divide feature are inserted while they are read.
+ *
+ * The instances can also be written to a stream and read into another buffer, for example when they are kept in an instance
+ * cache and reused by a later training.
+ */
+public final class InstanceBuffer {
+	private static final int CHUNK_SIZE = 64 * 1024;
+	/** The memory of the chunks of all instance buffers, which is compared with the memory budget */
+	private static final AtomicLong memoryUsage = new AtomicLong();
+
+	private final File spillFile;
+	private final long memoryBudget;
+	private final ArrayList<byte[]> chunks;
+	private byte[] chunk;
+	private int chunkPosition;
+	private OutputStream spillOutput;
+	private long size;
+	private int numberOfInstances;
+	private long numberOfFeatures;
+	private int lastPosition;
+	private int maxNumberOfColumns;
+	/** The buffers whose instances are read after the instances of this buffer */
+	private final ArrayList<Link> links;
+
+	/**
+	 * Creates an empty instance buffer
+	 *
+	 * @param spillFile the file that the instances are spilled to when the memory budget is exceeded
+	 * @param memoryBudget the maximum number of bytes used by the instances of all instance buffers in memory
+	 */
+	public InstanceBuffer(File spillFile, long memoryBudget) {
+		this.spillFile = spillFile;
+		this.memoryBudget = memoryBudget;
+		this.chunks = new ArrayList<byte[]>();
+		this.links = new ArrayList<Link>();
+	}
+
+	/**
+	 * Starts a new instance, the features of the instance are added by addFeature() and the instance is ended by endInstance().
+	 *
+	 * @param decisionCode the decision code of the instance
+	 * @param numberOfColumns the number of columns of the feature vector
+	 * @throws MaltChainedException
+	 */
+	public void startInstance(int decisionCode, int numberOfColumns) throws MaltChainedException {
+		writeVarInt((decisionCode << 1) ^ (decisionCode >> 31));
+		writeVarInt(numberOfColumns);
+		lastPosition = 0;
+		if (numberOfColumns > maxNumberOfColumns) {
+			maxNumberOfColumns = numberOfColumns;
+		}
+	}
+
+	/**
+	 * Adds a binary feature to the current instance. Features must be added in the order of their positions.
+	 *
+	 * @param position the position (column) of the feature, starting at 1
+	 * @param code the code of the feature, -1 if the feature is missing
+	 * @throws MaltChainedException
+	 */
+	public void addFeature(int position, int code) throws MaltChainedException {
+		if (code == -1) {
+			return;
+		}
+		writeVarInt(((position - lastPosition) << 1) + 1);
+		writeVarInt((code << 1) ^ (code >> 31));
+		lastPosition = position;
+		numberOfFeatures++;
+	}
+
+	/**
+	 * Adds a real valued feature to the current instance. Features must be added in the order of their positions.
+	 *
+	 * @param position the position (column) of the feature, starting at 1
+	 * @param code the code of the feature
+	 * @param value the value of the feature
+	 * @throws MaltChainedException
+	 */
+	public void addFeature(int position, int code, double value) throws MaltChainedException {
+		writeVarInt(((position - lastPosition) << 1) + 2);
+		writeVarInt((code << 1) ^ (code >> 31));
+		final long bits = Double.doubleToLongBits(value);
+		for (int shift = 56; shift >= 0; shift -= 8) {
+			write((int)(bits >>> shift));
+		}
+		lastPosition = position;
+		numberOfFeatures++;
+	}
+
+	/**
+	 * Ends the current instance
+	 *
+	 * @throws MaltChainedException
+	 */
+	public void endInstance() throws MaltChainedException {
+		write(0);
+		numberOfInstances++;
+	}
+
+	/**
+	 * Links the instances of another buffer to this buffer without copying them. The linked instances are read after the
+	 * instances of this buffer and of the buffers linked before, and the feature with the inserted code is inserted at the
+	 * inserted positions, in the same way as the divide feature is inserted when the instances of a divide model are moved to
+	 * the master model. The linked buffer belongs to this buffer afterwards and is cleared when this buffer is cleared.
+	 *
+	 * @param buffer the linked buffer, which cannot have linked buffers of its own
+	 * @param insertedPositions the sorted positions of the divide feature index vector
+	 * @param insertedCode the code of the inserted feature
+	 * @throws MaltChainedException
+	 */
+	public void link(InstanceBuffer buffer, int[] insertedPositions, int insertedCode) throws MaltChainedException {
+		if (buffer == this || !buffer.links.isEmpty()) {
+			throw new LibException("An instance buffer with linked instances cannot be linked to another instance buffer. ");
+		}
+		links.add(new Link(buffer, insertedPositions, insertedCode));
+	}
+
+	/**
+	 * Returns the number of instances in the buffer, including the linked instances
+	 *
+	 * @return the number of instances in the buffer
+	 */
+	public int getNumberOfInstances() {
+		int n = numberOfInstances;
+		for (int i = 0; i < links.size(); i++) {
+			n += links.get(i).buffer.numberOfInstances;
+		}
+		return n;
+	}
+
+	/**
+	 * Returns the number of stored features of all instances in the buffer. The inserted features of the linked instances
+	 * are estimated by the largest number of columns of the linked instances, so the number is an upper bound when the
+	 * instances of a linked buffer have a different number of columns.
+	 *
+	 * @return the number of stored features of all instances in the buffer
+	 */
+	public long getNumberOfFeatures() {
+		long n = numberOfFeatures;
+		for (int i = 0; i < links.size(); i++) {
+			final Link link = links.get(i);
+			n += link.buffer.numberOfFeatures + (long)link.buffer.numberOfInstances * link.getNumberOfInserted(link.buffer.maxNumberOfColumns);
+		}
+		return n;
+	}
+
+	/**
+	 * Returns the number of bytes of the encoded instances, including the linked instances
+	 *
+	 * @return the number of bytes of the encoded instances
+	 */
+	public long getSize() {
+		long n = size;
+		for (int i = 0; i < links.size(); i++) {
+			n += links.get(i).buffer.size;
+		}
+		return n;
+	}
+
+	/**
+	 * Returns <i>true</i> if the instances have been spilled to the spill file
+	 *
+	 * @return <i>true</i> if the instances have been spilled to the spill file
+	 */
+	public boolean isSpilled() {
+		return spillOutput != null;
+	}
+
+	/**
+	 * Returns a reader of the instances that have been added to the buffer, followed by the linked instances. More instances
+	 * can be added to the buffer after the reader has been created, but they are not read by the reader.
+	 *
+	 * @return a reader of the instances
+	 * @throws MaltChainedException
+	 */
+	public Reader getReader() throws MaltChainedException {
+		final ArrayList<Segment> segments = new ArrayList<Segment>(links.size() + 1);
+		segments.add(getSegment(null, -1));
+		for (int i = 0; i < links.size(); i++) {
+			final Link link = links.get(i);
+			segments.add(link.buffer.getSegment(link.insertedPositions, link.insertedCode));
+		}
+		return new Reader(segments);
+	}
+
+	/**
+	 * Returns a reader of the instances that have been added to the buffer, where the feature with the inserted code is
+	 * inserted at the inserted positions as in the linked instances (see link()). Linked instances are not read.
+	 *
+	 * @param insertedPositions the sorted positions of the divide feature index vector
+	 * @param insertedCode the code of the inserted feature
+	 * @return a reader of the instances
+	 * @throws MaltChainedException
+	 */
+	public Reader getReader(int[] insertedPositions, int insertedCode) throws MaltChainedException {
+		final ArrayList<Segment> segments = new ArrayList<Segment>(1);
+		segments.add(getSegment(insertedPositions, insertedCode));
+		return new Reader(segments);
+	}
+
+	/**
+	 * Writes the instances of the buffer, followed by the linked instances with the inserted features, to an output stream. The
+	 * number of instances is written first and the instances are written in the same encoding as in the buffer, so they can be 
+	 * added to another buffer by read().
+	 *
+	 * @param os the output stream, which is not closed
+	 * @throws MaltChainedException
+	 */
+	public void write(OutputStream os) throws MaltChainedException {
+		final Reader reader = getReader();
+		try {
+			writeVarInt(os, getNumberOfInstances());
+			while (reader.nextInstance()) {
+				writeVarInt(os, (reader.getDecisionCode() << 1) ^ (reader.getDecisionCode() >> 31));
+				writeVarInt(os, reader.getNumberOfColumns());
+				int last = 0;
+				while (reader.nextFeature()) {
+					writeVarInt(os, ((reader.getPosition() - last) << 1) + (reader.hasValue()?2:1));
+					writeVarInt(os, (reader.getCode() << 1) ^ (reader.getCode() >> 31));
+					if (reader.hasValue()) {
+						final long bits = Double.doubleToLongBits(reader.getValue());
+						for (int shift = 56; shift >= 0; shift -= 8) {
+							os.write((int)(bits >>> shift));
+						}
+					}
+					last = reader.getPosition();
+				}
+				os.write(0);
+			}
+		} catch (IOException e) {
+			throw new LibException("The learner cannot write the instances. ", e);
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Adds the instances that have been written by write() to the buffer
+	 *
+	 * @param is the input stream, which is not closed
+	 * @return the number of added instances
+	 * @throws MaltChainedException
+	 */
+	public int read(InputStream is) throws MaltChainedException {
+		try {
+			final int n = readVarInt(is);
+			for (int i = 0; i < n; i++) {
+				final int decision = readVarInt(is);
+				startInstance((decision >>> 1) ^ -(decision & 1), readVarInt(is));
+				int position = 0;
+				for (int header = readVarInt(is); header != 0; header = readVarInt(is)) {
+					position += (header - 1) >>> 1;
+					final int zigzag = readVarInt(is);
+					final int code = (zigzag >>> 1) ^ -(zigzag & 1);
+					if (((header - 1) & 1) != 0) {
+						long bits = 0;
+						for (int j = 0; j < 8; j++) {
+							bits = (bits << 8) | readByte(is);
+						}
+						addFeature(position, code, Double.longBitsToDouble(bits));
+					} else {
+						addFeature(position, code);
+					}
+				}
+				endInstance();
+			}
+			return n;
+		} catch (IOException e) {
+			throw new LibException("The learner cannot read the instances. ", e);
+		}
+	}
+
+	private static void writeVarInt(OutputStream os, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			os.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		os.write(value);
+	}
+
+	private static int readVarInt(InputStream is) throws IOException {
+		int b = readByte(is);
+		int result = b & 0x7F;
+		for (int shift = 7; (b & 0x80) != 0; shift += 7) {
+			b = readByte(is);
+			result |= (b & 0x7F) << shift;
+		}
+		return result;
+	}
+
+	private static int readByte(InputStream is) throws IOException {
+		final int b = is.read();
+		if (b == -1) {
+			throw new EOFException("The instances are truncated. ");
+		}
+		return b;
+	}
+
+	private Segment getSegment(int[] insertedPositions, int insertedCode) throws MaltChainedException {
+		if (spillOutput != null) {
+			try {
+				spillOutput.write(chunk, 0, chunkPosition);
+				spillOutput.flush();
+				chunkPosition = 0;
+				return new Segment(spillFile, size, insertedPositions, insertedCode);
+			} catch (IOException e) {
+				throw new LibException("The instance file '"+spillFile.getPath()+"' cannot be read. ", e);
+			}
+		}
+		final ArrayList<byte[]> readChunks = new ArrayList<byte[]>(chunks);
+		if (chunk != null) {
+			readChunks.add(chunk);
+		}
+		return new Segment(readChunks, size, insertedPositions, insertedCode);
+	}
+
+	/**
+	 * Removes all instances from the buffer, releases the memory and deletes the spill file
+	 *
+	 * @throws MaltChainedException
+	 */
+	public void clear() throws MaltChainedException {
+		for (int i = 0; i < links.size(); i++) {
+			links.get(i).buffer.clear();
+		}
+		links.clear();
+		if (spillOutput != null) {
+			try {
+				spillOutput.close();
+			} catch (IOException e) {
+				throw new LibException("The instance file '"+spillFile.getPath()+"' cannot be closed. ", e);
+			} finally {
+				spillOutput = null;
+				spillFile.delete();
+			}
+		}
+		if (chunk != null) {
+			memoryUsage.addAndGet(-(long)CHUNK_SIZE * (chunks.size() + 1));
+		}
+		chunks.clear();
+		chunk = null;
+		chunkPosition = 0;
+		size = 0;
+		numberOfInstances = 0;
+		numberOfFeatures = 0;
+		maxNumberOfColumns = 0;
+	}
+
+	private void writeVarInt(int value) throws MaltChainedException {
+		while ((value & ~0x7F) != 0) {
+			write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		write(value);
+	}
+
+	private void write(int b) throws MaltChainedException {
+		if (chunk == null || chunkPosition == CHUNK_SIZE) {
+			nextChunk();
+		}
+		chunk[chunkPosition++] = (byte)b;
+		size++;
+	}
+
+	private void nextChunk() throws MaltChainedException {
+		if (chunk == null) {
+			memoryUsage.addAndGet(CHUNK_SIZE);
+			chunk = new byte[CHUNK_SIZE];
+			chunkPosition = 0;
+			return;
+		}
+		try {
+			if (spillOutput == null && memoryUsage.get() + CHUNK_SIZE > memoryBudget) {
+				spillOutput = new BufferedOutputStream(new FileOutputStream(spillFile), CHUNK_SIZE);
+				for (byte[] c : chunks) {
+					spillOutput.write(c);
+				}
+				memoryUsage.addAndGet(-(long)CHUNK_SIZE * chunks.size());
+				chunks.clear();
+			}
+			if (spillOutput != null) {
+				spillOutput.write(chunk, 0, chunkPosition);
+			} else {
+				chunks.add(chunk);
+				memoryUsage.addAndGet(CHUNK_SIZE);
+				chunk = new byte[CHUNK_SIZE];
+			}
+			chunkPosition = 0;
+		} catch (IOException e) {
+			throw new LibException("The learner cannot write to the instance file '"+spillFile.getPath()+"'. ", e);
+		}
+	}
+
+	/**
+	 * A linked instance buffer and the feature that is inserted into its instances
+	 */
+	private static final class Link {
+		private final InstanceBuffer buffer;
+		private final int[] insertedPositions;
+		private final int insertedCode;
+
+		private Link(InstanceBuffer buffer, int[] insertedPositions, int insertedCode) {
+			this.buffer = buffer;
+			this.insertedPositions = insertedPositions;
+			this.insertedCode = insertedCode;
+		}
+
+		private int getNumberOfInserted(int numberOfColumns) {
+			if (insertedCode == -1) {
+				return 0;
+			}
+			int n = 0;
+			while (n < insertedPositions.length && insertedPositions[n] <= numberOfColumns) {
+				n++;
+			}
+			return n;
+		}
+	}
+
+	/**
+	 * The encoded instances of one buffer, which are read from memory or from the spill file. The spill file is opened
+	 * when the first instance of the segment is read.
+	 */
+	private static final class Segment {
+		private final ArrayList<byte[]> chunks;
+		private final File file;
+		private final int[] insertedPositions;
+		private final int insertedCode;
+		private InputStream input;
+		private long remaining;
+		private int chunkIndex;
+		private byte[] buffer;
+		private int position;
+		private int limit;
+
+		private Segment(ArrayList<byte[]> chunks, long size, int[] insertedPositions, int insertedCode) {
+			this.chunks = chunks;
+			this.file = null;
+			this.remaining = size;
+			this.insertedPositions = insertedPositions;
+			this.insertedCode = insertedCode;
+		}
+
+		private Segment(File file, long size, int[] insertedPositions, int insertedCode) {
+			this.chunks = null;
+			this.file = file;
+			this.remaining = size;
+			this.insertedPositions = insertedPositions;
+			this.insertedCode = insertedCode;
+		}
+
+		private boolean isEmpty() {
+			return position == limit && remaining == 0;
+		}
+
+		private int readVarInt() throws MaltChainedException {
+			int b = read();
+			int result = b & 0x7F;
+			for (int shift = 7; (b & 0x80) != 0; shift += 7) {
+				b = read();
+				result |= (b & 0x7F) << shift;
+			}
+			return result;
+		}
+
+		private int read() throws MaltChainedException {
+			if (position == limit) {
+				fill();
+			}
+			return buffer[position++] & 0xFF;
+		}
+
+		private void fill() throws MaltChainedException {
+			if (remaining == 0) {
+				throw new LibException("The instances are truncated. ");
+			}
+			if (file != null) {
+				try {
+					if (input == null) {
+						input = new BufferedInputStream(new FileInputStream(file), CHUNK_SIZE);
+						buffer = new byte[CHUNK_SIZE];
+					}
+					limit = input.read(buffer, 0, (int)Math.min(buffer.length, remaining));
+				} catch (IOException e) {
+					throw new LibException("The learner cannot read from the instance file. ", e);
+				}
+				if (limit <= 0) {
+					throw new LibException("The instance file is truncated. ");
+				}
+			} else {
+				buffer = chunks.get(chunkIndex++);
+				limit = (int)Math.min(buffer.length, remaining);
+			}
+			position = 0;
+			remaining -= limit;
+		}
+
+		private void close() throws MaltChainedException {
+			if (input != null) {
+				try {
+					input.close();
+				} catch (IOException e) {
+					throw new LibException("The instance file cannot be closed. ", e);
+				} finally {
+					input = null;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads the instances of an instance buffer one at a time
+	 */
+	public static final class Reader {
+		private final ArrayList<Segment> segments;
+		private int segmentIndex;
+		private Segment segment;
+		private int decisionCode;
+		private int numberOfColumns;
+		private int featurePosition;
+		private int code;
+		private boolean hasValue;
+		private double value;
+		/** The number of features that are inserted into the current instance and the number of them that have been read */
+		private int numberOfInserted;
+		private int inserted;
+		/** The next stored feature of the current instance, which is read ahead when features are inserted */
+		private boolean hasStoredFeature;
+		private boolean storedFeaturesRead;
+		private int storedPosition;
+		private int storedCode;
+		private boolean storedHasValue;
+		private double storedValue;
+
+		private Reader(ArrayList<Segment> segments) {
+			this.segments = segments;
+			this.segment = segments.get(0);
+			this.segmentIndex = 1;
+		}
+
+		/**
+		 * Moves to the next instance
+		 *
+		 * @return <i>true</i> if there is a next instance, otherwise <i>false</i>
+		 * @throws MaltChainedException
+		 */
+		public boolean nextInstance() throws MaltChainedException {
+			while (segment.isEmpty()) {
+				if (segmentIndex == segments.size()) {
+					return false;
+				}
+				segment.close();
+				segment = segments.get(segmentIndex++);
+			}
+			final int zigzag = segment.readVarInt();
+			decisionCode = (zigzag >>> 1) ^ -(zigzag & 1);
+			final int n = segment.readVarInt();
+			numberOfInserted = 0;
+			if (segment.insertedPositions != null) {
+				while (numberOfInserted < segment.insertedPositions.length && segment.insertedPositions[numberOfInserted] <= n) {
+					numberOfInserted++;
+				}
+			}
+			numberOfColumns = n + numberOfInserted;
+			inserted = 0;
+			hasStoredFeature = false;
+			storedFeaturesRead = false;
+			storedPosition = 0;
+			return true;
+		}
+
+		/**
+		 * Moves to the next feature of the current instance
+		 *
+		 * @return <i>true</i> if the instance has a next feature, otherwise <i>false</i>
+		 * @throws MaltChainedException
+		 */
+		public boolean nextFeature() throws MaltChainedException {
+			if (!hasStoredFeature && !storedFeaturesRead) {
+				hasStoredFeature = readStoredFeature();
+				storedFeaturesRead = !hasStoredFeature;
+			}
+			while (inserted < numberOfInserted && (!hasStoredFeature || segment.insertedPositions[inserted] < storedPosition)) {
+				featurePosition = segment.insertedPositions[inserted] + 1 + inserted;
+				inserted++;
+				if (segment.insertedCode != -1) {
+					code = segment.insertedCode;
+					hasValue = false;
+					value = 1;
+					return true;
+				}
+			}
+			if (!hasStoredFeature) {
+				return false;
+			}
+			hasStoredFeature = false;
+			featurePosition = storedPosition + inserted;
+			code = storedCode;
+			hasValue = storedHasValue;
+			value = storedValue;
+			return true;
+		}
+
+		private boolean readStoredFeature() throws MaltChainedException {
+			final int header = segment.readVarInt();
+			if (header == 0) {
+				return false;
+			}
+			storedPosition += (header - 1) >>> 1;
+			storedHasValue = ((header - 1) & 1) != 0;
+			final int zigzag = segment.readVarInt();
+			storedCode = (zigzag >>> 1) ^ -(zigzag & 1);
+			if (storedHasValue) {
+				long bits = 0;
+				for (int i = 0; i < 8; i++) {
+					bits = (bits << 8) | segment.read();
+				}
+				storedValue = Double.longBitsToDouble(bits);
+			} else {
+				storedValue = 1;
+			}
+			return true;
+		}
+
+		public int getDecisionCode() {
+			return decisionCode;
+		}
+
+		public int getNumberOfColumns() {
+			return numberOfColumns;
+		}
+
+		public int getPosition() {
+			return featurePosition;
+		}
+
+		public int getCode() {
+			return code;
+		}
+
+		public boolean hasValue() {
+			return hasValue;
+		}
+
+		/**
+		 * Returns the value of the current feature, which is 1 for binary features
+		 *
+		 * @return the value of the current feature
+		 */
+		public double getValue() {
+			return value;
+		}
+
+		/**
+		 * Closes the reader
+		 *
+		 * @throws MaltChainedException
+		 */
+		public void close() throws MaltChainedException {
+			segment.close();
+		}
+	}
+}
@@ -1,9 +1,11 @@
 package org.maltparser.ml.lib;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -14,20 +16,24 @@ import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 
 import java.io.OutputStreamWriter;
+import java.io.PrintStream;
 import java.util.ArrayList;
-
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.LinkedHashMap;
 import java.util.Set;
-import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
+import de.bwaldvogel.liblinear.SolverType;
 
+import org.maltparser.core.config.InstanceCache;
 import org.maltparser.core.exception.MaltChainedException;
 import org.maltparser.core.feature.FeatureVector;
 import org.maltparser.core.feature.function.FeatureFunction;
 import org.maltparser.core.feature.value.FeatureValue;
 import org.maltparser.core.feature.value.MultipleFeatureValue;
 import org.maltparser.core.feature.value.SingleFeatureValue;
+import org.maltparser.core.helper.NoPrintStream;
 import org.maltparser.core.syntaxgraph.DependencyStructure;
 import org.maltparser.ml.LearningMethod;
 import org.maltparser.ml.lib.FeatureMap;
@@ -48,12 +54,29 @@ public abstract class Lib implements LearningMethod {
 	private final int learnerMode;
 	private final String name;
 	protected final FeatureMap featureMap;
+	protected final FeatureHasher featureHasher;
+	/** The hashed indices that are used by the training instances, from which the number of distinct features is estimated */
+	private final BitSet hashedIndices;
 	private final boolean excludeNullValues;
 	private BufferedWriter instanceOutput = null; 
+	private InstanceBuffer instanceBuffer = null;
 	protected MaltLibModel model = null;
+	/** The global minimum frequency of a feature during training, features that occur fewer times are pruned */
+	private int featureCutoff = 0;
+	/** The minimum frequency of the features of each feature position, or zero if the global minimum frequency is used */
+	private int[] positionCutoffs = null;
+	/** The frequency of each feature in the training instances, only available during training when features are pruned */
+	private FeatureCounts featureFrequencies = null;
+	/** The frequency of each hashed index in the training instances, only available during training when features are pruned */
+	private int[] indexFrequencies = null;
 	
 	private int numberOfInstances;
 	
+	/** The number of learners that currently train with the standard streams redirected, shared by concurrently trained models */
+	private static int standardStreamRedirections;
+	private static PrintStream standardOut;
+	private static PrintStream standardErr;
+	
 	/**
 	 * Constructs a Lib learner.
 	 * 
@@ -76,13 +99,34 @@ public abstract class Lib implements LearningMethod {
 			excludeNullValues = false;
 		}
 
-		if (learnerMode == BATCH) {
+		featureHasher = FeatureHasher.getFeatureHasher(getConfiguration());
+		if (learnerMode == BATCH && featureHasher != null) {
+			featureMap = null;
+			hashedIndices = new BitSet(featureHasher.size() + 1);
+		} else if (learnerMode == BATCH && hasPreviousConfigFileEntry(".map")) {
+			// The feature map of the previous training is extended, so the feature indices of the previous model are kept. The 
+			// indices are compacted when the model is saved, but the feature counter is not always reset to the next free index.
+			featureMap = (FeatureMap)getConfigFileEntryObject(".map");
+			featureMap.setFeatureCounter(featureMap.size() + 1);
+			hashedIndices = null;
+		} else if (learnerMode == BATCH) {
 			featureMap = new FeatureMap();
-			instanceOutput = new BufferedWriter(getInstanceOutputStreamWriter(".ins"));
-		} else if (learnerMode == CLASSIFY) {
+			hashedIndices = null;
+		} else if (learnerMode == CLASSIFY && featureHasher == null) {
 			featureMap = (FeatureMap)getConfigFileEntryObject(".map");
+			hashedIndices = null;
 		} else {
 			featureMap = null;
+			hashedIndices = null;
+		}
+		if (learnerMode == BATCH) {
+			initFeatureCutoffs(getConfiguration().getOptionValue("lib", "feature_cutoff").toString().trim());
+			// The training instances are kept in a binary buffer, the text instance file is only written if it is saved in the configuration 
+			final long instanceMemory = 1024L * 1024L * ((Integer)getConfiguration().getOptionValue("lib", "instance_memory")).intValue();
+			instanceBuffer = new InstanceBuffer(getFile(".bins"), instanceMemory);
+			if (((Boolean)getConfiguration().getOptionValue("lib", "save_instance_files")).booleanValue()) {
+				instanceOutput = new BufferedWriter(getInstanceOutputStreamWriter(".ins"));
+			}
 		}
 	}
 	
@@ -93,6 +137,34 @@ public abstract class Lib implements LearningMethod {
 			throw new LibException("The decision cannot be found");
 		}	
 		
+		final int n = featureVector.size();
+		instanceBuffer.startInstance(decision.getDecisionCode(), n);
+		for (int i = 0; i < n; i++) {
+			final FeatureValue featureValue = featureVector.getFeatureValue(i);
+			if (featureValue == null || (excludeNullValues == true && featureValue.isNullValue())) {
+				continue;
+			}
+			if (!featureValue.isMultiple()) {
+				final SingleFeatureValue singleFeatureValue = (SingleFeatureValue)featureValue;
+				if (singleFeatureValue.getValue() == 1) {
+					instanceBuffer.addFeature(i+1, singleFeatureValue.getIndexCode());
+				} else if (singleFeatureValue.getValue() != 0) {
+					instanceBuffer.addFeature(i+1, singleFeatureValue.getIndexCode(), singleFeatureValue.getValue());
+				}
+			} else {
+				for (Integer value : ((MultipleFeatureValue)featureValue).getCodes()) {
+					instanceBuffer.addFeature(i+1, value);
+				}
+			}
+		}
+		instanceBuffer.endInstance();
+		if (instanceOutput != null) {
+			writeInstance(decision, featureVector);
+		}
+		increaseNumberOfInstances();
+	}
+	
+	private void writeInstance(SingleDecision decision, FeatureVector featureVector) throws MaltChainedException {
 		try {
 			final StringBuilder sb = new StringBuilder();
 			sb.append(decision.getDecisionCode()+"\t");
@@ -132,9 +204,6 @@ public abstract class Lib implements LearningMethod {
 			}
 			sb.append('\n');
 			instanceOutput.write(sb.toString());
-			instanceOutput.flush();
-			increaseNumberOfInstances();
-//			sb.setLength(0);
 		} catch (IOException e) {
 			throw new LibException("The learner cannot write to the instance file. ", e);
 		}
@@ -152,59 +221,59 @@ public abstract class Lib implements LearningMethod {
 			throw new LibException("The divide feature cannot be found. ");
 		} 
 		
+		// The divide feature is reinserted before the columns of the divide feature index vector
+		final int divideCode = ((SingleFeatureValue)divideFeature.getFeatureValue()).getIndexCode();
+		final int[] divideIndices = new int[divideFeatureIndexVector.size()];
+		for (int i = 0; i < divideIndices.length; i++) {
+			divideIndices[i] = divideFeatureIndexVector.get(i);
+		}
+		Arrays.sort(divideIndices);
+		final BufferedWriter targetOutput = (method instanceof Lib)?((Lib)method).instanceOutput:method.getInstanceWriter();
+		if (targetOutput != null) {
+			writeTextInstances(targetOutput, instanceBuffer.getReader(divideIndices, divideCode));
+		}
+		final int n = instanceBuffer.getNumberOfInstances();
+		for (int i = 0; i < n; i++) {
+			method.increaseNumberOfInstances();
+			this.decreaseNumberOfInstances();
+		}
+		if (method instanceof Lib && ((Lib)method).instanceBuffer != null) {
+			// The instances are not copied, the instance buffer is linked to the instance buffer of the target learner
+			((Lib)method).instanceBuffer.link(instanceBuffer, divideIndices, divideCode);
+		} else {
+			instanceBuffer.clear();
+		}
+		instanceBuffer = null;
 		try {
-			final BufferedReader in = new BufferedReader(getInstanceInputStreamReader(".ins"));
-			final BufferedWriter out = method.getInstanceWriter();
-			final StringBuilder sb = new StringBuilder(6);
-			int l = in.read();
-			char c;
-			int j = 0;
-	
-			while(true) {
-				if (l == -1) {
-					sb.setLength(0);
-					break;
-				}
-				c = (char)l; 
-				l = in.read();
-				if (c == '\t') {
-					if (divideFeatureIndexVector.contains(j-1)) {
-						out.write(Integer.toString(((SingleFeatureValue)divideFeature.getFeatureValue()).getIndexCode()));
-						out.write('\t');
-					}
-					out.write(sb.toString());
-					j++;
-					out.write('\t');
-					sb.setLength(0);
-				} else if (c == '\n') {
-					out.write(sb.toString());
-					if (divideFeatureIndexVector.contains(j-1)) {
-						out.write('\t');
-						out.write(Integer.toString(((SingleFeatureValue)divideFeature.getFeatureValue()).getIndexCode()));
-					}
-					out.write('\n');
-					sb.setLength(0);
-					method.increaseNumberOfInstances();
-					this.decreaseNumberOfInstances();
-					j = 0;
-				} else {
-					sb.append(c);
-				}
-			}	
-			in.close();
+			closeInstanceWriter();
 			getFile(".ins").delete();
-			out.flush();
 		} catch (SecurityException e) {
 			throw new LibException("The learner cannot remove the instance file. ", e);
-		} catch (NullPointerException  e) {
-			throw new LibException("The instance file cannot be found. ", e);
-		} catch (FileNotFoundException e) {
-			throw new LibException("The instance file cannot be found. ", e);
+		}
+	}
+	
+	/**
+	 * Writes the instances of a reader to a text instance file, for example the instances of this learner with the divide 
+	 * feature inserted to the text instance file of the learner that the instances are moved to.
+	 */
+	private void writeTextInstances(BufferedWriter targetOutput, InstanceBuffer.Reader reader) throws MaltChainedException {
+		final TextInstance textInstance = new TextInstance();
+		try {
+			while (reader.nextInstance()) {
+				textInstance.start(reader.getDecisionCode());
+				while (reader.nextFeature()) {
+					textInstance.add(reader.getPosition(), reader.getCode(), reader.hasValue(), reader.getValue());
+				}
+				targetOutput.write(textInstance.end(reader.getNumberOfColumns()));
+			}
+			targetOutput.flush();
 		} catch (IOException e) {
-			throw new LibException("The learner read from the instance file. ", e);
+			throw new LibException("The learner cannot write to the instance file. ", e);
+		} finally {
+			reader.close();
 		}
 	}
-
+	
 	public void noMoreInstances() throws MaltChainedException { 
 		closeInstanceWriter();
 	}
@@ -217,21 +286,24 @@ public abstract class Lib implements LearningMethod {
 			if (featureValue != null && !(excludeNullValues == true && featureValue.isNullValue())) {
 				if (!featureValue.isMultiple()) {
 					SingleFeatureValue singleFeatureValue = (SingleFeatureValue)featureValue;
-					final int index = featureMap.getIndex(i, singleFeatureValue.getIndexCode());
+					final int index = getFeatureIndex(i, singleFeatureValue.getIndexCode());
 					if (index != -1 && singleFeatureValue.getValue() != 0) {
-						featureList.add(index,singleFeatureValue.getValue());
+						featureList.add(index,getFeatureSign(i, singleFeatureValue.getIndexCode())*singleFeatureValue.getValue());
 					}
 				} 
 				else {
 					for (Integer value : ((MultipleFeatureValue)featureValue).getCodes()) {
-						final int v = featureMap.getIndex(i, value);
+						final int v = getFeatureIndex(i, value);
 						if (v != -1) {
-							featureList.add(v,1);
+							featureList.add(v,getFeatureSign(i, value));
 						}
 					}
 				} 
 			}
 		}
+		if (featureHasher != null) {
+			featureList.merge();
+		}
 		try {
 			decision.getKBestList().addList(model.predict(featureList.toArray()));
 		} catch (OutOfMemoryError e) {
@@ -272,37 +344,115 @@ public abstract class Lib implements LearningMethod {
 //		if (configLogger.isInfoEnabled()) {
 //			configLogger.info("\nStart training\n");
 //		}
-		if (pathExternalTrain != null) {
-			trainExternal(pathExternalTrain, libOptions);
-		} else {
-			trainInternal(libOptions);
+		final File cacheDirectory = getConfiguration().getInstanceCacheDirectory();
+		if (cacheDirectory != null && instanceBuffer != null) {
+			saveInstances(new File(cacheDirectory, owner.getModelName()+InstanceCache.INSTANCES_SUFFIX));
+		}
+		if (isFeaturePruning()) {
+			countFeatureFrequencies();
+		}
+		try {
+			if (pathExternalTrain != null) {
+				trainExternal(pathExternalTrain, libOptions);
+			} else {
+				trainInternal(libOptions);
+			}
+		} finally {
+			featureFrequencies = null;
+			indexFrequencies = null;
 		}
 //		long elapsed = System.currentTimeMillis() - startTime;
 //		if (configLogger.isInfoEnabled()) {
 //			configLogger.info("Time 1: " +new Formatter().format("%02d:%02d:%02d", elapsed/3600000, elapsed%3600000/60000, elapsed%60000/1000)+" ("+elapsed+" ms)\n");
 //		}
+		if (featureHasher != null) {
+			return;
+		}
 		try {
 //			if (configLogger.isInfoEnabled()) {
 //				configLogger.info("\nSaving feature map "+getFile(".map").getName()+"\n");
 //			}
-			saveFeatureMap(new BufferedOutputStream(new FileOutputStream(getFile(".map").getAbsolutePath())), featureMap);
+			if (isBinaryMcoFormat()) {
+				saveBinaryFeatureMap(new BufferedOutputStream(new FileOutputStream(getFile(".bmap").getAbsolutePath())), featureMap);
+			} else {
+				saveFeatureMap(new BufferedOutputStream(new FileOutputStream(getFile(".map").getAbsolutePath())), featureMap);
+			}
 		} catch (FileNotFoundException e) {
-			throw new LibException("The learner cannot save the feature map file '"+getFile(".map").getAbsolutePath()+"'. ", e);
+			throw new LibException("The learner cannot save the feature map file '"+getFile(isBinaryMcoFormat()?".bmap":".map").getAbsolutePath()+"'. ", e);
 		}
 //		elapsed = System.currentTimeMillis() - startTime;
 //		if (configLogger.isInfoEnabled()) {
 //			configLogger.info("Time 2: " +new Formatter().format("%02d:%02d:%02d", elapsed/3600000, elapsed%3600000/60000, elapsed%60000/1000)+" ("+elapsed+" ms)\n");
 //		}
 	}
+	/**
+	 * Writes the training instances to a file of the instance cache, so that a later training with the same data, feature model 
+	 * and algorithm options can read them by loadInstances() instead of parsing the training data again.
+	 * 
+	 * @param file the instance file
+	 * @throws MaltChainedException
+	 */
+	protected void saveInstances(File file) throws MaltChainedException {
+		try {
+			final OutputStream os = new BufferedOutputStream(new FileOutputStream(file));
+			try {
+				instanceBuffer.write(os);
+			} finally {
+				os.close();
+			}
+		} catch (IOException e) {
+			throw new LibException("The learner cannot save the instances in the instance cache file '"+file.getPath()+"'. ", e);
+		}
+	}
+	
+	/**
+	 * Adds the training instances of a file of the instance cache, which have been saved by a previous training.
+	 * 
+	 * @param file the instance file
+	 * @throws MaltChainedException
+	 */
+	public void loadInstances(File file) throws MaltChainedException {
+		if (instanceBuffer == null) {
+			throw new LibException("The learner cannot add the training instances of the instance cache file '"+file.getPath()+"'. ");
+		}
+		final int n;
+		try {
+			final InputStream is = new BufferedInputStream(new FileInputStream(file));
+			try {
+				n = instanceBuffer.read(is);
+			} finally {
+				is.close();
+			}
+		} catch (IOException e) {
+			throw new LibException("The learner cannot read the instance cache file '"+file.getPath()+"'. ", e);
+		}
+		for (int i = 0; i < n; i++) {
+			increaseNumberOfInstances();
+		}
+		if (instanceOutput != null) {
+			writeTextInstances(instanceOutput, instanceBuffer.getReader());
+		}
+	}
+	
 	protected abstract void trainExternal(String pathExternalTrain, LinkedHashMap<String, String> libOptions) throws MaltChainedException;
 	protected abstract void trainInternal(LinkedHashMap<String, String> libOptions) throws MaltChainedException;
 	
 	public void terminate() throws MaltChainedException { 
 		closeInstanceWriter();
+		if (instanceBuffer != null) {
+			instanceBuffer.clear();
+		}
 //		owner = null;
 //		model = null;
 	}
 
+	/**
+	 * Returns the writer of the text instance file, which only is written if the instance files are saved in the 
+	 * configuration (--lib-save_instance_files), otherwise <i>null</i>. The training instances are kept in a binary 
+	 * instance buffer.
+	 * 
+	 * @return the writer of the text instance file, or <i>null</i>
+	 */
 	public BufferedWriter getInstanceWriter() {
 		return instanceOutput;
 	}
@@ -342,20 +492,72 @@ public abstract class Lib implements LearningMethod {
 	}
 	
 	public int getNumberOfInstances() throws MaltChainedException {
-		if(numberOfInstances!=0)
-			return numberOfInstances;
-		else{
-			BufferedReader reader = new BufferedReader( getInstanceInputStreamReader(".ins"));
-			try {
-				while(reader.readLine()!=null){
-					numberOfInstances++;
-					owner.increaseFrequency();
-				}
-				reader.close();
-			} catch (IOException e) {
-				throw new MaltChainedException("No instances found in file",e);
-			}
-			return numberOfInstances;
+		return numberOfInstances;
+	}
+	
+	/**
+	 * Returns a rough estimate in bytes of the memory needed to train a model, which is based on the number of training 
+	 * instances and the number of active features of the instances.
+	 * 
+	 * @return an estimate in bytes of the memory needed to train a model, or 0 if the learner has no training instances
+	 */
+	public long getEstimatedTrainingMemory() {
+		if (instanceBuffer == null) {
+			return 0;
+		}
+		return 64L * instanceBuffer.getNumberOfInstances() + 32L * instanceBuffer.getNumberOfFeatures();
+	}
+	
+	/**
+	 * Redirects the standard output and error streams while the learning package trains a model. The streams are 
+	 * restored by restoreStandardStreams() when the last of the concurrently trained models is done.
+	 */
+	protected static synchronized void redirectStandardStreams() {
+		if (standardStreamRedirections++ == 0) {
+			standardOut = System.out;
+			standardErr = System.err;
+			System.setOut(NoPrintStream.NO_PRINTSTREAM);
+			System.setErr(NoPrintStream.NO_PRINTSTREAM);
+		}
+	}
+	
+	/**
+	 * Restores the standard output and error streams redirected by redirectStandardStreams()
+	 */
+	protected static synchronized void restoreStandardStreams() {
+		if (standardStreamRedirections > 0 && --standardStreamRedirections == 0) {
+			System.setOut(standardOut);
+			System.setErr(standardErr);
+			standardOut = null;
+			standardErr = null;
+		}
+	}
+	
+	/**
+	 * Returns a reader of the training instances
+	 * 
+	 * @return a reader of the training instances
+	 * @throws MaltChainedException
+	 */
+	protected InstanceBuffer.Reader getInstanceReader() throws MaltChainedException {
+		if (instanceBuffer == null) {
+			throw new LibException("The training instances cannot be found. ");
+		}
+		return instanceBuffer.getReader();
+	}
+	
+	/**
+	 * Removes the training instances from memory and deletes the instance files, except the text instance file if it should 
+	 * be saved in the configuration.
+	 * 
+	 * @throws MaltChainedException
+	 */
+	protected void removeInstances() throws MaltChainedException {
+		if (instanceBuffer != null) {
+			instanceBuffer.clear();
+		}
+		if (!((Boolean)getConfiguration().getOptionValue("lib", "save_instance_files")).booleanValue()) {
+			getFile(".ins").delete();
 		}
 	}
 
@@ -389,10 +591,102 @@ public abstract class Lib implements LearningMethod {
 		return getConfiguration().getFile(owner.getModelName()+getLearningMethodName()+suffix);
 	}
 	
+	/**
+	 * Returns <i>true</i> if the models and feature maps should be saved in the binary format of the mco format v2, 
+	 * otherwise <i>false</i>.
+	 * 
+	 * @return <i>true</i> if the models and feature maps should be saved in the binary format of the mco format v2
+	 * @throws MaltChainedException
+	 */
+	protected boolean isBinaryMcoFormat() throws MaltChainedException {
+		final Object mcoFormat = getConfiguration().getOptionValue("config", "mco_format");
+		return mcoFormat != null && mcoFormat.toString().equals("v2");
+	}
+	
 	protected Object getConfigFileEntryObject(String suffix) throws MaltChainedException {
 		return getConfiguration().getConfigFileEntryObject(owner.getModelName()+getLearningMethodName()+suffix);
 	}
 	
+	/**
+	 * Returns <i>true</i> if the training continues from an existing configuration (the flow chart <i>relearn</i>) and the 
+	 * configuration contains a file of the previous training of this learner.
+	 * 
+	 * @param suffix the suffix of the file
+	 * @return <i>true</i> if the file of the previous training can be read
+	 * @throws MaltChainedException
+	 */
+	protected boolean hasPreviousConfigFileEntry(String suffix) throws MaltChainedException {
+		return getConfiguration().getOptionValueString("config", "flowchart").equals("relearn") 
+			&& getConfiguration().hasConfigFileEntry(owner.getModelName()+getLearningMethodName()+suffix);
+	}
+	
+	/**
+	 * Returns the Liblinear model of the previous training of this learner, when the training continues from an existing 
+	 * configuration (the flow chart <i>relearn</i>). The method returns <i>null</i> if there is no previous model or if the 
+	 * previous model cannot be used as the starting point of the training. 
+	 * 
+	 * @return the previous Liblinear model or <i>null</i>
+	 * @throws MaltChainedException
+	 */
+	protected MaltLiblinearModel getPreviousModel() throws MaltChainedException {
+		if (!hasPreviousConfigFileEntry(".moo")) {
+			return null;
+		}
+		final Object object = getConfigFileEntryObject(".moo");
+		if (!(object instanceof MaltLiblinearModel)) {
+			return null;
+		}
+		final MaltLiblinearModel previous = (MaltLiblinearModel)object;
+		if (previous.getNrClass() == 2 && previous.getSolverType() != SolverType.MCSVM_CS) {
+			// A binary Liblinear model has only one weight vector, which cannot be shared out to the classes 
+			return null;
+		}
+		return previous;
+	}
+	
+	protected void logPreviousModel(MaltLiblinearModel previous) throws MaltChainedException {
+		if (getConfiguration().isLoggerInfoEnabled()) {
+			getConfiguration().logInfoMessage("- Continue from the weights of the previous model ("+previous.getNrFeature()+" features, "+previous.getNrClass()+" classes).\n");
+		}
+	}
+	
+	/**
+	 * Returns the weights of a previous Liblinear model arranged for the classes of a new training, where the weight of 
+	 * feature index <i>i</i> for class index <i>c</i> is found at (i - 1) * number of classes + c. Classes and features that are 
+	 * unknown to the previous model get the weight zero. 
+	 * 
+	 * @param previous the previous Liblinear model
+	 * @param labels the labels of the classes in the order of the class indices
+	 * @param numberOfFeatures the number of features
+	 * @return the previous weights
+	 */
+	protected static double[] getPreviousWeights(MaltLiblinearModel previous, int[] labels, int numberOfFeatures) {
+		final int[] previousLabels = previous.getLabels();
+		final int[] classIndices = new int[previousLabels.length];
+		for (int j = 0; j < previousLabels.length; j++) {
+			classIndices[j] = -1;
+			for (int c = 0; c < labels.length; c++) {
+				if (labels[c] == previousLabels[j]) {
+					classIndices[j] = c;
+					break;
+				}
+			}
+		}
+		final int numberOfClasses = labels.length;
+		final double[] weights = new double[numberOfFeatures * numberOfClasses];
+		for (int i = 1; i <= numberOfFeatures; i++) {
+			final double[] row = previous.getFeatureWeights(i);
+			if (row != null) {
+				for (int j = 0; j < row.length && j < classIndices.length; j++) {
+					if (classIndices[j] != -1) {
+						weights[(i - 1) * numberOfClasses + classIndices[j]] = row[j];
+					}
+				}
+			}
+		}
+		return weights;
+	}
+	
 	public String[] getLibParamStringArray(LinkedHashMap<String, String> libOptions) {
 		final ArrayList<String> params = new ArrayList<String>();
 
@@ -458,64 +752,348 @@ public abstract class Lib implements LearningMethod {
 		return sb.toString();
 	}
 
-	protected int binariesInstance(String line, FeatureList featureList) throws MaltChainedException {
-		final Pattern tabPattern = Pattern.compile("\t");
-		final Pattern pipePattern = Pattern.compile("\\|");
-		int y = -1; 
+	/**
+	 * Reads the features of the current instance of the reader into the feature list and returns the decision code of the 
+	 * instance. During learning the features are added to the feature map.
+	 * 
+	 * @param reader a reader of the training instances, positioned at an instance
+	 * @param featureList the feature list
+	 * @return the decision code of the instance
+	 * @throws MaltChainedException
+	 */
+	protected int binariesInstance(InstanceBuffer.Reader reader, FeatureList featureList) throws MaltChainedException {
 		featureList.clear();
-		try {	
-			String[] columns = tabPattern.split(line);
-
-			if (columns.length == 0) {
-				return -1;
+		while (reader.nextFeature()) {
+			final int j = reader.getPosition();
+			final int code = reader.getCode();
+			final int index = addFeatureIndex(j, code);
+			if (index == -1) {
+				continue;
+			} else if (reader.hasValue()) {
+				featureList.add(index,getFeatureSign(j, code)*reader.getValue());
+			} else {
+				featureList.add(index,getFeatureSign(j, code));
 			}
-			try {
-				y = Integer.parseInt(columns[0]);
-			} catch (NumberFormatException e) {
-				throw new LibException("The instance file contain a non-integer value '"+columns[0]+"'", e);
-			}
-			for(int j = 1; j < columns.length; j++) {
-				final String[] items = pipePattern.split(columns[j]);
-				for (int k = 0; k < items.length; k++) {
-					try {
-						int colon = items[k].indexOf(':');
-						if (colon == -1) {
-							if (Integer.parseInt(items[k]) != -1) {
-								int v = featureMap.addIndex(j, Integer.parseInt(items[k]));
-								if (v != -1) {
-									featureList.add(v,1);
-								}
-							}
-						} else {
-							int index = featureMap.addIndex(j, Integer.parseInt(items[k].substring(0,colon)));
-							double value;
-							if (items[k].substring(colon+1).indexOf('.') != -1) {
-								value = Double.parseDouble(items[k].substring(colon+1));
-							} else {
-								value = Integer.parseInt(items[k].substring(colon+1));
-							}
-							featureList.add(index,value);
+		}
+		if (featureHasher != null) {
+			featureList.merge();
+		}
+		return reader.getDecisionCode();
+	}
+	
+	/**
+	 * Reads the features of a feature vector into the feature list in the same way as binariesInstance() reads the features 
+	 * of a buffered instance, so that features that are seen for the first time get a new feature index.
+	 * 
+	 * @param featureVector a feature vector
+	 * @param featureList the feature list is cleared and filled with the features of the feature vector
+	 * @throws MaltChainedException
+	 */
+	protected void binariesFeatureVector(FeatureVector featureVector, FeatureList featureList) throws MaltChainedException {
+		featureList.clear();
+		final int n = featureVector.size();
+		for (int i = 0; i < n; i++) {
+			final FeatureValue featureValue = featureVector.getFeatureValue(i);
+			if (featureValue == null || (excludeNullValues == true && featureValue.isNullValue())) {
+				continue;
+			}
+			if (!featureValue.isMultiple()) {
+				final SingleFeatureValue singleFeatureValue = (SingleFeatureValue)featureValue;
+				final int code = singleFeatureValue.getIndexCode();
+				final int index = addFeatureIndex(i+1, code);
+				if (singleFeatureValue.getValue() == 1) {
+					if (index != -1) {
+						featureList.add(index, getFeatureSign(i+1, code));
+					}
+				} else if (singleFeatureValue.getValue() != 0 && index != -1) {
+					featureList.add(index, getFeatureSign(i+1, code)*singleFeatureValue.getValue());
+				}
+			} else {
+				for (Integer code : ((MultipleFeatureValue)featureValue).getCodes()) {
+					final int index = addFeatureIndex(i+1, code);
+					if (index != -1) {
+						featureList.add(index, getFeatureSign(i+1, code));
+					}
+				}
+			}
+		}
+		if (featureHasher != null) {
+			featureList.merge();
+		}
+	}
+	
+	/**
+	 * Reads all training instances into a sparse problem in one pass. The features are binarized in the same way as by 
+	 * binariesInstance(), but they are stored directly in the primitive arrays of the problem instead of in feature nodes. 
+	 * Instances with the decision code -1 are skipped.
+	 * 
+	 * @return the sparse problem of the training instances
+	 * @throws MaltChainedException
+	 */
+	protected SparseProblem readSparseProblem() throws MaltChainedException {
+		if (instanceBuffer == null) {
+			throw new LibException("The training instances cannot be found. ");
+		}
+		final SparseProblem problem = new SparseProblem(instanceBuffer.getNumberOfInstances(), instanceBuffer.getNumberOfFeatures());
+		final InstanceBuffer.Reader reader = getInstanceReader();
+		try {
+			while (reader.nextInstance()) {
+				problem.startRow(reader.getDecisionCode());
+				while (reader.nextFeature()) {
+					final int j = reader.getPosition();
+					final int code = reader.getCode();
+					final int index = addFeatureIndex(j, code);
+					if (index == -1) {
+						continue;
+					} else if (reader.hasValue()) {
+						problem.add(index, getFeatureSign(j, code)*reader.getValue());
+					} else {
+						problem.add(index, getFeatureSign(j, code));
+					}
+				}
+				if (reader.getDecisionCode() == -1) {
+					problem.cancelRow();
+				} else {
+					problem.endRow(featureHasher != null);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		problem.setNumberOfColumns(getNumberOfFeatureIndices());
+		return problem;
+	}
+	
+	/**
+	 * Returns the index of a feature during learning. If feature hashing is used the index is the hashed index, otherwise 
+	 * the feature is added to the feature map.
+	 * 
+	 * @param featurePosition a position in the column-based feature vector
+	 * @param code a symbol code
+	 * @return the index value
+	 */
+	protected int addFeatureIndex(int featurePosition, int code) {
+		if (featureHasher == null) {
+			if (featureFrequencies != null && featureFrequencies.get(getFeatureKey(featurePosition, code)) < getFeatureCutoff(featurePosition)) {
+				// A pruned feature only keeps the index that it got by a previous training of the configuration
+				return featureMap.getIndex(featurePosition, code);
+			}
+			return featureMap.addIndex(featurePosition, code);
+		}
+		final int index = featureHasher.getIndex(featurePosition, code);
+		if (indexFrequencies != null && indexFrequencies[index] < featureCutoff) {
+			// A pruned index gets no weight, so the features that are hashed into it are also ignored during parsing
+			return -1;
+		}
+		if (hashedIndices != null) {
+			hashedIndices.set(index);
+		}
+		return index;
+	}
+	
+	/**
+	 * Returns the index of a feature during classification. 
+	 * 
+	 * @param featurePosition a position in the column-based feature vector
+	 * @param code a symbol code
+	 * @return the index value if it exists, otherwise -1
+	 */
+	protected int getFeatureIndex(int featurePosition, int code) {
+		if (featureHasher == null) {
+			return featureMap.getIndex(featurePosition, code);
+		}
+		return featureHasher.getIndex(featurePosition, code);
+	}
+	
+	/**
+	 * Reads the minimum feature frequencies of the option --lib-feature_cutoff, which is a comma-separated list where 
+	 * a number is the global minimum frequency and <i>position:frequency</i> is the minimum frequency of the features of 
+	 * a feature position (starting at 1 in the order of the feature model), for example <i>2,1:5,7:1</i>. With feature hashing 
+	 * the features are pruned by the frequency of their hashed index, which is shared by the features of all positions, so 
+	 * only the global minimum frequency can be given.
+	 * 
+	 * @param cutoffs the value of the option --lib-feature_cutoff
+	 * @throws MaltChainedException
+	 */
+	private void initFeatureCutoffs(String cutoffs) throws MaltChainedException {
+		if (cutoffs.length() == 0) {
+			return;
+		}
+		try {
+			for (String item : cutoffs.split(",")) {
+				final int colon = item.indexOf(':');
+				if (colon == -1) {
+					featureCutoff = Integer.parseInt(item.trim());
+					continue;
+				}
+				if (featureHasher != null) {
+					throw new LibException("The option --lib-feature_cutoff '"+cutoffs+"' cannot have minimum frequencies of feature positions when the features are hashed (--lib-hash_bits). ");
+				}
+				final int position = Integer.parseInt(item.substring(0, colon).trim());
+				final int cutoff = Integer.parseInt(item.substring(colon + 1).trim());
+				if (position < 1 || position > 0xFFFF) {
+					throw new LibException("The feature position '"+position+"' of the option --lib-feature_cutoff is not valid. ");
+				}
+				if (positionCutoffs == null || positionCutoffs.length <= position) {
+					positionCutoffs = (positionCutoffs == null)?new int[position + 1]:Arrays.copyOf(positionCutoffs, position + 1);
+				}
+				// The minimum frequency 1 keeps all features of the position, also when there is a global minimum frequency
+				positionCutoffs[position] = Math.max(cutoff, 1);
+			}
+		} catch (NumberFormatException e) {
+			throw new LibException("The option --lib-feature_cutoff '"+cutoffs+"' is not a list of minimum frequencies. ", e);
+		}
+	}
+	
+	/**
+	 * @return <i>true</i> if features that occur too few times in the training instances are pruned
+	 */
+	protected boolean isFeaturePruning() {
+		if (featureCutoff > 1) {
+			return true;
+		}
+		if (positionCutoffs != null) {
+			for (int i = 0; i < positionCutoffs.length; i++) {
+				if (positionCutoffs[i] > 1) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	private int getFeatureCutoff(int featurePosition) {
+		if (positionCutoffs != null && featurePosition < positionCutoffs.length && positionCutoffs[featurePosition] != 0) {
+			return positionCutoffs[featurePosition];
+		}
+		return featureCutoff;
+	}
+	
+	private static long getFeatureKey(int featurePosition, int code) {
+		return (((long)featurePosition) << 48) | (long)code;
+	}
+	
+	/**
+	 * Counts the frequency of each feature in the training instances before the problem is built, so that features 
+	 * that occur fewer times than the minimum frequency never get a feature index. With feature hashing the frequency 
+	 * of each hashed index is counted instead, and the indices that occur fewer times are pruned. The number of distinct 
+	 * features, or used indices, before and after the pruning is logged.
+	 * 
+	 * @throws MaltChainedException
+	 */
+	private void countFeatureFrequencies() throws MaltChainedException {
+		final InstanceBuffer.Reader reader = getInstanceReader();
+		try {
+			if (featureHasher == null) {
+				featureFrequencies = new FeatureCounts();
+			} else {
+				indexFrequencies = new int[featureHasher.size() + 1];
+			}
+			while (reader.nextInstance()) {
+				if (reader.getDecisionCode() == -1) {
+					while (reader.nextFeature()) { }
+					continue;
+				}
+				while (reader.nextFeature()) {
+					if (featureHasher == null) {
+						featureFrequencies.increment(getFeatureKey(reader.getPosition(), reader.getCode()));
+					} else {
+						final int index = featureHasher.getIndex(reader.getPosition(), reader.getCode());
+						if (indexFrequencies[index] != Integer.MAX_VALUE) {
+							indexFrequencies[index]++;
 						}
-					} catch (NumberFormatException e) {
-						throw new LibException("The instance file contain a non-numeric value '"+items[k]+"'", e);
 					}
 				}
 			}
-		} catch (ArrayIndexOutOfBoundsException e) {
-			throw new LibException("Couln't read from the instance file. ", e);
+		} catch (OutOfMemoryError e) {
+			throw new LibException("Out of memory. Please increase the Java heap size (-Xmx<size>). ", e);
+		} finally {
+			reader.close();
+		}
+		if (getConfiguration().isLoggerInfoEnabled()) {
+			int n = 0;
+			int frequent = 0;
+			if (featureHasher == null) {
+				n = featureFrequencies.size();
+				for (int i = 0; i < featureFrequencies.capacity(); i++) {
+					if (featureFrequencies.getCount(i) != 0 
+							&& featureFrequencies.getCount(i) >= getFeatureCutoff((int)(featureFrequencies.getKey(i) >>> 48))) {
+						frequent++;
+					}
+				}
+			} else {
+				for (int i = 0; i < indexFrequencies.length; i++) {
+					if (indexFrequencies[i] != 0) {
+						n++;
+						if (indexFrequencies[i] >= featureCutoff) {
+							frequent++;
+						}
+					}
+				}
+			}
+			final StringBuilder sb = new StringBuilder();
+			sb.append("- Feature pruning: ");
+			sb.append(frequent);
+			sb.append(" of ");
+			sb.append(n);
+			sb.append((featureHasher == null)?" distinct features":" used hashed indices");
+			sb.append(" occur at least the minimum frequency (");
+			sb.append(String.format("%.2f", (n == 0)?0.0:100.0*(n-frequent)/n));
+			sb.append("% pruned)\n");
+			getConfiguration().logInfoMessage(sb.toString());
 		}
-		return y;
+	}
+	
+	protected int getFeatureSign(int featurePosition, int code) {
+		return (featureHasher == null)?1:featureHasher.getSign(featurePosition, code);
+	}
+	
+	/**
+	 * @return the number of feature indices that the learner should allocate
+	 */
+	protected int getNumberOfFeatureIndices() {
+		return (featureHasher == null)?featureMap.size():featureHasher.size();
+	}
+	
+	/**
+	 * Logs how many of the distinct features seen during learning that share a hashed index with another feature.
+	 * 
+	 * @throws MaltChainedException
+	 */
+	protected void logFeatureHashingStatistics() throws MaltChainedException {
+		if (hashedIndices == null || !getConfiguration().isLoggerInfoEnabled()) {
+			return;
+		}
+		// The distinct features are not kept, their number is estimated from the used indices by linear counting, 
+		// -m * ln(1 - used / m), which assumes that the hash function spreads the features uniformly
+		final int size = featureHasher.size();
+		final int nIndices = hashedIndices.cardinality();
+		final StringBuilder sb = new StringBuilder();
+		sb.append("- Feature hashing: ");
+		sb.append(nIndices);
+		sb.append(" of ");
+		sb.append(size);
+		sb.append(" indices used");
+		if (nIndices < size) {
+			final double nFeatures = -size * Math.log(1.0 - (double)nIndices / size);
+			sb.append(" by about ");
+			sb.append(Math.round(nFeatures));
+			sb.append(" distinct features (estimated collision rate ");
+			sb.append(String.format("%.2f", (nIndices == 0)?0.0:100.0*(nFeatures-nIndices)/nFeatures));
+			sb.append("%)\n");
+		} else {
+			sb.append(", the hash space is full (increase --lib-hash_bits)\n");
+		}
+		getConfiguration().logInfoMessage(sb.toString());
 	}
 
-	protected void binariesInstances2SVMFileFormat(InputStreamReader isr, OutputStreamWriter osw) throws MaltChainedException {
+	protected void binariesInstances2SVMFileFormat(OutputStreamWriter osw) throws MaltChainedException {
+		final InstanceBuffer.Reader reader = getInstanceReader();
 		try {
-			final BufferedReader in = new BufferedReader(isr);
 			final BufferedWriter out = new BufferedWriter(osw);
 			final FeatureList featureSet = new FeatureList();
-			while(true) {
-				String line = in.readLine();
-				if(line == null) break;
-				int y = binariesInstance(line, featureSet);
+			while (reader.nextInstance()) {
+				int y = binariesInstance(reader, featureSet);
 				if (y == -1) {
 					continue;
 				}
@@ -530,12 +1108,11 @@ public abstract class Lib implements LearningMethod {
 				}
 				out.write('\n');
 			}			
-			in.close();	
 			out.close();
-		} catch (NumberFormatException e) {
-			throw new LibException("The instance file contain a non-numeric value", e);
 		} catch (IOException e) {
-			throw new LibException("Couldn't read from the instance file, when converting the Malt instances into LIBSVM/LIBLINEAR format. ", e);
+			throw new LibException("Couldn't write the instances in LIBSVM/LIBLINEAR format. ", e);
+		} finally {
+			reader.close();
 		}
 	}
 	
@@ -553,6 +1130,20 @@ public abstract class Lib implements LearningMethod {
 		}
 	}
 
+	protected void saveBinaryFeatureMap(OutputStream os, FeatureMap map) throws MaltChainedException {
+		try {
+		    DataOutputStream output = new DataOutputStream(os);
+	        try{
+	          map.write(output);
+	        }
+	        finally{
+	          output.close();
+	        }
+		} catch (IOException e) {
+			throw new LibException("Save feature map error", e);
+		}
+	}
+
 	protected FeatureMap loadFeatureMap(InputStream is) throws MaltChainedException {
 		FeatureMap map = new FeatureMap();
 		try {
@@ -569,4 +1160,52 @@ public abstract class Lib implements LearningMethod {
 		}
 		return map;
 	}
+
+	/**
+	 * Formats an instance in the format of the text instance files, which is used when the instances of a learner are 
+	 * moved to a learner that writes a text instance file.
+	 */
+	private static final class TextInstance {
+		private final StringBuilder sb = new StringBuilder();
+		private int column;
+		
+		public void start(int decisionCode) {
+			sb.setLength(0);
+			sb.append(decisionCode);
+			sb.append('\t');
+			column = 0;
+		}
+		
+		public void add(int position, int code, boolean hasValue, double value) {
+			if (!hasValue && code == -1) {
+				return;
+			}
+			if (position == column) {
+				sb.append('|');
+			} else {
+				closeColumns(position);
+			}
+			sb.append(code);
+			if (hasValue) {
+				sb.append(':');
+				sb.append(value);
+			}
+		}
+		
+		public String end(int numberOfColumns) {
+			closeColumns(numberOfColumns + 1);
+			sb.append('\n');
+			return sb.toString();
+		}
+		
+		private void closeColumns(int position) {
+			if (column > 0) {
+				sb.append('\t');
+			}
+			for (int c = column + 1; c < position; c++) {
+				sb.append("-1\t");
+			}
+			column = position;
+		}
+	}
 }
@@ -1,14 +1,16 @@
 package org.maltparser.ml.lib;
 
 import java.io.BufferedOutputStream;
-import java.io.BufferedReader;
+import java.io.DataOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.ObjectOutputStream;
-import java.io.PrintStream;
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.WeakHashMap;
 
 import de.bwaldvogel.liblinear.FeatureNode;
 import de.bwaldvogel.liblinear.Linear;
@@ -19,7 +21,7 @@ import de.bwaldvogel.liblinear.SolverType;
 
 import org.maltparser.core.config.Configuration;
 import org.maltparser.core.exception.MaltChainedException;
-import org.maltparser.core.helper.NoPrintStream;
+import org.maltparser.core.helper.HashMap;
 import org.maltparser.core.helper.Util;
 import org.maltparser.ml.lib.FeatureList;
 import org.maltparser.ml.lib.MaltLiblinearModel;
@@ -28,9 +30,17 @@ import org.maltparser.ml.lib.LibException;
 import org.maltparser.parser.guide.instance.InstanceModel;
 
 public class LibLinear extends Lib {
+	/** The start seed of the random generator of LIBLINEAR */
+	private static final long RANDOM_SEED = 0L;
+	/** The configurations for which it is logged that the models are trained by the LIBLINEAR package one at a time */
+	private static final Map<Configuration, Boolean> sequentialTrainingLogged = Collections.synchronizedMap(new WeakHashMap<Configuration, Boolean>());
 	
 	public LibLinear(InstanceModel owner, Integer learnerMode) throws MaltChainedException {
-		super(owner, learnerMode, "liblinear");
+		this(owner, learnerMode, "liblinear");
+	}
+	
+	protected LibLinear(InstanceModel owner, Integer learnerMode, String learningMethodName) throws MaltChainedException {
+		super(owner, learnerMode, learningMethodName);
 		if (learnerMode == CLASSIFY) {
 			model = (MaltLibModel)getConfigFileEntryObject(".moo");
 		}
@@ -47,30 +57,73 @@ public class LibLinear extends Lib {
 		int nr_class = 0;
 		int nr_feature = 0;
 		Parameter parameter = getLiblinearParameters(libOptions);
+		// The multi-class SVM by Crammer and Singer is trained by the in-tree solver directly from the primitive arrays of 
+		// the instances, the other solvers of the LIBLINEAR package need a feature node object for each active feature
+		final boolean inTreeSolver = parameter.getSolverType() == SolverType.MCSVM_CS;
 		try {	
-			Problem problem = readProblem(getInstanceInputStreamReader(".ins"));
-			boolean res = checkProblem(problem);
-			if (res == false) {
-				throw new LibException("Abort (The number of training instances * the number of classes) > "+Integer.MAX_VALUE+" and this is not supported by LibLinear. ");
-			}
-			if (config.isLoggerInfoEnabled()) {
-				config.logInfoMessage("- Train a parser model using LibLinear.\n");
-			}
-			final PrintStream out = System.out;
-			final PrintStream err = System.err;
-			System.setOut(NoPrintStream.NO_PRINTSTREAM);
-			System.setErr(NoPrintStream.NO_PRINTSTREAM);
-			Model model = Linear.train(problem, parameter);
-			System.setOut(err);
-			System.setOut(out);
-			problem = null;
-			wmodel = model.getFeatureWeights();
-			labels = model.getLabels();
-			nr_class = model.getNrClass();
-			nr_feature = model.getNrFeature();
-			boolean saveInstanceFiles = ((Boolean)getConfiguration().getOptionValue("lib", "save_instance_files")).booleanValue();
-			if (!saveInstanceFiles) {
-				getFile(".ins").delete();
+			if (inTreeSolver) {
+				SparseProblem problem = readSparseProblem();
+				removeInstances();
+				logFeatureHashingStatistics();
+				if (problem.getMaxLabel() * problem.getNumberOfRows() < 0) { // max_y * l > Integer.MAX_VALUE
+					if (config.isLoggerInfoEnabled()) {
+						config.logInfoMessage("*** Abort (The number of training instances * the number of classes) > Max array size: ("+problem.getNumberOfRows()+" * "+problem.getMaxLabel()+") > "+Integer.MAX_VALUE+" and this is not supported by LibLinear.\n");
+					}
+					throw new LibException("Abort (The number of training instances * the number of classes) > "+Integer.MAX_VALUE+" and this is not supported by LibLinear. ");
+				}
+				if (config.isLoggerInfoEnabled()) {
+					config.logInfoMessage("- Train a parser model using LibLinear.\n");
+				}
+				final MulticlassSvmSolver solver = new MulticlassSvmSolver(problem, parameter.getC(), parameter.getEps());
+				final MaltLiblinearModel previous = getPreviousModel();
+				if (previous != null) {
+					final int[] classLabels = problem.getClassLabels(previous.getLabels());
+					solver.setInitialModel(classLabels, getPreviousWeights(previous, classLabels, problem.getNumberOfColumns()));
+					logPreviousModel(previous);
+				}
+				// Every model gets a random generator of its own with the start seed of LIBLINEAR, so the model doesn't 
+				// depend on the models trained before it or concurrently with it
+				solver.train(new Random(RANDOM_SEED));
+				problem = null;
+				wmodel = solver.getWeights();
+				labels = solver.getLabels();
+				nr_class = solver.getNumberOfClasses();
+				nr_feature = solver.getNumberOfFeatures();
+			} else {
+				Problem problem = readProblem();
+				removeInstances();
+				logFeatureHashingStatistics();
+				boolean res = checkProblem(problem);
+				if (res == false) {
+					throw new LibException("Abort (The number of training instances * the number of classes) > "+Integer.MAX_VALUE+" and this is not supported by LibLinear. ");
+				}
+				if (config.isLoggerInfoEnabled()) {
+					if (hasPreviousConfigFileEntry(".moo")) {
+						config.logInfoMessage("- The solver type cannot continue from the previous model, the model is trained from the instances only.\n");
+					}
+					config.logInfoMessage("- Train a parser model using LibLinear.\n");
+				}
+				if (((Integer)config.getOptionValue("guide", "train_threads")).intValue() != 1 
+						&& sequentialTrainingLogged.put(config, Boolean.TRUE) == null && config.isLoggerInfoEnabled()) {
+					config.logInfoMessage("- The models of the liblinear type (-s) "+libOptions.get("s")+" are trained one at a time, only the type 4 is trained concurrently (--guide-train_threads).\n");
+				}
+				Model model = null;
+				// The random generator of the LIBLINEAR package is shared by all models, so the models are trained by 
+				// LIBLINEAR one at a time and the random generator is restarted from the start seed before each model
+				synchronized (Linear.class) {
+					redirectStandardStreams();
+					try {
+						Linear.resetRandom();
+						model = Linear.train(problem, parameter);
+					} finally {
+						restoreStandardStreams();
+					}
+				}
+				problem = null;
+				wmodel = model.getFeatureWeights();
+				labels = model.getLabels();
+				nr_class = model.getNrClass();
+				nr_feature = model.getNrFeature();
 			}
 		} catch (OutOfMemoryError e) {
 			throw new LibException("Out of memory. Please increase the Java heap size (-Xmx<size>). ", e);
@@ -81,7 +134,21 @@ public class LibLinear extends Lib {
 		} catch (NegativeArraySizeException e) {
 			throw new LibException("(The number of training instances * the number of classes) > "+Integer.MAX_VALUE+" and this is not supported by LibLinear.", e);
 		}
-		
+		saveLiblinearModel(wmodel, labels, nr_class, nr_feature, parameter.getSolverType());
+	}
+	
+	/**
+	 * Converts the trained weights into a weight matrix with shared rows and saves it as a Liblinear model.
+	 * 
+	 * @param wmodel the weights, where the weight of feature index <i>i</i> for class index <i>c</i> is found at (i - 1) * nr_class + c
+	 * @param labels the labels of the classes
+	 * @param nr_class the number of classes
+	 * @param nr_feature the number of features
+	 * @param solverType the solver type that trained the weights
+	 * @throws MaltChainedException
+	 */
+	protected void saveLiblinearModel(double[] wmodel, int[] labels, int nr_class, int nr_feature, SolverType solverType) throws MaltChainedException {
+		final Configuration config = getConfiguration();
 		if (config.isLoggerInfoEnabled()) {
 			config.logInfoMessage("- Optimize the memory usage\n");
 		}
@@ -90,22 +157,17 @@ public class LibLinear extends Lib {
 //			System.out.println("Nr Features:" +  nr_feature);
 //			System.out.println("nr_class:" + nr_class);
 //			System.out.println("wmodel.length:" + wmodel.length);		
-			double[][] wmatrix = convert2(wmodel, nr_class, nr_feature);
-			xmodel = new MaltLiblinearModel(labels, nr_class, wmatrix.length, wmatrix, parameter.getSolverType());
+			double[][] wmatrix = (featureHasher == null)?convert2(wmodel, nr_class, nr_feature):convertHashed(wmodel, nr_class, nr_feature);
+			xmodel = new MaltLiblinearModel(labels, nr_class, wmatrix.length, wmatrix, solverType);
 			if (config.isLoggerInfoEnabled()) {
-				config.logInfoMessage("- Save the Liblinear model "+getFile(".moo").getName()+"\n");
+				config.logInfoMessage("- Save the Liblinear model "+getFile(isBinaryMcoFormat()?".bmo":".moo").getName()+"\n");
 			}
 		} catch (OutOfMemoryError e) {
 			throw new LibException("Out of memory. Please increase the Java heap size (-Xmx<size>). ", e);
 		}			
 		try {
 			if (xmodel != null) {
-			    ObjectOutputStream output = new ObjectOutputStream (new BufferedOutputStream(new FileOutputStream(getFile(".moo").getAbsolutePath())));
-		        try{
-		          output.writeObject(xmodel);
-		        } finally {
-		          output.close();
-		        }
+				saveModel(xmodel);
 			}
 		} catch (OutOfMemoryError e) {
 			throw new LibException("Out of memory. Please increase the Java heap size (-Xmx<size>). ", e);
@@ -118,6 +180,31 @@ public class LibLinear extends Lib {
 		}
 	}
 	
+	/**
+	 * Saves the model as a serialized object (.moo) or, in the mco format v2, in the binary format of MaltLiblinearModel (.bmo).
+	 * 
+	 * @param xmodel the liblinear model
+	 * @throws IOException
+	 * @throws MaltChainedException
+	 */
+	private void saveModel(MaltLiblinearModel xmodel) throws IOException, MaltChainedException {
+		if (isBinaryMcoFormat()) {
+			final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(getFile(".bmo").getAbsolutePath())));
+			try {
+				xmodel.write(output);
+			} finally {
+				output.close();
+			}
+		} else {
+		    final ObjectOutputStream output = new ObjectOutputStream (new BufferedOutputStream(new FileOutputStream(getFile(".moo").getAbsolutePath())));
+	        try{
+	          output.writeObject(xmodel);
+	        } finally {
+	          output.close();
+	        }
+		}
+	}
+	
     private double[][] convert2(double[] w, int nr_class, int nr_feature) {
         int[] wlength = new int[nr_feature];
         int nr_nfeature = 0;
@@ -198,6 +285,39 @@ public class LibLinear extends Lib {
         return wmatrix;
     }
     
+    /**
+     * Converts the weight vector into a weight matrix without remapping the feature indices, because hashed indices
+     * are fixed. Features with only zero weights get a null row, and rows that are equal share the same array.
+     */
+    private double[][] convertHashed(double[] w, int nr_class, int nr_feature) {
+        double[][] wmatrix = new double[nr_feature][];
+        HashMap<Long, double[]> signatures = new HashMap<Long, double[]>();
+        for (int i = 0; i < nr_feature; i++) {
+        	int k = nr_class;
+        	while (k > 0 && w[i * nr_class + k - 1] == 0.0) {
+        		k--;
+        	}
+        	if (k == 0) {
+        		continue;
+        	}
+        	double[] copy = new double[k];
+        	System.arraycopy(w, i * nr_class, copy, 0, k);
+        	double signature = 0;
+        	for (int j=0; j<copy.length; j++) signature += copy[j];
+        	Long key = Double.doubleToLongBits(signature);
+        	double[] other = signatures.get(key);
+        	if (other != null && Util.equals(copy, other)) {
+        		wmatrix[i] = other;
+        	} else {
+        		if (other == null) {
+        			signatures.put(key, copy);
+        		}
+        		wmatrix[i] = copy;
+        	}
+        }
+        return wmatrix;
+    }
+    
     public static boolean eliminate(double[] a) {
     	if (a.length == 0) {
     		return true;
@@ -216,7 +336,8 @@ public class LibLinear extends Lib {
 			if (config.isLoggerInfoEnabled()) {
 				config.logInfoMessage("Creating liblinear model (external) "+getFile(".mod").getName());
 			}
-			binariesInstances2SVMFileFormat(getInstanceInputStreamReader(".ins"), getInstanceOutputStreamWriter(".ins.tmp"));
+			binariesInstances2SVMFileFormat(getInstanceOutputStreamWriter(".ins.tmp"));
+			removeInstances();
 			final String[] params = getLibParamStringArray(libOptions);
 			String[] arrayCommands = new String[params.length+3];
 			int i = 0;
@@ -250,18 +371,11 @@ public class LibLinear extends Lib {
 	        in.close();
 	        err.close();
 			if (config.isLoggerInfoEnabled()) {
-				config.logInfoMessage("\nSaving Liblinear model "+getFile(".moo").getName()+"\n");
+				config.logInfoMessage("\nSaving Liblinear model "+getFile(isBinaryMcoFormat()?".bmo":".moo").getName()+"\n");
 			}
-			MaltLiblinearModel xmodel = new MaltLiblinearModel(getFile(".mod"));
-		    ObjectOutputStream output = new ObjectOutputStream (new BufferedOutputStream(new FileOutputStream(getFile(".moo").getAbsolutePath())));
-	        try{
-	          output.writeObject(xmodel);
-	        } finally {
-	          output.close();
-	        }
+			saveModel(new MaltLiblinearModel(getFile(".mod")));
 	        boolean saveInstanceFiles = ((Boolean)getConfiguration().getOptionValue("lib", "save_instance_files")).booleanValue();
 	        if (!saveInstanceFiles) {
-				getFile(".ins").delete();
 				getFile(".mod").delete();
 				getFile(".ins.tmp").delete();
 	        }
@@ -298,25 +412,22 @@ public class LibLinear extends Lib {
 		return "sceB";
 	}
 	
-	private Problem readProblem(InputStreamReader isr) throws MaltChainedException {
+	private Problem readProblem() throws MaltChainedException {
 		Problem problem = new Problem();
 		final FeatureList featureList = new FeatureList();
 		if (getConfiguration().isLoggerInfoEnabled()) {
 			getConfiguration().logInfoMessage("- Read all training instances.\n");
 		}
+		final InstanceBuffer.Reader reader = getInstanceReader();
 		try {
-			final BufferedReader fp = new BufferedReader(isr);
-			
 			problem.bias = -1;
 			problem.l = getNumberOfInstances();
 			problem.x = new FeatureNode[problem.l][];
 			problem.y = new int[problem.l];
 			int i = 0;
 			
-			while(true) {
-				String line = fp.readLine();
-				if(line == null) break;
-				int y = binariesInstance(line, featureList);
+			while (reader.nextInstance()) {
+				int y = binariesInstance(reader, featureList);
 				if (y == -1) {
 					continue;
 				}
@@ -330,14 +441,13 @@ public class LibLinear extends Lib {
 					}
 					i++;
 				} catch (ArrayIndexOutOfBoundsException e) {
-					throw new LibException("Couldn't read liblinear problem from the instance file. ", e);
+					throw new LibException("Couldn't read liblinear problem from the instances. ", e);
 				}
 
 			}
-			fp.close();
-			problem.n = featureMap.size();
-		} catch (IOException e) {
-			throw new LibException("Cannot read from the instance file. ", e);
+			problem.n = getNumberOfFeatureIndices();
+		} finally {
+			reader.close();
 		}
 		
 		return problem;
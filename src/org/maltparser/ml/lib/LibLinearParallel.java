@@ -0,0 +1,93 @@
+package org.maltparser.ml.lib;
+
+import java.util.LinkedHashMap;
+
+import de.bwaldvogel.liblinear.SolverType;
+
+import org.maltparser.core.config.Configuration;
+import org.maltparser.core.exception.MaltChainedException;
+import org.maltparser.parser.guide.instance.InstanceModel;
+
+/**
+ * A linear learner that trains one-vs-rest linear SVMs by the in-tree OneVsRestSolver, where the binary classifiers of
+ * the classes are trained concurrently. The trained model is saved as a Liblinear model, so it is used in the same
+ * way as a model trained by the LIBLINEAR learner during parsing.
+ */
+public class LibLinearParallel extends LibLinear {
+
+	public LibLinearParallel(InstanceModel owner, Integer learnerMode) throws MaltChainedException {
+		super(owner, learnerMode, "liblinearparallel");
+		if (learnerMode == BATCH) {
+			// The solver type is checked before any instances are collected
+			final LinkedHashMap<String, String> libOptions = getDefaultLibOptions();
+			parseParameters(getConfiguration().getOptionValue("lib", "options").toString(), libOptions, getAllowedLibOptionFlags());
+			getSolverType(libOptions);
+		}
+	}
+
+	protected void trainInternal(LinkedHashMap<String, String> libOptions) throws MaltChainedException {
+		final Configuration config = getConfiguration();
+		if (config.isLoggerInfoEnabled()) {
+			config.logInfoMessage("Creating Liblinear model "+getFile(".moo").getName()+"\n");
+		}
+		final SolverType solverType = getSolverType(libOptions);
+		final double cost;
+		final double eps;
+		try {
+			cost = Double.valueOf(libOptions.get("c")).doubleValue();
+		} catch (NumberFormatException e) {
+			throw new LibException("The liblinear cost (-c) value is not numerical value. ", e);
+		}
+		try {
+			eps = Double.valueOf(libOptions.get("e")).doubleValue();
+		} catch (NumberFormatException e) {
+			throw new LibException("The liblinear epsilon (-e) value is not numerical value. ", e);
+		}
+		int numberOfThreads = ((Integer)config.getOptionValue("lib", "solver_threads")).intValue();
+		if (numberOfThreads <= 0) {
+			numberOfThreads = Runtime.getRuntime().availableProcessors();
+		}
+		OneVsRestSolver solver = null;
+		try {
+			SparseProblem problem = readSparseProblem();
+			removeInstances();
+			logFeatureHashingStatistics();
+			if (config.isLoggerInfoEnabled()) {
+				config.logInfoMessage("- Train a parser model using "+numberOfThreads+" solver thread(s).\n");
+			}
+			solver = new OneVsRestSolver(problem, cost, eps, solverType == SolverType.L2R_L1LOSS_SVC_DUAL);
+			final MaltLiblinearModel previous = getPreviousModel();
+			if (previous != null) {
+				final int[] classLabels = problem.getClassLabels(previous.getLabels());
+				solver.setInitialModel(classLabels, getPreviousWeights(previous, classLabels, problem.getNumberOfColumns()));
+				logPreviousModel(previous);
+			}
+			solver.train(numberOfThreads);
+			problem = null;
+		} catch (OutOfMemoryError e) {
+			throw new LibException("Out of memory. Please increase the Java heap size (-Xmx<size>). ", e);
+		} catch (SecurityException e) {
+			throw new LibException("The Liblinear learner cannot remove the instance file. ", e);
+		}
+		saveLiblinearModel(solver.getWeights(), solver.getLabels(), solver.getNumberOfClasses(), solver.getNumberOfFeatures(), solverType);
+	}
+
+	private SolverType getSolverType(LinkedHashMap<String, String> libOptions) throws MaltChainedException {
+		final String type = libOptions.get("s");
+		if (type.equals("1")) {
+			return SolverType.L2R_L2LOSS_SVC_DUAL;
+		} else if (type.equals("3")) {
+			return SolverType.L2R_L1LOSS_SVC_DUAL;
+		}
+		throw new LibException("The liblinearparallel learner only supports the liblinear types (-s) 1 and 3. ");
+	}
+
+	public LinkedHashMap<String, String> getDefaultLibOptions() {
+		LinkedHashMap<String, String> libOptions = new LinkedHashMap<String, String>();
+		libOptions.put("s", "1"); // type = SolverType.L2R_L2LOSS_SVC_DUAL (default)
+		libOptions.put("c", "0.1"); // cost = 0.1 (default)
+		libOptions.put("e", "0.1"); // epsilon = 0.1 (default)
+		libOptions.put("B", "-1"); // bias = -1 (default)
+		return libOptions;
+	}
+}
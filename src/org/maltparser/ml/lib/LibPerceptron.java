@@ -0,0 +1,276 @@
+package org.maltparser.ml.lib;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+import de.bwaldvogel.liblinear.SolverType;
+
+import org.maltparser.core.config.Configuration;
+import org.maltparser.core.exception.MaltChainedException;
+import org.maltparser.core.feature.FeatureVector;
+import org.maltparser.core.feature.function.FeatureFunction;
+import org.maltparser.core.helper.HashMap;
+import org.maltparser.ml.LearningMethod;
+import org.maltparser.parser.guide.instance.InstanceModel;
+import org.maltparser.parser.history.action.SingleDecision;
+
+/**
+ * An online learner that trains a multi-class averaged perceptron. The first epoch is learned while the instances are
+ * added by the oracle, the following epochs read the instances from the binary instance buffer. The averaged weights are
+ * saved as a Liblinear model, so the model is used in the same way as a model trained by the LIBLINEAR learner during
+ * parsing.
+ * <p>
+ * The weights are kept in flat arrays, where the weight of feature index <i>i</i> for class index <i>c</i> is found at
+ * (i - 1) * class capacity + c. If the instances of the learner are moved to or from another learner (by a divide model),
+ * the weights of the first epoch are discarded and all epochs are learned from the instance buffer. The same is done when
+ * features are pruned by their frequency, because the frequencies are only known when all instances have been added. When the training
+ * continues from an existing configuration, the weights start from the weights of the previous model.
+ */
+public class LibPerceptron extends LibLinear {
+	private final FeatureList featureList;
+	/** The class index of each label (decision code) */
+	private final HashMap<Integer, Integer> classIndices;
+	private int[] labels;
+	private int numberOfClasses;
+	private int classCapacity;
+	private int featureCapacity;
+	private double[] weights;
+	/** The sum of the updates of the weights, each multiplied with the number of the instance that caused it */
+	private double[] totals;
+	private double[] scores;
+	/** The number of the current instance, starting at 1 */
+	private int counter;
+	/** The number of instances that have been learned online during the first epoch */
+	private int onlineInstances;
+	/** The model of the previous training that the weights start from, when the training continues from an existing configuration */
+	private final MaltLiblinearModel previousModel;
+
+	public LibPerceptron(InstanceModel owner, Integer learnerMode) throws MaltChainedException {
+		super(owner, learnerMode, "perceptron");
+		if (learnerMode == BATCH) {
+			featureList = new FeatureList();
+			classIndices = new HashMap<Integer, Integer>();
+			previousModel = getPreviousModel();
+			reset();
+		} else {
+			featureList = null;
+			classIndices = null;
+			previousModel = null;
+		}
+	}
+
+	private void reset() {
+		classIndices.clear();
+		labels = new int[16];
+		numberOfClasses = 0;
+		classCapacity = 16;
+		featureCapacity = 256;
+		weights = new double[featureCapacity * classCapacity];
+		totals = new double[featureCapacity * classCapacity];
+		scores = new double[classCapacity];
+		counter = 1;
+		onlineInstances = 0;
+		if (previousModel != null) {
+			final int[] previousLabels = previousModel.getLabels();
+			for (int j = 0; j < previousLabels.length; j++) {
+				getClassIndex(previousLabels[j]);
+			}
+			final int n = previousModel.getNrFeature();
+			ensureFeatureCapacity(n);
+			final double[] previousWeights = getPreviousWeights(previousModel, previousLabels, n);
+			for (int i = 0; i < n; i++) {
+				System.arraycopy(previousWeights, i * numberOfClasses, weights, i * classCapacity, numberOfClasses);
+			}
+		}
+	}
+
+	public void addInstance(SingleDecision decision, FeatureVector featureVector) throws MaltChainedException {
+		super.addInstance(decision, featureVector);
+		if (onlineInstances != getNumberOfInstances() - 1 || isFeaturePruning()) {
+			// Instances have been moved to or from this learner, or the features are pruned by their frequency in all 
+			// instances, so all epochs are learned from the instance buffer
+			return;
+		}
+		if (decision.getDecisionCode() != -1) {
+			binariesFeatureVector(featureVector, featureList);
+			try {
+				update(decision.getDecisionCode(), featureList);
+			} catch (OutOfMemoryError e) {
+				throw new LibException("Out of memory. Please increase the Java heap size (-Xmx<size>). ", e);
+			}
+		}
+		onlineInstances++;
+	}
+
+	/**
+	 * Predicts the class of an instance by the current weights and updates the weights if the prediction is wrong.
+	 *
+	 * @param label the correct label (decision code) of the instance
+	 * @param features the features of the instance
+	 */
+	private void update(int label, FeatureList features) {
+		final int y = getClassIndex(label);
+		final int n = features.size();
+		for (int k = 0; k < n; k++) {
+			ensureFeatureCapacity(features.get(k).getIndex());
+		}
+		for (int c = 0; c < numberOfClasses; c++) {
+			scores[c] = 0;
+		}
+		for (int k = 0; k < n; k++) {
+			final MaltFeatureNode x = features.get(k);
+			final int offset = (x.getIndex() - 1) * classCapacity;
+			final double value = x.getValue();
+			for (int c = 0; c < numberOfClasses; c++) {
+				scores[c] += weights[offset + c] * value;
+			}
+		}
+		int predicted = 0;
+		for (int c = 1; c < numberOfClasses; c++) {
+			if (scores[c] > scores[predicted]) {
+				predicted = c;
+			}
+		}
+		if (predicted != y) {
+			for (int k = 0; k < n; k++) {
+				final MaltFeatureNode x = features.get(k);
+				final int offset = (x.getIndex() - 1) * classCapacity;
+				final double value = x.getValue();
+				weights[offset + y] += value;
+				weights[offset + predicted] -= value;
+				totals[offset + y] += counter * value;
+				totals[offset + predicted] -= counter * value;
+			}
+		}
+		counter++;
+	}
+
+	private int getClassIndex(int label) {
+		final Integer classIndex = classIndices.get(label);
+		if (classIndex != null) {
+			return classIndex.intValue();
+		}
+		if (numberOfClasses == classCapacity) {
+			final int newCapacity = 2 * classCapacity;
+			weights = resize(weights, classCapacity, newCapacity, featureCapacity);
+			totals = resize(totals, classCapacity, newCapacity, featureCapacity);
+			final int[] newLabels = new int[newCapacity];
+			System.arraycopy(labels, 0, newLabels, 0, numberOfClasses);
+			labels = newLabels;
+			scores = new double[newCapacity];
+			classCapacity = newCapacity;
+		}
+		labels[numberOfClasses] = label;
+		classIndices.put(label, numberOfClasses);
+		return numberOfClasses++;
+	}
+
+	private void ensureFeatureCapacity(int index) {
+		if (index <= featureCapacity) {
+			return;
+		}
+		int newCapacity = featureCapacity;
+		while (newCapacity < index) {
+			newCapacity *= 2;
+		}
+		final double[] newWeights = new double[newCapacity * classCapacity];
+		System.arraycopy(weights, 0, newWeights, 0, weights.length);
+		weights = newWeights;
+		final double[] newTotals = new double[newCapacity * classCapacity];
+		System.arraycopy(totals, 0, newTotals, 0, totals.length);
+		totals = newTotals;
+		featureCapacity = newCapacity;
+	}
+
+	private static double[] resize(double[] a, int oldClassCapacity, int newClassCapacity, int featureCapacity) {
+		final double[] b = new double[featureCapacity * newClassCapacity];
+		for (int i = 0; i < featureCapacity; i++) {
+			System.arraycopy(a, i * oldClassCapacity, b, i * newClassCapacity, oldClassCapacity);
+		}
+		return b;
+	}
+
+	public void moveAllInstances(LearningMethod method, FeatureFunction divideFeature, ArrayList<Integer> divideFeatureIndexVector) throws MaltChainedException {
+		super.moveAllInstances(method, divideFeature, divideFeatureIndexVector);
+		reset();
+	}
+
+	protected void trainInternal(LinkedHashMap<String, String> libOptions) throws MaltChainedException {
+		final Configuration config = getConfiguration();
+		if (config.isLoggerInfoEnabled()) {
+			config.logInfoMessage("Creating Liblinear model "+getFile(".moo").getName()+"\n");
+		}
+		final int epochs = ((Integer)config.getOptionValue("lib", "perceptron_epochs")).intValue();
+		if (epochs < 1) {
+			throw new LibException("The number of perceptron epochs (--lib-perceptron_epochs) must be at least 1. ");
+		}
+		double[] wmodel = null;
+		int nr_feature = 0;
+		try {
+			int epoch = 1;
+			if (onlineInstances != getNumberOfInstances()) {
+				reset();
+				epoch = 0;
+			}
+			if (config.isLoggerInfoEnabled()) {
+				config.logInfoMessage("- Train a parser model using the averaged perceptron ("+epochs+" epochs).\n");
+			}
+			if (previousModel != null) {
+				logPreviousModel(previousModel);
+			}
+			for (; epoch < epochs; epoch++) {
+				final InstanceBuffer.Reader reader = getInstanceReader();
+				try {
+					while (reader.nextInstance()) {
+						final int y = binariesInstance(reader, featureList);
+						if (y != -1) {
+							update(y, featureList);
+						}
+					}
+				} finally {
+					reader.close();
+				}
+			}
+			removeInstances();
+			logFeatureHashingStatistics();
+			if (numberOfClasses == 0) {
+				throw new LibException("The perceptron learner cannot train a model without training instances. ");
+			}
+			// The averaged weights are the weights minus the sum of the weighted updates divided by the number of instances
+			nr_feature = getNumberOfFeatureIndices();
+			wmodel = new double[nr_feature * numberOfClasses];
+			for (int i = 0; i < nr_feature && i < featureCapacity; i++) {
+				for (int c = 0; c < numberOfClasses; c++) {
+					wmodel[i * numberOfClasses + c] = weights[i * classCapacity + c] - totals[i * classCapacity + c] / counter;
+				}
+			}
+			weights = null;
+			totals = null;
+		} catch (OutOfMemoryError e) {
+			throw new LibException("Out of memory. Please increase the Java heap size (-Xmx<size>). ", e);
+		} catch (SecurityException e) {
+			throw new LibException("The perceptron learner cannot remove the instance file. ", e);
+		}
+		final int[] classLabels = new int[numberOfClasses];
+		System.arraycopy(labels, 0, classLabels, 0, numberOfClasses);
+		// The solver type of Crammer and Singer is used because it keeps one weight vector per class also for two classes
+		saveLiblinearModel(wmodel, classLabels, numberOfClasses, nr_feature, SolverType.MCSVM_CS);
+	}
+
+	protected void trainExternal(String pathExternalTrain, LinkedHashMap<String, String> libOptions) throws MaltChainedException {
+		// There is no external trainer of the perceptron, the option --lib-external is ignored
+		trainInternal(libOptions);
+	}
+
+	public LinkedHashMap<String, String> getDefaultLibOptions() {
+		return new LinkedHashMap<String, String>();
+	}
+
+	public String getAllowedLibOptionFlags() {
+		return "";
+	}
+
+	public long getEstimatedTrainingMemory() {
+		return super.getEstimatedTrainingMemory() + ((weights == null)?0:16L * weights.length);
+	}
+}
@@ -1,19 +1,15 @@
 package org.maltparser.ml.lib;
 
 import java.io.BufferedOutputStream;
-import java.io.BufferedReader;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.ObjectOutputStream;
-import java.io.PrintStream;
 
 import java.util.LinkedHashMap;
 
 import org.maltparser.core.config.Configuration;
 import org.maltparser.core.exception.MaltChainedException;
-import org.maltparser.core.helper.NoPrintStream;
 import org.maltparser.ml.lib.FeatureList;
 import org.maltparser.ml.lib.MaltLibModel;
 import org.maltparser.ml.lib.MaltLibsvmModel;
@@ -39,7 +35,9 @@ public class LibSvm extends Lib {
 	
 	protected void trainInternal(LinkedHashMap<String, String> libOptions) throws MaltChainedException {
 		try {
-			final svm_problem prob = readProblem(getInstanceInputStreamReader(".ins"), libOptions);
+			final svm_problem prob = readProblem(libOptions);
+			removeInstances();
+			logFeatureHashingStatistics();
 			final svm_parameter param = getLibSvmParameters(libOptions);
 			if(svm.svm_check_parameter(prob, param) != null) {
 				throw new LibException(svm.svm_check_parameter(prob, param));
@@ -49,23 +47,19 @@ public class LibSvm extends Lib {
 			if (config.isLoggerInfoEnabled()) {
 				config.logInfoMessage("Creating LIBSVM model "+getFile(".moo").getName()+"\n");
 			}
-			final PrintStream out = System.out;
-			final PrintStream err = System.err;
-			System.setOut(NoPrintStream.NO_PRINTSTREAM);
-			System.setErr(NoPrintStream.NO_PRINTSTREAM);
-			svm_model model = svm.svm_train(prob, param);
-			System.setOut(err);
-			System.setOut(out);
+			svm_model model = null;
+			redirectStandardStreams();
+			try {
+				model = svm.svm_train(prob, param);
+			} finally {
+				restoreStandardStreams();
+			}
 		    ObjectOutputStream output = new ObjectOutputStream (new BufferedOutputStream(new FileOutputStream(getFile(".moo").getAbsolutePath())));
 	        try{
 	          output.writeObject(new MaltLibsvmModel(model, prob));
 	        } finally {
 	          output.close();
 	        }
-	        boolean saveInstanceFiles = ((Boolean)getConfiguration().getOptionValue("lib", "save_instance_files")).booleanValue();
-			if (!saveInstanceFiles) {
-				getFile(".ins").delete();
-			}
 		} catch (OutOfMemoryError e) {
 			throw new LibException("Out of memory. Please increase the Java heap size (-Xmx<size>). ", e);
 		} catch (IllegalArgumentException e) {
@@ -79,13 +73,14 @@ public class LibSvm extends Lib {
 	
 	protected void trainExternal(String pathExternalTrain, LinkedHashMap<String, String> libOptions) throws MaltChainedException {
 		try {		
-			binariesInstances2SVMFileFormat(getInstanceInputStreamReader(".ins"), getInstanceOutputStreamWriter(".ins.tmp"));
+			binariesInstances2SVMFileFormat(getInstanceOutputStreamWriter(".ins.tmp"));
 			Configuration config = getConfiguration();
 			
 			if (config.isLoggerInfoEnabled()) {
 				config.logInfoMessage("Creating learner model (external) "+getFile(".mod").getName());
 			}
-			final svm_problem prob = readProblem(getInstanceInputStreamReader(".ins"), libOptions);
+			final svm_problem prob = readProblem(libOptions);
+			removeInstances();
 			final String[] params = getLibParamStringArray(libOptions);
 			String[] arrayCommands = new String[params.length+3];
 			int i = 0;
@@ -128,7 +123,6 @@ public class LibSvm extends Lib {
 		    }
 	        boolean saveInstanceFiles = ((Boolean)getConfiguration().getOptionValue("lib", "save_instance_files")).booleanValue();
 	        if (!saveInstanceFiles) {
-				getFile(".ins").delete();
 				getFile(".mod").delete();
 				getFile(".ins.tmp").delete();
 	        }
@@ -194,22 +188,19 @@ public class LibSvm extends Lib {
 		return param;
 	}
 	
-	private svm_problem readProblem(InputStreamReader isr, LinkedHashMap<String, String> libOptions) throws MaltChainedException {
+	private svm_problem readProblem(LinkedHashMap<String, String> libOptions) throws MaltChainedException {
 		final svm_problem problem = new svm_problem();
 		final svm_parameter param = getLibSvmParameters(libOptions);
 		final FeatureList featureList = new FeatureList();
+		final InstanceBuffer.Reader reader = getInstanceReader();
 		try {
-			final BufferedReader fp = new BufferedReader(isr);
-			
 			problem.l = getNumberOfInstances();
 			problem.x = new svm_node[problem.l][];
 			problem.y = new double[problem.l];
 			int i = 0;
 			
-			while(true) {
-				String line = fp.readLine();
-				if(line == null) break;
-				int y = binariesInstance(line, featureList);
+			while (reader.nextInstance()) {
+				int y = binariesInstance(reader, featureList);
 				if (y == -1) {
 					continue;
 				}
@@ -226,15 +217,14 @@ public class LibSvm extends Lib {
 					}
 					i++;
 				} catch (ArrayIndexOutOfBoundsException e) {
-					throw new LibException("Couldn't read libsvm problem from the instance file. ", e);
+					throw new LibException("Couldn't read libsvm problem from the instances. ", e);
 				}
 			}
-			fp.close();	
 			if (param.gamma == 0) {
-				param.gamma = 1.0/featureMap.getFeatureCounter();
+				param.gamma = 1.0/(getNumberOfFeatureIndices()+1);
 			}
-		} catch (IOException e) {
-			throw new LibException("Couldn't read libsvm problem from the instance file. ", e);
+		} finally {
+			reader.close();
 		}
 		return problem;
 	}
@@ -3,4 +3,6 @@ package org.maltparser.ml.lib;
 public interface MaltLibModel {
 	public int[] predict(MaltFeatureNode[] x);
 	public int predict_one(MaltFeatureNode[] x);
+	/** Returns a rough estimate of the number of bytes used by the model */
+	public long getMemoryUsage();
 }
@@ -1,6 +1,7 @@
 package org.maltparser.ml.lib;
 
 import java.io.BufferedReader;
+import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
@@ -10,8 +11,10 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Reader;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.regex.Pattern;
 
 import org.maltparser.core.helper.Util;
@@ -47,6 +50,11 @@ public class MaltLiblinearModel implements Serializable, MaltLibModel {
     	this.solverType = solverType;	
     }
     
+    private MaltLiblinearModel(int[] labels, int nr_class, int nr_feature, double[][] w, SolverType solverType, double bias) {
+    	this(labels, nr_class, nr_feature, w, solverType);
+    	this.bias = bias;
+    }
+    
     public MaltLiblinearModel(Reader inputReader) throws IOException {
     	loadModel(inputReader);
     }
@@ -74,6 +82,18 @@ public class MaltLiblinearModel implements Serializable, MaltLibModel {
         return Util.copyOf(labels, nr_class);
     }
 
+    /**
+    * Returns the weights of a feature index in the order of the labels. Trailing zero weights
+    * are trimmed and a feature without weights returns <i>null</i>, the returned array is
+    * shared by the model and should not be modified.
+    *
+    * @param index the feature index (starting at 1)
+    * @return the weights of the feature index or <i>null</i>
+    */
+    public double[] getFeatureWeights(int index) {
+        return (index > 0 && index <= w.length)?w[index - 1]:null;
+    }
+
     /**
     * The nr_feature*nr_class array w gives feature weights. We use one
     * against the rest for multi-class classification, so each feature
@@ -107,6 +127,10 @@ public class MaltLiblinearModel implements Serializable, MaltLibModel {
     public double getBias() {
         return bias;
     }
+
+    public SolverType getSolverType() {
+        return solverType;
+    }
         
     public int[] predict(MaltFeatureNode[] x) { 
 		final double[] dec_values = new double[nr_class];
@@ -178,6 +202,130 @@ public class MaltLiblinearModel implements Serializable, MaltLibModel {
 		return labels[max_index];
 	}
     
+	/**
+	 * Returns a rough estimate of the number of bytes used by the weights of the model, assuming compressed references. Rows
+	 * that are shared by several features are only counted once.
+	 * 
+	 * @return a rough estimate of the number of bytes used by the model
+	 */
+	public long getMemoryUsage() {
+		final IdentityHashMap<double[], Boolean> counted = new IdentityHashMap<double[], Boolean>();
+		long bytes = 16 + 4L * w.length + 16 + 4L * labels.length;
+		for (int i = 0; i < w.length; i++) {
+			if (w[i] != null && counted.put(w[i], Boolean.TRUE) == null) {
+				bytes += 16 + 8L * w[i].length;
+			}
+		}
+		return bytes;
+	}
+	
+	/**
+	 * Writes the model in the binary format of the liblinear model sections of the MCO container (see 
+	 * org.maltparser.core.config.McoContainer). All numbers are big-endian:
+	 * 
+	 * <pre>
+	 * int      nr_class, nr_feature, number of rows of w, number of distinct rows of w
+	 * double   bias
+	 * int      length of the solver type name, followed by the name (ASCII) padded to a multiple of 8 bytes
+	 * int[]    labels (nr_class)
+	 * int[]    the distinct row of each row of w, -1 if the row is null
+	 * int[]    the start of each distinct row in the weight array, the last element is the length of the weight array
+	 *          (padded to a multiple of 8 bytes)
+	 * double[] the weights of the distinct rows
+	 * </pre>
+	 * 
+	 * Rows that are shared by several features are only written once and are shared again when the model is read.
+	 * 
+	 * @param out the output stream
+	 * @throws IOException
+	 */
+	public void write(DataOutputStream out) throws IOException {
+		final IdentityHashMap<double[], Integer> distinct = new IdentityHashMap<double[], Integer>();
+		final int[] rowRefs = new int[w.length];
+		int nWeights = 0;
+		for (int i = 0; i < w.length; i++) {
+			if (w[i] == null) {
+				rowRefs[i] = -1;
+			} else {
+				Integer ref = distinct.get(w[i]);
+				if (ref == null) {
+					ref = distinct.size();
+					distinct.put(w[i], ref);
+					nWeights += w[i].length;
+				}
+				rowRefs[i] = ref.intValue();
+			}
+		}
+		final double[][] rows = new double[distinct.size()][];
+		for (int i = 0; i < w.length; i++) {
+			if (rowRefs[i] != -1) {
+				rows[rowRefs[i]] = w[i];
+			}
+		}
+		final int[] rowOffsets = new int[rows.length + 1];
+		for (int i = 0; i < rows.length; i++) {
+			rowOffsets[i + 1] = rowOffsets[i] + rows[i].length;
+		}
+		final byte[] solverName = solverType.name().getBytes(FILE_CHARSET);
+		final int nInts = nr_class + rowRefs.length + rowOffsets.length;
+		final ByteBuffer buffer = ByteBuffer.allocate(24 + pad8(4 + solverName.length) + pad8(4 * nInts) + 8 * nWeights);
+		buffer.putInt(nr_class);
+		buffer.putInt(nr_feature);
+		buffer.putInt(w.length);
+		buffer.putInt(rows.length);
+		buffer.putDouble(bias);
+		buffer.putInt(solverName.length);
+		buffer.put(solverName);
+		buffer.position(24 + pad8(4 + solverName.length));
+		buffer.asIntBuffer().put(labels, 0, nr_class).put(rowRefs).put(rowOffsets);
+		buffer.position(buffer.position() + pad8(4 * nInts));
+		for (int i = 0; i < rows.length; i++) {
+			buffer.asDoubleBuffer().put(rows[i]);
+			buffer.position(buffer.position() + 8 * rows[i].length);
+		}
+		out.write(buffer.array());
+	}
+	
+	/**
+	 * Reads a model written by write(DataOutputStream)
+	 * 
+	 * @param in a buffer positioned at the start of the model
+	 * @return the model
+	 */
+	public static MaltLiblinearModel read(ByteBuffer in) {
+		final int nr_class = in.getInt();
+		final int nr_feature = in.getInt();
+		final int nRows = in.getInt();
+		final int nDistinct = in.getInt();
+		final double bias = in.getDouble();
+		final int start = in.position();
+		final byte[] solverName = new byte[in.getInt()];
+		in.get(solverName);
+		in.position(start + pad8(4 + solverName.length));
+		final int[] labels = new int[nr_class];
+		final int[] rowRefs = new int[nRows];
+		final int[] rowOffsets = new int[nDistinct + 1];
+		in.asIntBuffer().get(labels).get(rowRefs).get(rowOffsets);
+		in.position(in.position() + pad8(4 * (nr_class + nRows + nDistinct + 1)));
+		final double[][] rows = new double[nDistinct][];
+		for (int i = 0; i < nDistinct; i++) {
+			rows[i] = new double[rowOffsets[i + 1] - rowOffsets[i]];
+			in.asDoubleBuffer().get(rows[i]);
+			in.position(in.position() + 8 * rows[i].length);
+		}
+		final double[][] w = new double[nRows][];
+		for (int i = 0; i < nRows; i++) {
+			if (rowRefs[i] != -1) {
+				w[i] = rows[rowRefs[i]];
+			}
+		}
+		return new MaltLiblinearModel(labels, nr_class, nr_feature, w, SolverType.valueOf(new String(solverName, FILE_CHARSET)), bias);
+	}
+	
+	private static int pad8(int length) {
+		return (length + 7) & ~7;
+	}
+	
 	private void readObject(ObjectInputStream is) throws ClassNotFoundException, IOException {
 		is.defaultReadObject();
 	}
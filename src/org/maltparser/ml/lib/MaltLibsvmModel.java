@@ -251,7 +251,24 @@ public class MaltLibsvmModel implements Serializable, MaltLibModel {
 				return 0;	// java
 		}
 	}
-	
+
+	/**
+	 * Returns a rough estimate of the number of bytes used by the support vectors and their coefficients, assuming
+	 * compressed references. Each node of a support vector is an object with an index and a value.
+	 *
+	 * @return a rough estimate of the number of bytes used by the model
+	 */
+	public long getMemoryUsage() {
+		long bytes = 16 + 4L * SV.length;
+		for (int i = 0; i < SV.length; i++) {
+			bytes += 16 + 28L * SV[i].length;
+		}
+		for (int i = 0; i < sv_coef.length; i++) {
+			bytes += 16 + 8L * sv_coef[i].length;
+		}
+		return bytes;
+	}
+
 	public int[] getLabels() {
 		if (label != null) {
 			final int[] labels = new int[nr_class];
@@ -0,0 +1,441 @@
+package org.maltparser.ml.lib;
+
+import java.util.Random;
+
+import org.maltparser.core.exception.MaltChainedException;
+
+/**
+ * The multi-class SVM solver by Crammer and Singer of LIBLINEAR (solver type 4), which trains directly from the primitive
+ * arrays of a sparse problem instead of from an array of feature nodes per instance. The solver follows the LIBLINEAR 1.8
+ * implementation step by step, including the grouping of the instances by class and the use of the random generator, so the
+ * weights are the same as the weights trained by Linear.train() when it is given the same random generator.
+ */
+public final class MulticlassSvmSolver {
+	private final SparseProblem problem;
+	private final double cost;
+	private final double eps;
+	private final int maxIterations;
+	private final int l;
+	private final int numberOfColumns;
+	private int numberOfClasses;
+	private int[] labels;
+	private int[] initialLabels;
+	private double[] initialWeights;
+	/** The rows of the problem grouped by class, in the same order as in LIBLINEAR */
+	private int[] rows;
+	/** The class index of each grouped row */
+	private int[] y;
+	private double[] weights;
+	private double[] B;
+	private double[] G;
+
+	/**
+	 * Creates a solver
+	 *
+	 * @param problem the sparse problem
+	 * @param cost the cost parameter C
+	 * @param eps the tolerance of the stopping criterion
+	 */
+	public MulticlassSvmSolver(SparseProblem problem, double cost, double eps) {
+		this.problem = problem;
+		this.cost = cost;
+		this.eps = eps;
+		this.maxIterations = 100000;
+		this.l = problem.getNumberOfRows();
+		this.numberOfColumns = problem.getNumberOfColumns();
+	}
+
+	/**
+	 * Trains the weights of the model
+	 *
+	 * @param random the random generator that selects the order in which the instances are visited
+	 * @throws MaltChainedException
+	 */
+	public void train(Random random) throws MaltChainedException {
+		if (l == 0) {
+			throw new LibException("The Liblinear learner cannot train a model without training instances. ");
+		}
+		groupClasses();
+		if ((long)l * numberOfClasses > Integer.MAX_VALUE || (long)numberOfColumns * numberOfClasses > Integer.MAX_VALUE) {
+			throw new LibException("(The number of training instances * the number of classes) > "+Integer.MAX_VALUE+" and this is not supported by LibLinear. ");
+		}
+		weights = getStartWeights();
+		B = new double[numberOfClasses];
+		G = new double[numberOfClasses];
+		solve(random);
+		rows = null;
+		y = null;
+		B = null;
+		G = null;
+	}
+
+	/**
+	 * Returns the weights of the model, where the weight of feature index <i>i</i> for class index <i>c</i> is found at
+	 * (i - 1) * number of classes + c
+	 *
+	 * @return the weights of the model
+	 */
+	public double[] getWeights() {
+		return weights;
+	}
+
+	/**
+	 * Returns the labels of the classes in the order of the class indices
+	 *
+	 * @return the labels of the classes
+	 */
+	public int[] getLabels() {
+		return labels;
+	}
+
+	/**
+	 * Sets the model that the training starts from. The dual variables start at zero, so the weights are regularized
+	 * towards the initial weights instead of towards zero. The classes get the class indices of the initial labels,
+	 * which must include the labels of all rows of the problem.
+	 *
+	 * @param labels the labels of the classes in the order of the class indices
+	 * @param weights the initial weights, where the weight of feature index <i>i</i> for class index <i>c</i> is found at
+	 * (i - 1) * number of classes + c
+	 */
+	public void setInitialModel(int[] labels, double[] weights) {
+		this.initialLabels = labels;
+		this.initialWeights = weights;
+	}
+
+	public int getNumberOfClasses() {
+		return numberOfClasses;
+	}
+
+	public int getNumberOfFeatures() {
+		return numberOfColumns;
+	}
+
+	private void groupClasses() {
+		int maxNumberOfClasses = (initialLabels == null)?16:Math.max(16, initialLabels.length);
+		int[] label = new int[maxNumberOfClasses];
+		int[] count = new int[maxNumberOfClasses];
+		final int[] dataLabel = new int[l];
+		numberOfClasses = 0;
+		if (initialLabels != null) {
+			System.arraycopy(initialLabels, 0, label, 0, initialLabels.length);
+			numberOfClasses = initialLabels.length;
+		}
+		for (int i = 0; i < l; i++) {
+			final int thisLabel = problem.getLabel(i);
+			int j;
+			for (j = 0; j < numberOfClasses; j++) {
+				if (thisLabel == label[j]) {
+					++count[j];
+					break;
+				}
+			}
+			dataLabel[i] = j;
+			if (j == numberOfClasses) {
+				if (numberOfClasses == maxNumberOfClasses) {
+					maxNumberOfClasses *= 2;
+					label = copyOf(label, maxNumberOfClasses);
+					count = copyOf(count, maxNumberOfClasses);
+				}
+				label[numberOfClasses] = thisLabel;
+				count[numberOfClasses] = 1;
+				++numberOfClasses;
+			}
+		}
+		final int[] start = new int[numberOfClasses];
+		for (int i = 1; i < numberOfClasses; i++) {
+			start[i] = start[i - 1] + count[i - 1];
+		}
+		rows = new int[l];
+		y = new int[l];
+		for (int i = 0; i < l; i++) {
+			rows[start[dataLabel[i]]] = i;
+			y[start[dataLabel[i]]] = dataLabel[i];
+			++start[dataLabel[i]];
+		}
+		labels = copyOf(label, numberOfClasses);
+	}
+
+	private double[] getStartWeights() throws MaltChainedException {
+		if (initialWeights == null) {
+			return new double[numberOfColumns * numberOfClasses];
+		}
+		if (numberOfClasses != initialLabels.length || initialWeights.length != numberOfColumns * numberOfClasses) {
+			throw new LibException("The initial weights don't match the classes and features of the problem. ");
+		}
+		final double[] w = new double[initialWeights.length];
+		System.arraycopy(initialWeights, 0, w, 0, w.length);
+		return w;
+	}
+
+	private static int[] copyOf(int[] original, int newLength) {
+		final int[] copy = new int[newLength];
+		System.arraycopy(original, 0, copy, 0, Math.min(original.length, newLength));
+		return copy;
+	}
+
+	private boolean beShrunk(int i, int m, int yi, double alpha_i, double minG) {
+		double bound = 0;
+		if (m == yi) {
+			bound = cost;
+		}
+		return alpha_i == bound && G[m] < minG;
+	}
+
+	private void solve(Random random) {
+		final int nr_class = numberOfClasses;
+		final double[] w = weights;
+		int i, m, s;
+		int iter = 0;
+		final double[] alpha = new double[l * nr_class];
+		final double[] alpha_new = new double[nr_class];
+		final int[] index = new int[l];
+		final double[] QD = new double[l];
+		final int[] d_ind = new int[nr_class];
+		final double[] d_val = new double[nr_class];
+		final int[] alpha_index = new int[nr_class * l];
+		final int[] y_index = new int[l];
+		int active_size = l;
+		final int[] active_size_i = new int[l];
+		double eps_shrink = Math.max(10.0 * eps, 1.0);
+		boolean start_from_all = true;
+
+		for (i = 0; i < l; i++) {
+			for (m = 0; m < nr_class; m++) {
+				alpha_index[i * nr_class + m] = m;
+			}
+			QD[i] = 0;
+			for (int k = problem.getRowStart(rows[i]), end = problem.getRowEnd(rows[i]); k < end; k++) {
+				final double value = problem.getValue(k);
+				QD[i] += value * value;
+			}
+			active_size_i[i] = nr_class;
+			y_index[i] = y[i];
+			index[i] = i;
+		}
+
+		while (iter < maxIterations) {
+			double stopping = Double.NEGATIVE_INFINITY;
+			for (i = 0; i < active_size; i++) {
+				final int j = i + random.nextInt(active_size - i);
+				swap(index, i, j);
+			}
+			for (s = 0; s < active_size; s++) {
+				i = index[s];
+				final double Ai = QD[i];
+				final int alpha_i = i * nr_class;
+				final int alpha_index_i = i * nr_class;
+				final int rowStart = problem.getRowStart(rows[i]);
+				final int rowEnd = problem.getRowEnd(rows[i]);
+
+				if (Ai > 0) {
+					for (m = 0; m < active_size_i[i]; m++) {
+						G[m] = 1;
+					}
+					if (y_index[i] < active_size_i[i]) {
+						G[y_index[i]] = 0;
+					}
+					for (int k = rowStart; k < rowEnd; k++) {
+						final int w_offset = (problem.getIndex(k) - 1) * nr_class;
+						final double value = problem.getValue(k);
+						for (m = 0; m < active_size_i[i]; m++) {
+							G[m] += w[w_offset + alpha_index[alpha_index_i + m]] * value;
+						}
+					}
+
+					double minG = Double.POSITIVE_INFINITY;
+					double maxG = Double.NEGATIVE_INFINITY;
+					for (m = 0; m < active_size_i[i]; m++) {
+						if (alpha[alpha_i + alpha_index[alpha_index_i + m]] < 0 && G[m] < minG) {
+							minG = G[m];
+						}
+						if (G[m] > maxG) {
+							maxG = G[m];
+						}
+					}
+					if (y_index[i] < active_size_i[i]) {
+						if (alpha[alpha_i + y[i]] < cost && G[y_index[i]] < minG) {
+							minG = G[y_index[i]];
+						}
+					}
+
+					for (m = 0; m < active_size_i[i]; m++) {
+						if (beShrunk(i, m, y_index[i], alpha[alpha_i + alpha_index[alpha_index_i + m]], minG)) {
+							active_size_i[i]--;
+							while (active_size_i[i] > m) {
+								if (!beShrunk(i, active_size_i[i], y_index[i], alpha[alpha_i + alpha_index[alpha_index_i + active_size_i[i]]], minG)) {
+									swap(alpha_index, alpha_index_i + m, alpha_index_i + active_size_i[i]);
+									swap(G, m, active_size_i[i]);
+									if (y_index[i] == active_size_i[i]) {
+										y_index[i] = m;
+									} else if (y_index[i] == m) {
+										y_index[i] = active_size_i[i];
+									}
+									break;
+								}
+								active_size_i[i]--;
+							}
+						}
+					}
+
+					if (active_size_i[i] <= 1) {
+						active_size--;
+						swap(index, s, active_size);
+						s--;
+						continue;
+					}
+
+					if (maxG - minG <= 1e-12) {
+						continue;
+					} else {
+						stopping = Math.max(maxG - minG, stopping);
+					}
+
+					for (m = 0; m < active_size_i[i]; m++) {
+						B[m] = G[m] - Ai * alpha[alpha_i + alpha_index[alpha_index_i + m]];
+					}
+
+					solveSubProblem(Ai, y_index[i], cost, active_size_i[i], alpha_new);
+					int nz_d = 0;
+					for (m = 0; m < active_size_i[i]; m++) {
+						final double d = alpha_new[m] - alpha[alpha_i + alpha_index[alpha_index_i + m]];
+						alpha[alpha_i + alpha_index[alpha_index_i + m]] = alpha_new[m];
+						if (Math.abs(d) >= 1e-12) {
+							d_ind[nz_d] = alpha_index[alpha_index_i + m];
+							d_val[nz_d] = d;
+							nz_d++;
+						}
+					}
+
+					for (int k = rowStart; k < rowEnd; k++) {
+						final int w_offset = (problem.getIndex(k) - 1) * nr_class;
+						final double value = problem.getValue(k);
+						for (m = 0; m < nz_d; m++) {
+							w[w_offset + d_ind[m]] += d_val[m] * value;
+						}
+					}
+				}
+			}
+
+			iter++;
+
+			if (stopping < eps_shrink) {
+				if (stopping < eps && start_from_all == true) {
+					break;
+				} else {
+					active_size = l;
+					for (i = 0; i < l; i++) {
+						active_size_i[i] = nr_class;
+					}
+					eps_shrink = Math.max(eps_shrink / 2, eps);
+					start_from_all = true;
+				}
+			} else {
+				start_from_all = false;
+			}
+		}
+	}
+
+	private void solveSubProblem(double A_i, int yi, double C_yi, int active_i, double[] alpha_new) {
+		int r;
+		final double[] D = new double[active_i];
+		System.arraycopy(B, 0, D, 0, active_i);
+		if (yi < active_i) {
+			D[yi] += A_i * C_yi;
+		}
+		reversedSort(D, 0, D.length);
+		double beta = D[0] - A_i * C_yi;
+		for (r = 1; r < active_i && beta < r * D[r]; r++) {
+			beta += D[r];
+		}
+		beta /= r;
+		for (r = 0; r < active_i; r++) {
+			if (r == yi) {
+				alpha_new[r] = Math.min(C_yi, (beta - B[r]) / A_i);
+			} else {
+				alpha_new[r] = Math.min(0.0, (beta - B[r]) / A_i);
+			}
+		}
+	}
+
+	/**
+	 * Sorts the values in descending order with a quicksort after Bentley and McIlroy. LIBLINEAR sorts them with a merge sort
+	 * instead. The sort is not stable, but the array holds bare doubles, so values that compare as equal can only trade places
+	 * with each other (at most 0.0 and -0.0) and the sub-problem is solved the same way.
+	 */
+	private static void reversedSort(double[] x, int off, int len) {
+		if (len < 7) {
+			for (int i = off; i < len + off; i++) {
+				for (int j = i; j > off && x[j - 1] < x[j]; j--) {
+					swap(x, j, j - 1);
+				}
+			}
+			return;
+		}
+		int m = off + (len >> 1);
+		if (len > 7) {
+			int l = off;
+			int n = off + len - 1;
+			if (len > 40) {
+				final int s = len / 8;
+				l = med3(x, l, l + s, l + 2 * s);
+				m = med3(x, m - s, m, m + s);
+				n = med3(x, n - 2 * s, n - s, n);
+			}
+			m = med3(x, l, m, n);
+		}
+		final double v = x[m];
+		int a = off, b = a, c = off + len - 1, d = c;
+		while (true) {
+			while (b <= c && x[b] >= v) {
+				if (x[b] == v) {
+					swap(x, a++, b);
+				}
+				b++;
+			}
+			while (c >= b && x[c] <= v) {
+				if (x[c] == v) {
+					swap(x, c, d--);
+				}
+				c--;
+			}
+			if (b > c) {
+				break;
+			}
+			swap(x, b++, c--);
+		}
+		int s;
+		final int n = off + len;
+		s = Math.min(a - off, b - a);
+		vecswap(x, off, b - s, s);
+		s = Math.min(d - c, n - d - 1);
+		vecswap(x, b, n - s, s);
+		if ((s = b - a) > 1) {
+			reversedSort(x, off, s);
+		}
+		if ((s = d - c) > 1) {
+			reversedSort(x, n - s, s);
+		}
+	}
+
+	private static void vecswap(double[] x, int a, int b, int n) {
+		for (int i = 0; i < n; i++, a++, b++) {
+			swap(x, a, b);
+		}
+	}
+
+	private static int med3(double[] x, int a, int b, int c) {
+		return (x[a] < x[b] ? (x[b] < x[c] ? b : x[a] < x[c] ? c : a) : (x[b] > x[c] ? b : x[a] > x[c] ? c : a));
+	}
+
+	private static void swap(double[] x, int a, int b) {
+		final double t = x[a];
+		x[a] = x[b];
+		x[b] = t;
+	}
+
+	private static void swap(int[] x, int a, int b) {
+		final int t = x[a];
+		x[a] = x[b];
+		x[b] = t;
+	}
+}
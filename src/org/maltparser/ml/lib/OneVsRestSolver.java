@@ -0,0 +1,309 @@
+package org.maltparser.ml.lib;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.maltparser.core.exception.MaltChainedException;
+
+/**
+ * A one-vs-rest solver of linear SVMs, which trains one binary classifier for each class by the dual coordinate descent
+ * method of LIBLINEAR (solver types 1 and 3). The binary classifiers are independent of each other and are trained
+ * concurrently by a fixed number of threads directly from the primitive arrays of a sparse problem. Every binary classifier
+ * has its own random generator with a fixed seed, so the weights don't depend on the number of threads.
+ * <p>
+ * Unlike LIBLINEAR, a problem with two classes also gets one weight vector per class, so the model can be used by
+ * MaltLiblinearModel in the same way as a model with more classes.
+ */
+public final class OneVsRestSolver {
+	private static final long RANDOM_SEED = 0L;
+	private final SparseProblem problem;
+	private final double cost;
+	private final double eps;
+	private final boolean l1Loss;
+	private final int maxIterations;
+	private final int l;
+	private final int numberOfColumns;
+	private int numberOfClasses;
+	private int[] labels;
+	private int[] initialLabels;
+	private double[] initialWeights;
+	/** The class index of each row */
+	private int[] y;
+	/** The squared norm of each row */
+	private double[] norms;
+	private double[] weights;
+
+	/**
+	 * Creates a solver
+	 *
+	 * @param problem the sparse problem
+	 * @param cost the cost parameter C
+	 * @param eps the tolerance of the stopping criterion
+	 * @param l1Loss <i>true</i> for the L1-loss SVM (solver type 3), <i>false</i> for the L2-loss SVM (solver type 1)
+	 */
+	public OneVsRestSolver(SparseProblem problem, double cost, double eps, boolean l1Loss) {
+		this.problem = problem;
+		this.cost = cost;
+		this.eps = eps;
+		this.l1Loss = l1Loss;
+		this.maxIterations = 1000;
+		this.l = problem.getNumberOfRows();
+		this.numberOfColumns = problem.getNumberOfColumns();
+	}
+
+	/**
+	 * Trains the weights of the model
+	 *
+	 * @param numberOfThreads the maximum number of threads that train the binary classifiers
+	 * @throws MaltChainedException
+	 */
+	public void train(int numberOfThreads) throws MaltChainedException {
+		if (l == 0) {
+			throw new LibException("The Liblinear learner cannot train a model without training instances. ");
+		}
+		groupClasses();
+		if ((long)numberOfColumns * numberOfClasses > Integer.MAX_VALUE) {
+			throw new LibException("(The number of features * the number of classes) > "+Integer.MAX_VALUE+" and this is not supported by LibLinear. ");
+		}
+		norms = new double[l];
+		for (int i = 0; i < l; i++) {
+			for (int k = problem.getRowStart(i), end = problem.getRowEnd(i); k < end; k++) {
+				final double value = problem.getValue(k);
+				norms[i] += value * value;
+			}
+		}
+		if (initialWeights != null && (numberOfClasses != initialLabels.length || initialWeights.length != numberOfColumns * numberOfClasses)) {
+			throw new LibException("The initial weights don't match the classes and features of the problem. ");
+		}
+		weights = new double[numberOfColumns * numberOfClasses];
+		numberOfThreads = Math.min(numberOfThreads, numberOfClasses);
+		if (numberOfThreads <= 1) {
+			for (int c = 0; c < numberOfClasses; c++) {
+				solve(c);
+			}
+		} else {
+			trainConcurrently(numberOfThreads);
+		}
+		y = null;
+		norms = null;
+	}
+
+	private void trainConcurrently(int numberOfThreads) throws MaltChainedException {
+		final ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+		final ArrayList<Future<Object>> futures = new ArrayList<Future<Object>>(numberOfClasses);
+		try {
+			for (int c = 0; c < numberOfClasses; c++) {
+				final int classIndex = c;
+				futures.add(executor.submit(new Callable<Object>() {
+					public Object call() {
+						solve(classIndex);
+						return null;
+					}
+				}));
+			}
+			executor.shutdown();
+			for (int c = 0; c < numberOfClasses; c++) {
+				try {
+					futures.get(c).get();
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof OutOfMemoryError) {
+						throw new LibException("Out of memory. Please increase the Java heap size (-Xmx<size>). ", e.getCause());
+					}
+					throw new LibException("The binary classifier of the class "+labels[c]+" could not be trained. ", e.getCause());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new LibException("The training of the binary classifier of the class "+labels[c]+" was interrupted. ", e);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Returns the weights of the model, where the weight of feature index <i>i</i> for class index <i>c</i> is found at
+	 * (i - 1) * number of classes + c
+	 *
+	 * @return the weights of the model
+	 */
+	public double[] getWeights() {
+		return weights;
+	}
+
+	/**
+	 * Returns the labels of the classes in the order of the class indices, which is the order in which the classes first
+	 * occur in the problem
+	 *
+	 * @return the labels of the classes
+	 */
+	public int[] getLabels() {
+		return labels;
+	}
+
+	/**
+	 * Sets the model that the training starts from. The dual variables start at zero, so the weights are regularized
+	 * towards the initial weights instead of towards zero. The classes get the class indices of the initial labels,
+	 * which must include the labels of all rows of the problem.
+	 *
+	 * @param labels the labels of the classes in the order of the class indices
+	 * @param weights the initial weights, where the weight of feature index <i>i</i> for class index <i>c</i> is found at
+	 * (i - 1) * number of classes + c
+	 */
+	public void setInitialModel(int[] labels, double[] weights) {
+		this.initialLabels = labels;
+		this.initialWeights = weights;
+	}
+
+	public int getNumberOfClasses() {
+		return numberOfClasses;
+	}
+
+	public int getNumberOfFeatures() {
+		return numberOfColumns;
+	}
+
+	private void groupClasses() {
+		int[] label = new int[(initialLabels == null)?16:Math.max(16, initialLabels.length)];
+		y = new int[l];
+		numberOfClasses = 0;
+		if (initialLabels != null) {
+			System.arraycopy(initialLabels, 0, label, 0, initialLabels.length);
+			numberOfClasses = initialLabels.length;
+		}
+		for (int i = 0; i < l; i++) {
+			final int thisLabel = problem.getLabel(i);
+			int j;
+			for (j = 0; j < numberOfClasses; j++) {
+				if (thisLabel == label[j]) {
+					break;
+				}
+			}
+			y[i] = j;
+			if (j == numberOfClasses) {
+				if (numberOfClasses == label.length) {
+					final int[] copy = new int[2 * label.length];
+					System.arraycopy(label, 0, copy, 0, label.length);
+					label = copy;
+				}
+				label[numberOfClasses++] = thisLabel;
+			}
+		}
+		labels = new int[numberOfClasses];
+		System.arraycopy(label, 0, labels, 0, numberOfClasses);
+	}
+
+	/**
+	 * Trains the binary classifier of a class against all other classes by dual coordinate descent, as solve_l2r_l1l2_svc()
+	 * in LIBLINEAR, and writes the weight vector into the weights of the model.
+	 *
+	 * @param classIndex the class index
+	 */
+	private void solve(int classIndex) {
+		final Random random = new Random(RANDOM_SEED);
+		final double[] w = new double[numberOfColumns];
+		if (initialWeights != null) {
+			for (int j = 0; j < numberOfColumns; j++) {
+				w[j] = initialWeights[j * numberOfClasses + classIndex];
+			}
+		}
+		final double[] alpha = new double[l];
+		final int[] index = new int[l];
+		final double diag = l1Loss?0:0.5 / cost;
+		final double upperBound = l1Loss?cost:Double.POSITIVE_INFINITY;
+		double PGmax_old = Double.POSITIVE_INFINITY;
+		double PGmin_old = Double.NEGATIVE_INFINITY;
+		int active_size = l;
+		int iter = 0;
+
+		for (int i = 0; i < l; i++) {
+			index[i] = i;
+		}
+		while (iter < maxIterations) {
+			double PGmax_new = Double.NEGATIVE_INFINITY;
+			double PGmin_new = Double.POSITIVE_INFINITY;
+			for (int i = 0; i < active_size; i++) {
+				swap(index, i, i + random.nextInt(active_size - i));
+			}
+			for (int s = 0; s < active_size; s++) {
+				final int i = index[s];
+				final int yi = (y[i] == classIndex)?1:-1;
+				final int rowStart = problem.getRowStart(i);
+				final int rowEnd = problem.getRowEnd(i);
+
+				double G = 0;
+				for (int k = rowStart; k < rowEnd; k++) {
+					G += w[problem.getIndex(k) - 1] * problem.getValue(k);
+				}
+				G = G * yi - 1 + alpha[i] * diag;
+
+				double PG = 0;
+				if (alpha[i] == 0) {
+					if (G > PGmax_old) {
+						active_size--;
+						swap(index, s, active_size);
+						s--;
+						continue;
+					} else if (G < 0) {
+						PG = G;
+					}
+				} else if (alpha[i] == upperBound) {
+					if (G < PGmin_old) {
+						active_size--;
+						swap(index, s, active_size);
+						s--;
+						continue;
+					} else if (G > 0) {
+						PG = G;
+					}
+				} else {
+					PG = G;
+				}
+				PGmax_new = Math.max(PGmax_new, PG);
+				PGmin_new = Math.min(PGmin_new, PG);
+
+				if (Math.abs(PG) > 1.0e-12) {
+					final double alpha_old = alpha[i];
+					alpha[i] = Math.min(Math.max(alpha[i] - G / (norms[i] + diag), 0.0), upperBound);
+					final double d = (alpha[i] - alpha_old) * yi;
+					for (int k = rowStart; k < rowEnd; k++) {
+						w[problem.getIndex(k) - 1] += d * problem.getValue(k);
+					}
+				}
+			}
+			iter++;
+			if (PGmax_new - PGmin_new <= eps) {
+				if (active_size == l) {
+					break;
+				} else {
+					active_size = l;
+					PGmax_old = Double.POSITIVE_INFINITY;
+					PGmin_old = Double.NEGATIVE_INFINITY;
+					continue;
+				}
+			}
+			PGmax_old = PGmax_new;
+			PGmin_old = PGmin_new;
+			if (PGmax_old <= 0) {
+				PGmax_old = Double.POSITIVE_INFINITY;
+			}
+			if (PGmin_old >= 0) {
+				PGmin_old = Double.NEGATIVE_INFINITY;
+			}
+		}
+		// Every class writes its own column of the weights
+		for (int j = 0; j < numberOfColumns; j++) {
+			weights[j * numberOfClasses + classIndex] = w[j];
+		}
+	}
+
+	private static void swap(int[] x, int a, int b) {
+		final int t = x[a];
+		x[a] = x[b];
+		x[b] = t;
+	}
+}
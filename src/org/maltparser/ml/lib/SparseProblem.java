@@ -0,0 +1,241 @@
+package org.maltparser.ml.lib;
+
+import java.util.Arrays;
+
+import org.maltparser.core.exception.MaltChainedException;
+
+/**
+ * A training problem in compressed sparse row format. The rows are the training instances and the features of all rows are
+ * stored in two primitive arrays of feature indices and values, where the features of row <i>i</i> are found between
+ * getRowStart(i) and getRowEnd(i). The features of a row are sorted by index. The value array is only allocated when a
+ * feature has a value other than 1, so binary problems only store the feature indices.
+ */
+public final class SparseProblem {
+	private final int[] labels;
+	private final int[] rowOffsets;
+	private final int[] indices;
+	private double[] values;
+	private int numberOfRows;
+	private int numberOfColumns;
+	private int size;
+
+	/**
+	 * Creates an empty problem
+	 *
+	 * @param maxRows the maximum number of rows
+	 * @param maxFeatures the maximum number of features of all rows
+	 * @throws MaltChainedException
+	 */
+	public SparseProblem(int maxRows, long maxFeatures) throws MaltChainedException {
+		if (maxFeatures > Integer.MAX_VALUE) {
+			throw new LibException("The number of active features of the training instances "+maxFeatures+" > "+Integer.MAX_VALUE+" and this is not supported. ");
+		}
+		this.labels = new int[maxRows];
+		this.rowOffsets = new int[maxRows + 1];
+		this.indices = new int[(int)maxFeatures];
+	}
+
+	/**
+	 * Starts a new row, the features of the row are added by add() and the row is ended by endRow().
+	 *
+	 * @param label the label (decision code) of the row
+	 */
+	public void startRow(int label) {
+		labels[numberOfRows] = label;
+	}
+
+	/**
+	 * Adds a feature to the current row. The features can be added in any order.
+	 *
+	 * @param index the feature index, starting at 1
+	 * @param value the feature value
+	 */
+	public void add(int index, double value) {
+		if (value != 1 && values == null) {
+			values = new double[indices.length];
+			Arrays.fill(values, 0, size, 1);
+		}
+		indices[size] = index;
+		if (values != null) {
+			values[size] = value;
+		}
+		size++;
+	}
+
+	/**
+	 * Ends the current row by sorting its features by index and value, in the same order as the FeatureList.
+	 *
+	 * @param merge if <i>true</i>, features with the same index are merged by summing their values and features with the value zero
+	 * after the merge are removed, as in FeatureList.merge()
+	 */
+	public void endRow(boolean merge) {
+		final int start = rowOffsets[numberOfRows];
+		for (int i = start + 1; i < size; i++) {
+			final int index = indices[i];
+			final double value = getValue(i);
+			int j = i - 1;
+			while (j >= start && (indices[j] > index || (indices[j] == index && getValue(j) > value))) {
+				indices[j + 1] = indices[j];
+				if (values != null) {
+					values[j + 1] = values[j];
+				}
+				j--;
+			}
+			indices[j + 1] = index;
+			if (values != null) {
+				values[j + 1] = value;
+			}
+		}
+		if (merge) {
+			int j = start - 1;
+			for (int i = start; i < size; i++) {
+				if (j >= start && indices[j] == indices[i]) {
+					setValue(j, getValue(j) + getValue(i));
+				} else {
+					if (j >= start && getValue(j) == 0) {
+						j--;
+					}
+					j++;
+					indices[j] = indices[i];
+					if (values != null) {
+						values[j] = values[i];
+					}
+				}
+			}
+			if (j >= start && getValue(j) == 0) {
+				j--;
+			}
+			size = j + 1;
+		}
+		numberOfRows++;
+		rowOffsets[numberOfRows] = size;
+	}
+
+	/**
+	 * Removes the features of the current row, which is not added to the problem
+	 */
+	public void cancelRow() {
+		size = rowOffsets[numberOfRows];
+	}
+
+	private void setValue(int k, double value) {
+		if (values == null) {
+			values = new double[indices.length];
+			Arrays.fill(values, 0, size, 1);
+		}
+		values[k] = value;
+	}
+
+	public int getNumberOfRows() {
+		return numberOfRows;
+	}
+
+	/**
+	 * Returns the number of columns, which is the largest feature index that a row can have
+	 *
+	 * @return the number of columns
+	 */
+	public int getNumberOfColumns() {
+		return numberOfColumns;
+	}
+
+	public void setNumberOfColumns(int numberOfColumns) {
+		this.numberOfColumns = numberOfColumns;
+	}
+
+	public int getLabel(int row) {
+		return labels[row];
+	}
+
+	/**
+	 * Returns the position of the first feature of a row
+	 *
+	 * @param row the row
+	 * @return the position of the first feature of the row
+	 */
+	public int getRowStart(int row) {
+		return rowOffsets[row];
+	}
+
+	/**
+	 * Returns the position after the last feature of a row
+	 *
+	 * @param row the row
+	 * @return the position after the last feature of the row
+	 */
+	public int getRowEnd(int row) {
+		return rowOffsets[row + 1];
+	}
+
+	/**
+	 * Returns the feature index at a position
+	 *
+	 * @param k the position of the feature
+	 * @return the feature index
+	 */
+	public int getIndex(int k) {
+		return indices[k];
+	}
+
+	/**
+	 * Returns the feature value at a position
+	 *
+	 * @param k the position of the feature
+	 * @return the feature value
+	 */
+	public double getValue(int k) {
+		return (values == null)?1:values[k];
+	}
+
+	/**
+	 * Returns the largest label of the rows, or -1 if the problem has no rows
+	 *
+	 * @return the largest label of the rows
+	 */
+	public int getMaxLabel() {
+		int maxLabel = -1;
+		for (int i = 0; i < numberOfRows; i++) {
+			if (labels[i] > maxLabel) {
+				maxLabel = labels[i];
+			}
+		}
+		return maxLabel;
+	}
+
+	/**
+	 * Returns the labels of the classes, starting with the given labels and followed by the other labels of the rows in the 
+	 * order in which they first occur
+	 *
+	 * @param firstLabels the labels that come first, for example the labels of a previous model
+	 * @return the labels of the classes
+	 */
+	public int[] getClassLabels(int[] firstLabels) {
+		int[] classLabels = new int[firstLabels.length + 16];
+		System.arraycopy(firstLabels, 0, classLabels, 0, firstLabels.length);
+		int numberOfClasses = firstLabels.length;
+		for (int i = 0; i < numberOfRows; i++) {
+			int j = 0;
+			while (j < numberOfClasses && classLabels[j] != labels[i]) {
+				j++;
+			}
+			if (j == numberOfClasses) {
+				if (numberOfClasses == classLabels.length) {
+					final int[] copy = new int[2 * classLabels.length];
+					System.arraycopy(classLabels, 0, copy, 0, numberOfClasses);
+					classLabels = copy;
+				}
+				classLabels[numberOfClasses++] = labels[i];
+			}
+		}
+		return Arrays.copyOf(classLabels, numberOfClasses);
+	}
+
+	/**
+	 * Returns the number of bytes of the arrays of the problem
+	 *
+	 * @return the number of bytes of the arrays of the problem
+	 */
+	public long getMemoryUsage() {
+		return 4L * labels.length + 4L * rowOffsets.length + 4L * indices.length + ((values == null)?0:8L * values.length);
+	}
+}
@@ -35,6 +35,26 @@ public class BatchTrainer extends Trainer {
 		oracleGuide = parserState.getFactory().makeOracleGuide(parserState.getHistory());
 	}
 	
+	/**
+	 * Creates a batch trainer that adds the instances to the classifier guide <code>guide</code>, for example a worker trainer of 
+	 * the parallel oracle. The feature model is not written to the configuration file.
+	 * 
+	 * @param manager a reference to the single malt configuration
+	 * @param symbolTableHandler a reference to the symbol table handler
+	 * @param guide the classifier guide that the instances are added to
+	 * @throws MaltChainedException
+	 */
+	BatchTrainer(DependencyParserConfig manager, SymbolTableHandler symbolTableHandler, ClassifierGuide guide) throws MaltChainedException {
+		super(manager,symbolTableHandler);
+		registry.setAlgorithm(this);
+		setGuide(guide);
+		String featureModelFileName = manager.getOptionValue("guide", "features").toString().trim();
+		String dataSplitColumn = manager.getOptionValue("guide", "data_split_column").toString().trim();
+		String dataSplitStructure = manager.getOptionValue("guide", "data_split_structure").toString().trim();
+		this.featureModel = manager.getFeatureModelManager().getFeatureModel(SingleGuide.findURL(featureModelFileName, manager), 0, getParserRegistry(), dataSplitColumn, dataSplitStructure);
+		oracleGuide = parserState.getFactory().makeOracleGuide(parserState.getHistory());
+	}
+	
 	public DependencyStructure parse(DependencyStructure goldDependencyGraph, DependencyStructure parseDependencyGraph) throws MaltChainedException {
 		parserState.clear();
 		parserState.initialize(parseDependencyGraph);
@@ -63,6 +83,10 @@ public class BatchTrainer extends Trainer {
 		return oracleGuide;
 	}
 	
+	public FeatureModel getFeatureModel() {
+		return featureModel;
+	}
+	
 	public void train() throws MaltChainedException { }
 	public void terminate() throws MaltChainedException {
 	}
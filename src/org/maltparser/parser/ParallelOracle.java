@@ -0,0 +1,389 @@
+package org.maltparser.parser;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.maltparser.core.exception.MaltChainedException;
+import org.maltparser.core.feature.FeatureModel;
+import org.maltparser.core.feature.FeatureVector;
+import org.maltparser.core.feature.function.FeatureFunction;
+import org.maltparser.core.feature.map.PrefixFeature;
+import org.maltparser.core.feature.map.SuffixFeature;
+import org.maltparser.core.feature.value.FeatureValue;
+import org.maltparser.core.feature.value.MultipleFeatureValue;
+import org.maltparser.core.feature.value.SingleFeatureValue;
+import org.maltparser.core.symbol.SymbolTable;
+import org.maltparser.core.symbol.concurrent.ConcurrentSymbolTableHandler;
+import org.maltparser.core.syntaxgraph.DependencyGraph;
+import org.maltparser.core.syntaxgraph.DependencyStructure;
+import org.maltparser.core.syntaxgraph.edge.Edge;
+import org.maltparser.core.syntaxgraph.node.DependencyNode;
+import org.maltparser.parser.guide.ClassifierGuide;
+import org.maltparser.parser.guide.GuideException;
+import org.maltparser.parser.history.action.ComplexDecisionAction;
+import org.maltparser.parser.history.action.GuideDecision;
+import org.maltparser.parser.history.action.MultipleDecision;
+import org.maltparser.parser.history.action.SingleDecision;
+/**
+ * Oracle parses the sentences of the learn flow on several worker threads. Each worker owns a batch trainer with its own
+ * parser state and feature model, and records the feature values and the decision of every instance instead of adding the
+ * instance to the classifier guide. The sentences are handed to the workers in the order they are read, and the recorded
+ * instances are added to the classifier guide in the same order by the thread that reads the sentences.
+ *
+ * The workers begin a sentence of the concurrent symbol table handler before they parse it, which makes the workers insert
+ * new symbols in the order of the sentences. Together with the ordered merge of the instances, the trained models are the same
+ * as when the sentences are oracle parsed one at a time.
+ */
+public class ParallelOracle {
+	private final DependencyParserConfig manager;
+	private final ConcurrentSymbolTableHandler symbolTableHandler;
+	private final ClassifierGuide guide;
+	private final FeatureModel featureModel;
+	private final GuideDecision decision;
+	private final ExecutorService executor;
+	private final ArrayDeque<Worker> idleWorkers;
+	private final ArrayDeque<Worker> busyWorkers;
+	private int sentenceCount;
+
+	/**
+	 * Creates a parallel oracle
+	 *
+	 * @param manager a reference to the single malt configuration
+	 * @param trainer the batch trainer of the single malt configuration, which owns the classifier guide and the feature model
+	 * @param symbolTableHandler the concurrent symbol table handler that is shared by the workers
+	 * @param numberOfThreads the number of worker threads
+	 * @throws MaltChainedException
+	 */
+	public ParallelOracle(DependencyParserConfig manager, BatchTrainer trainer, ConcurrentSymbolTableHandler symbolTableHandler, int numberOfThreads) throws MaltChainedException {
+		this.manager = manager;
+		this.symbolTableHandler = symbolTableHandler;
+		this.guide = trainer.getGuide();
+		this.featureModel = trainer.getFeatureModel();
+		this.decision = new ComplexDecisionAction(trainer.getParserState().getHistory());
+		this.idleWorkers = new ArrayDeque<Worker>(numberOfThreads);
+		this.busyWorkers = new ArrayDeque<Worker>(numberOfThreads);
+		final String rootLabels = manager.getOptionValue("graph", "root_label").toString();
+		for (int i = 0; i < numberOfThreads; i++) {
+			idleWorkers.add(new Worker(rootLabels));
+		}
+		this.executor = Executors.newFixedThreadPool(numberOfThreads, new ThreadFactory() {
+			private int threadCount = 0;
+			public synchronized Thread newThread(Runnable runnable) {
+				final Thread thread = new Thread(runnable, "oracle-"+(threadCount++));
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Returns <i>true</i> if the instances of the feature model can be extracted by the workers. The prefix and suffix features
+	 * keep values from earlier updates, which makes their values depend on the sentences that the feature model has extracted
+	 * before.
+	 *
+	 * @param featureModel a feature model
+	 * @return <i>true</i> if the instances of the feature model can be extracted by the workers
+	 */
+	public static boolean isSupported(FeatureModel featureModel) {
+		for (FeatureFunction function : featureModel.getFeatureFunctions()) {
+			if (function instanceof PrefixFeature || function instanceof SuffixFeature) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Hands a sentence to an idle worker. If all workers are busy, the instances of the earliest sentence are added to the
+	 * classifier guide first. The sentence is copied, so the gold-standard and the oracle dependency graphs can be reused as soon
+	 * as the method returns. The edges of the oracle dependency graph are not added.
+	 *
+	 * @param goldGraph a gold-standard dependency graph
+	 * @param oracleGraph a dependency graph with the terminals of the sentence
+	 * @throws MaltChainedException
+	 */
+	public void parse(DependencyStructure goldGraph, DependencyStructure oracleGraph) throws MaltChainedException {
+		while (!busyWorkers.isEmpty() && (idleWorkers.isEmpty() || busyWorkers.peek().future.isDone())) {
+			addInstances(busyWorkers.poll());
+		}
+		final Worker worker = idleWorkers.poll();
+		worker.copy(goldGraph, oracleGraph);
+		worker.sentenceIndex = sentenceCount++;
+		worker.future = executor.submit(worker);
+		busyWorkers.add(worker);
+	}
+
+	/**
+	 * Waits for all workers and adds the instances of their sentences to the classifier guide.
+	 *
+	 * @throws MaltChainedException
+	 */
+	public void flush() throws MaltChainedException {
+		while (!busyWorkers.isEmpty()) {
+			addInstances(busyWorkers.poll());
+		}
+	}
+
+	/**
+	 * Stops the worker threads. Sentences that have not been added to the classifier guide are discarded.
+	 */
+	public void terminate() {
+		executor.shutdownNow();
+		busyWorkers.clear();
+	}
+
+	private void addInstances(Worker worker) throws MaltChainedException {
+		try {
+			worker.future.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof MaltChainedException) {
+				throw (MaltChainedException)e.getCause();
+			}
+			throw new ParsingException("The oracle could not parse sentence "+(worker.sentenceIndex+1)+". ", e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ParsingException("The oracle was interrupted while parsing sentence "+(worker.sentenceIndex+1)+". ", e);
+		} finally {
+			worker.future = null;
+		}
+		featureModel.setFrozen(true);
+		try {
+			worker.instances.addInstances(featureModel.getFeatureFunctions(), decision, guide, featureModel);
+		} finally {
+			featureModel.setFrozen(false);
+		}
+		guide.finalizeSentence(worker.oracleGraph);
+		worker.instances.clear();
+		idleWorkers.add(worker);
+	}
+
+	private class Worker implements Callable<Object> {
+		private final DependencyGraph goldGraph;
+		private final DependencyGraph oracleGraph;
+		private final InstanceRecorder instances;
+		private final BatchTrainer trainer;
+		private int sentenceIndex;
+		private Future<Object> future;
+
+		public Worker(String rootLabels) throws MaltChainedException {
+			goldGraph = new DependencyGraph(symbolTableHandler);
+			oracleGraph = new DependencyGraph(symbolTableHandler);
+			goldGraph.setDefaultRootEdgeLabels(rootLabels, manager.getDataFormatInstance().getDependencyEdgeLabelSymbolTables(symbolTableHandler));
+			oracleGraph.setDefaultRootEdgeLabels(rootLabels, manager.getDataFormatInstance().getDependencyEdgeLabelSymbolTables(symbolTableHandler));
+			instances = new InstanceRecorder(manager);
+			trainer = new BatchTrainer(manager, symbolTableHandler, instances);
+		}
+
+		public void copy(DependencyStructure sourceGoldGraph, DependencyStructure sourceOracleGraph) throws MaltChainedException {
+			goldGraph.clear();
+			for (int index : sourceGoldGraph.getTokenIndices()) {
+				copyLabels(sourceGoldGraph.getTokenNode(index), goldGraph.addTokenNode(index));
+			}
+			for (int index : sourceGoldGraph.getTokenIndices()) {
+				final DependencyNode node = sourceGoldGraph.getDependencyNode(index);
+				if (node.hasHead()) {
+					final Edge edge = node.getHeadEdge();
+					final Edge copy = goldGraph.addDependencyEdge(edge.getSource().getIndex(), edge.getTarget().getIndex());
+					for (SymbolTable table : edge.getLabelTypes()) {
+						copy.addLabel(table, edge.getLabelCode(table));
+					}
+				}
+			}
+			oracleGraph.clear();
+			for (int index : sourceOracleGraph.getTokenIndices()) {
+				copyLabels(sourceOracleGraph.getTokenNode(index), oracleGraph.addTokenNode(index));
+			}
+		}
+
+		private void copyLabels(DependencyNode source, DependencyNode target) throws MaltChainedException {
+			for (SymbolTable table : source.getLabelTypes()) {
+				target.addLabel(table, source.getLabelCode(table));
+			}
+		}
+
+		public Object call() throws MaltChainedException {
+			symbolTableHandler.beginSentence(sentenceIndex);
+			try {
+				trainer.parse(goldGraph, oracleGraph);
+			} finally {
+				symbolTableHandler.endSentence();
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * A classifier guide that records the instances of a sentence, which are later added to another classifier guide. The
+	 * feature values of all feature functions of the feature model are recorded, because the decision models select the feature
+	 * vector by the decision.
+	 */
+	private static class InstanceRecorder implements ClassifierGuide {
+		private static final int MULTIPLE = 1;
+		private static final int NULL_VALUE = 2;
+		private final DependencyParserConfig configuration;
+		private String guideName;
+		private int numberOfInstances;
+		private int[] codes;
+		private int codeCount;
+		private double[] values;
+		private int valueCount;
+		private String[] symbols;
+		private int symbolCount;
+
+		public InstanceRecorder(DependencyParserConfig configuration) {
+			this.configuration = configuration;
+			this.codes = new int[1024];
+			this.values = new double[256];
+			this.symbols = new String[256];
+		}
+
+		public void addInstance(FeatureModel featureModel, GuideDecision decision) throws MaltChainedException {
+			featureModel.update();
+			if (decision instanceof MultipleDecision) {
+				final MultipleDecision multipleDecision = (MultipleDecision)decision;
+				addCode(multipleDecision.numberOfDecisions());
+				for (int i = 0; i < multipleDecision.numberOfDecisions(); i++) {
+					addCode(multipleDecision.getSingleDecision(i).getDecisionCode());
+				}
+			} else {
+				addCode(1);
+				addCode(((SingleDecision)decision).getDecisionCode());
+			}
+			final ArrayList<FeatureFunction> functions = featureModel.getFeatureFunctions();
+			for (int i = 0, n = functions.size(); i < n; i++) {
+				final FeatureValue featureValue = functions.get(i).getFeatureValue();
+				if (featureValue instanceof SingleFeatureValue) {
+					final SingleFeatureValue singleValue = (SingleFeatureValue)featureValue;
+					addCode(singleValue.isNullValue()?NULL_VALUE:0);
+					addCode(singleValue.getIndexCode());
+					addValue(singleValue.getValue());
+					addSymbol(singleValue.getSymbol());
+				} else {
+					final MultipleFeatureValue multipleValue = (MultipleFeatureValue)featureValue;
+					addCode(multipleValue.isNullValue()?MULTIPLE|NULL_VALUE:MULTIPLE);
+					addCode(multipleValue.nFeatureValues());
+					for (Integer code : multipleValue.getCodes()) {
+						addCode(code);
+						addSymbol(multipleValue.getSymbol(code));
+					}
+				}
+			}
+			numberOfInstances++;
+		}
+
+		/**
+		 * Adds the recorded instances to a classifier guide
+		 *
+		 * @param functions the feature functions of the frozen feature model, in the same order as the feature functions of the recorded feature model
+		 * @param decision an empty decision of the guide
+		 * @param guide the classifier guide that the instances are added to
+		 * @param featureModel the frozen feature model
+		 * @throws MaltChainedException
+		 */
+		public void addInstances(ArrayList<FeatureFunction> functions, GuideDecision decision, ClassifierGuide guide, FeatureModel featureModel) throws MaltChainedException {
+			int codeIndex = 0;
+			int valueIndex = 0;
+			int symbolIndex = 0;
+			for (int k = 0; k < numberOfInstances; k++) {
+				decision.clear();
+				final int numberOfDecisions = codes[codeIndex++];
+				for (int i = 0; i < numberOfDecisions; i++) {
+					if (decision instanceof MultipleDecision) {
+						((MultipleDecision)decision).getSingleDecision(i).addDecision(codes[codeIndex++]);
+					} else {
+						((SingleDecision)decision).addDecision(codes[codeIndex++]);
+					}
+				}
+				for (int i = 0, n = functions.size(); i < n; i++) {
+					final FeatureValue featureValue = functions.get(i).getFeatureValue();
+					final int flags = codes[codeIndex++];
+					if ((flags & MULTIPLE) == 0) {
+						((SingleFeatureValue)featureValue).update(codes[codeIndex++], symbols[symbolIndex++], (flags & NULL_VALUE) != 0, values[valueIndex++]);
+					} else {
+						final MultipleFeatureValue multipleValue = (MultipleFeatureValue)featureValue;
+						multipleValue.reset();
+						for (int j = codes[codeIndex++]; j > 0; j--) {
+							multipleValue.addFeatureValue(codes[codeIndex++], symbols[symbolIndex++]);
+						}
+						multipleValue.setNullValue((flags & NULL_VALUE) != 0);
+					}
+				}
+				guide.addInstance(featureModel, decision);
+			}
+		}
+
+		public void clear() {
+			numberOfInstances = 0;
+			codeCount = 0;
+			valueCount = 0;
+			Arrays.fill(symbols, 0, symbolCount, null);
+			symbolCount = 0;
+		}
+
+		private void addCode(int code) {
+			if (codeCount == codes.length) {
+				codes = Arrays.copyOf(codes, codes.length * 2);
+			}
+			codes[codeCount++] = code;
+		}
+
+		private void addValue(double value) {
+			if (valueCount == values.length) {
+				values = Arrays.copyOf(values, values.length * 2);
+			}
+			values[valueCount++] = value;
+		}
+
+		private void addSymbol(String symbol) {
+			if (symbolCount == symbols.length) {
+				symbols = Arrays.copyOf(symbols, symbols.length * 2);
+			}
+			symbols[symbolCount++] = symbol;
+		}
+
+		public void finalizeSentence(DependencyStructure dependencyGraph) throws MaltChainedException { }
+
+		public void noMoreInstances() throws MaltChainedException { }
+
+		public void terminate() throws MaltChainedException { }
+
+		public void predict(FeatureModel featureModel, GuideDecision decision) throws MaltChainedException {
+			throw new GuideException("The instance recorder cannot predict decisions. ");
+		}
+
+		public FeatureVector predictExtract(FeatureModel featureModel, GuideDecision decision) throws MaltChainedException {
+			throw new GuideException("The instance recorder cannot predict decisions. ");
+		}
+
+		public FeatureVector extract(FeatureModel featureModel) throws MaltChainedException {
+			throw new GuideException("The instance recorder cannot extract feature vectors. ");
+		}
+
+		public boolean predictFromKBestList(FeatureModel featureModel, GuideDecision decision) throws MaltChainedException {
+			throw new GuideException("The instance recorder cannot predict decisions. ");
+		}
+
+		public GuideMode getGuideMode() {
+			return GuideMode.BATCH;
+		}
+
+		public DependencyParserConfig getConfiguration() {
+			return configuration;
+		}
+
+		public String getGuideName() {
+			return guideName;
+		}
+
+		public void setGuideName(String guideName) {
+			this.guideName = guideName;
+		}
+	}
+}
@@ -19,19 +19,24 @@ import org.apache.log4j.Logger;
 import org.apache.log4j.PatternLayout;
 import org.maltparser.core.config.ConfigurationDir;
 import org.maltparser.core.config.ConfigurationException;
+import org.maltparser.core.config.McoContainer;
 import org.maltparser.core.exception.MaltChainedException;
 import org.maltparser.core.feature.FeatureModelManager;
 import org.maltparser.core.feature.system.FeatureEngine;
 import org.maltparser.core.helper.SystemLogger;
 import org.maltparser.core.helper.URLFinder;
 import org.maltparser.core.io.dataformat.DataFormatInstance;
+import org.maltparser.core.io.dataformat.DataFormatManager;
+import org.maltparser.core.io.dataformat.DataFormatSpecification.DataStructure;
 import org.maltparser.core.options.OptionManager;
 import org.maltparser.core.plugin.PluginLoader;
 import org.maltparser.core.propagation.PropagationException;
 import org.maltparser.core.propagation.PropagationManager;
 import org.maltparser.core.symbol.SymbolTableHandler;
+import org.maltparser.core.symbol.concurrent.ConcurrentSymbolTableHandler;
 import org.maltparser.core.syntaxgraph.DependencyStructure;
 import org.maltparser.parser.guide.ClassifierGuide;
+import org.maltparser.parser.guide.instance.CachedModel;
 
 /**
  * @author Johan Hall
@@ -55,7 +60,9 @@ public class SingleMalt implements DependencyParserConfig {
 	protected PropagationManager propagationManager;
 	private Parser parser;
 	private Trainer trainer;
+	private ParallelOracle parallelOracle;
 	private AbstractParserFactory parserFactory;
+	private boolean quietInfo = false;
 	
 	
 	public void initialize(int containerIndex, DataFormatInstance dataFormatInstance, SymbolTableHandler symbolTableHandler, ConfigurationDir configDir, int mode) throws MaltChainedException {
@@ -109,7 +116,7 @@ public class SingleMalt implements DependencyParserConfig {
 			return;
 		}
 		propagationManager = new PropagationManager();
-		if (mode == SingleMalt.LEARN) {
+		if (mode == SingleMalt.LEARN && !configDir.getFile(propagationSpecFileName).exists()) {
 			propagationSpecFileName = configDir.copyToConfig(propagationSpecFileName);
 			OptionManager.instance().overloadOptionValue(optionContainerIndex, "singlemalt", "propagation", propagationSpecFileName);
 		}
@@ -130,6 +137,7 @@ public class SingleMalt implements DependencyParserConfig {
 		if (mode == LEARN) {
 			if (!diagnostics) {
 				parsingAlgorithm = trainer = new BatchTrainer(this, symbolTableHandler);
+				initParallelOracle();
 			} else {
 				parsingAlgorithm = trainer = new BatchTrainerWithDiagnostics(this, symbolTableHandler);
 			}
@@ -142,6 +150,39 @@ public class SingleMalt implements DependencyParserConfig {
 		}
 	}
 	
+	/**
+	 * Initialize the parallel oracle if the option --singlemalt-oracle_threads is not one. The sentences are oracle parsed by the 
+	 * single malt configuration when the learn flow chart is not used or when the sentences can't be oracle parsed by the workers.
+	 * 
+	 * @throws MaltChainedException
+	 */
+	private void initParallelOracle() throws MaltChainedException {
+		int numberOfThreads = (Integer)getOptionValue("singlemalt", "oracle_threads");
+		if (numberOfThreads == 0) {
+			numberOfThreads = Runtime.getRuntime().availableProcessors();
+		}
+		if (numberOfThreads <= 1 || !(symbolTableHandler instanceof ConcurrentSymbolTableHandler) || propagationManager != null 
+				|| (Boolean)getOptionValue("singlemalt", "use_partial_tree") || !getOptionValue("config", "flowchart").toString().equals("learn")
+				|| !ParallelOracle.isSupported(((BatchTrainer)trainer).getFeatureModel())) {
+			return;
+		}
+		final DataFormatManager dataFormatManager = configDir.getDataFormatManager();
+		if (dataFormatManager.getInputDataFormatSpec().getDataStructure() != DataStructure.DEPENDENCY 
+				|| dataFormatManager.getOutputDataFormatSpec().getDataStructure() != DataStructure.DEPENDENCY) {
+			return;
+		}
+		// The transition system and the oracle are already logged by the trainer, so the worker trainers are created quietly
+		quietInfo = true;
+		try {
+			parallelOracle = new ParallelOracle(this, (BatchTrainer)trainer, (ConcurrentSymbolTableHandler)symbolTableHandler, numberOfThreads);
+		} finally {
+			quietInfo = false;
+		}
+		if (isLoggerInfoEnabled()) {
+			logInfoMessage("  Oracle threads       : " + numberOfThreads+"\n");
+		}
+	}
+	
 	protected void initFeatureSystem() throws MaltChainedException {
 		final FeatureEngine system = new FeatureEngine();
 		system.load("/appdata/features/ParserFeatureSystem.xml");
@@ -218,7 +259,9 @@ public class SingleMalt implements DependencyParserConfig {
 	
 	public void oracleParse(DependencyStructure goldGraph, DependencyStructure oracleGraph) throws MaltChainedException {
 		if (oracleGraph.hasTokens()) {
-			if (getGuide() != null) {
+			if (parallelOracle != null) {
+				parallelOracle.parse(goldGraph, oracleGraph);
+			} else if (getGuide() != null) {
 				getGuide().finalizeSentence(trainer.parse(goldGraph, oracleGraph));
 			} else {
 				trainer.parse(goldGraph, oracleGraph);
@@ -226,16 +269,44 @@ public class SingleMalt implements DependencyParserConfig {
 		}
 	}
 	
+	/**
+	 * Waits for the sentences that are oracle parsed by the parallel oracle and adds their instances to the guide. 
+	 * 
+	 * @throws MaltChainedException
+	 */
+	public void flushOracleParse() throws MaltChainedException {
+		if (parallelOracle != null) {
+			parallelOracle.flush();
+		}
+	}
+	
 	public void train() throws MaltChainedException {
 		if (getGuide() == null) {
 			((Trainer)getAlgorithm()).train();
 		}
 	}
 	
+	/**
+	 * Trains the models from the instance files of an instance cache entry, instead of the instances added by the oracle.
+	 * 
+	 * @param directory the directory of the instance cache entry
+	 * @throws MaltChainedException
+	 */
+	public void trainCachedInstances(File directory) throws MaltChainedException {
+		if (getGuide() == null) {
+			throw new ConfigurationException("The parsing algorithm cannot be trained from the instance cache. ");
+		}
+		CachedModel.train(getGuide(), directory);
+	}
+	
 	public void terminate(Object[] arguments) throws MaltChainedException {
 //		if (getAlgorithm() instanceof Trainer) {
 //			((Trainer)getAlgorithm()).terminate();
 //		}
+		if (parallelOracle != null) {
+			parallelOracle.terminate();
+			parallelOracle = null;
+		}
 		getAlgorithm().terminate();
 		if (getGuide() != null) {
 			getGuide().terminate();
@@ -284,7 +355,7 @@ public class SingleMalt implements DependencyParserConfig {
 	}
 	
 	public boolean isLoggerInfoEnabled() {
-		return configLogger != null && configLogger.isInfoEnabled();
+		return !quietInfo && configLogger != null && configLogger.isInfoEnabled();
 	}
 	public boolean isLoggerDebugEnabled() {
 		return configLogger != null && configLogger.isDebugEnabled();
@@ -353,6 +424,10 @@ public class SingleMalt implements DependencyParserConfig {
 	}
 	
 	public Object getConfigFileEntryObject(String fileName) throws MaltChainedException {
+		final McoContainer container = configDir.getMcoContainer();
+		if (container != null && container.hasSection(fileName)) {
+			return container.getObject(fileName);
+		}
 		Object object = null;
 		try {
 		    ObjectInputStream input = new ObjectInputStream(getInputStreamFromConfigFileEntry(fileName));
@@ -387,6 +462,28 @@ public class SingleMalt implements DependencyParserConfig {
 	    return sb.toString();
 	}
 	
+	public boolean hasConfigFileEntry(String fileName) throws MaltChainedException {
+		final McoContainer container = configDir.getMcoContainer();
+		if (container != null && container.hasSection(fileName)) {
+			return true;
+		}
+		return configDir.getConfigFileEntry(fileName) != null;
+	}
+	
+	/**
+	 * Returns the directory that the learners write their training instances to, so that they can be reused by a later 
+	 * training, or <i>null</i> if the instances are not written to the instance cache.
+	 * 
+	 * @return the directory of the instance files, or <i>null</i>
+	 * @throws MaltChainedException
+	 */
+	public File getInstanceCacheDirectory() throws MaltChainedException {
+		if (configDir == null || configDir.getInstanceCache() == null) {
+			return null;
+		}
+		return configDir.getInstanceCache().getWorkDirectory();
+	}
+	
 	public int getMode() {
 		return mode;
 	}
@@ -449,7 +546,10 @@ public class SingleMalt implements DependencyParserConfig {
 				
 				/* START: Temp fix during development of new liblinear and libsvm interface */
 				String learner = getOptionValueString("guide", "learner");
-				if (!learner.startsWith("lib")) {
+				if (org.maltparser.ml.lib.LibLinear.class.isAssignableFrom((Class<?>)getOptionValue("guide", "learner"))) {
+					// Learners that save Liblinear models use the default feature models of the LIBLINEAR learner
+					learner = "liblinear";
+				} else if (!learner.startsWith("lib")) {
 					learner = "lib"+learner;
 				}
 				/* END: Temp fix during development of new liblinear and libsvm interface */
@@ -458,7 +558,8 @@ public class SingleMalt implements DependencyParserConfig {
 				
 				final URLFinder f = new URLFinder();
 				featureModelFileName = configDir.copyToConfig(f.findURLinJars(featureModelFileName));
-			} else {
+			} else if (!configDir.getFile(featureModelFileName).exists()) {
+				// The feature model file is already in the configuration directory when the training of a configuration is continued
 				featureModelFileName = configDir.copyToConfig(featureModelFileName);
 			}
 			OptionManager.instance().overloadOptionValue(optionContainerIndex, "guide", "features", featureModelFileName);
@@ -139,9 +139,13 @@ public class SingleMaltChartItem extends ChartItem {
 	
 	public int postprocess(int signal) throws MaltChainedException {
 		if (taskName.equals("train") && singleMalt.getGuide() != null) {
+			singleMalt.flushOracleParse();
 			singleMalt.getGuide().noMoreInstances();
 		} else if (taskName.equals("train") && singleMalt.getGuide() == null) {
 			singleMalt.train();
+		} else if (taskName.equals("traincached")) {
+			final ConfigurationDir configDir = (ConfigurationDir)flowChartinstance.getFlowChartRegistry(org.maltparser.core.config.ConfigurationDir.class, idName);
+			singleMalt.trainCachedInstances(configDir.getInstanceCache().getEntry());
 		}
 		return signal;
 	}
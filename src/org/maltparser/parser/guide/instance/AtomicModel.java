@@ -13,6 +13,8 @@ import org.maltparser.core.feature.function.Modifiable;
 import org.maltparser.core.syntaxgraph.DependencyStructure;
 import org.maltparser.ml.LearningMethod;
 import org.maltparser.ml.lib.LibLinear;
+import org.maltparser.ml.lib.LibLinearParallel;
+import org.maltparser.ml.lib.LibPerceptron;
 import org.maltparser.ml.lib.LibSvm;
 import org.maltparser.parser.guide.ClassifierGuide;
 import org.maltparser.parser.guide.GuideException;
@@ -65,6 +67,10 @@ public class AtomicModel implements InstanceModel {
 			this.method = new LibSvm(this, learnerMode);
 		} else if (clazz == org.maltparser.ml.lib.LibLinear.class) {
 			this.method = new LibLinear(this, learnerMode);
+		} else if (clazz == org.maltparser.ml.lib.LibLinearParallel.class) {
+			this.method = new LibLinearParallel(this, learnerMode);
+		} else if (clazz == org.maltparser.ml.lib.LibPerceptron.class) {
+			this.method = new LibPerceptron(this, learnerMode);
 		} else {
 			Object[] arguments = {this, learnerMode};
 			try {	
@@ -0,0 +1,91 @@
+package org.maltparser.parser.guide.instance;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.maltparser.core.config.InstanceCache;
+import org.maltparser.core.exception.MaltChainedException;
+import org.maltparser.core.feature.FeatureModel;
+import org.maltparser.core.syntaxgraph.DependencyStructure;
+import org.maltparser.ml.lib.Lib;
+import org.maltparser.parser.guide.ClassifierGuide;
+import org.maltparser.parser.guide.GuideException;
+import org.maltparser.parser.guide.Model;
+
+/**
+ * The parent model of the atomic models that are trained from the instance files of an instance cache. The decision models
+ * and the feature divide models are not created, because the instances were divided between the atomic models before they
+ * were cached. The name of an instance file is the name of the atomic model followed by <i>instances</i>, where the name of
+ * the atomic model is the name of its parent model, followed by the index of the divide model for the models of a feature
+ * divide model.
+ */
+public class CachedModel implements Model {
+	private static final Pattern DIVIDE_MODEL_NAME = Pattern.compile("(.+)\\.(\\d{3,})\\.");
+	private final ClassifierGuide guide;
+	private final String modelName;
+
+	/**
+	 * Constructs a parent model of cached atomic models
+	 *
+	 * @param guide the classifier guide
+	 * @param modelName the name of the parent model
+	 */
+	public CachedModel(ClassifierGuide guide, String modelName) {
+		this.guide = guide;
+		this.modelName = modelName;
+	}
+
+	/**
+	 * Trains one atomic model for each instance file of an instance cache entry. The models are trained in the order of the
+	 * file names, so the divide models are trained before the master model as by the feature divide model.
+	 *
+	 * @param guide the classifier guide
+	 * @param directory the directory of the instance cache entry
+	 * @throws MaltChainedException
+	 */
+	public static void train(ClassifierGuide guide, File directory) throws MaltChainedException {
+		final String[] fileNames = directory.list();
+		if (fileNames == null) {
+			throw new GuideException("The instance cache entry '"+directory.getPath()+"' cannot be found. ");
+		}
+		Arrays.sort(fileNames);
+		for (int i = 0; i < fileNames.length; i++) {
+			if (!fileNames[i].endsWith(InstanceCache.INSTANCES_SUFFIX)) {
+				continue;
+			}
+			final String atomicModelName = fileNames[i].substring(0, fileNames[i].length() - InstanceCache.INSTANCES_SUFFIX.length());
+			final Matcher matcher = DIVIDE_MODEL_NAME.matcher(atomicModelName);
+			final AtomicModel model;
+			if (matcher.matches()) {
+				model = new AtomicModel(Integer.parseInt(matcher.group(2)), new CachedModel(guide, matcher.group(1)));
+			} else if (atomicModelName.length() > 1 && atomicModelName.endsWith(".")) {
+				model = new AtomicModel(-1, new CachedModel(guide, atomicModelName.substring(0, atomicModelName.length() - 1)));
+			} else {
+				throw new GuideException("The instance cache file '"+fileNames[i]+"' doesn't belong to a guide model. ");
+			}
+			if (!(model.getMethod() instanceof Lib)) {
+				model.terminate();
+				throw new GuideException("Only the learners of the lib package can be trained from the instance cache. ");
+			}
+			((Lib)model.getMethod()).loadInstances(new File(directory, fileNames[i]));
+			model.noMoreInstances(null);
+			model.train();
+		}
+	}
+
+	public void finalizeSentence(DependencyStructure dependencyGraph) throws MaltChainedException { }
+
+	public void noMoreInstances(FeatureModel featureModel) throws MaltChainedException { }
+
+	public void terminate() throws MaltChainedException { }
+
+	public ClassifierGuide getGuide() {
+		return guide;
+	}
+
+	public String getModelName() {
+		return modelName;
+	}
+}
@@ -2,10 +2,19 @@ package org.maltparser.parser.guide.instance;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.SortedMap;
 
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
 import org.maltparser.core.exception.MaltChainedException;
@@ -13,6 +22,7 @@ import org.maltparser.core.feature.FeatureModel;
 import org.maltparser.core.feature.FeatureVector;
 import org.maltparser.core.feature.value.SingleFeatureValue;
 import org.maltparser.core.syntaxgraph.DependencyStructure;
+import org.maltparser.ml.lib.Lib;
 import org.maltparser.parser.guide.ClassifierGuide;
 import org.maltparser.parser.guide.GuideException;
 import org.maltparser.parser.guide.Model;
@@ -159,10 +169,27 @@ public class FeatureDivideModel implements InstanceModel {
 	}
 	
 	public void train() throws MaltChainedException {
-		for (AtomicModel divideModel : divideModels.values()) {
-			divideModel.train();
+		final ArrayList<AtomicModel> models = new ArrayList<AtomicModel>(divideModels.values());
+		models.add(masterModel);
+		final long[] trainingTimes = new long[models.size()];
+		final int numberOfThreads = getNumberOfTrainingThreads(models);
+		if (numberOfThreads > 1) {
+			trainConcurrently(models, numberOfThreads, trainingTimes);
+		} else {
+			for (int i = 0; i < models.size(); i++) {
+				final long startTime = System.nanoTime();
+				models.get(i).train();
+				trainingTimes[i] = System.nanoTime() - startTime;
+			}
+		}
+		if (getGuide().getConfiguration().isLoggerInfoEnabled()) {
+			final StringBuilder sb = new StringBuilder();
+			sb.append("Training time of the models of "+getModelName()+" ("+numberOfThreads+" thread"+(numberOfThreads > 1?"s":"")+"):\n");
+			for (int i = 0; i < models.size(); i++) {
+				sb.append(String.format("- %-12s %8d instances %10.2f s\n", models.get(i).getModelName(), models.get(i).getFrequency(), trainingTimes[i] / 1e9));
+			}
+			getGuide().getConfiguration().logInfoMessage(sb.toString());
 		}
-		masterModel.train();
 		save();
 		for (AtomicModel divideModel : divideModels.values()) {
 			divideModel.terminate();
@@ -170,6 +197,147 @@ public class FeatureDivideModel implements InstanceModel {
 		masterModel.terminate();
 	}
 	
+	/**
+	 * Returns the number of threads that train the models, which is limited by the option --guide-train_threads, the number 
+	 * of models and the number of models that fit in the memory budget at the same time. The models are trained by one 
+	 * thread if not all models are trained by the LIBSVM or LIBLINEAR learner.
+	 * 
+	 * @param models the models that should be trained
+	 * @return the number of threads that train the models
+	 * @throws MaltChainedException
+	 */
+	private int getNumberOfTrainingThreads(ArrayList<AtomicModel> models) throws MaltChainedException {
+		int numberOfThreads = ((Integer)getGuide().getConfiguration().getOptionValue("guide", "train_threads")).intValue();
+		if (numberOfThreads == 0) {
+			numberOfThreads = Runtime.getRuntime().availableProcessors();
+		}
+		numberOfThreads = Math.min(numberOfThreads, models.size());
+		if (numberOfThreads <= 1) {
+			return 1;
+		}
+		final long[] estimates = new long[models.size()];
+		for (int i = 0; i < models.size(); i++) {
+			if (!(models.get(i).getMethod() instanceof Lib)) {
+				return 1;
+			}
+			estimates[i] = ((Lib)models.get(i).getMethod()).getEstimatedTrainingMemory();
+		}
+		// The number of the smallest models that fit in the memory budget at the same time
+		Arrays.sort(estimates);
+		final long memoryBudget = getTrainingMemoryBudget();
+		long memory = estimates[0];
+		int fits = 1;
+		while (fits < estimates.length && memory + estimates[fits] <= memoryBudget) {
+			memory += estimates[fits++];
+		}
+		return Math.min(numberOfThreads, fits);
+	}
+	
+	private long getTrainingMemoryBudget() throws MaltChainedException {
+		final long trainMemory = ((Integer)getGuide().getConfiguration().getOptionValue("guide", "train_memory")).intValue();
+		if (trainMemory > 0) {
+			return trainMemory * 1024L * 1024L;
+		}
+		final Runtime runtime = Runtime.getRuntime();
+		return runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+	}
+	
+	/**
+	 * Trains the models concurrently by a fixed number of threads. The largest models are started first and a model is not 
+	 * started before its estimated training memory fits in the memory budget. The trained models are saved to their own 
+	 * files, so the result doesn't depend on the order in which the models are trained.
+	 * 
+	 * @param models the models that should be trained
+	 * @param numberOfThreads the number of threads
+	 * @param trainingTimes the training time in nanoseconds of each model is written to this array
+	 * @throws MaltChainedException
+	 */
+	private void trainConcurrently(final ArrayList<AtomicModel> models, int numberOfThreads, final long[] trainingTimes) throws MaltChainedException {
+		final long[] estimates = new long[models.size()];
+		final ArrayList<Integer> order = new ArrayList<Integer>(models.size());
+		for (int i = 0; i < models.size(); i++) {
+			estimates[i] = ((Lib)models.get(i).getMethod()).getEstimatedTrainingMemory();
+			order.add(i);
+		}
+		Collections.sort(order, new Comparator<Integer>() {
+			public int compare(Integer o1, Integer o2) {
+				if (estimates[o1] != estimates[o2]) {
+					return estimates[o1] > estimates[o2]?-1:1;
+				}
+				return o1.compareTo(o2);
+			}
+		});
+		final TrainingMemory trainingMemory = new TrainingMemory(getTrainingMemoryBudget());
+		final ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+		final ArrayList<Future<Long>> futures = new ArrayList<Future<Long>>(Collections.<Future<Long>>nCopies(models.size(), null));
+		try {
+			for (final Integer i : order) {
+				futures.set(i, executor.submit(new Callable<Long>() {
+					public Long call() throws MaltChainedException, InterruptedException {
+						final long memory = trainingMemory.acquire(estimates[i]);
+						try {
+							final long startTime = System.nanoTime();
+							models.get(i).train();
+							return System.nanoTime() - startTime;
+						} finally {
+							trainingMemory.release(memory);
+						}
+					}
+				}));
+			}
+			executor.shutdown();
+			for (int i = 0; i < models.size(); i++) {
+				try {
+					trainingTimes[i] = futures.get(i).get();
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof MaltChainedException) {
+						throw (MaltChainedException)e.getCause();
+					}
+					throw new GuideException("The model '"+models.get(i).getModelName()+"' could not be trained. ", e.getCause());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new GuideException("The training of the model '"+models.get(i).getModelName()+"' was interrupted. ", e);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * The memory budget of the concurrently trained models
+	 */
+	private static final class TrainingMemory {
+		private final long budget;
+		private long available;
+		
+		public TrainingMemory(long budget) {
+			this.budget = Math.max(budget, 0);
+			this.available = this.budget;
+		}
+		
+		/**
+		 * Waits until the memory is available and reserves it. A model that is larger than the budget is trained alone.
+		 * 
+		 * @param memory the estimated memory in bytes
+		 * @return the reserved memory in bytes, which should be released by release()
+		 * @throws InterruptedException
+		 */
+		public synchronized long acquire(long memory) throws InterruptedException {
+			final long reserved = Math.min(memory, budget);
+			while (available < reserved) {
+				wait();
+			}
+			available -= reserved;
+			return reserved;
+		}
+		
+		public synchronized void release(long reserved) {
+			available += reserved;
+			notifyAll();
+		}
+	}
+	
 	/**
 	 * Saves the feature divide model settings .dsm file.
 	 * 